@@ -0,0 +1,83 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc.benchmarks;
+
+import com.microsoft.semantickernel.connectors.memory.jdbc.EmbeddingStorageFormat;
+import com.microsoft.semantickernel.connectors.memory.jdbc.JDBCMemoryStore;
+import com.microsoft.semantickernel.memory.MemoryRecord;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs a memory store over a SQLite database file holding one collection of {@code collectionSize}
+ * synthetic records of {@code dimension} dimensions. Each benchmark is measured both for throughput
+ * and for sampled latency, whose report includes the p50 and p99; run with {@code -prof gc} to also
+ * report the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class AbstractMemoryStoreBenchmark {
+    static final String COLLECTION = "benchmark";
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    @Param({"1000", "10000", "100000"})
+    public int collectionSize;
+
+    @Param({"384", "1536"})
+    public int dimension;
+
+    @Param({"JSON"})
+    public EmbeddingStorageFormat format;
+
+    private File databaseFile;
+    private Connection connection;
+    protected JDBCMemoryStore store;
+    protected List<MemoryRecord> records;
+
+    @Setup
+    public void setupStore() throws IOException, SQLException {
+        databaseFile = File.createTempFile("sk-memory-benchmark", ".db");
+        connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+        store =
+                new JDBCMemoryStore.Builder()
+                        .withConnection(connection)
+                        .withEmbeddingStorageFormat(format)
+                        .buildAsync()
+                        .block();
+        store.createCollectionAsync(COLLECTION).block();
+        records = SyntheticEmbeddings.records(collectionSize, dimension, 42);
+        for (int i = 0; i < collectionSize; i += LOAD_BATCH_SIZE) {
+            store.upsertBatchAsync(
+                            COLLECTION,
+                            records.subList(i, Math.min(i + LOAD_BATCH_SIZE, collectionSize)))
+                    .block();
+        }
+    }
+
+    @TearDown
+    public void tearDownStore() throws SQLException {
+        connection.close();
+        if (!databaseFile.delete()) {
+            databaseFile.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.microsoft.semantickernel.ai.embeddings.Embedding;
+import com.microsoft.semantickernel.connectors.memory.jdbc.EmbeddingCodec;
+import com.microsoft.semantickernel.connectors.memory.jdbc.JsonCodec;
+import com.microsoft.semantickernel.memory.MemoryRecord;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares decoding the JSON of one row with a new {@code ObjectMapper}, as the store used to, with
+ * the shared reader and with the streaming embedding decoder. Run with {@code -prof gc} to compare
+ * the allocation per row as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonDecodingBenchmark {
+    private static final ObjectReader EMBEDDING_READER =
+            new ObjectMapper().readerFor(Embedding.class);
+
+    @Param({"384", "1536"})
+    public int dimension;
+
+    private String key;
+    private String metadata;
+    private String embedding;
+    private ZonedDateTime timestamp;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        MemoryRecord record = SyntheticEmbeddings.records(1, dimension, 42).get(0);
+        key = record.getKey();
+        metadata = record.getSerializedMetadata();
+        embedding = record.getSerializedEmbedding();
+        timestamp = record.getTimestamp();
+    }
+
+    @Benchmark
+    public float[] embeddingWithNewMapper() throws JsonProcessingException {
+        return EmbeddingCodec.toArray(
+                new ObjectMapper().readValue(embedding, Embedding.class).getVector());
+    }
+
+    @Benchmark
+    public float[] embeddingWithSharedReader() throws JsonProcessingException {
+        return EmbeddingCodec.toArray(EMBEDDING_READER.<Embedding>readValue(embedding).getVector());
+    }
+
+    @Benchmark
+    public float[] embeddingStreamed() {
+        return EmbeddingCodec.fromJson(embedding);
+    }
+
+    @Benchmark
+    public MemoryRecord metadataWithNewMapper() throws JsonProcessingException {
+        return MemoryRecord.fromJsonMetadata(metadata, null, key, timestamp);
+    }
+
+    @Benchmark
+    public MemoryRecord metadataWithSharedReader() throws JsonProcessingException {
+        return JsonCodec.readMemoryRecord(metadata, null, key, timestamp);
+    }
+}
@@ -0,0 +1,59 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc.benchmarks;
+
+import com.microsoft.semantickernel.ai.embeddings.Embedding;
+import com.microsoft.semantickernel.memory.MemoryRecord;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import reactor.util.function.Tuple2;
+
+/** Measures point reads, batch reads and nearest-match searches of a populated collection. */
+public class MemoryStoreReadBenchmark extends AbstractMemoryStoreBenchmark {
+    @Param({"16"})
+    public int batchSize;
+
+    @Param({"10"})
+    public int limit;
+
+    @Param({"false"})
+    public boolean withEmbeddings;
+
+    private Embedding query;
+
+    @Setup
+    public void setupQuery() {
+        query =
+                new Embedding(
+                        SyntheticEmbeddings.toList(
+                                SyntheticEmbeddings.vector(new Random(7), dimension)));
+    }
+
+    @Benchmark
+    public MemoryRecord get() {
+        return store.getAsync(COLLECTION, randomKey(), withEmbeddings).block();
+    }
+
+    @Benchmark
+    public Collection<MemoryRecord> getBatch() {
+        List<String> keys = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            keys.add(randomKey());
+        }
+        return store.getBatchAsync(COLLECTION, keys, withEmbeddings).block();
+    }
+
+    @Benchmark
+    public Collection<Tuple2<MemoryRecord, Float>> getNearestMatches() {
+        return store.getNearestMatchesAsync(COLLECTION, query, limit, -1f, withEmbeddings).block();
+    }
+
+    private String randomKey() {
+        return "key" + ThreadLocalRandom.current().nextInt(collectionSize);
+    }
+}
@@ -0,0 +1,52 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc.benchmarks;
+
+import com.microsoft.semantickernel.connectors.memory.jdbc.BulkUpsertOptions;
+import com.microsoft.semantickernel.connectors.memory.jdbc.BulkUpsertProgress;
+import com.microsoft.semantickernel.memory.MemoryRecord;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import reactor.core.publisher.Flux;
+
+/**
+ * Measures single, batch and bulk upserts into a populated collection. Upserts replace existing
+ * records, so the collection keeps its size across iterations; the database file is not synced
+ * differently from a production store, so durable commits are part of the measured cost. The bulk
+ * upsert is reported per record, so its throughput reads as rows per second.
+ */
+public class MemoryStoreWriteBenchmark extends AbstractMemoryStoreBenchmark {
+    private static final int BULK_SIZE = 50000;
+
+    @Param({"100"})
+    public int batchSize;
+
+    @Param({"10000"})
+    public int commitRows;
+
+    @Benchmark
+    public String upsert() {
+        MemoryRecord record = records.get(ThreadLocalRandom.current().nextInt(collectionSize));
+        return store.upsertAsync(COLLECTION, record).block();
+    }
+
+    @Benchmark
+    public Collection<String> upsertBatch() {
+        int size = Math.min(batchSize, collectionSize);
+        int from = ThreadLocalRandom.current().nextInt(collectionSize - size + 1);
+        return store.upsertBatchAsync(COLLECTION, records.subList(from, from + size)).block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public BulkUpsertProgress upsertBulk() {
+        int from = ThreadLocalRandom.current().nextInt(collectionSize);
+        return store.upsertBulkAsync(
+                        COLLECTION,
+                        Flux.range(from, BULK_SIZE).map(i -> records.get(i % collectionSize)),
+                        new BulkUpsertOptions.Builder().withCommitRows(commitRows).build())
+                .blockLast();
+    }
+}
@@ -0,0 +1,114 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.microsoft.semantickernel.ai.embeddings.Embedding;
+import com.microsoft.semantickernel.connectors.memory.jdbc.EmbeddingCodec;
+import com.microsoft.semantickernel.connectors.memory.jdbc.SimilarityKernels;
+import com.microsoft.semantickernel.connectors.memory.jdbc.TopKHeap;
+import com.microsoft.semantickernel.memory.MemoryRecord;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+/**
+ * Compares the selection of the nearest matches from a scanned collection by sorting a record for
+ * every row against keeping a bounded heap of row indices and building records for the winners
+ * only. Run with {@code -prof gc} to see the allocation per search, which is the regression this
+ * guards against.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NearestMatchSelectionBenchmark {
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"384"})
+    public int dimension;
+
+    @Param({"10"})
+    public int limit;
+
+    private String[] keys;
+    private String[] metadata;
+    private float[][] vectors;
+    private float[] query;
+    private ZonedDateTime timestamp;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        List<MemoryRecord> records = SyntheticEmbeddings.records(rows, dimension, 42);
+        keys = new String[rows];
+        metadata = new String[rows];
+        vectors = new float[rows][];
+        for (int i = 0; i < rows; i++) {
+            MemoryRecord record = records.get(i);
+            keys[i] = record.getKey();
+            metadata[i] = record.getSerializedMetadata();
+            vectors[i] = EmbeddingCodec.toArray(record.getEmbedding().getVector());
+        }
+        query = SyntheticEmbeddings.vector(new Random(7), dimension);
+        timestamp = ZonedDateTime.now();
+    }
+
+    @Benchmark
+    public List<Tuple2<MemoryRecord, Float>> sortAllRows() throws JsonProcessingException {
+        List<Tuple2<MemoryRecord, Float>> nearestMatches = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            float similarity = SimilarityKernels.cosine(query, vectors[i]);
+            MemoryRecord record =
+                    MemoryRecord.fromJsonMetadata(
+                            metadata[i],
+                            new Embedding(EmbeddingCodec.toList(vectors[i])),
+                            keys[i],
+                            timestamp);
+            nearestMatches.add(Tuples.of(record, similarity));
+        }
+        return nearestMatches.stream()
+                .sorted(Comparator.comparing(Tuple2::getT2, (a, b) -> Float.compare(b, a)))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Tuple2<MemoryRecord, Float>> topKHeap() throws JsonProcessingException {
+        TopKHeap best = new TopKHeap(limit);
+        for (int i = 0; i < rows; i++) {
+            best.offer(SimilarityKernels.cosine(query, vectors[i]), i);
+        }
+        best.sortDescending();
+        List<Tuple2<MemoryRecord, Float>> results = new ArrayList<>(best.size());
+        for (int i = 0; i < best.size(); i++) {
+            int row = best.index(i);
+            MemoryRecord record =
+                    MemoryRecord.fromJsonMetadata(
+                            metadata[row],
+                            new Embedding(EmbeddingCodec.toList(vectors[row])),
+                            keys[row],
+                            timestamp);
+            results.add(Tuples.of(record, best.score(i)));
+        }
+        return results;
+    }
+}
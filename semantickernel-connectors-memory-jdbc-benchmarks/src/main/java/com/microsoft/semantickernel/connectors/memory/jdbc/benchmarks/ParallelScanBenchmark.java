@@ -0,0 +1,81 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc.benchmarks;
+
+import com.microsoft.semantickernel.connectors.memory.jdbc.CollectionVectorCache;
+import com.microsoft.semantickernel.connectors.memory.jdbc.JDBCMemoryStore;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.util.function.Tuple2;
+
+/**
+ * Compares a sequential scan of a resident collection with a parallel scan on a fork/join pool of
+ * {@code threads} workers. The default parameters describe the 1M x 768 dataset; it needs a heap of
+ * about 6 GB, which the fork requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(
+        value = 1,
+        jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class ParallelScanBenchmark {
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"768"})
+    public int dimension;
+
+    @Param({"10"})
+    public int limit;
+
+    @Param({"0"})
+    public int threads;
+
+    private CollectionVectorCache cache;
+    private ForkJoinPool pool;
+    private float[] query;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        cache = new CollectionVectorCache();
+        for (int i = 0; i < rows; i++) {
+            cache.load("key" + i, SyntheticEmbeddings.vector(random, dimension));
+        }
+        cache.finishLoading();
+        query = SyntheticEmbeddings.vector(random, dimension);
+        pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<Tuple2<String, Float>> sequential() {
+        return cache.search(query, limit, -1f);
+    }
+
+    @Benchmark
+    public List<Tuple2<String, Float>> parallel() {
+        return cache.search(
+                query, limit, -1f, pool, JDBCMemoryStore.DEFAULT_PARALLEL_SCAN_CHUNK_SIZE);
+    }
+}
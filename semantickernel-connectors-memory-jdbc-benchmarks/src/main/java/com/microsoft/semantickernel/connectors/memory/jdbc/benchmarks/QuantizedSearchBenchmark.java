@@ -0,0 +1,104 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc.benchmarks;
+
+import com.microsoft.semantickernel.ai.embeddings.Embedding;
+import com.microsoft.semantickernel.connectors.memory.jdbc.EmbeddingStorageFormat;
+import com.microsoft.semantickernel.connectors.memory.jdbc.JDBCMemoryStore;
+import com.microsoft.semantickernel.memory.MemoryRecord;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.util.function.Tuple2;
+
+/**
+ * Compares scanning full-precision embeddings with scanning int8-quantized embeddings or binary
+ * signatures and rescoring {@code limit * rescoreOversample} candidates; {@code rescoreOversample}
+ * does not apply to full-precision embeddings. The recall each oversample buys, which is the other
+ * side of the trade-off, is asserted by JDBCMemoryStoreTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuantizedSearchBenchmark {
+    static final String COLLECTION = "benchmark";
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    @Param({"100000"})
+    public int collectionSize;
+
+    @Param({"384", "1536"})
+    public int dimension;
+
+    @Param({"FLOAT32_BLOB", "INT8_QUANTIZED", "BINARY_SIGNATURE"})
+    public EmbeddingStorageFormat format;
+
+    @Param({"1", "4", "16"})
+    public int rescoreOversample;
+
+    @Param({"10"})
+    public int limit;
+
+    private File databaseFile;
+    private Connection connection;
+    private JDBCMemoryStore store;
+    private Embedding query;
+
+    @Setup
+    public void setup() throws IOException, SQLException {
+        databaseFile = File.createTempFile("sk-quantized-benchmark", ".db");
+        connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+        store =
+                new JDBCMemoryStore.Builder()
+                        .withConnection(connection)
+                        .withEmbeddingStorageFormat(format)
+                        .withRescoreOversample(rescoreOversample)
+                        .buildAsync()
+                        .block();
+        store.createCollectionAsync(COLLECTION).block();
+        List<MemoryRecord> records = SyntheticEmbeddings.records(collectionSize, dimension, 42);
+        for (int i = 0; i < collectionSize; i += LOAD_BATCH_SIZE) {
+            store.upsertBatchAsync(
+                            COLLECTION,
+                            records.subList(i, Math.min(i + LOAD_BATCH_SIZE, collectionSize)))
+                    .block();
+        }
+        Random random = new Random(7);
+        query =
+                new Embedding(
+                        SyntheticEmbeddings.toList(SyntheticEmbeddings.vector(random, dimension)));
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+        if (!databaseFile.delete()) {
+            databaseFile.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public Collection<Tuple2<MemoryRecord, Float>> getNearestMatches() {
+        return store.getNearestMatchesAsync(COLLECTION, query, limit, -1f, false).block();
+    }
+}
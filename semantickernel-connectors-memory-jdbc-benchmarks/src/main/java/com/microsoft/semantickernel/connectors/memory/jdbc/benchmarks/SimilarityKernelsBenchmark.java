@@ -0,0 +1,122 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc.benchmarks;
+
+import com.microsoft.semantickernel.connectors.memory.jdbc.SimilarityKernels;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the similarity kernels over a block of rows at common embedding sizes, as a scan of a
+ * vector cache calls them. The benchmarks of this class run on the scalar loops; those of {@link
+ * VectorApi} run the same kernels in a fork with the Vector API enabled, which takes JDK 17 or
+ * later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimilarityKernelsBenchmark {
+    private static final int ROWS = 1000;
+
+    @Param({"384", "768", "1536"})
+    public int dimension;
+
+    private float[] query;
+    private float[] unitQuery;
+    private float[][] vectors;
+    private float[] matrix;
+    private FloatBuffer offHeapMatrix;
+    private float[] norms;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        query = SyntheticEmbeddings.vector(random, dimension);
+        unitQuery = SimilarityKernels.normalize(query);
+        vectors = new float[ROWS][];
+        matrix = new float[ROWS * dimension];
+        norms = new float[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            vectors[i] = SyntheticEmbeddings.vector(random, dimension);
+            System.arraycopy(vectors[i], 0, matrix, i * dimension, dimension);
+            norms[i] = SimilarityKernels.norm(vectors[i]);
+        }
+        offHeapMatrix =
+                ByteBuffer.allocateDirect(matrix.length * Float.BYTES)
+                        .order(ByteOrder.nativeOrder())
+                        .asFloatBuffer();
+        offHeapMatrix.put(matrix);
+    }
+
+    @Benchmark
+    public float dot() {
+        float sum = 0;
+        for (int i = 0; i < ROWS; i++) {
+            sum += SimilarityKernels.dot(query, vectors[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float cosine() {
+        float sum = 0;
+        for (int i = 0; i < ROWS; i++) {
+            sum += SimilarityKernels.cosine(query, matrix, i * dimension);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float l2Distance() {
+        float sum = 0;
+        for (int i = 0; i < ROWS; i++) {
+            sum += SimilarityKernels.l2Distance(query, vectors[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float unitCosine() {
+        float sum = 0;
+        for (int i = 0; i < ROWS; i++) {
+            sum += SimilarityKernels.unitCosine(unitQuery, matrix, i * dimension, norms[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float unitCosineOffHeap() {
+        float sum = 0;
+        for (int i = 0; i < ROWS; i++) {
+            sum += SimilarityKernels.unitCosine(unitQuery, offHeapMatrix, i * dimension, norms[i]);
+        }
+        return sum;
+    }
+
+    /** The same benchmarks with the Vector API enabled. */
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public static class VectorApi extends SimilarityKernelsBenchmark {
+        @Setup
+        public void checkVectorized() {
+            if (!SimilarityKernels.isVectorized()) {
+                throw new IllegalStateException("The Vector API is not available");
+            }
+        }
+    }
+}
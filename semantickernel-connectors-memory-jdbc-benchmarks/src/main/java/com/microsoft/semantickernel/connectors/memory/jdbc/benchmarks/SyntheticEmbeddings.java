@@ -0,0 +1,49 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc.benchmarks;
+
+import com.microsoft.semantickernel.ai.embeddings.Embedding;
+import com.microsoft.semantickernel.memory.MemoryRecord;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Generates reproducible records with Gaussian embeddings for the benchmarks. */
+final class SyntheticEmbeddings {
+    private SyntheticEmbeddings() {}
+
+    static float[] vector(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    static List<Float> toList(float[] vector) {
+        List<Float> list = new ArrayList<>(vector.length);
+        for (float value : vector) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    static List<MemoryRecord> records(int count, int dimension, long seed) {
+        Random random = new Random(seed);
+        ZonedDateTime timestamp = ZonedDateTime.now();
+        List<MemoryRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String key = "key" + i;
+            records.add(
+                    MemoryRecord.localRecord(
+                            key,
+                            "text " + i,
+                            "description " + i,
+                            new Embedding(toList(vector(random, dimension))),
+                            "",
+                            key,
+                            timestamp));
+        }
+        return records;
+    }
+}
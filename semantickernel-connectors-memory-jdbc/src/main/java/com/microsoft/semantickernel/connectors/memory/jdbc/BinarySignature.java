@@ -0,0 +1,121 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reduces embeddings to one bit per component, the sign of the component, which a search scans in a
+ * thirty-second of the bytes of float32 components. The number of components whose signs differ,
+ * the Hamming distance of two signatures, estimates the angle between the vectors, so ranking by it
+ * shortlists candidates for an exact rescoring.
+ *
+ * <p>The encoded form is a little-endian int32 dimension header followed by the bits packed into
+ * little-endian 64-bit words; bit {@code i % 64} of word {@code i / 64} is set if component {@code
+ * i} is positive. A 1536-dimensional embedding takes 196 bytes.
+ */
+public final class BinarySignature {
+
+    /** Size in bytes of the dimension that prefixes the bits of a signature. */
+    public static final int HEADER_BYTES = Integer.BYTES;
+
+    private BinarySignature() {}
+
+    /**
+     * Computes the signature of a vector.
+     *
+     * @param vector The vector.
+     * @return The encoded signature.
+     */
+    public static byte[] encode(float[] vector) {
+        long[] words = bits(vector);
+        ByteBuffer buffer =
+                ByteBuffer.allocate(HEADER_BYTES + words.length * Long.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(vector.length);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Computes the signature of a query, against which encoded signatures are compared.
+     *
+     * @param query The query vector.
+     * @return The query signature.
+     */
+    public static Query signQuery(float[] query) {
+        return new Query(bits(query), query.length);
+    }
+
+    private static long[] bits(float[] vector) {
+        long[] words = new long[words(vector.length)];
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] > 0) {
+                words[i >>> 6] |= 1L << i;
+            }
+        }
+        return words;
+    }
+
+    private static int words(int dimension) {
+        return (dimension + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /** The signature of a query, which measures its Hamming distance to encoded signatures. */
+    public static final class Query {
+        private final long[] words;
+        private final int dimension;
+        // The similarity estimated for each distance, so that scoring a row needs no cosine
+        private final float[] similarities;
+
+        private Query(long[] words, int dimension) {
+            this.words = words;
+            this.dimension = dimension;
+            this.similarities = new float[dimension + 1];
+            for (int distance = 0; distance <= dimension; distance++) {
+                similarities[distance] = (float) Math.cos(Math.PI * distance / dimension);
+            }
+        }
+
+        /**
+         * Counts the components whose signs differ between the query and a signature.
+         *
+         * @param signature The encoded signature.
+         * @return The Hamming distance of the signatures.
+         * @throws IllegalArgumentException if the dimensions differ.
+         */
+        public int distance(byte[] signature) {
+            ByteBuffer buffer = ByteBuffer.wrap(signature).order(ByteOrder.LITTLE_ENDIAN);
+            int signatureDimension = signature.length >= HEADER_BYTES ? buffer.getInt(0) : -1;
+            if (signatureDimension < 0
+                    || signature.length != HEADER_BYTES + words(signatureDimension) * Long.BYTES) {
+                throw new SQLConnectorException(
+                        SQLConnectorException.ErrorCodes.INVALID_EMBEDDING,
+                        "Signature of " + signature.length + " bytes does not match its header");
+            }
+            if (signatureDimension != dimension) {
+                throw new IllegalArgumentException("Vectors lengths must be equal");
+            }
+            int distance = 0;
+            for (int i = 0; i < words.length; i++) {
+                distance += Long.bitCount(words[i] ^ buffer.getLong(HEADER_BYTES + i * Long.BYTES));
+            }
+            return distance;
+        }
+
+        /**
+         * Estimates the cosine similarity of the query with a vector from their signatures, as the
+         * cosine of the angle that their Hamming distance corresponds to. The estimate is coarse;
+         * it orders candidates by distance and is not comparable with exact similarities.
+         *
+         * @param signature The encoded signature of the vector.
+         * @return The estimated cosine similarity.
+         * @throws IllegalArgumentException if the dimensions differ.
+         */
+        public float similarity(byte[] signature) {
+            return similarities[distance(signature)];
+        }
+    }
+}
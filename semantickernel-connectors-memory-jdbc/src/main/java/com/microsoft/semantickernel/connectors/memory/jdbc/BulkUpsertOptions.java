@@ -0,0 +1,148 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Configures a bulk upsert, which writes a stream of records in chunks of one transaction each. A
+ * chunk is committed as soon as it holds {@code commitRows} records or {@code commitBytes} bytes of
+ * encoded metadata and embeddings, whichever comes first. A chunk that fails is rolled back and
+ * retried on its own; chunks committed before it are not written again.
+ */
+public final class BulkUpsertOptions {
+    /** The number of records committed together unless configured otherwise. */
+    public static final int DEFAULT_COMMIT_ROWS = 10000;
+
+    /** The encoded size of the records committed together unless configured otherwise. */
+    public static final long DEFAULT_COMMIT_BYTES = 16L * 1024 * 1024;
+
+    /** The number of times a failed chunk is retried unless configured otherwise. */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    private final int commitRows;
+    private final long commitBytes;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+
+    private BulkUpsertOptions(Builder builder) {
+        this.commitRows = builder.commitRows;
+        this.commitBytes = builder.commitBytes;
+        this.maxRetries = builder.maxRetries;
+        this.retryBackoff = builder.retryBackoff;
+    }
+
+    /**
+     * Gets the maximum number of records committed together.
+     *
+     * @return The maximum number of records of a chunk.
+     */
+    public int getCommitRows() {
+        return commitRows;
+    }
+
+    /**
+     * Gets the encoded size at which a chunk is committed.
+     *
+     * @return The maximum number of bytes of a chunk.
+     */
+    public long getCommitBytes() {
+        return commitBytes;
+    }
+
+    /**
+     * Gets the number of times a failed chunk is retried before the upsert fails.
+     *
+     * @return The maximum number of retries of a chunk.
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Gets the delay before the first retry of a failed chunk, which doubles with every retry.
+     *
+     * @return The initial retry delay.
+     */
+    public Duration getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    /** Builds a BulkUpsertOptions. */
+    public static class Builder {
+        private int commitRows = DEFAULT_COMMIT_ROWS;
+        private long commitBytes = DEFAULT_COMMIT_BYTES;
+        private int maxRetries = DEFAULT_MAX_RETRIES;
+        private Duration retryBackoff = Duration.ofMillis(100);
+
+        /**
+         * Builds the options.
+         *
+         * @return The bulk upsert options.
+         */
+        public BulkUpsertOptions build() {
+            return new BulkUpsertOptions(this);
+        }
+
+        /**
+         * Sets the maximum number of records committed together. Defaults to {@value
+         * BulkUpsertOptions#DEFAULT_COMMIT_ROWS}.
+         *
+         * @param commitRows The maximum number of records of a chunk.
+         * @return The updated Builder instance to continue the building process for a
+         *     BulkUpsertOptions.
+         */
+        public Builder withCommitRows(int commitRows) {
+            if (commitRows <= 0) {
+                throw new IllegalArgumentException("commitRows must be positive");
+            }
+            this.commitRows = commitRows;
+            return this;
+        }
+
+        /**
+         * Sets the encoded size of metadata and embeddings at which a chunk is committed, which
+         * bounds the memory held by a chunk of large records. Defaults to 16 MiB.
+         *
+         * @param commitBytes The maximum number of bytes of a chunk.
+         * @return The updated Builder instance to continue the building process for a
+         *     BulkUpsertOptions.
+         */
+        public Builder withCommitBytes(long commitBytes) {
+            if (commitBytes <= 0) {
+                throw new IllegalArgumentException("commitBytes must be positive");
+            }
+            this.commitBytes = commitBytes;
+            return this;
+        }
+
+        /**
+         * Sets how often a chunk that failed with a database error is retried. Defaults to {@value
+         * BulkUpsertOptions#DEFAULT_MAX_RETRIES}; 0 fails the upsert on the first error.
+         *
+         * @param maxRetries The maximum number of retries of a chunk.
+         * @return The updated Builder instance to continue the building process for a
+         *     BulkUpsertOptions.
+         */
+        public Builder withMaxRetries(int maxRetries) {
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("maxRetries must not be negative");
+            }
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Sets the delay before the first retry of a failed chunk, which doubles with every retry.
+         * Defaults to 100 milliseconds.
+         *
+         * @param retryBackoff The initial retry delay.
+         * @return The updated Builder instance to continue the building process for a
+         *     BulkUpsertOptions.
+         */
+        public Builder withRetryBackoff(Duration retryBackoff) {
+            this.retryBackoff = Objects.requireNonNull(retryBackoff);
+            return this;
+        }
+    }
+}
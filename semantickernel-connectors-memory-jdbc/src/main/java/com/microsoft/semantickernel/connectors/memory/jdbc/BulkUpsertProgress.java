@@ -0,0 +1,84 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.util.Collections;
+import java.util.List;
+
+/** Reports a chunk of a bulk upsert that has been committed. */
+public final class BulkUpsertProgress {
+    private final int chunk;
+    private final List<String> keys;
+    private final long bytes;
+    private final int attempts;
+    private final long totalRows;
+    private final long totalBytes;
+
+    BulkUpsertProgress(
+            int chunk,
+            List<String> keys,
+            long bytes,
+            int attempts,
+            long totalRows,
+            long totalBytes) {
+        this.chunk = chunk;
+        this.keys = Collections.unmodifiableList(keys);
+        this.bytes = bytes;
+        this.attempts = attempts;
+        this.totalRows = totalRows;
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * Gets the position of the chunk in the upsert, starting at 0.
+     *
+     * @return The index of the chunk.
+     */
+    public int getChunk() {
+        return chunk;
+    }
+
+    /**
+     * Gets the keys of the records committed with the chunk, in the order they were written.
+     *
+     * @return The keys of the chunk.
+     */
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Gets the encoded size of the metadata and embeddings committed with the chunk.
+     *
+     * @return The number of bytes of the chunk.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the number of times the chunk was written, which is more than one if it was retried.
+     *
+     * @return The number of attempts of the chunk.
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Gets the number of records committed by the upsert so far, including this chunk.
+     *
+     * @return The total number of committed records.
+     */
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * Gets the encoded size of the records committed by the upsert so far, including this chunk.
+     *
+     * @return The total number of committed bytes.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+}
@@ -0,0 +1,127 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the names of the collections of a memory store in memory, so that checking whether a
+ * collection exists before a write is a hash lookup rather than a query.
+ *
+ * <p>The registry is loaded when the store is built and updated by the collections the store
+ * creates and deletes. A name missing from the registry is looked up in the database, so
+ * collections created by other processes are found on first use. Collections deleted by other
+ * processes are noticed only if a refresh interval is set: a lookup made after the interval has
+ * elapsed compares the version of the collections in the database with the version loaded, and
+ * reloads the names if it changed.
+ */
+final class CollectionRegistry {
+    private final SQLConnector connector;
+    private final long refreshIntervalNanos;
+    private final Set<String> collections = ConcurrentHashMap.newKeySet();
+    // The version the names were loaded at, or null if unknown
+    @Nullable private volatile Long version;
+    private volatile long checkedAt = System.nanoTime();
+
+    /**
+     * Creates an empty registry.
+     *
+     * @param connector The connector to the database holding the collections.
+     * @param refreshIntervalNanos The time after which the version is checked again; 0 disables
+     *     checks.
+     */
+    CollectionRegistry(SQLConnector connector, long refreshIntervalNanos) {
+        this.connector = connector;
+        this.refreshIntervalNanos = refreshIntervalNanos;
+    }
+
+    /**
+     * Replaces the registered names with the collections in the database.
+     *
+     * @return A Mono that completes when the names are loaded.
+     */
+    Mono<Void> loadAsync() {
+        checkedAt = System.nanoTime();
+        return synchronizeAsync(true);
+    }
+
+    /**
+     * Checks whether a collection exists.
+     *
+     * @param collectionName The name of the collection.
+     * @return A Mono emitting whether the collection exists.
+     */
+    Mono<Boolean> containsAsync(String collectionName) {
+        return Mono.defer(this::refreshIfStaleAsync)
+                .then(
+                        Mono.defer(
+                                () -> {
+                                    if (collections.contains(collectionName)) {
+                                        return Mono.just(true);
+                                    }
+                                    return connector
+                                            .doesCollectionExistsAsync(collectionName)
+                                            .doOnNext(
+                                                    exists -> {
+                                                        if (exists) {
+                                                            collections.add(collectionName);
+                                                        }
+                                                    });
+                                }));
+    }
+
+    /**
+     * Registers a collection created by the store.
+     *
+     * @param collectionName The name of the collection.
+     */
+    void add(String collectionName) {
+        collections.add(collectionName);
+    }
+
+    /**
+     * Unregisters a collection deleted by the store.
+     *
+     * @param collectionName The name of the collection.
+     */
+    void remove(String collectionName) {
+        collections.remove(collectionName);
+    }
+
+    private Mono<Void> refreshIfStaleAsync() {
+        if (refreshIntervalNanos <= 0 || System.nanoTime() - checkedAt < refreshIntervalNanos) {
+            return Mono.empty();
+        }
+        // Concurrent lookups may check at once, which only costs an extra query
+        checkedAt = System.nanoTime();
+        return synchronizeAsync(false);
+    }
+
+    // Reloads the names unless the version in the database is the one loaded
+    private Mono<Void> synchronizeAsync(boolean force) {
+        return connector
+                .getCollectionsVersionAsync()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(
+                        current -> {
+                            if (!force && current.isPresent() && current.get().equals(version)) {
+                                return Mono.empty();
+                            }
+                            return connector
+                                    .getCollectionsAsync()
+                                    .doOnNext(names -> replace(names, current.orElse(null)))
+                                    .then();
+                        });
+    }
+
+    private void replace(List<String> names, @Nullable Long loaded) {
+        collections.retainAll(names);
+        collections.addAll(names);
+        version = loaded;
+    }
+}
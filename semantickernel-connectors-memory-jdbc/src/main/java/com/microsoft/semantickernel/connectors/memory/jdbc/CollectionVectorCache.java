@@ -0,0 +1,371 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.Nullable;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+/**
+ * Resident copy of the embeddings of one collection, held as a contiguous row-major float matrix
+ * with parallel arrays of keys and of row norms. An off-heap cache holds the matrix in slabs of a
+ * {@link VectorArena} instead, a whole number of rows per slab, and only the keys and norms on the
+ * heap.
+ *
+ * <p>The cache is filled by {@link #load(String, float[])} while it is loading. Writes that happen
+ * during the load are applied immediately and take precedence over loaded rows for the same key, so
+ * a snapshot read that races with a write cannot resurrect stale data.
+ */
+public class CollectionVectorCache {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> rowsByKey = new HashMap<>();
+    private String[] keys = new String[0];
+    private float[] matrix = new float[0];
+    private float[] norms = new float[0];
+    private int dimension = -1;
+    private int size;
+    private boolean released;
+
+    @Nullable private final VectorArena arena;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final List<FloatBuffer> slabRows = new ArrayList<>();
+    private int rowsPerSlab;
+
+    @Nullable private Set<String> writtenWhileLoading = new HashSet<>();
+
+    /** Creates a cache that holds its rows on the heap. */
+    public CollectionVectorCache() {
+        this(null);
+    }
+
+    /**
+     * Creates a cache that holds its rows in slabs of an arena, or on the heap without one.
+     *
+     * @param arena The arena to take slabs from, or null to hold the rows on the heap.
+     */
+    CollectionVectorCache(@Nullable VectorArena arena) {
+        this.arena = arena;
+    }
+
+    /**
+     * Adds a row read from the database while the cache is loading. The row is ignored if the key
+     * has been written since the load started.
+     *
+     * @param key The key of the row.
+     * @param vector The embedding of the row.
+     * @throws VectorArena.ExhaustedException if the arena has no slab left for the row.
+     */
+    public void load(String key, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            if (released || writtenWhileLoading != null && writtenWhileLoading.contains(key)) {
+                return;
+            }
+            set(key, vector);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Marks the load as complete. */
+    public void finishLoading() {
+        lock.writeLock().lock();
+        try {
+            writtenWhileLoading = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts or replaces the embedding of a key.
+     *
+     * @param key The key of the row.
+     * @param vector The embedding of the row.
+     * @throws IllegalArgumentException if the dimension differs from the cached rows.
+     * @throws VectorArena.ExhaustedException if the arena has no slab left for the row.
+     */
+    public void put(String key, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            if (released) {
+                return;
+            }
+            if (writtenWhileLoading != null) {
+                writtenWhileLoading.add(key);
+            }
+            set(key, vector);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the embedding of a key.
+     *
+     * @param key The key of the row.
+     */
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            if (writtenWhileLoading != null) {
+                writtenWhileLoading.add(key);
+            }
+            Integer row = rowsByKey.remove(key);
+            if (row == null) {
+                return;
+            }
+            // Move the last row into the hole to keep the matrix contiguous
+            int last = size - 1;
+            if (row != last) {
+                if (arena == null) {
+                    System.arraycopy(matrix, last * dimension, matrix, row * dimension, dimension);
+                } else {
+                    FloatBuffer from = slabRows.get(last / rowsPerSlab);
+                    FloatBuffer to = slabRows.get(row / rowsPerSlab);
+                    int fromOffset = (last % rowsPerSlab) * dimension;
+                    int toOffset = (row % rowsPerSlab) * dimension;
+                    for (int i = 0; i < dimension; i++) {
+                        to.put(toOffset + i, from.get(fromOffset + i));
+                    }
+                }
+                keys[row] = keys[last];
+                norms[row] = norms[last];
+                rowsByKey.put(keys[row], row);
+            }
+            keys[last] = null;
+            size--;
+            if (arena != null && size <= (slabs.size() - 1) * rowsPerSlab) {
+                slabRows.remove(slabRows.size() - 1);
+                arena.release(slabs.remove(slabs.size() - 1));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Empties the cache for good and gives its slabs back to its arena. Writes to a released cache
+     * are ignored and its searches return null, so that a search holding a cache evicted in the
+     * meantime can read the database instead.
+     */
+    void release() {
+        lock.writeLock().lock();
+        try {
+            released = true;
+            rowsByKey.clear();
+            keys = new String[0];
+            matrix = new float[0];
+            norms = new float[0];
+            size = 0;
+            slabRows.clear();
+            if (arena != null) {
+                slabs.forEach(arena::release);
+            }
+            slabs.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of cached rows.
+     *
+     * @return The number of cached rows.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Scans every cached row and returns the keys with the highest cosine similarity to the query.
+     *
+     * @param query The query vector.
+     * @param limit The maximum number of matches to return.
+     * @param minRelevanceScore The minimum similarity a row must have to be returned.
+     * @return The matching keys and their similarity, best match first, or null if the cache has
+     *     been released.
+     */
+    @Nullable
+    public List<Tuple2<String, Float>> search(float[] query, int limit, float minRelevanceScore) {
+        return search(query, limit, minRelevanceScore, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Scans every cached row in chunks on a fork/join pool and returns the keys with the highest
+     * cosine similarity to the query. Each chunk keeps its own best matches, which are merged once
+     * every chunk has been scanned. A cache of at most one chunk is scanned on the calling thread.
+     *
+     * @param query The query vector.
+     * @param limit The maximum number of matches to return.
+     * @param minRelevanceScore The minimum similarity a row must have to be returned.
+     * @param pool The pool to scan on, or null to scan on the calling thread.
+     * @param chunkSize The number of rows scanned by one task.
+     * @return The matching keys and their similarity, best match first, or null if the cache has
+     *     been released.
+     */
+    @Nullable
+    public List<Tuple2<String, Float>> search(
+            float[] query,
+            int limit,
+            float minRelevanceScore,
+            @Nullable ForkJoinPool pool,
+            int chunkSize) {
+        lock.readLock().lock();
+        try {
+            if (released) {
+                return null;
+            }
+            List<Tuple2<String, Float>> matches = new ArrayList<>();
+            if (size == 0) {
+                return matches;
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException("Vectors lengths must be equal");
+            }
+            // The tasks read the matrix while this thread holds the read lock on their behalf
+            ScanTask scan =
+                    new ScanTask(
+                            SimilarityKernels.normalize(query),
+                            limit,
+                            minRelevanceScore,
+                            0,
+                            size,
+                            chunkSize);
+            TopKHeap best = pool == null || size <= chunkSize ? scan.compute() : pool.invoke(scan);
+            best.sortDescending();
+            for (int i = 0; i < best.size(); i++) {
+                matches.add(Tuples.of(keys[best.index(i)], best.score(i)));
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Scans a range of rows, splitting it in halves until it fits in a chunk
+    private final class ScanTask extends RecursiveTask<TopKHeap> {
+        private static final long serialVersionUID = 1L;
+
+        private final float[] unitQuery;
+        private final int limit;
+        private final float minRelevanceScore;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        private ScanTask(
+                float[] unitQuery,
+                int limit,
+                float minRelevanceScore,
+                int from,
+                int to,
+                int chunkSize) {
+            this.unitQuery = unitQuery;
+            this.limit = limit;
+            this.minRelevanceScore = minRelevanceScore;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = Math.max(chunkSize, 1);
+        }
+
+        @Override
+        protected TopKHeap compute() {
+            if (to - from > chunkSize) {
+                int middle = (from + to) >>> 1;
+                ScanTask left =
+                        new ScanTask(unitQuery, limit, minRelevanceScore, from, middle, chunkSize);
+                ScanTask right =
+                        new ScanTask(unitQuery, limit, minRelevanceScore, middle, to, chunkSize);
+                left.fork();
+                TopKHeap rightBest = right.compute();
+                TopKHeap leftBest = left.join();
+                // Each half is bounded by its own range, so the merge needs a heap for both
+                TopKHeap best = new TopKHeap(Math.min(limit, to - from));
+                for (TopKHeap half : new TopKHeap[] {rightBest, leftBest}) {
+                    for (int i = 0; i < half.size(); i++) {
+                        best.offer(half.score(i), half.index(i));
+                    }
+                }
+                return best;
+            }
+            TopKHeap best = new TopKHeap(Math.min(limit, to - from));
+            for (int i = from; i < to; i++) {
+                float similarity =
+                        arena == null
+                                ? SimilarityKernels.unitCosine(
+                                        unitQuery, matrix, i * dimension, norms[i])
+                                : SimilarityKernels.unitCosine(
+                                        unitQuery,
+                                        slabRows.get(i / rowsPerSlab),
+                                        (i % rowsPerSlab) * dimension,
+                                        norms[i]);
+                if (similarity >= minRelevanceScore) {
+                    best.offer(similarity, i);
+                }
+            }
+            return best;
+        }
+    }
+
+    // Must be called with the write lock held
+    private void set(String key, float[] vector) {
+        if (dimension < 0) {
+            if (arena != null && vector.length * Float.BYTES > arena.getSlabBytes()) {
+                throw new VectorArena.ExhaustedException(
+                        "Vectors of " + vector.length + " dimensions do not fit in a slab");
+            }
+            dimension = vector.length;
+            rowsPerSlab = arena != null ? arena.getSlabBytes() / (dimension * Float.BYTES) : 0;
+        } else if (vector.length != dimension) {
+            throw new IllegalArgumentException("Vectors lengths must be equal");
+        }
+        Integer row = rowsByKey.get(key);
+        if (row == null) {
+            // Take the slab first, so that running out of them leaves the cache unchanged
+            if (arena != null && size == slabs.size() * rowsPerSlab) {
+                ByteBuffer slab = arena.allocate();
+                slabs.add(slab);
+                slabRows.add(slab.asFloatBuffer());
+            }
+            if (size == keys.length) {
+                int capacity = Math.max(INITIAL_CAPACITY, keys.length * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                norms = Arrays.copyOf(norms, capacity);
+                if (arena == null) {
+                    matrix = Arrays.copyOf(matrix, capacity * dimension);
+                }
+            }
+            row = size++;
+            keys[row] = key;
+            rowsByKey.put(key, row);
+        }
+        if (arena == null) {
+            System.arraycopy(vector, 0, matrix, row * dimension, dimension);
+        } else {
+            FloatBuffer rows = slabRows.get(row / rowsPerSlab).duplicate();
+            rows.position((row % rowsPerSlab) * dimension);
+            rows.put(vector);
+        }
+        norms[row] = SimilarityKernels.norm(vector);
+    }
+}
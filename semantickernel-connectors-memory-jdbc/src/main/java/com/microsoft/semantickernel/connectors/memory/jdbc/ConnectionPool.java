@@ -0,0 +1,510 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A lightweight pool of JDBC connections, exposed as a {@link DataSource}. Closing a borrowed
+ * connection returns it to the pool.
+ *
+ * <p>At most {@code maxSize} connections are borrowed at once; callers beyond that wait up to the
+ * acquire timeout. Idle connections are validated before they are handed out again, unless they
+ * were returned moments ago, and connections that fail validation or report a connection error are
+ * discarded. When leak detection is enabled, a connection held longer than the threshold is logged
+ * together with the stack trace of the code that borrowed it.
+ */
+public final class ConnectionPool extends AbstractDataSource implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPool.class);
+
+    // Connections returned more recently than this are handed out without validation
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final DataSource source;
+    private final int maxSize;
+    private final long acquireTimeoutNanos;
+    private final int validationTimeoutSeconds;
+    private final long leakDetectionThresholdMillis;
+    private final int statementCacheSize;
+    private final MemoryStoreMetrics metrics;
+    private final StatementCacheStatistics statementCacheStatistics =
+            new StatementCacheStatistics();
+    @Nullable private final ScheduledThreadPoolExecutor leakDetector;
+
+    // Each borrowed connection holds a permit
+    private final Semaphore permits;
+    // Most recently returned first, so that surplus connections stay idle and are rarely validated
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private int borrowed;
+    private boolean closed;
+
+    private ConnectionPool(Builder builder) throws SQLException {
+        this.source = Objects.requireNonNull(builder.source, "A data source or URL is required");
+        this.maxSize = builder.maxSize;
+        this.acquireTimeoutNanos = builder.acquireTimeout.toNanos();
+        this.validationTimeoutSeconds = (int) Math.max(1, builder.validationTimeout.getSeconds());
+        this.leakDetectionThresholdMillis =
+                builder.leakDetectionThreshold != null
+                        ? builder.leakDetectionThreshold.toMillis()
+                        : 0;
+        this.statementCacheSize = builder.statementCacheSize;
+        this.metrics = builder.metrics;
+        this.permits = new Semaphore(maxSize, true);
+        if (leakDetectionThresholdMillis > 0) {
+            leakDetector =
+                    new ScheduledThreadPoolExecutor(
+                            1,
+                            runnable -> {
+                                Thread thread = new Thread(runnable, "sk-connection-leak-detector");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+            leakDetector.setRemoveOnCancelPolicy(true);
+        } else {
+            leakDetector = null;
+        }
+        try {
+            for (int i = 0; i < builder.minSize; i++) {
+                idle.push(new PooledConnection(source.getConnection()));
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Borrows a connection, waiting up to the acquire timeout if every connection is in use.
+     *
+     * @return A connection that returns to the pool when closed.
+     * @throws SQLTransientConnectionException if no connection became available in time.
+     * @throws SQLException if the pool is closed or a new connection cannot be opened.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        checkOpen();
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "Timed out after "
+                                + TimeUnit.NANOSECONDS.toMillis(acquireTimeoutNanos)
+                                + " ms waiting for one of "
+                                + maxSize
+                                + " pooled connections");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(source.getConnection());
+            }
+            synchronized (this) {
+                if (closed) {
+                    pooled.discard();
+                    throw new SQLException("The connection pool is closed");
+                }
+                borrowed++;
+            }
+            metrics.recordPoolWait(System.nanoTime() - start);
+            return pooled.lend();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of connections currently borrowed.
+     *
+     * @return The number of borrowed connections.
+     */
+    public synchronized int getActiveConnections() {
+        return borrowed;
+    }
+
+    /**
+     * Gets the counters of the prepared statement caches of the pooled connections.
+     *
+     * @return The statement cache counters.
+     */
+    @Override
+    public StatementCacheStatistics getStatementCacheStatistics() {
+        return statementCacheStatistics;
+    }
+
+    /**
+     * Gets the number of open connections waiting to be borrowed.
+     *
+     * @return The number of idle connections.
+     */
+    public synchronized int getIdleConnections() {
+        return idle.size();
+    }
+
+    /**
+     * Closes the idle connections and stops lending new ones. Borrowed connections are closed when
+     * they are returned.
+     */
+    @Override
+    public void close() {
+        List<PooledConnection> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+        }
+        toClose.forEach(PooledConnection::discard);
+        if (leakDetector != null) {
+            leakDetector.shutdownNow();
+        }
+    }
+
+    private synchronized void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("The connection pool is closed");
+        }
+    }
+
+    // Takes the most recently returned idle connection that is still valid, if any
+    @Nullable
+    private PooledConnection takeIdle() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (this) {
+                pooled = idle.poll();
+            }
+            if (pooled == null) {
+                return null;
+            }
+            if (System.nanoTime() - pooled.returnedAt < VALIDATION_BYPASS_NANOS
+                    || pooled.isValid()) {
+                return pooled;
+            }
+            pooled.discard();
+        }
+    }
+
+    private void giveBack(PooledConnection pooled, boolean broken) {
+        boolean pooledAgain = false;
+        boolean reusable = !broken && pooled.reset();
+        synchronized (this) {
+            borrowed--;
+            if (reusable && !closed) {
+                pooled.returnedAt = System.nanoTime();
+                idle.push(pooled);
+                pooledAgain = true;
+            }
+        }
+        if (!pooledAgain) {
+            pooled.discard();
+        }
+        permits.release();
+    }
+
+    private final class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statements;
+        private long returnedAt;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements =
+                    new StatementCache(physical, statementCacheSize, statementCacheStatistics);
+            this.returnedAt = System.nanoTime();
+        }
+
+        private Connection lend() {
+            return (Connection)
+                    Proxy.newProxyInstance(
+                            Connection.class.getClassLoader(),
+                            new Class<?>[] {Connection.class},
+                            new Lease(this));
+        }
+
+        private boolean isValid() {
+            try {
+                return physical.isValid(validationTimeoutSeconds);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        // Undoes what a borrower may have left behind; false if the connection is unusable
+        private boolean reset() {
+            try {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private void discard() {
+            statements.close();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                LOGGER.debug("Failed to close a discarded pooled connection", e);
+            }
+        }
+    }
+
+    // The view of a pooled connection given to one borrower, which becomes unusable once closed
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        @Nullable private final ScheduledFuture<?> leakWarning;
+        private boolean returned;
+        private boolean broken;
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+            if (leakDetector != null) {
+                Exception borrowedAt = new Exception("Connection borrowed here");
+                long threshold = leakDetectionThresholdMillis;
+                leakWarning =
+                        leakDetector.schedule(
+                                () ->
+                                        LOGGER.warn(
+                                                "A pooled connection has been borrowed for more"
+                                                        + " than {} ms and may have leaked",
+                                                threshold,
+                                                borrowedAt),
+                                threshold,
+                                TimeUnit.MILLISECONDS);
+            } else {
+                leakWarning = null;
+            }
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        if (leakWarning != null) {
+                            leakWarning.cancel(false);
+                        }
+                        giveBack(pooled, broken);
+                    }
+                    return null;
+                case "isClosed":
+                    if (returned) {
+                        return true;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("The connection has been returned to the pool");
+            }
+            try {
+                if (method.getName().equals("prepareStatement") && args.length == 1) {
+                    return pooled.statements.prepare((String) args[0]);
+                }
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    recordFailure((SQLException) cause);
+                }
+                throw cause;
+            } catch (SQLException e) {
+                recordFailure(e);
+                throw e;
+            }
+        }
+
+        // SQL state class 08 reports a broken connection
+        private void recordFailure(SQLException e) {
+            String state = e.getSQLState();
+            broken |= state != null && state.startsWith("08");
+        }
+    }
+
+    /** Builds a ConnectionPool. */
+    public static class Builder {
+        @Nullable private DataSource source;
+        private int minSize;
+        private int maxSize = 10;
+        private Duration acquireTimeout = Duration.ofSeconds(30);
+        private Duration validationTimeout = Duration.ofSeconds(5);
+        @Nullable private Duration leakDetectionThreshold;
+        private int statementCacheSize = JDBCConnector.DEFAULT_STATEMENT_CACHE_SIZE;
+        private MemoryStoreMetrics metrics = MemoryStoreMetrics.NOOP;
+
+        /**
+         * Builds the pool and opens its minimum number of connections.
+         *
+         * @return The connection pool.
+         * @throws SQLException if a connection cannot be opened.
+         */
+        public ConnectionPool build() throws SQLException {
+            return new ConnectionPool(this);
+        }
+
+        /**
+         * Sets the source of the physical connections of the pool.
+         *
+         * @param dataSource The data source that opens new connections.
+         * @return The updated Builder instance to continue the building process for a
+         *     ConnectionPool.
+         */
+        public Builder withDataSource(DataSource dataSource) {
+            this.source = Objects.requireNonNull(dataSource);
+            return this;
+        }
+
+        /**
+         * Opens the physical connections of the pool with {@link DriverManager}.
+         *
+         * @param url The JDBC URL of the database.
+         * @return The updated Builder instance to continue the building process for a
+         *     ConnectionPool.
+         */
+        public Builder withUrl(String url) {
+            Objects.requireNonNull(url);
+            this.source =
+                    new AbstractDataSource() {
+                        @Override
+                        public Connection getConnection() throws SQLException {
+                            return DriverManager.getConnection(url);
+                        }
+                    };
+            return this;
+        }
+
+        /**
+         * Sets the number of connections opened when the pool is built. Defaults to 0.
+         *
+         * @param minSize The number of connections to open up front.
+         * @return The updated Builder instance to continue the building process for a
+         *     ConnectionPool.
+         */
+        public Builder withMinSize(int minSize) {
+            if (minSize < 0) {
+                throw new IllegalArgumentException("minSize must not be negative");
+            }
+            this.minSize = minSize;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of connections borrowed at once. Defaults to 10.
+         *
+         * @param maxSize The maximum number of connections.
+         * @return The updated Builder instance to continue the building process for a
+         *     ConnectionPool.
+         */
+        public Builder withMaxSize(int maxSize) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException("maxSize must be positive");
+            }
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Sets how long a caller waits for a connection when all of them are borrowed. Defaults to
+         * 30 seconds.
+         *
+         * @param acquireTimeout The maximum wait for a connection.
+         * @return The updated Builder instance to continue the building process for a
+         *     ConnectionPool.
+         */
+        public Builder withAcquireTimeout(Duration acquireTimeout) {
+            this.acquireTimeout = Objects.requireNonNull(acquireTimeout);
+            return this;
+        }
+
+        /**
+         * Sets how long the validation of an idle connection may take, rounded to whole seconds
+         * with a minimum of one. Defaults to 5 seconds.
+         *
+         * @param validationTimeout The maximum duration of a validation.
+         * @return The updated Builder instance to continue the building process for a
+         *     ConnectionPool.
+         */
+        public Builder withValidationTimeout(Duration validationTimeout) {
+            this.validationTimeout = Objects.requireNonNull(validationTimeout);
+            return this;
+        }
+
+        /**
+         * Logs a warning with the stack trace of the borrower when a connection is held longer than
+         * the threshold. Disabled by default.
+         *
+         * @param leakDetectionThreshold The time after which a borrowed connection is reported.
+         * @return The updated Builder instance to continue the building process for a
+         *     ConnectionPool.
+         */
+        public Builder withLeakDetection(Duration leakDetectionThreshold) {
+            this.leakDetectionThreshold = Objects.requireNonNull(leakDetectionThreshold);
+            return this;
+        }
+
+        /**
+         * Sets how many prepared statements each connection keeps for reuse. Defaults to {@value
+         * JDBCConnector#DEFAULT_STATEMENT_CACHE_SIZE}; 0 disables the cache.
+         *
+         * @param statementCacheSize The maximum number of idle statements per connection.
+         * @return The updated Builder instance to continue the building process for a
+         *     ConnectionPool.
+         */
+        public Builder withStatementCacheSize(int statementCacheSize) {
+            if (statementCacheSize < 0) {
+                throw new IllegalArgumentException("statementCacheSize must not be negative");
+            }
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        /**
+         * Sets the metrics to record the wait for each borrowed connection in, which includes
+         * validating an idle connection or opening a new one.
+         *
+         * @param metrics The metrics of the pool.
+         * @return The updated Builder instance to continue the building process for a
+         *     ConnectionPool.
+         */
+        public Builder withMetrics(MemoryStoreMetrics metrics) {
+            this.metrics = Objects.requireNonNull(metrics);
+            return this;
+        }
+    }
+}
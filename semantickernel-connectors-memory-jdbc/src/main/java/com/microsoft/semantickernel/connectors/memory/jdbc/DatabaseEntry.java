@@ -3,11 +3,20 @@ package com.microsoft.semantickernel.connectors.memory.jdbc;
 
 import com.microsoft.semantickernel.memory.DataEntryBase;
 import java.time.ZonedDateTime;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
 
 /** Represents an entry in the Semantic Kernel Memory Table. */
 public class DatabaseEntry extends DataEntryBase {
     private final String embedding; // JSON with the embedding information
+    private final float[] vector; // Decoded embedding vector, when stored in binary form
+    private final Float norm; // L2 norm of the embedding, when it was stored with the entry
     private final String metadata; // JSON with the metadata associated
+    // Embedding quantized by ScalarQuantizer or BinarySignature, when read for a quantized search
+    @Nullable private final byte[] quantizedEmbedding;
+    // Decodes the stored timestamp on first use, for entries read from the database
+    @Nullable private final Supplier<ZonedDateTime> timestampDecoder;
+    @Nullable private volatile ZonedDateTime decodedTimestamp;
 
     /**
      * Creates a new instance of DatabaseEntry.
@@ -18,9 +27,110 @@ public class DatabaseEntry extends DataEntryBase {
      * @param timestamp The timestamp indicating when the entry was created or modified.
      */
     public DatabaseEntry(String key, String metadata, String embedding, ZonedDateTime timestamp) {
+        this(key, metadata, embedding, null, null, timestamp);
+    }
+
+    /**
+     * Creates a new instance of DatabaseEntry holding the embedding as a primitive vector.
+     *
+     * @param key The key identifying the entry.
+     * @param metadata The metadata associated.
+     * @param vector The embedding vector associated.
+     * @param timestamp The timestamp indicating when the entry was created or modified.
+     */
+    public DatabaseEntry(String key, String metadata, float[] vector, ZonedDateTime timestamp) {
+        this(key, metadata, null, vector, null, timestamp);
+    }
+
+    /**
+     * Creates a new instance of DatabaseEntry as read from the database, with the precomputed norm
+     * of its embedding.
+     *
+     * @param key The key identifying the entry.
+     * @param metadata The metadata associated.
+     * @param embedding The embedding information associated, if read as JSON.
+     * @param vector The embedding vector associated, if read in binary form.
+     * @param norm The L2 norm of the embedding, or null if it was not stored.
+     * @param timestamp The timestamp indicating when the entry was created or modified.
+     */
+    public DatabaseEntry(
+            String key,
+            String metadata,
+            @Nullable String embedding,
+            @Nullable float[] vector,
+            @Nullable Float norm,
+            ZonedDateTime timestamp) {
         super(key, timestamp);
         this.metadata = metadata;
         this.embedding = embedding;
+        this.vector = vector;
+        this.norm = norm;
+        this.quantizedEmbedding = null;
+        this.timestampDecoder = null;
+    }
+
+    /**
+     * Creates a new instance of DatabaseEntry as read from the database, whose timestamp is decoded
+     * only if it is requested.
+     *
+     * @param key The key identifying the entry.
+     * @param metadata The metadata associated.
+     * @param embedding The embedding information associated, if read as JSON.
+     * @param vector The embedding vector associated, if read in binary form.
+     * @param norm The L2 norm of the embedding, or null if it was not stored.
+     * @param timestampDecoder Decodes the stored timestamp, or returns null if none was stored.
+     */
+    DatabaseEntry(
+            String key,
+            String metadata,
+            @Nullable String embedding,
+            @Nullable float[] vector,
+            @Nullable Float norm,
+            Supplier<ZonedDateTime> timestampDecoder) {
+        super(key, null);
+        this.metadata = metadata;
+        this.embedding = embedding;
+        this.vector = vector;
+        this.norm = norm;
+        this.quantizedEmbedding = null;
+        this.timestampDecoder = timestampDecoder;
+    }
+
+    /**
+     * Creates a new instance of DatabaseEntry as read from the database for a quantized search,
+     * with no metadata, timestamp or full-precision embedding.
+     *
+     * @param key The key identifying the entry.
+     * @param quantizedEmbedding The embedding quantized by {@link ScalarQuantizer} or reduced to a
+     *     {@link BinarySignature}, depending on the storage format.
+     */
+    DatabaseEntry(String key, byte[] quantizedEmbedding) {
+        super(key, null);
+        this.metadata = null;
+        this.embedding = null;
+        this.vector = null;
+        this.norm = null;
+        this.quantizedEmbedding = quantizedEmbedding;
+        this.timestampDecoder = null;
+    }
+
+    /**
+     * Gets the timestamp indicating when the entry was created or modified.
+     *
+     * @return The timestamp of the entry, or null if it has none.
+     */
+    @Override
+    public ZonedDateTime getTimestamp() {
+        if (timestampDecoder == null) {
+            return super.getTimestamp();
+        }
+        ZonedDateTime timestamp = decodedTimestamp;
+        if (timestamp == null) {
+            // Decoding twice under a race yields equal values
+            timestamp = timestampDecoder.get();
+            decodedTimestamp = timestamp;
+        }
+        return timestamp;
     }
 
     /**
@@ -40,4 +150,37 @@ public class DatabaseEntry extends DataEntryBase {
     public String getEmbedding() {
         return embedding;
     }
+
+    /**
+     * Gets the embedding vector associated with the entry, if the entry was created from a
+     * primitive vector rather than from JSON.
+     *
+     * @return The embedding vector, or null if the entry holds a JSON embedding.
+     */
+    @Nullable
+    public float[] getVector() {
+        return vector;
+    }
+
+    /**
+     * Gets the L2 norm of the embedding as stored with the entry, which spares searches from
+     * computing it for every comparison.
+     *
+     * @return The norm of the embedding, or null if it was not stored.
+     */
+    @Nullable
+    public Float getNorm() {
+        return norm;
+    }
+
+    /**
+     * Gets the embedding quantized by {@link ScalarQuantizer} or reduced to a {@link
+     * BinarySignature}, if the entry was read for a quantized search.
+     *
+     * @return The quantized embedding, or null if the entry was not read with one.
+     */
+    @Nullable
+    public byte[] getQuantizedEmbedding() {
+        return quantizedEmbedding;
+    }
 }
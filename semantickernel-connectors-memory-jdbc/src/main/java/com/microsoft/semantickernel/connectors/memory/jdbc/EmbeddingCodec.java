@@ -0,0 +1,178 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/** Converts embeddings between their in-memory and stored representations. */
+public final class EmbeddingCodec {
+
+    /** Size in bytes of the dimension header that prefixes a binary embedding. */
+    public static final int HEADER_BYTES = Integer.BYTES;
+
+    private static final int INITIAL_JSON_CAPACITY = 256;
+
+    private EmbeddingCodec() {}
+
+    /**
+     * Encodes a vector as a little-endian int32 dimension header followed by the little-endian
+     * packed float32 components.
+     *
+     * @param vector The vector to encode.
+     * @return The binary representation of the vector.
+     */
+    public static byte[] encode(float[] vector) {
+        ByteBuffer buffer =
+                ByteBuffer.allocate(HEADER_BYTES + vector.length * Float.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(vector.length);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a vector produced by {@link #encode(float[])}.
+     *
+     * @param bytes The binary representation of the vector.
+     * @return The decoded vector, or null if there are no bytes to decode.
+     */
+    @Nullable
+    public static float[] decode(@Nullable byte[] bytes) {
+        if (bytes == null || bytes.length == 0) return null;
+        if (bytes.length < HEADER_BYTES) {
+            throw new SQLConnectorException(
+                    SQLConnectorException.ErrorCodes.INVALID_EMBEDDING,
+                    "Embedding is shorter than its header");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int dimension = buffer.getInt();
+        if (dimension < 0 || bytes.length != HEADER_BYTES + dimension * Float.BYTES) {
+            throw new SQLConnectorException(
+                    SQLConnectorException.ErrorCodes.INVALID_EMBEDDING,
+                    "Embedding of "
+                            + bytes.length
+                            + " bytes does not match its dimension of "
+                            + dimension);
+        }
+        float[] vector = new float[dimension];
+        buffer.asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    /**
+     * Decodes the JSON serialization of an Embedding. The components are streamed from the JSON
+     * straight into the returned array, without an intermediate list of boxed floats.
+     *
+     * @param json The JSON serialization of the embedding.
+     * @return The decoded vector, or null if there is no JSON to decode.
+     */
+    @Nullable
+    public static float[] fromJson(@Nullable String json) {
+        if (json == null || json.isEmpty()) return null;
+        try (JsonParser parser = JsonCodec.factory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw invalidJson(null);
+            }
+            float[] vector = new float[0];
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("vector".equals(field) && value == JsonToken.START_ARRAY) {
+                    vector = readComponents(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return vector;
+        } catch (IOException e) {
+            throw invalidJson(e);
+        }
+    }
+
+    // Reads the numbers of the array the parser is positioned at, up to its end
+    private static float[] readComponents(JsonParser parser) throws IOException {
+        float[] vector = new float[INITIAL_JSON_CAPACITY];
+        int size = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_NUMBER_INT) {
+                throw invalidJson(null);
+            }
+            if (size == vector.length) {
+                vector = Arrays.copyOf(vector, size * 2);
+            }
+            vector[size++] = parser.getFloatValue();
+        }
+        return size == vector.length ? vector : Arrays.copyOf(vector, size);
+    }
+
+    private static SQLConnectorException invalidJson(@Nullable Exception cause) {
+        return new SQLConnectorException(
+                SQLConnectorException.ErrorCodes.INVALID_EMBEDDING,
+                "Error deserializing embedding",
+                cause);
+    }
+
+    /**
+     * Serializes a vector in the same JSON format as {@code MemoryRecord.getSerializedEmbedding()}.
+     *
+     * @param vector The vector to serialize.
+     * @return The JSON serialization of the vector.
+     */
+    public static String toJson(float[] vector) {
+        StringWriter json = new StringWriter(16 + vector.length * 12);
+        try (JsonGenerator generator = JsonCodec.factory().createGenerator(json)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("vector");
+            for (float value : vector) {
+                generator.writeNumber(value);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new SQLConnectorException(
+                    SQLConnectorException.ErrorCodes.INVALID_EMBEDDING,
+                    "Error serializing embedding",
+                    e);
+        }
+        return json.toString();
+    }
+
+    /**
+     * Copies a list of floats into a primitive array.
+     *
+     * @param vector The list to copy.
+     * @return The primitive array.
+     */
+    public static float[] toArray(List<Float> vector) {
+        float[] result = new float[vector.size()];
+        int i = 0;
+        for (Float value : vector) {
+            result[i++] = value;
+        }
+        return result;
+    }
+
+    /**
+     * Copies a primitive array into a list of floats.
+     *
+     * @param vector The array to copy.
+     * @return The list of floats.
+     */
+    public static List<Float> toList(float[] vector) {
+        List<Float> result = new ArrayList<>(vector.length);
+        for (float value : vector) {
+            result.add(value);
+        }
+        return result;
+    }
+}
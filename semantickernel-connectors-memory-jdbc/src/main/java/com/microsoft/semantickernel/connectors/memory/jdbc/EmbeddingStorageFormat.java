@@ -0,0 +1,30 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+/** The physical representation of the embedding column in the Semantic Kernel Memory Table. */
+public enum EmbeddingStorageFormat {
+    /** The embedding is stored as the JSON serialization of an Embedding in a TEXT column. */
+    JSON,
+
+    /**
+     * The embedding is stored in a BLOB column as a little-endian int32 dimension header followed
+     * by the little-endian packed float32 components.
+     */
+    FLOAT32_BLOB,
+
+    /**
+     * The embedding is stored as in {@link #FLOAT32_BLOB}, and quantized by {@link ScalarQuantizer}
+     * in a second BLOB column. Searches that scan the collection score the quantized embeddings,
+     * then rescore the best candidates with their full-precision embeddings.
+     */
+    INT8_QUANTIZED,
+
+    /**
+     * The embedding is stored as in {@link #FLOAT32_BLOB}, and reduced to a {@link BinarySignature}
+     * of one bit per component in a second BLOB column. Searches that scan the collection rank the
+     * signatures by Hamming distance, then rescore the best candidates with their full-precision
+     * embeddings. The first pass is cheaper than with {@link #INT8_QUANTIZED} but coarser, so it
+     * suits collections that tolerate a lower recall or searches that rescore more candidates.
+     */
+    BINARY_SIGNATURE
+}
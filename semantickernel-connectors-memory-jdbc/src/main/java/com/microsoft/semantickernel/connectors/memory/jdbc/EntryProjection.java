@@ -0,0 +1,27 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+/** The columns of the Semantic Kernel Memory Table that a read fetches into its entries. */
+public enum EntryProjection {
+    /** Every column. */
+    FULL,
+
+    /**
+     * The key, metadata and timestamp. The entries have no embedding, which avoids transferring the
+     * largest column when the caller does not return embeddings.
+     */
+    METADATA,
+
+    /**
+     * The key, embedding and norm. The entries have no metadata or timestamp; a search reads these
+     * for the entries it scores, then reads the metadata of the best matches only.
+     */
+    EMBEDDING,
+
+    /**
+     * The key and quantized embedding or signature, for a search that scores those. Entries stored
+     * without a quantized embedding are read with their embedding instead, as are all entries of
+     * connectors that do not store quantized embeddings.
+     */
+    QUANTIZED
+}
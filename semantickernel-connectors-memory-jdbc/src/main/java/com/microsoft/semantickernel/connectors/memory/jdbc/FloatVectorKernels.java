@@ -0,0 +1,72 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.nio.FloatBuffer;
+
+/**
+ * The inner loops of {@link SimilarityKernels} over float vectors. {@link ScalarFloatKernels} runs
+ * on every JDK; an implementation on the incubating Vector API is compiled separately for JDK 17
+ * and later and used when the running JDK provides the API.
+ *
+ * <p>Vectors are given as ranges of arrays or buffers of the same length, which are not checked.
+ */
+interface FloatVectorKernels {
+    /**
+     * Computes the dot product of two vectors.
+     *
+     * @param a The array holding the first vector.
+     * @param aOffset The index in {@code a} of the first component of the first vector.
+     * @param b The array holding the second vector.
+     * @param bOffset The index in {@code b} of the first component of the second vector.
+     * @param length The number of components of the vectors.
+     * @return The dot product.
+     */
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Computes the dot product of a vector and a vector stored in a buffer.
+     *
+     * @param a The first vector, of {@code length} components.
+     * @param b The buffer holding the second vector.
+     * @param bOffset The index in {@code b} of the first component of the second vector.
+     * @param length The number of components of the vectors.
+     * @return The dot product.
+     */
+    float dot(float[] a, FloatBuffer b, int bOffset, int length);
+
+    /**
+     * Computes the cosine similarity of two vectors in one pass over them.
+     *
+     * @param a The array holding the first vector.
+     * @param aOffset The index in {@code a} of the first component of the first vector.
+     * @param b The array holding the second vector.
+     * @param bOffset The index in {@code b} of the first component of the second vector.
+     * @param length The number of components of the vectors.
+     * @return The cosine similarity.
+     * @throws IllegalArgumentException if either vector has a zero norm.
+     */
+    float cosine(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Computes the squared Euclidean distance of two vectors.
+     *
+     * @param a The array holding the first vector.
+     * @param aOffset The index in {@code a} of the first component of the first vector.
+     * @param b The array holding the second vector.
+     * @param bOffset The index in {@code b} of the first component of the second vector.
+     * @param length The number of components of the vectors.
+     * @return The squared distance.
+     */
+    float squaredDistance(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Computes the squared Euclidean distance of a vector and a vector stored in a buffer.
+     *
+     * @param a The first vector, of {@code length} components.
+     * @param b The buffer holding the second vector.
+     * @param bOffset The index in {@code b} of the first component of the second vector.
+     * @param length The number of components of the vectors.
+     * @return The squared distance.
+     */
+    float squaredDistance(float[] a, FloatBuffer b, int bOffset, int length);
+}
@@ -0,0 +1,620 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+/**
+ * A Hierarchical Navigable Small World graph (Malkov and Yashunin, 2016) over unit-normalized
+ * embeddings.
+ *
+ * <p>Each key is persisted as a record holding its level and its neighbour keys per level, so a
+ * restart restores the graph from the records and the embeddings in the memory table instead of
+ * rebuilding it. Removed nodes are unlinked and the nodes that pointed at them are reconnected from
+ * the removed nodes' neighbourhoods.
+ */
+public class HnswVectorIndex implements VectorIndex {
+    /** The default number of links per node on the upper levels. */
+    public static final int DEFAULT_M = 16;
+
+    /** The default size of the candidate list used while inserting. */
+    public static final int DEFAULT_EF_CONSTRUCTION = 200;
+
+    /** The default size of the candidate list used while searching. */
+    public static final int DEFAULT_EF_SEARCH = 64;
+
+    private static final byte RECORD_VERSION = 1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> nodesByKey = new HashMap<>();
+    private final Deque<Integer> freeNodes = new ArrayDeque<>();
+    private final Set<String> changedKeys = new HashSet<>();
+
+    // Per node: its key, its unit vector and links[level] = {count, neighbour...}
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private float[][] vectors = new float[INITIAL_CAPACITY][];
+    private int[][][] links = new int[INITIAL_CAPACITY][][];
+    private int nodeCount;
+    private int dimension = -1;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /** Creates an index with the default parameters. */
+    public HnswVectorIndex() {
+        this(DEFAULT_M, DEFAULT_EF_CONSTRUCTION, DEFAULT_EF_SEARCH);
+    }
+
+    /**
+     * Creates an index.
+     *
+     * @param m The number of links per node on the upper levels; the bottom level keeps twice as
+     *     many.
+     * @param efConstruction The size of the candidate list used while inserting.
+     * @param efSearch The size of the candidate list used by searches that do not specify one.
+     */
+    public HnswVectorIndex(int m, int efConstruction, int efSearch) {
+        if (m < 2 || efConstruction < 1 || efSearch < 1) {
+            throw new IllegalArgumentException("Invalid HNSW parameters");
+        }
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    @Override
+    public void add(String key, float[] vector) {
+        float[] unit = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            checkDimension(unit);
+            Integer existing = nodesByKey.get(key);
+            if (existing != null) {
+                if (Arrays.equals(vectors[existing], unit)) {
+                    return;
+                }
+                BitSet removed = new BitSet();
+                removed.set(existing);
+                removeNodes(removed);
+            }
+            insert(key, unit, randomLevel());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Iterable<String> keys) {
+        lock.writeLock().lock();
+        try {
+            BitSet removed = new BitSet();
+            for (String key : keys) {
+                Integer node = nodesByKey.get(key);
+                if (node != null) {
+                    removed.set(node);
+                }
+            }
+            if (!removed.isEmpty()) {
+                removeNodes(removed);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodesByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Tuple2<String, Float>> search(
+            float[] query, int limit, float minRelevanceScore, int efSearch) {
+        float[] unit = normalize(query);
+        lock.readLock().lock();
+        try {
+            List<Tuple2<String, Float>> matches = new ArrayList<>();
+            if (entryPoint < 0 || limit <= 0) {
+                return matches;
+            }
+            checkDimension(unit);
+            int ep = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                ep = greedySearch(unit, ep, level);
+            }
+            int ef = Math.max(efSearch > 0 ? efSearch : this.efSearch, limit);
+            NodeHeap results = searchLayer(unit, ep, ef, 0);
+            int[] nodes = results.sortedNodes();
+            for (int i = 0; i < nodes.length && matches.size() < limit; i++) {
+                float similarity = similarity(unit, nodes[i]);
+                if (similarity >= minRelevanceScore) {
+                    matches.add(Tuples.of(keys[nodes[i]], similarity));
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, byte[]> drainChanges() {
+        lock.writeLock().lock();
+        try {
+            Map<String, byte[]> changes = new LinkedHashMap<>();
+            for (String key : changedKeys) {
+                Integer node = nodesByKey.get(key);
+                changes.put(key, node == null ? null : encodeNode(node));
+            }
+            changedKeys.clear();
+            return changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void restore(Map<String, float[]> vectors, Map<String, byte[]> records) {
+        lock.writeLock().lock();
+        try {
+            if (nodeCount > 0) {
+                throw new IllegalStateException("Only an empty index can be restored");
+            }
+            Map<Integer, String[][]> neighbourKeys = new HashMap<>();
+            for (Map.Entry<String, byte[]> record : records.entrySet()) {
+                float[] vector = vectors.get(record.getKey());
+                if (vector == null) {
+                    changedKeys.add(record.getKey());
+                    continue;
+                }
+                float[] unit = normalize(vector);
+                checkDimension(unit);
+                String[][] levels = decodeNode(record.getValue());
+                int node = allocate(record.getKey(), unit, levels.length - 1);
+                neighbourKeys.put(node, levels);
+            }
+            for (Map.Entry<Integer, String[][]> node : neighbourKeys.entrySet()) {
+                String[][] levels = node.getValue();
+                for (int level = 0; level < levels.length; level++) {
+                    int[] list = links[node.getKey()][level];
+                    for (String neighbourKey : levels[level]) {
+                        Integer neighbour = nodesByKey.get(neighbourKey);
+                        if (neighbour != null
+                                && links[neighbour].length > level
+                                && list[0] < list.length - 1) {
+                            list[++list[0]] = neighbour;
+                        }
+                    }
+                }
+                if (levels.length - 1 > maxLevel) {
+                    maxLevel = levels.length - 1;
+                    entryPoint = node.getKey();
+                }
+            }
+            for (Map.Entry<String, float[]> vector : vectors.entrySet()) {
+                if (!nodesByKey.containsKey(vector.getKey())) {
+                    float[] unit = normalize(vector.getValue());
+                    checkDimension(unit);
+                    insert(vector.getKey(), unit, randomLevel());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Must be called with the write lock held
+    private void insert(String key, float[] unit, int level) {
+        int node = allocate(key, unit, level);
+        changedKeys.add(key);
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedySearch(unit, ep, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            int[] candidates = searchLayer(unit, ep, efConstruction, l).sortedNodes();
+            int[] selected = selectNeighbours(unit, candidates, m);
+            int[] list = links[node][l];
+            System.arraycopy(selected, 0, list, 1, selected.length);
+            list[0] = selected.length;
+            for (int neighbour : selected) {
+                connect(neighbour, node, l);
+            }
+            ep = candidates[0];
+        }
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    // Adds a link from node to target, pruning the node's links if they are full
+    private void connect(int node, int target, int level) {
+        int[] list = links[node][level];
+        int count = list[0];
+        if (count < list.length - 1) {
+            list[count + 1] = target;
+            list[0] = count + 1;
+        } else {
+            int[] candidates = Arrays.copyOfRange(list, 1, count + 2);
+            candidates[count] = target;
+            setLinks(node, level, candidates);
+        }
+        changedKeys.add(keys[node]);
+    }
+
+    // Replaces the links of a node by the best of the given candidates
+    private void setLinks(int node, int level, int[] candidates) {
+        float[] base = vectors[node];
+        int[] sorted = sortBySimilarity(base, candidates);
+        int[] selected = selectNeighbours(base, sorted, maxLinks(level));
+        int[] list = links[node][level];
+        System.arraycopy(selected, 0, list, 1, selected.length);
+        list[0] = selected.length;
+    }
+
+    // Must be called with the write lock held
+    private void removeNodes(BitSet removed) {
+        for (int node = removed.nextSetBit(0); node >= 0; node = removed.nextSetBit(node + 1)) {
+            nodesByKey.remove(keys[node]);
+            changedKeys.add(keys[node]);
+        }
+        // Reconnect every surviving node that links to a removed node
+        for (int node = 0; node < nodeCount; node++) {
+            if (vectors[node] == null || removed.get(node)) {
+                continue;
+            }
+            for (int level = 0; level < links[node].length; level++) {
+                int[] list = links[node][level];
+                if (!linksTo(list, removed)) {
+                    continue;
+                }
+                Set<Integer> candidates = new HashSet<>();
+                for (int i = 1; i <= list[0]; i++) {
+                    int neighbour = list[i];
+                    if (!removed.get(neighbour)) {
+                        candidates.add(neighbour);
+                        continue;
+                    }
+                    int[] inherited = links[neighbour][level];
+                    for (int j = 1; j <= inherited[0]; j++) {
+                        if (!removed.get(inherited[j]) && inherited[j] != node) {
+                            candidates.add(inherited[j]);
+                        }
+                    }
+                }
+                setLinks(node, level, candidates.stream().mapToInt(Integer::intValue).toArray());
+                changedKeys.add(keys[node]);
+            }
+        }
+        for (int node = removed.nextSetBit(0); node >= 0; node = removed.nextSetBit(node + 1)) {
+            keys[node] = null;
+            vectors[node] = null;
+            links[node] = null;
+            freeNodes.push(node);
+        }
+        if (entryPoint >= 0 && removed.get(entryPoint)) {
+            entryPoint = -1;
+            maxLevel = -1;
+            for (int node = 0; node < nodeCount; node++) {
+                if (vectors[node] != null && links[node].length - 1 > maxLevel) {
+                    entryPoint = node;
+                    maxLevel = links[node].length - 1;
+                }
+            }
+        }
+    }
+
+    private static boolean linksTo(int[] list, BitSet nodes) {
+        for (int i = 1; i <= list[0]; i++) {
+            if (nodes.get(list[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Keeps candidates that are closer to the base than to any already selected neighbour, then
+    // fills any remaining slots with the closest pruned candidates
+    private int[] selectNeighbours(float[] base, int[] sortedCandidates, int max) {
+        if (sortedCandidates.length <= max) {
+            return sortedCandidates;
+        }
+        int[] selected = new int[max];
+        int count = 0;
+        int[] pruned = new int[sortedCandidates.length];
+        int prunedCount = 0;
+        for (int candidate : sortedCandidates) {
+            if (count == max) {
+                break;
+            }
+            float toBase = SimilarityKernels.dot(base, vectors[candidate]);
+            boolean keep = true;
+            for (int i = 0; i < count; i++) {
+                if (SimilarityKernels.dot(vectors[candidate], vectors[selected[i]]) > toBase) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = candidate;
+            } else {
+                pruned[prunedCount++] = candidate;
+            }
+        }
+        for (int i = 0; i < prunedCount && count < max; i++) {
+            selected[count++] = pruned[i];
+        }
+        return count == max ? selected : Arrays.copyOf(selected, count);
+    }
+
+    private int greedySearch(float[] query, int ep, int level) {
+        int current = ep;
+        float best = similarity(query, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] list = links[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                float similarity = similarity(query, list[i]);
+                if (similarity > best) {
+                    best = similarity;
+                    current = list[i];
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private NodeHeap searchLayer(float[] query, int ep, int ef, int level) {
+        BitSet visited = new BitSet(nodeCount);
+        visited.set(ep);
+        float epSimilarity = similarity(query, ep);
+        // Candidates pop best first; results pop worst first so the worst can be evicted
+        NodeHeap candidates = new NodeHeap(ef, true);
+        NodeHeap results = new NodeHeap(ef, false);
+        candidates.push(ep, epSimilarity);
+        results.push(ep, epSimilarity);
+        while (candidates.size() > 0) {
+            float candidateSimilarity = candidates.peekScore();
+            int candidate = candidates.pop();
+            if (results.size() >= ef && candidateSimilarity < results.peekScore()) {
+                break;
+            }
+            int[] list = links[candidate][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbour = list[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float similarity = similarity(query, neighbour);
+                if (results.size() < ef || similarity > results.peekScore()) {
+                    candidates.push(neighbour, similarity);
+                    results.push(neighbour, similarity);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private int[] sortBySimilarity(float[] base, int[] nodes) {
+        NodeHeap heap = new NodeHeap(nodes.length, false);
+        for (int node : nodes) {
+            heap.push(node, SimilarityKernels.dot(base, vectors[node]));
+        }
+        return heap.sortedNodes();
+    }
+
+    private float similarity(float[] query, int node) {
+        return SimilarityKernels.dot(query, vectors[node]);
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private int allocate(String key, float[] unit, int level) {
+        int node;
+        if (!freeNodes.isEmpty()) {
+            node = freeNodes.pop();
+        } else {
+            if (nodeCount == keys.length) {
+                int capacity = keys.length * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                vectors = Arrays.copyOf(vectors, capacity);
+                links = Arrays.copyOf(links, capacity);
+            }
+            node = nodeCount++;
+        }
+        keys[node] = key;
+        vectors[node] = unit;
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[maxLinks(l) + 1];
+        }
+        nodesByKey.put(key, node);
+        return node;
+    }
+
+    private void checkDimension(float[] unit) {
+        if (dimension < 0) {
+            dimension = unit.length;
+        } else if (unit.length != dimension) {
+            throw new IllegalArgumentException("Vectors lengths must be equal");
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(SimilarityKernels.dot(vector, vector));
+        if (norm == 0) {
+            throw new IllegalArgumentException("Vectors cannot have zero norm");
+        }
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = (float) (vector[i] / norm);
+        }
+        return unit;
+    }
+
+    private byte[] encodeNode(int node) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RECORD_VERSION);
+            out.writeInt(links[node].length);
+            for (int[] list : links[node]) {
+                out.writeInt(list[0]);
+                for (int i = 1; i <= list[0]; i++) {
+                    out.writeUTF(keys[list[i]]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String[][] decodeNode(byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            if (in.readByte() != RECORD_VERSION) {
+                throw new IllegalArgumentException("Unsupported HNSW record version");
+            }
+            String[][] levels = new String[in.readInt()][];
+            for (int level = 0; level < levels.length; level++) {
+                levels[level] = new String[in.readInt()];
+                for (int i = 0; i < levels[level].length; i++) {
+                    levels[level][i] = in.readUTF();
+                }
+            }
+            return levels;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** A binary heap of nodes keyed by similarity. */
+    private static final class NodeHeap {
+        private final boolean bestFirst;
+        private int[] nodes;
+        private float[] scores;
+        private int size;
+
+        NodeHeap(int capacity, boolean bestFirst) {
+            this.bestFirst = bestFirst;
+            this.nodes = new int[Math.max(capacity, 1) + 1];
+            this.scores = new float[nodes.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        float peekScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(score, scores[parent])) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastScore = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(scores[child + 1], scores[child])) {
+                    child++;
+                }
+                if (!before(scores[child], lastScore)) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            scores[i] = lastScore;
+            return top;
+        }
+
+        // Drains the heap into an array ordered from most to least similar
+        int[] sortedNodes() {
+            int[] sorted = new int[size];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[bestFirst ? i : sorted.length - 1 - i] = pop();
+            }
+            return sorted;
+        }
+
+        private boolean before(float a, float b) {
+            return bestFirst ? a > b : a < b;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decorates a connector to record the latency, errors, batch sizes, rows fetched and bytes read of
+ * every operation in a {@link MemoryStoreMetrics}. An operation is timed from its subscription to
+ * its completion or failure; cancelled operations are not recorded. Closing the decorator closes
+ * the decorated connector if it is closeable.
+ */
+public final class InstrumentedSQLConnector implements SQLConnector, Closeable {
+    private final SQLConnector connector;
+    private final MemoryStoreMetrics metrics;
+
+    /**
+     * Creates a decorator of a connector.
+     *
+     * @param connector The connector to decorate.
+     * @param metrics The metrics to record the operations of the connector in.
+     */
+    public InstrumentedSQLConnector(SQLConnector connector, MemoryStoreMetrics metrics) {
+        this.connector = connector;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the decorated connector.
+     *
+     * @return The decorated connector.
+     */
+    public SQLConnector getConnector() {
+        return connector;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (connector instanceof Closeable) {
+            ((Closeable) connector).close();
+        }
+    }
+
+    @Override
+    public Mono<Void> createTableAsync() {
+        return timed("createTableAsync", connector.createTableAsync());
+    }
+
+    @Override
+    public Mono<Void> createCollectionAsync(String collectionName) {
+        return timed("createCollectionAsync", connector.createCollectionAsync(collectionName));
+    }
+
+    @Override
+    public Mono<String> upsertAsync(
+            String collection,
+            String key,
+            String metadata,
+            String embedding,
+            ZonedDateTime timestamp) {
+        return timed(
+                "upsertAsync",
+                connector.upsertAsync(collection, key, metadata, embedding, timestamp));
+    }
+
+    @Override
+    public Mono<String> upsertAsync(
+            String collection,
+            String key,
+            String metadata,
+            float[] vector,
+            ZonedDateTime timestamp) {
+        return timed(
+                "upsertAsync", connector.upsertAsync(collection, key, metadata, vector, timestamp));
+    }
+
+    @Override
+    public Mono<Collection<String>> upsertBatchAsync(
+            String collection, Collection<DatabaseEntry> records) {
+        metrics.recordBatchSize("upsertBatchAsync", records.size());
+        return timed("upsertBatchAsync", connector.upsertBatchAsync(collection, records));
+    }
+
+    @Override
+    public Mono<Boolean> doesCollectionExistsAsync(String collectionName) {
+        return timed(
+                "doesCollectionExistsAsync", connector.doesCollectionExistsAsync(collectionName));
+    }
+
+    @Override
+    public Mono<List<String>> getCollectionsAsync() {
+        return timed("getCollectionsAsync", connector.getCollectionsAsync());
+    }
+
+    @Override
+    public Mono<Long> getCollectionsVersionAsync() {
+        return timed("getCollectionsVersionAsync", connector.getCollectionsVersionAsync());
+    }
+
+    @Override
+    public Mono<List<DatabaseEntry>> readAllAsync(String collectionName) {
+        return timed("readAllAsync", connector.readAllAsync(collectionName))
+                .doOnNext(entries -> recordEntries("readAllAsync", entries));
+    }
+
+    @Override
+    public Flux<DatabaseEntry> streamAllAsync(String collectionName, int fetchSize) {
+        return streamed("streamAllAsync", connector.streamAllAsync(collectionName, fetchSize));
+    }
+
+    @Override
+    public Flux<DatabaseEntry> streamAllAsync(
+            String collectionName, int fetchSize, EntryProjection projection) {
+        return streamed(
+                "streamAllAsync", connector.streamAllAsync(collectionName, fetchSize, projection));
+    }
+
+    @Override
+    public Flux<DatabaseEntry> readModifiedSinceAsync(
+            String collectionName, Instant since, EntryProjection projection) {
+        return streamed(
+                "readModifiedSinceAsync",
+                connector.readModifiedSinceAsync(collectionName, since, projection));
+    }
+
+    private Flux<DatabaseEntry> streamed(String operation, Flux<DatabaseEntry> entries) {
+        return Flux.defer(
+                () -> {
+                    long start = System.nanoTime();
+                    long[] rowsAndBytes = new long[2];
+                    return entries.doOnNext(
+                                    entry -> {
+                                        rowsAndBytes[0]++;
+                                        rowsAndBytes[1] += encodedSize(entry);
+                                    })
+                            .doOnComplete(
+                                    () -> {
+                                        record(operation, start, null);
+                                        metrics.recordRowsFetched(operation, rowsAndBytes[0]);
+                                        metrics.recordBytesDecoded(operation, rowsAndBytes[1]);
+                                    })
+                            .doOnError(error -> record(operation, start, error));
+                });
+    }
+
+    @Override
+    public Mono<DatabaseEntry> readAsync(String collectionName, String key) {
+        return read(connector.readAsync(collectionName, key));
+    }
+
+    @Override
+    public Mono<DatabaseEntry> readAsync(
+            String collectionName, String key, EntryProjection projection) {
+        return read(connector.readAsync(collectionName, key, projection));
+    }
+
+    private Mono<DatabaseEntry> read(Mono<DatabaseEntry> read) {
+        return timed("readAsync", read)
+                .doOnNext(
+                        entry -> {
+                            metrics.recordRowsFetched("readAsync", 1);
+                            metrics.recordBytesDecoded("readAsync", encodedSize(entry));
+                        });
+    }
+
+    @Override
+    public Mono<Collection<DatabaseEntry>> readBatchAsync(
+            String collectionName, Collection<String> keys) {
+        metrics.recordBatchSize("readBatchAsync", keys.size());
+        return timed("readBatchAsync", connector.readBatchAsync(collectionName, keys))
+                .doOnNext(entries -> recordEntries("readBatchAsync", entries));
+    }
+
+    @Override
+    public Mono<Collection<DatabaseEntry>> readBatchAsync(
+            String collectionName, Collection<String> keys, EntryProjection projection) {
+        metrics.recordBatchSize("readBatchAsync", keys.size());
+        return timed("readBatchAsync", connector.readBatchAsync(collectionName, keys, projection))
+                .doOnNext(entries -> recordEntries("readBatchAsync", entries));
+    }
+
+    @Override
+    public Mono<Void> deleteCollectionAsync(String collectionName) {
+        return timed("deleteCollectionAsync", connector.deleteCollectionAsync(collectionName));
+    }
+
+    @Override
+    public Mono<Void> deleteAsync(String collectionName, String key) {
+        return timed("deleteAsync", connector.deleteAsync(collectionName, key));
+    }
+
+    @Override
+    public Mono<Void> deleteBatchAsync(String collectionName, Collection<String> keys) {
+        metrics.recordBatchSize("deleteBatchAsync", keys.size());
+        return timed("deleteBatchAsync", connector.deleteBatchAsync(collectionName, keys));
+    }
+
+    @Override
+    public Mono<Map<String, byte[]>> readVectorIndexAsync(String collectionName) {
+        return timed("readVectorIndexAsync", connector.readVectorIndexAsync(collectionName))
+                .doOnNext(
+                        records -> {
+                            long bytes = 0;
+                            for (byte[] record : records.values()) {
+                                bytes += record.length;
+                            }
+                            metrics.recordRowsFetched("readVectorIndexAsync", records.size());
+                            metrics.recordBytesDecoded("readVectorIndexAsync", bytes);
+                        });
+    }
+
+    @Override
+    public Mono<Void> upsertVectorIndexBatchAsync(
+            String collectionName, Map<String, byte[]> records) {
+        metrics.recordBatchSize("upsertVectorIndexBatchAsync", records.size());
+        return timed(
+                "upsertVectorIndexBatchAsync",
+                connector.upsertVectorIndexBatchAsync(collectionName, records));
+    }
+
+    @Override
+    public Flux<DatabaseEntry> streamClustersAsync(
+            String collectionName,
+            Collection<Integer> clusterIds,
+            int fetchSize,
+            EntryProjection projection) {
+        return streamed(
+                "streamClustersAsync",
+                connector.streamClustersAsync(collectionName, clusterIds, fetchSize, projection));
+    }
+
+    @Override
+    public Mono<Map<Integer, float[]>> readCentroidsAsync(String collectionName) {
+        return timed("readCentroidsAsync", connector.readCentroidsAsync(collectionName))
+                .doOnNext(
+                        centroids ->
+                                metrics.recordRowsFetched("readCentroidsAsync", centroids.size()));
+    }
+
+    @Override
+    public Mono<Void> replaceCentroidsAsync(
+            String collectionName, Map<Integer, float[]> centroids) {
+        metrics.recordBatchSize("replaceCentroidsAsync", centroids.size());
+        return timed(
+                "replaceCentroidsAsync",
+                connector.replaceCentroidsAsync(collectionName, centroids));
+    }
+
+    @Override
+    public Mono<Void> assignClustersAsync(String collectionName, Map<String, Integer> clusterIds) {
+        metrics.recordBatchSize("assignClustersAsync", clusterIds.size());
+        return timed(
+                "assignClustersAsync", connector.assignClustersAsync(collectionName, clusterIds));
+    }
+
+    @Override
+    public Mono<Map<Integer, Long>> countClustersAsync(String collectionName) {
+        return timed("countClustersAsync", connector.countClustersAsync(collectionName));
+    }
+
+    @Override
+    public Mono<Map<String, Long>> readSegmentOffsetsAsync(String collectionName) {
+        return timed("readSegmentOffsetsAsync", connector.readSegmentOffsetsAsync(collectionName))
+                .doOnNext(
+                        offsets ->
+                                metrics.recordRowsFetched(
+                                        "readSegmentOffsetsAsync", offsets.size()));
+    }
+
+    @Override
+    public Mono<Void> assignSegmentOffsetsAsync(String collectionName, Map<String, Long> offsets) {
+        metrics.recordBatchSize("assignSegmentOffsetsAsync", offsets.size());
+        return timed(
+                "assignSegmentOffsetsAsync",
+                connector.assignSegmentOffsetsAsync(collectionName, offsets));
+    }
+
+    @Override
+    public Mono<Void> deleteEmptyAsync(String collectionName) {
+        return timed("deleteEmptyAsync", connector.deleteEmptyAsync(collectionName));
+    }
+
+    // The size of the stored representation of an entry, which its readers decode and its writers
+    // send; an entry to be written as JSON may carry its vector too
+    static long encodedSize(DatabaseEntry entry) {
+        long size = entry.getMetadata() != null ? entry.getMetadata().length() : 0;
+        if (entry.getEmbedding() != null) {
+            size += entry.getEmbedding().length();
+        } else if (entry.getVector() != null) {
+            size += (long) entry.getVector().length * Float.BYTES;
+        } else if (entry.getQuantizedEmbedding() != null) {
+            size += entry.getQuantizedEmbedding().length;
+        }
+        return size;
+    }
+
+    private void recordEntries(String operation, Collection<DatabaseEntry> entries) {
+        long bytes = 0;
+        for (DatabaseEntry entry : entries) {
+            bytes += encodedSize(entry);
+        }
+        metrics.recordRowsFetched(operation, entries.size());
+        metrics.recordBytesDecoded(operation, bytes);
+    }
+
+    private <T> Mono<T> timed(String operation, Mono<T> mono) {
+        return Mono.defer(
+                () -> {
+                    long start = System.nanoTime();
+                    return mono.doOnSuccess(value -> record(operation, start, null))
+                            .doOnError(error -> record(operation, start, error));
+                });
+    }
+
+    private void record(String operation, long start, @Nullable Throwable error) {
+        metrics.recordOperation(operation, System.nanoTime() - start, error);
+    }
+}
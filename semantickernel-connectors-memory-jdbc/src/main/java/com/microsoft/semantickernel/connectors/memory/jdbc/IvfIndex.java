@@ -0,0 +1,522 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Binds an inverted file index to a collection: keeps its centroids in memory, assigns the entries
+ * written through the store to the cluster of their nearest centroid, and trains the centroids in
+ * the background once the collection is large enough and again when its clusters become unbalanced.
+ *
+ * <p>Cluster ids are never reused. A training numbers its clusters after those of the previous one,
+ * so rows still assigned to a cluster of earlier centroids, for example because the process stopped
+ * while a training was assigning them, are recognized as stale and assigned again. Until no row is
+ * stale, searches read the whole collection. Rows upserted again lose their cluster and are read by
+ * every search until they are assigned.
+ *
+ * <p>Closing the index cancels a running training or assignment. Its state in the database is left
+ * as if the process had stopped, and recovered the same way on the next load.
+ */
+final class IvfIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IvfIndex.class);
+
+    // The number of rows per cluster a collection needs to be trained, and the number of rows per
+    // cluster written since the last training that allows training again
+    static final int MIN_ROWS_PER_CLUSTER = 8;
+
+    private static final int TRAINING_ITERATIONS = 10;
+    private static final int ASSIGN_BATCH_SIZE = 1000;
+
+    private final String collectionName;
+    private final IvfIndexOptions options;
+    private final SQLConnector connector;
+    private final int fetchSize;
+    private final AtomicBoolean training = new AtomicBoolean();
+    // The running training or assignment, if any
+    @Nullable private volatile Disposable background;
+    private volatile boolean closed;
+
+    // Replaced as a whole by a training; null until the collection is trained
+    @Nullable private volatile Centroids centroids;
+    // Whether some rows may be assigned to clusters that are not among the centroids
+    private volatile boolean stale;
+
+    // Estimated from the last count and the assignments since; guarded by this
+    private long unassigned;
+    private long writtenSinceTraining;
+
+    IvfIndex(
+            String collectionName, IvfIndexOptions options, SQLConnector connector, int fetchSize) {
+        this.collectionName = collectionName;
+        this.options = options;
+        this.connector = connector;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Restores the centroids and cluster sizes from the database, then starts assigning stale rows
+     * or training the index if needed.
+     *
+     * @return A Mono emitting this index once it can be searched.
+     */
+    Mono<IvfIndex> loadAsync() {
+        return Mono.zip(
+                        connector.readCentroidsAsync(collectionName),
+                        connector.countClustersAsync(collectionName))
+                .map(
+                        loaded -> {
+                            if (!loaded.getT1().isEmpty()) {
+                                centroids = new Centroids(loaded.getT1());
+                            }
+                            if (recount(loaded.getT2())) {
+                                stale = true;
+                                runInBackground(reassignAllAsync());
+                            } else {
+                                trainIfNeeded();
+                            }
+                            return this;
+                        });
+    }
+
+    /**
+     * Streams the rows a search has to score: the rows of the clusters nearest to the query and the
+     * unassigned rows, or the whole collection while the index is not trained or has stale rows.
+     *
+     * @param query The query vector.
+     * @param nprobe The number of clusters to read; a non-positive value uses the configured one.
+     * @param projection The columns to read.
+     * @return A Flux emitting the rows to score.
+     */
+    Flux<DatabaseEntry> streamCandidatesAsync(
+            float[] query, int nprobe, EntryProjection projection) {
+        Centroids current = centroids;
+        if (current == null || stale || query.length != current.dimension()) {
+            return connector.streamAllAsync(collectionName, fetchSize, projection);
+        }
+        return connector.streamClustersAsync(
+                collectionName,
+                current.nearestIds(query, nprobe > 0 ? nprobe : options.getNprobe()),
+                fetchSize,
+                projection);
+    }
+
+    /**
+     * Assigns written entries to their nearest clusters. Entries written before the index is
+     * trained stay unassigned until the training assigns them.
+     *
+     * @param vectors The embeddings of the written entries by key.
+     * @return A Mono representing the completion of the assignment.
+     */
+    Mono<Void> assignAsync(Map<String, float[]> vectors) {
+        return Mono.defer(
+                () -> {
+                    Centroids current = centroids;
+                    if (current == null) {
+                        synchronized (this) {
+                            unassigned += vectors.size();
+                            writtenSinceTraining += vectors.size();
+                        }
+                        trainIfNeeded();
+                        return Mono.empty();
+                    }
+                    Map<String, Integer> clusterIds = new HashMap<>();
+                    for (Map.Entry<String, float[]> vector : vectors.entrySet()) {
+                        // Embeddings of another dimension are left unassigned
+                        if (vector.getValue().length == current.dimension()) {
+                            clusterIds.put(
+                                    vector.getKey(),
+                                    current.ids[current.nearest(vector.getValue())]);
+                        }
+                    }
+                    Mono<Void> assignment =
+                            clusterIds.isEmpty()
+                                    ? Mono.empty()
+                                    : connector.assignClustersAsync(collectionName, clusterIds);
+                    return assignment.then(
+                            Mono.defer(
+                                    () -> {
+                                        if (centroids != current) {
+                                            return reassignAfterTrainingAsync(vectors);
+                                        }
+                                        synchronized (this) {
+                                            for (int id : clusterIds.values()) {
+                                                current.sizes[current.position(id)]++;
+                                            }
+                                            unassigned += vectors.size() - clusterIds.size();
+                                            writtenSinceTraining += vectors.size();
+                                        }
+                                        trainIfNeeded();
+                                        return Mono.empty();
+                                    }));
+                });
+    }
+
+    // A training replaced the centroids while entries were assigned to the previous ones. Its
+    // reassignment may have read the entries before their clusters were written, which then left
+    // them in dropped clusters: stale if the final count saw them, and missed by searches if not.
+    // They are assigned to the new centroids, and the clusters counted again if the count saw them.
+    private Mono<Void> reassignAfterTrainingAsync(Map<String, float[]> vectors) {
+        return assignAsync(vectors)
+                .doOnSuccess(
+                        v -> {
+                            if (stale) {
+                                runInBackground(recountAsync());
+                            }
+                        });
+    }
+
+    // Starts a training if the estimated sizes call for one; the training checks the actual ones
+    private void trainIfNeeded() {
+        if (needsTraining()) {
+            runInBackground(trainAsync());
+        }
+    }
+
+    private synchronized boolean needsTraining() {
+        long minRows = (long) options.getClusters() * MIN_ROWS_PER_CLUSTER;
+        Centroids current = centroids;
+        if (current == null) {
+            return unassigned >= minRows;
+        }
+        if (writtenSinceTraining < minRows) {
+            return false;
+        }
+        long total = unassigned;
+        long largest = unassigned;
+        for (long size : current.sizes) {
+            total += size;
+            largest = Math.max(largest, size);
+        }
+        double mean = (double) total / current.ids.length;
+        return mean > 0 && largest > options.getMaxImbalance() * mean;
+    }
+
+    // Replaces the estimated sizes with counted ones; returns whether some rows are stale
+    private synchronized boolean recount(Map<Integer, Long> counts) {
+        Centroids current = centroids;
+        boolean foundStale = false;
+        unassigned = 0;
+        if (current != null) {
+            Arrays.fill(current.sizes, 0);
+        }
+        for (Map.Entry<Integer, Long> count : counts.entrySet()) {
+            int position = current != null ? current.position(count.getKey()) : -1;
+            if (count.getKey() < 0) {
+                unassigned += count.getValue();
+            } else if (position < 0) {
+                foundStale = true;
+                unassigned += count.getValue();
+            } else {
+                current.sizes[position] = count.getValue();
+            }
+        }
+        return foundStale;
+    }
+
+    // Runs one training or assignment at a time; one requested while another runs is dropped,
+    // since the running one leaves the sizes counted for the next check
+    private void runInBackground(Mono<Void> job) {
+        if (closed || !training.compareAndSet(false, true)) {
+            return;
+        }
+        Disposable running =
+                job.doFinally(signal -> training.set(false))
+                        .subscribe(
+                                null,
+                                error ->
+                                        LOGGER.warn(
+                                                "Failed to train the IVF index of collection {}",
+                                                collectionName,
+                                                error));
+        background = running;
+        if (closed) {
+            // Closed while the job started
+            running.dispose();
+        }
+    }
+
+    /** Cancels the running training or assignment and starts no other. */
+    void close() {
+        closed = true;
+        Disposable running = background;
+        if (running != null) {
+            running.dispose();
+        }
+    }
+
+    // Trains new centroids on a sample of the collection, stores them and assigns every row
+    private Mono<Void> trainAsync() {
+        return connector
+                .countClustersAsync(collectionName)
+                .flatMap(
+                        counts -> {
+                            if (recount(counts)) {
+                                // Training again would leave the stale rows stale; they are
+                                // assigned to the current centroids instead
+                                stale = true;
+                                return reassignAllAsync().then(Mono.<Reservoir>empty());
+                            }
+                            if (!needsTraining()) {
+                                return Mono.empty();
+                            }
+                            return connector
+                                    .streamAllAsync(
+                                            collectionName, fetchSize, EntryProjection.EMBEDDING)
+                                    .collect(
+                                            () -> new Reservoir(options.getTrainingSampleSize()),
+                                            Reservoir::offer);
+                        })
+                .flatMap(
+                        sample -> {
+                            if (sample.vectors.isEmpty()) {
+                                return Mono.empty();
+                            }
+                            int firstId = nextId();
+                            float[][] vectors =
+                                    kMeans(sample.vectors, options.getClusters(), new Random());
+                            Map<Integer, float[]> trained = new HashMap<>();
+                            for (int i = 0; i < vectors.length; i++) {
+                                trained.put(firstId + i, vectors[i]);
+                            }
+                            return connector
+                                    .replaceCentroidsAsync(collectionName, trained)
+                                    .then(
+                                            Mono.fromRunnable(
+                                                    () -> {
+                                                        // Every row is stale until assigned again
+                                                        stale = true;
+                                                        synchronized (this) {
+                                                            centroids = new Centroids(trained);
+                                                            writtenSinceTraining = 0;
+                                                        }
+                                                    }))
+                                    .then(Mono.defer(this::reassignAllAsync));
+                        });
+    }
+
+    // Assigns every row of the collection to its nearest cluster, then counts the clusters
+    private Mono<Void> reassignAllAsync() {
+        Centroids current = centroids;
+        if (current == null) {
+            return Mono.empty();
+        }
+        return connector
+                .streamAllAsync(collectionName, fetchSize, EntryProjection.EMBEDDING)
+                // The assignments are written once the rows are read, so that a connector over a
+                // single connection does not update the table under an open cursor
+                .collect(
+                        () -> new ArrayList<Map<String, Integer>>(),
+                        (batches, entry) -> {
+                            float[] vector = JDBCMemoryStore.entryToVector(entry);
+                            if (vector == null || vector.length != current.dimension()) {
+                                return;
+                            }
+                            if (batches.isEmpty()
+                                    || batches.get(batches.size() - 1).size()
+                                            >= ASSIGN_BATCH_SIZE) {
+                                batches.add(new HashMap<>());
+                            }
+                            batches.get(batches.size() - 1)
+                                    .put(entry.getKey(), current.ids[current.nearest(vector)]);
+                        })
+                .flatMapMany(Flux::fromIterable)
+                .concatMap(batch -> connector.assignClustersAsync(collectionName, batch))
+                .then(recountAsync());
+    }
+
+    // Counts the clusters, which clears the stale flag once no row is left in a dropped cluster
+    private Mono<Void> recountAsync() {
+        return connector
+                .countClustersAsync(collectionName)
+                .doOnNext(counts -> stale = recount(counts))
+                .then();
+    }
+
+    private int nextId() {
+        Centroids current = centroids;
+        if (current == null) {
+            return 0;
+        }
+        int max = -1;
+        for (int id : current.ids) {
+            max = Math.max(max, id);
+        }
+        return max + 1;
+    }
+
+    /**
+     * Partitions unit vectors by spherical k-means: each vector joins the centroid it is most
+     * similar to, and each centroid moves to the normalized mean of its vectors. Centroids left
+     * without vectors are moved to a random vector.
+     *
+     * @param vectors The unit vectors to partition.
+     * @param clusters The number of centroids; fewer are returned if there are fewer vectors.
+     * @param random The source of the initial centroids.
+     * @return The unit centroids.
+     */
+    static float[][] kMeans(List<float[]> vectors, int clusters, Random random) {
+        int count = Math.min(clusters, vectors.size());
+        int dimension = vectors.get(0).length;
+        float[][] centroids = seeds(vectors, count, random);
+        // Shares the array, so it searches the centroids of the current iteration
+        Centroids search = new Centroids(centroids);
+        for (int iteration = 0; iteration < TRAINING_ITERATIONS; iteration++) {
+            float[][] sums = new float[count][dimension];
+            int[] members = new int[count];
+            for (float[] vector : vectors) {
+                int nearest = search.nearest(vector);
+                members[nearest]++;
+                float[] sum = sums[nearest];
+                for (int i = 0; i < dimension; i++) {
+                    sum[i] += vector[i];
+                }
+            }
+            for (int c = 0; c < count; c++) {
+                float norm = SimilarityKernels.norm(sums[c]);
+                if (members[c] == 0 || norm == 0) {
+                    centroids[c] = vectors.get(random.nextInt(vectors.size())).clone();
+                } else {
+                    for (int i = 0; i < dimension; i++) {
+                        centroids[c][i] = sums[c][i] / norm;
+                    }
+                }
+            }
+        }
+        return centroids;
+    }
+
+    // k-means++ seeding: each seed is drawn with a probability proportional to its cosine distance
+    // from the nearest seed so far, so that two seeds rarely start in the same cluster
+    private static float[][] seeds(List<float[]> vectors, int count, Random random) {
+        float[][] seeds = new float[count][];
+        seeds[0] = vectors.get(random.nextInt(vectors.size())).clone();
+        double[] distances = new double[vectors.size()];
+        Arrays.fill(distances, Double.MAX_VALUE);
+        for (int s = 1; s < count; s++) {
+            double total = 0;
+            for (int i = 0; i < distances.length; i++) {
+                double distance =
+                        Math.max(0, 1 - SimilarityKernels.dot(vectors.get(i), seeds[s - 1]));
+                distances[i] = Math.min(distances[i], distance);
+                total += distances[i];
+            }
+            int chosen = random.nextInt(vectors.size());
+            if (total > 0) {
+                double target = random.nextDouble() * total;
+                for (int i = 0; i < distances.length; i++) {
+                    target -= distances[i];
+                    if (target <= 0) {
+                        chosen = i;
+                        break;
+                    }
+                }
+            }
+            seeds[s] = vectors.get(chosen).clone();
+        }
+        return seeds;
+    }
+
+    // The centroids of one training, with the estimated size of each cluster
+    private static final class Centroids {
+        private final int[] ids;
+        private final float[][] vectors;
+        private final long[] sizes;
+        private final Map<Integer, Integer> positions = new HashMap<>();
+
+        private Centroids(Map<Integer, float[]> byId) {
+            this.ids = new int[byId.size()];
+            this.vectors = new float[byId.size()][];
+            this.sizes = new long[byId.size()];
+            int position = 0;
+            for (Map.Entry<Integer, float[]> centroid : byId.entrySet()) {
+                ids[position] = centroid.getKey();
+                vectors[position] = centroid.getValue();
+                positions.put(centroid.getKey(), position);
+                position++;
+            }
+        }
+
+        // Centroids being trained, numbered by position
+        private Centroids(float[][] vectors) {
+            this.ids = new int[vectors.length];
+            this.vectors = vectors;
+            this.sizes = new long[vectors.length];
+        }
+
+        private int dimension() {
+            return vectors[0].length;
+        }
+
+        // The position of a cluster, or -1 if it is not one of these centroids
+        private int position(int id) {
+            Integer position = positions.get(id);
+            return position != null ? position : -1;
+        }
+
+        // The position of the centroid most similar to a vector of any length
+        private int nearest(float[] vector) {
+            int nearest = 0;
+            float best = Float.NEGATIVE_INFINITY;
+            for (int c = 0; c < vectors.length; c++) {
+                float similarity = SimilarityKernels.dot(vectors[c], vector);
+                if (similarity > best) {
+                    best = similarity;
+                    nearest = c;
+                }
+            }
+            return nearest;
+        }
+
+        private List<Integer> nearestIds(float[] query, int count) {
+            TopKHeap nearest = new TopKHeap(Math.min(count, vectors.length));
+            for (int c = 0; c < vectors.length; c++) {
+                nearest.offer(SimilarityKernels.dot(vectors[c], query), c);
+            }
+            List<Integer> nearestIds = new ArrayList<>(nearest.size());
+            for (int i = 0; i < nearest.size(); i++) {
+                nearestIds.add(ids[nearest.index(i)]);
+            }
+            return nearestIds;
+        }
+    }
+
+    // A uniform sample of the unit embeddings of a stream of unknown length
+    private static final class Reservoir {
+        private final int capacity;
+        private final List<float[]> vectors = new ArrayList<>();
+        private final Random random = new Random();
+        private long seen;
+
+        private Reservoir(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private void offer(DatabaseEntry entry) {
+            float[] vector = JDBCMemoryStore.entryToVector(entry);
+            if (vector == null || vector.length == 0 || SimilarityKernels.norm(vector) == 0) {
+                return;
+            }
+            seen++;
+            if (vectors.size() < capacity) {
+                vectors.add(SimilarityKernels.normalize(vector));
+            } else {
+                long slot = (long) (random.nextDouble() * seen);
+                if (slot < capacity) {
+                    vectors.set((int) slot, SimilarityKernels.normalize(vector));
+                }
+            }
+        }
+    }
+}
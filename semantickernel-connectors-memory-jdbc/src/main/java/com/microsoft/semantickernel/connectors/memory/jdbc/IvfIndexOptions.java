@@ -0,0 +1,157 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+/**
+ * Configures an inverted file (IVF) index of a collection. The embeddings of the collection are
+ * partitioned into clusters by k-means, the centroids are stored in a side table and each row
+ * records its cluster, so that a search reads only the rows of the {@code nprobe} clusters whose
+ * centroids are most similar to the query.
+ *
+ * <p>The index is trained once the collection holds enough rows, and trained again in the
+ * background when the clusters become unbalanced: when the largest cluster, or the rows not yet
+ * assigned to a cluster, exceed {@code maxImbalance} times the mean cluster size.
+ */
+public final class IvfIndexOptions {
+    /** The number of clusters unless configured otherwise. */
+    public static final int DEFAULT_CLUSTERS = 256;
+
+    /** The number of clusters a search reads unless configured otherwise. */
+    public static final int DEFAULT_NPROBE = 8;
+
+    /** The cluster imbalance that triggers a retraining unless configured otherwise. */
+    public static final double DEFAULT_MAX_IMBALANCE = 3.0;
+
+    /** The number of embeddings the centroids are trained on unless configured otherwise. */
+    public static final int DEFAULT_TRAINING_SAMPLE_SIZE = 16384;
+
+    private final int clusters;
+    private final int nprobe;
+    private final double maxImbalance;
+    private final int trainingSampleSize;
+
+    private IvfIndexOptions(Builder builder) {
+        this.clusters = builder.clusters;
+        this.nprobe = builder.nprobe;
+        this.maxImbalance = builder.maxImbalance;
+        this.trainingSampleSize = builder.trainingSampleSize;
+    }
+
+    /**
+     * Gets the number of clusters the embeddings are partitioned into.
+     *
+     * @return The number of clusters.
+     */
+    public int getClusters() {
+        return clusters;
+    }
+
+    /**
+     * Gets the number of clusters a search reads unless the search sets its own.
+     *
+     * @return The default number of probed clusters.
+     */
+    public int getNprobe() {
+        return nprobe;
+    }
+
+    /**
+     * Gets the ratio of the largest cluster to the mean cluster size that triggers a retraining.
+     *
+     * @return The maximum cluster imbalance.
+     */
+    public double getMaxImbalance() {
+        return maxImbalance;
+    }
+
+    /**
+     * Gets the number of embeddings sampled from the collection to train the centroids.
+     *
+     * @return The training sample size.
+     */
+    public int getTrainingSampleSize() {
+        return trainingSampleSize;
+    }
+
+    /** Builds an IvfIndexOptions. */
+    public static class Builder {
+        private int clusters = DEFAULT_CLUSTERS;
+        private int nprobe = DEFAULT_NPROBE;
+        private double maxImbalance = DEFAULT_MAX_IMBALANCE;
+        private int trainingSampleSize = DEFAULT_TRAINING_SAMPLE_SIZE;
+
+        /**
+         * Builds the options.
+         *
+         * @return The IVF index options.
+         */
+        public IvfIndexOptions build() {
+            return new IvfIndexOptions(this);
+        }
+
+        /**
+         * Sets the number of clusters the embeddings are partitioned into; the square root of the
+         * expected collection size is a common choice. The index is trained once the collection
+         * holds 8 rows per cluster. Defaults to {@value IvfIndexOptions#DEFAULT_CLUSTERS}.
+         *
+         * @param clusters The number of clusters.
+         * @return The updated Builder instance to continue the building process for an
+         *     IvfIndexOptions.
+         */
+        public Builder withClusters(int clusters) {
+            if (clusters <= 0) {
+                throw new IllegalArgumentException("clusters must be positive");
+            }
+            this.clusters = clusters;
+            return this;
+        }
+
+        /**
+         * Sets the number of clusters a search reads, trading speed for recall. Defaults to {@value
+         * IvfIndexOptions#DEFAULT_NPROBE}.
+         *
+         * @param nprobe The number of probed clusters.
+         * @return The updated Builder instance to continue the building process for an
+         *     IvfIndexOptions.
+         */
+        public Builder withNprobe(int nprobe) {
+            if (nprobe <= 0) {
+                throw new IllegalArgumentException("nprobe must be positive");
+            }
+            this.nprobe = nprobe;
+            return this;
+        }
+
+        /**
+         * Sets the ratio of the largest cluster to the mean cluster size that triggers a
+         * retraining. Defaults to {@value IvfIndexOptions#DEFAULT_MAX_IMBALANCE}.
+         *
+         * @param maxImbalance The maximum cluster imbalance.
+         * @return The updated Builder instance to continue the building process for an
+         *     IvfIndexOptions.
+         */
+        public Builder withMaxImbalance(double maxImbalance) {
+            if (maxImbalance <= 1) {
+                throw new IllegalArgumentException("maxImbalance must be greater than 1");
+            }
+            this.maxImbalance = maxImbalance;
+            return this;
+        }
+
+        /**
+         * Sets the number of embeddings sampled from the collection to train the centroids, which
+         * bounds the memory and time a training takes. Defaults to {@value
+         * IvfIndexOptions#DEFAULT_TRAINING_SAMPLE_SIZE}.
+         *
+         * @param trainingSampleSize The training sample size.
+         * @return The updated Builder instance to continue the building process for an
+         *     IvfIndexOptions.
+         */
+        public Builder withTrainingSampleSize(int trainingSampleSize) {
+            if (trainingSampleSize <= 0) {
+                throw new IllegalArgumentException("trainingSampleSize must be positive");
+            }
+            this.trainingSampleSize = trainingSampleSize;
+            return this;
+        }
+    }
+}
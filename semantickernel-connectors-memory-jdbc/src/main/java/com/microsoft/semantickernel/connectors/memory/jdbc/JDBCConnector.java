@@ -4,25 +4,123 @@ package com.microsoft.semantickernel.connectors.memory.jdbc;
 import com.microsoft.semantickernel.memory.MemoryException;
 import com.microsoft.semantickernel.memory.MemoryException.ErrorCodes;
 import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import javax.annotation.Nullable;
+import javax.sql.DataSource;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
 public class JDBCConnector implements SQLConnector, Closeable {
-    protected final Connection connection;
+    /** The number of prepared statements kept per connection unless configured otherwise. */
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
 
+    /**
+     * The number of key chunks of a batch read or delete run at once on a data source unless
+     * configured otherwise.
+     */
+    public static final int DEFAULT_BATCH_CONCURRENCY = 4;
+
+    /**
+     * The maximum number of keys bound by one batch statement, a power of two that stays below the
+     * parameter limits of common drivers such as SQLite's 999.
+     */
+    protected static final int MAX_BATCH_KEYS = 256;
+
+    protected final DataSource dataSource;
+    protected final EmbeddingStorageFormat embeddingFormat;
+    protected final TimestampStorageFormat timestampFormat;
+    protected final TableLayout tableLayout;
+    // The connection the connector was created with, which it closes; null for a data source
+    @Nullable private final Connection ownedConnection;
+    // The number of key chunks of one batch operation running at once
+    private final int batchConcurrency;
+
+    /**
+     * Creates a connector over a single connection, which it closes when it is closed.
+     *
+     * @param connection The database connection.
+     */
     public JDBCConnector(Connection connection) {
-        this.connection = connection;
+        this(new Builder().withConnection(connection));
+    }
+
+    /**
+     * Creates a connector configured by the settings of a builder.
+     *
+     * @param builder The builder holding the settings of the connector.
+     */
+    protected JDBCConnector(Builder builder) {
+        this.embeddingFormat = builder.embeddingFormat;
+        this.timestampFormat = builder.timestampFormat;
+        this.tableLayout = builder.tableLayout;
+        if (builder.dataSource != null) {
+            this.dataSource = builder.dataSource;
+            this.ownedConnection = null;
+            this.batchConcurrency = builder.batchConcurrency;
+        } else {
+            this.dataSource =
+                    new SingleConnectionDataSource(builder.connection, builder.statementCacheSize);
+            this.ownedConnection = builder.connection;
+            // Chunks would only queue for the single connection
+            this.batchConcurrency = 1;
+        }
+    }
+
+    /**
+     * Gets a connection for one operation, which the operation closes when it completes.
+     *
+     * @return A database connection.
+     * @throws SQLException if no connection can be obtained.
+     */
+    protected Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    // Gets a connection for a streamed read, which holds it until its last row is read, possibly on
+    // another thread. A single connection is shared rather than held, so that a stream consumed by
+    // writes on this connector does not wait for itself
+    private Connection getStreamingConnection() throws SQLException {
+        if (dataSource instanceof SingleConnectionDataSource) {
+            return ((SingleConnectionDataSource) dataSource).getSharedConnection();
+        }
+        return getConnection();
+    }
+
+    /**
+     * Gets the hit and miss counters of the prepared statement caches used by this connector.
+     *
+     * @return The statement cache counters, which stay at zero if statements are not cached.
+     */
+    public StatementCacheStatistics getStatementCacheStatistics() {
+        StatementCacheStatistics statistics =
+                dataSource instanceof AbstractDataSource
+                        ? ((AbstractDataSource) dataSource).getStatementCacheStatistics()
+                        : null;
+        return statistics != null ? statistics : new StatementCacheStatistics();
     }
 
     // Convenience method to format a ZonedDateTime in a format acceptable to SQL
@@ -37,9 +135,316 @@ public class JDBCConnector implements SQLConnector, Closeable {
         return ZonedDateTime.parse(datetime, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
     }
 
+    // Binds the embedding parameter in the representation selected for this connector
+    protected void setEmbedding(
+            PreparedStatement statement,
+            int index,
+            @Nullable String embedding,
+            @Nullable float[] vector)
+            throws SQLException {
+        if (embeddingFormat != EmbeddingStorageFormat.JSON) {
+            float[] value = vector != null ? vector : EmbeddingCodec.fromJson(embedding);
+            if (value == null) {
+                statement.setNull(index, Types.BLOB);
+            } else {
+                statement.setBytes(index, EmbeddingCodec.encode(value));
+            }
+        } else if (embedding != null) {
+            statement.setString(index, embedding);
+        } else {
+            statement.setString(index, vector != null ? EmbeddingCodec.toJson(vector) : "");
+        }
+    }
+
+    // Binds the L2 norm of the embedding so that searches do not recompute it for every query
+    protected static void setNorm(PreparedStatement statement, int index, @Nullable float[] vector)
+            throws SQLException {
+        if (vector == null) {
+            statement.setNull(index, Types.REAL);
+        } else {
+            statement.setFloat(index, SimilarityKernels.norm(vector));
+        }
+    }
+
+    // Reads the current row of a result set into a DatabaseEntry
+    protected DatabaseEntry readEntry(ResultSet resultSet, String key) throws SQLException {
+        return readEntry(resultSet, key, EntryProjection.FULL);
+    }
+
+    // Reads the projected columns of the current row of a result set into a DatabaseEntry
+    protected DatabaseEntry readEntry(ResultSet resultSet, String key, EntryProjection projection)
+            throws SQLException {
+        String quantizedColumn = quantizedColumn();
+        if (projection == EntryProjection.QUANTIZED && quantizedColumn != null) {
+            byte[] quantized = resultSet.getBytes(quantizedColumn);
+            if (quantized != null) {
+                return new DatabaseEntry(key, quantized);
+            }
+        }
+        if (projection == EntryProjection.EMBEDDING || projection == EntryProjection.QUANTIZED) {
+            return readEmbedding(resultSet, key, null, null);
+        }
+        String metadata = resultSet.getString("metadata");
+        Supplier<ZonedDateTime> timestamp = readTimestamp(resultSet);
+        if (projection == EntryProjection.METADATA) {
+            return new DatabaseEntry(key, metadata, null, null, null, timestamp);
+        }
+        return readEmbedding(resultSet, key, metadata, timestamp);
+    }
+
+    private DatabaseEntry readEmbedding(
+            ResultSet resultSet,
+            String key,
+            @Nullable String metadata,
+            @Nullable Supplier<ZonedDateTime> timestamp)
+            throws SQLException {
+        float norm = resultSet.getFloat("norm");
+        Float storedNorm = resultSet.wasNull() ? null : norm;
+        float[] vector = null;
+        String embedding = null;
+        if (embeddingFormat != EmbeddingStorageFormat.JSON) {
+            vector = EmbeddingCodec.decode(resultSet.getBytes("embedding"));
+        } else {
+            embedding = resultSet.getString("embedding");
+        }
+        if (timestamp == null) {
+            return new DatabaseEntry(
+                    key, metadata, embedding, vector, storedNorm, (ZonedDateTime) null);
+        }
+        return new DatabaseEntry(key, metadata, embedding, vector, storedNorm, timestamp);
+    }
+
+    // Reads the stored timestamp of the current row, which is decoded only when it is requested
+    private Supplier<ZonedDateTime> readTimestamp(ResultSet resultSet) throws SQLException {
+        if (timestampFormat == TimestampStorageFormat.EPOCH_MILLIS) {
+            long millis = resultSet.getLong("timestamp");
+            if (resultSet.wasNull()) {
+                return () -> null;
+            }
+            int offsetSeconds = resultSet.getInt("timestamp_offset");
+            return () ->
+                    ZonedDateTime.ofInstant(
+                            Instant.ofEpochMilli(millis), ZoneOffset.ofTotalSeconds(offsetSeconds));
+        }
+        String datetime = resultSet.getString("timestamp");
+        return () -> parseDatetime(datetime);
+    }
+
+    // Binds the timestamp parameter at index, and its offset at offsetIndex when stored apart
+    protected void setTimestamp(
+            PreparedStatement statement,
+            int index,
+            int offsetIndex,
+            @Nullable ZonedDateTime timestamp)
+            throws SQLException {
+        if (timestampFormat != TimestampStorageFormat.EPOCH_MILLIS) {
+            statement.setString(index, formatDatetime(timestamp));
+        } else if (timestamp == null) {
+            statement.setNull(index, Types.BIGINT);
+            statement.setNull(offsetIndex, Types.INTEGER);
+        } else {
+            statement.setLong(index, timestamp.toInstant().toEpochMilli());
+            statement.setInt(offsetIndex, timestamp.getOffset().getTotalSeconds());
+        }
+    }
+
+    // The upsert statement, which also writes the offset column if timestamps are stored as epoch
+    // and the quantized embedding or signature if embeddings are quantized
+    private String upsertQuery(String collectionName) {
+        StringBuilder columns = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        if (tableLayout == TableLayout.SHARED_TABLE) {
+            columns.append("collection, ");
+            values.append("?, ");
+        }
+        columns.append("key, metadata, embedding, timestamp, norm");
+        values.append("?, ?, ?, ?, ?");
+        if (timestampFormat == TimestampStorageFormat.EPOCH_MILLIS) {
+            columns.append(", timestamp_offset");
+            values.append(", ?");
+        }
+        if (quantizedColumn() != null) {
+            columns.append(", ").append(quantizedColumn());
+            values.append(", ?");
+        }
+        return "INSERT OR REPLACE INTO "
+                + memoryTable(collectionName)
+                + " ("
+                + columns
+                + ") VALUES ("
+                + values
+                + ")";
+    }
+
+    // Binds the parameters of an upsert statement for one entry
+    private void bindUpsert(
+            PreparedStatement statement,
+            String collection,
+            String key,
+            @Nullable String metadata,
+            @Nullable String embedding,
+            @Nullable float[] vector,
+            @Nullable ZonedDateTime timestamp)
+            throws SQLException {
+        float[] value = vector != null ? vector : EmbeddingCodec.fromJson(embedding);
+        int index = bindCollection(statement, collection);
+        statement.setString(index, key);
+        statement.setString(index + 1, metadata != null ? metadata : "");
+        setEmbedding(statement, index + 2, embedding, value);
+        setTimestamp(statement, index + 3, index + 5, timestamp);
+        setNorm(statement, index + 4, value);
+        if (quantizedColumn() != null) {
+            int quantizedIndex =
+                    timestampFormat == TimestampStorageFormat.EPOCH_MILLIS ? index + 6 : index + 5;
+            if (value == null) {
+                statement.setNull(quantizedIndex, Types.BLOB);
+            } else if (embeddingFormat == EmbeddingStorageFormat.BINARY_SIGNATURE) {
+                statement.setBytes(quantizedIndex, BinarySignature.encode(value));
+            } else {
+                statement.setBytes(quantizedIndex, ScalarQuantizer.encode(value));
+            }
+        }
+    }
+
+    // The column holding the quantized embeddings or signatures, or null if none are stored
+    @Nullable
+    private String quantizedColumn() {
+        switch (embeddingFormat) {
+            case INT8_QUANTIZED:
+                return "quantized_embedding";
+            case BINARY_SIGNATURE:
+                return "signature";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Gets the table holding the entries of a collection, which is the shared memory table unless
+     * each collection has a table of its own.
+     *
+     * @param collectionName The name of the collection.
+     * @return The name of the table.
+     */
+    protected String memoryTable(String collectionName) {
+        return tableLayout == TableLayout.SHARED_TABLE
+                ? TABLE_NAME
+                : collectionTableName(collectionName);
+    }
+
+    /**
+     * Gets the name of the table of a collection in the table-per-collection layout. Names made of
+     * lower-case letters, digits and underscores are used as they are; other names, which may not
+     * be valid or distinct identifiers, are replaced by a hash.
+     *
+     * @param collectionName The name of the collection.
+     * @return The name of the table of the collection.
+     */
+    protected static String collectionTableName(String collectionName) {
+        if (SIMPLE_COLLECTION_NAME.matcher(collectionName).matches()) {
+            return TABLE_NAME + "_c_" + collectionName;
+        }
+        try {
+            byte[] digest =
+                    MessageDigest.getInstance("SHA-256")
+                            .digest(collectionName.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(TABLE_NAME).append("_h_");
+            for (int i = 0; i < 16; i++) {
+                name.append(String.format("%02x", digest[i]));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // The WHERE clause selecting the entries of a collection in its table that satisfy a condition
+    private String whereCollection(@Nullable String condition) {
+        if (tableLayout == TableLayout.SHARED_TABLE) {
+            return condition != null
+                    ? " WHERE collection = ? AND " + condition
+                    : " WHERE collection = ?";
+        }
+        return condition != null ? " WHERE " + condition : "";
+    }
+
+    // Binds the collection of a statement on the shared table; returns the next parameter index
+    private int bindCollection(PreparedStatement statement, String collectionName)
+            throws SQLException {
+        if (tableLayout == TableLayout.SHARED_TABLE) {
+            statement.setString(1, collectionName);
+            return 2;
+        }
+        return 1;
+    }
+
+    // The definition of a memory table, which is keyed by collection and key if shared
+    private String memoryTableDefinition(String table) {
+        boolean shared = tableLayout == TableLayout.SHARED_TABLE;
+        return "CREATE TABLE IF NOT EXISTS "
+                + table
+                + " ("
+                + (shared ? "collection TEXT NOT NULL, " : "")
+                + "key TEXT NOT NULL, "
+                + "metadata TEXT, "
+                // Ahead of the embedding, so that scanning it does not read overflow pages
+                + (quantizedColumn() != null ? quantizedColumn() + " BLOB, " : "")
+                + "embedding "
+                + (embeddingFormat != EmbeddingStorageFormat.JSON ? "BLOB" : "TEXT")
+                + ", "
+                + (timestampFormat == TimestampStorageFormat.EPOCH_MILLIS
+                        ? "timestamp BIGINT, timestamp_offset INTEGER, "
+                        : "timestamp TEXT, ")
+                + "norm REAL, "
+                + "cluster_id INTEGER, "
+                + "segment_offset BIGINT, "
+                + (shared
+                        ? "PRIMARY KEY (collection, key), "
+                                + "FOREIGN KEY (collection) REFERENCES "
+                                + COLLECTIONS_TABLE_NAME
+                                + "(id)"
+                        : "PRIMARY KEY (key)")
+                + " )";
+    }
+
+    // The select list of the columns of a projection
+    protected String selectColumns(EntryProjection projection) {
+        switch (projection) {
+            case METADATA:
+                return timestampFormat == TimestampStorageFormat.EPOCH_MILLIS
+                        ? "key, metadata, timestamp, timestamp_offset"
+                        : "key, metadata, timestamp";
+            case EMBEDDING:
+                return "key, embedding, norm";
+            case QUANTIZED:
+                // The embedding and norm, which follow the quantized embedding in a row and may
+                // be stored on overflow pages, are only read for rows stored before they were
+                // quantized
+                String column = quantizedColumn();
+                return column != null
+                        ? "key, "
+                                + column
+                                + ", CASE WHEN "
+                                + column
+                                + " IS NULL THEN embedding END AS embedding, CASE WHEN "
+                                + column
+                                + " IS NULL THEN norm END AS norm"
+                        : "key, embedding, norm";
+            default:
+                return "*";
+        }
+    }
+
     protected static final String COLLECTIONS_TABLE_NAME = "SKCollectionTable";
     protected static final String TABLE_NAME = "SKMemoryTable";
     protected static final String INDEX_NAME = "SKMemoryIndex";
+    protected static final String TIMESTAMP_INDEX_NAME = "SKMemoryTimestampIndex";
+    protected static final String VECTOR_INDEX_TABLE_NAME = "SKVectorIndexTable";
+    protected static final String CENTROIDS_TABLE_NAME = "SKCentroidTable";
+    protected static final String CLUSTER_INDEX_NAME = "SKMemoryClusterIndex";
+    protected static final String COLLECTIONS_VERSION_TABLE_NAME = "SKCollectionVersionTable";
+
+    private static final Pattern SIMPLE_COLLECTION_NAME = Pattern.compile("[a-z0-9_]{1,64}");
 
     /**
      * Returns the name of the table that stores the collection names.
@@ -68,6 +473,24 @@ public class JDBCConnector implements SQLConnector, Closeable {
         return INDEX_NAME;
     }
 
+    /**
+     * Returns the name of the table that stores the vector index records.
+     *
+     * @return The name of the table that stores the vector index records.
+     */
+    protected static String DEFAULT_VECTOR_INDEX_TABLE_NAME() {
+        return VECTOR_INDEX_TABLE_NAME;
+    }
+
+    /**
+     * Returns the name of the table that stores the centroids of IVF indexes.
+     *
+     * @return The name of the table that stores the centroids of IVF indexes.
+     */
+    protected static String DEFAULT_CENTROIDS_TABLE_NAME() {
+        return CENTROIDS_TABLE_NAME;
+    }
+
     public Mono<Void> createTableAsync() {
         return Mono.fromRunnable(
                         () -> {
@@ -75,23 +498,11 @@ public class JDBCConnector implements SQLConnector, Closeable {
                                     "CREATE TABLE IF NOT EXISTS "
                                             + COLLECTIONS_TABLE_NAME
                                             + " ("
-                                            + "id TEXT PRIMARY KEY"
+                                            + "id TEXT PRIMARY KEY, "
+                                            + "table_name TEXT"
                                             + " )";
 
-                            String createSKMemoryTable =
-                                    "CREATE TABLE IF NOT EXISTS "
-                                            + TABLE_NAME
-                                            + " ("
-                                            + "collection TEXT NOT NULL, "
-                                            + "key TEXT NOT NULL, "
-                                            + "metadata TEXT, "
-                                            + "embedding TEXT, "
-                                            + "timestamp TEXT, "
-                                            + "PRIMARY KEY (collection, key), "
-                                            + "FOREIGN KEY (collection) REFERENCES "
-                                            + COLLECTIONS_TABLE_NAME
-                                            + "(id)"
-                                            + " )";
+                            String createSKMemoryTable = memoryTableDefinition(TABLE_NAME);
 
                             String createIndex =
                                     "CREATE INDEX IF NOT EXISTS "
@@ -100,11 +511,80 @@ public class JDBCConnector implements SQLConnector, Closeable {
                                             + TABLE_NAME
                                             + "(collection)";
 
-                            try (Statement statement = this.connection.createStatement()) {
+                            String createVectorIndexTable =
+                                    "CREATE TABLE IF NOT EXISTS "
+                                            + VECTOR_INDEX_TABLE_NAME
+                                            + " ("
+                                            + "collection TEXT NOT NULL, "
+                                            + "key TEXT NOT NULL, "
+                                            + "record BLOB, "
+                                            + "PRIMARY KEY (collection, key)"
+                                            + " )";
+
+                            String createCentroidsTable =
+                                    "CREATE TABLE IF NOT EXISTS "
+                                            + CENTROIDS_TABLE_NAME
+                                            + " ("
+                                            + "collection TEXT NOT NULL, "
+                                            + "cluster_id INTEGER NOT NULL, "
+                                            + "centroid BLOB, "
+                                            + "PRIMARY KEY (collection, cluster_id)"
+                                            + " )";
+
+                            // A single row counting the creations and deletions of collections
+                            String createCollectionsVersionTable =
+                                    "CREATE TABLE IF NOT EXISTS "
+                                            + COLLECTIONS_VERSION_TABLE_NAME
+                                            + " ("
+                                            + "id INTEGER PRIMARY KEY, "
+                                            + "version INTEGER NOT NULL"
+                                            + " )";
+                            String insertCollectionsVersion =
+                                    "INSERT OR IGNORE INTO "
+                                            + COLLECTIONS_VERSION_TABLE_NAME
+                                            + " (id, version) VALUES (0, 0)";
+
+                            try (Connection connection = getConnection();
+                                    Statement statement = connection.createStatement()) {
                                 statement.addBatch(createCollectionKeyTable);
-                                statement.addBatch(createSKMemoryTable);
-                                statement.addBatch(createIndex);
+                                if (tableLayout == TableLayout.SHARED_TABLE) {
+                                    statement.addBatch(createSKMemoryTable);
+                                    statement.addBatch(createIndex);
+                                }
+                                if (tableLayout == TableLayout.SHARED_TABLE
+                                        && timestampFormat == TimestampStorageFormat.EPOCH_MILLIS) {
+                                    statement.addBatch(
+                                            "CREATE INDEX IF NOT EXISTS "
+                                                    + TIMESTAMP_INDEX_NAME
+                                                    + " ON "
+                                                    + TABLE_NAME
+                                                    + "(collection, timestamp)");
+                                }
+                                statement.addBatch(createVectorIndexTable);
+                                statement.addBatch(createCentroidsTable);
+                                statement.addBatch(createCollectionsVersionTable);
+                                statement.addBatch(insertCollectionsVersion);
                                 statement.executeBatch();
+                                addColumnIfMissing(
+                                        connection, COLLECTIONS_TABLE_NAME, "table_name", "TEXT");
+                                if (tableLayout == TableLayout.SHARED_TABLE) {
+                                    addColumnIfMissing(connection, TABLE_NAME, "norm", "REAL");
+                                    addColumnIfMissing(
+                                            connection, TABLE_NAME, "cluster_id", "INTEGER");
+                                    addColumnIfMissing(
+                                            connection, TABLE_NAME, "segment_offset", "BIGINT");
+                                }
+                                if (tableLayout == TableLayout.SHARED_TABLE
+                                        && timestampFormat == TimestampStorageFormat.EPOCH_MILLIS) {
+                                    // Rows without an offset are read in UTC
+                                    addColumnIfMissing(
+                                            connection, TABLE_NAME, "timestamp_offset", "INTEGER");
+                                }
+                                if (tableLayout == TableLayout.SHARED_TABLE
+                                        && quantizedColumn() != null) {
+                                    addColumnIfMissing(
+                                            connection, TABLE_NAME, quantizedColumn(), "BLOB");
+                                }
                             } catch (SQLException e) {
                                 throw new SQLConnectorException(
                                         SQLConnectorException.ErrorCodes.SQL_ERROR,
@@ -116,15 +596,38 @@ public class JDBCConnector implements SQLConnector, Closeable {
                 .then();
     }
 
+    // Tables created before a column existed get it added; their rows keep a NULL value
+    private static void addColumnIfMissing(
+            Connection connection, String table, String column, String type) throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(null, null, table, column)) {
+            if (columns.next()) {
+                return;
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+        }
+    }
+
     public Mono<Void> createCollectionAsync(String collectionName) {
         return Mono.fromRunnable(
                         () -> {
                             String query =
-                                    "INSERT INTO " + COLLECTIONS_TABLE_NAME + " (id) VALUES (?)";
-                            try (PreparedStatement statement =
-                                    this.connection.prepareStatement(query)) {
-                                statement.setString(1, collectionName);
-                                statement.executeUpdate();
+                                    "INSERT INTO "
+                                            + COLLECTIONS_TABLE_NAME
+                                            + " (id, table_name) VALUES (?, ?)";
+                            String table = memoryTable(collectionName);
+                            try (Connection connection = getConnection()) {
+                                if (tableLayout == TableLayout.TABLE_PER_COLLECTION) {
+                                    createCollectionTable(connection, table);
+                                }
+                                try (PreparedStatement statement =
+                                        connection.prepareStatement(query)) {
+                                    statement.setString(1, collectionName);
+                                    statement.setString(2, table);
+                                    statement.executeUpdate();
+                                }
+                                incrementCollectionsVersion(connection);
                             } catch (SQLException e) {
                                 throw new SQLConnectorException(
                                         SQLConnectorException.ErrorCodes.SQL_ERROR,
@@ -136,26 +639,61 @@ public class JDBCConnector implements SQLConnector, Closeable {
                 .then();
     }
 
+    private void createCollectionTable(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.addBatch(memoryTableDefinition(table));
+            if (timestampFormat == TimestampStorageFormat.EPOCH_MILLIS) {
+                statement.addBatch(
+                        "CREATE INDEX IF NOT EXISTS "
+                                + table
+                                + "_timestamp ON "
+                                + table
+                                + "(timestamp)");
+            }
+            statement.executeBatch();
+        }
+    }
+
     public Mono<String> upsertAsync(
             String collection,
             String key,
             String metadata,
             String embedding,
             ZonedDateTime timestamp) {
+        return upsertAsync(collection, key, metadata, embedding, null, timestamp);
+    }
+
+    @Override
+    public Mono<String> upsertAsync(
+            String collection,
+            String key,
+            String metadata,
+            float[] vector,
+            ZonedDateTime timestamp) {
+        return upsertAsync(collection, key, metadata, null, vector, timestamp);
+    }
+
+    private Mono<String> upsertAsync(
+            String collection,
+            String key,
+            String metadata,
+            @Nullable String embedding,
+            @Nullable float[] vector,
+            ZonedDateTime timestamp) {
         return Mono.fromRunnable(
                         () -> {
-                            String query =
-                                    "INSERT OR REPLACE INTO "
-                                            + TABLE_NAME
-                                            + " (collection, key, metadata, embedding, timestamp)"
-                                            + " VALUES (?, ?, ?, ?, ?)";
-                            try (PreparedStatement statement =
-                                    this.connection.prepareStatement(query)) {
-                                statement.setString(1, collection);
-                                statement.setString(2, key);
-                                statement.setString(3, metadata != null ? metadata : "");
-                                statement.setString(4, embedding != null ? embedding : "");
-                                statement.setString(5, formatDatetime(timestamp));
+                            String query = upsertQuery(collection);
+                            try (Connection connection = getConnection();
+                                    PreparedStatement statement =
+                                            connection.prepareStatement(query)) {
+                                bindUpsert(
+                                        statement,
+                                        collection,
+                                        key,
+                                        metadata,
+                                        embedding,
+                                        vector,
+                                        timestamp);
                                 statement.executeUpdate();
                             } catch (SQLException e) {
                                 throw new SQLConnectorException(
@@ -168,45 +706,63 @@ public class JDBCConnector implements SQLConnector, Closeable {
                 .thenReturn(key);
     }
 
+    /**
+     * Upserts a batch of entries with one batch statement. If the connection is in auto-commit
+     * mode, the batch is written in a single transaction that is rolled back if any entry fails;
+     * otherwise the batch joins the transaction of the caller.
+     *
+     * @param collection The name of the collection.
+     * @param records The entries to upsert.
+     * @return A Mono with the keys of the upserted entries.
+     */
     @Override
     public Mono<Collection<String>> upsertBatchAsync(
             String collection, Collection<DatabaseEntry> records) {
-        Collection<String> keys = new ArrayList<>();
-        return Mono.fromRunnable(
+        return Mono.<Collection<String>>fromCallable(
                         () -> {
-                            String query =
-                                    "INSERT OR REPLACE INTO "
-                                            + TABLE_NAME
-                                            + " (collection, key, metadata, embedding, timestamp)"
-                                            + " VALUES (?, ?, ?, ?, ?)";
-                            try (PreparedStatement statement =
-                                    this.connection.prepareStatement(query)) {
-                                for (DatabaseEntry entry : records) {
-                                    statement.setString(1, collection);
-                                    statement.setString(2, entry.getKey());
-                                    statement.setString(
-                                            3,
-                                            entry.getMetadata() != null ? entry.getMetadata() : "");
-                                    statement.setString(
-                                            4,
-                                            entry.getEmbedding() != null
-                                                    ? entry.getEmbedding()
-                                                    : "");
-                                    statement.setString(5, formatDatetime(entry.getTimestamp()));
-                                    statement.addBatch();
-                                    keys.add(entry.getKey());
-                                }
-
-                                statement.executeBatch();
+                            // Per subscription, so that a retried batch reports its keys once
+                            Collection<String> keys = new ArrayList<>(records.size());
+                            String query = upsertQuery(collection);
+                            try (Connection connection = getConnection()) {
+                                // Committing once per batch rather than once per row
+                                inTransaction(
+                                        connection,
+                                        () -> {
+                                            try (PreparedStatement statement =
+                                                    connection.prepareStatement(query)) {
+                                                for (DatabaseEntry entry : records) {
+                                                    bindUpsert(
+                                                            statement,
+                                                            collection,
+                                                            entry.getKey(),
+                                                            entry.getMetadata(),
+                                                            entry.getEmbedding(),
+                                                            entry.getVector(),
+                                                            entry.getTimestamp());
+                                                    statement.addBatch();
+                                                    keys.add(entry.getKey());
+                                                }
+                                                statement.executeBatch();
+                                            }
+                                        });
                             } catch (SQLException e) {
                                 throw new SQLConnectorException(
                                         SQLConnectorException.ErrorCodes.SQL_ERROR,
                                         "\"INSERT OR REPLACE INTO\" failed",
                                         e);
                             }
+                            return keys;
                         })
-                .subscribeOn(Schedulers.boundedElastic())
-                .thenReturn(keys);
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // Rolls back a failed transaction, keeping the original failure if the rollback fails too
+    private static void rollbackQuietly(Connection connection, Exception failure) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            failure.addSuppressed(e);
+        }
     }
 
     public Mono<Boolean> doesCollectionExistsAsync(String collectionName) {
@@ -216,7 +772,8 @@ public class JDBCConnector implements SQLConnector, Closeable {
 
     private boolean doesCollectionExists(String collectionName) throws SQLException {
         String query = "SELECT id FROM " + COLLECTIONS_TABLE_NAME + " WHERE id = ?";
-        try (PreparedStatement statement = this.connection.prepareStatement(query)) {
+        try (Connection connection = getConnection();
+                PreparedStatement statement = connection.prepareStatement(query)) {
             statement.setString(1, collectionName);
             ResultSet resultSet = statement.executeQuery();
             return resultSet.next();
@@ -228,8 +785,9 @@ public class JDBCConnector implements SQLConnector, Closeable {
                         () -> {
                             List<String> collections = new ArrayList<>();
                             String query = "SELECT id FROM " + COLLECTIONS_TABLE_NAME;
-                            try (PreparedStatement statement =
-                                    this.connection.prepareStatement(query)) {
+                            try (Connection connection = getConnection();
+                                    PreparedStatement statement =
+                                            connection.prepareStatement(query)) {
                                 ResultSet resultSet = statement.executeQuery();
                                 while (resultSet.next()) {
                                     String collection = resultSet.getString("id");
@@ -247,58 +805,237 @@ public class JDBCConnector implements SQLConnector, Closeable {
                 .subscribeOn(Schedulers.boundedElastic());
     }
 
-    public Mono<List<DatabaseEntry>> readAllAsync(String collectionName) {
-        return Mono.defer(
+    // Signals other processes sharing the database that the collections changed
+    private static void incrementCollectionsVersion(Connection connection) throws SQLException {
+        String query = "UPDATE " + COLLECTIONS_VERSION_TABLE_NAME + " SET version = version + 1";
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.executeUpdate();
+        }
+    }
+
+    @Override
+    public Mono<Long> getCollectionsVersionAsync() {
+        return Mono.fromCallable(
                         () -> {
-                            List<DatabaseEntry> entries = new ArrayList<>();
-                            String query = "SELECT * FROM " + TABLE_NAME + " WHERE collection = ?";
-                            try (PreparedStatement statement =
-                                    this.connection.prepareStatement(query)) {
-                                statement.setString(1, collectionName);
-                                ResultSet resultSet = statement.executeQuery();
-                                while (resultSet.next()) {
-                                    String key = resultSet.getString("key");
-                                    String metadata = resultSet.getString("metadata");
-                                    String embedding = resultSet.getString("embedding");
-                                    String timestamp = resultSet.getString("timestamp");
-                                    ZonedDateTime zonedDateTime = parseDatetime(timestamp);
-                                    entries.add(
-                                            new DatabaseEntry(
-                                                    key, metadata, embedding, zonedDateTime));
-                                }
+                            String query = "SELECT version FROM " + COLLECTIONS_VERSION_TABLE_NAME;
+                            try (Connection connection = getConnection();
+                                    PreparedStatement statement =
+                                            connection.prepareStatement(query);
+                                    ResultSet resultSet = statement.executeQuery()) {
+                                return resultSet.next() ? resultSet.getLong(1) : 0L;
                             } catch (SQLException e) {
-                                return Mono.error(
-                                        new SQLConnectorException(
-                                                SQLConnectorException.ErrorCodes.SQL_ERROR,
-                                                "\"SELECT * FROM\" failed",
-                                                e));
+                                throw new SQLConnectorException(
+                                        SQLConnectorException.ErrorCodes.SQL_ERROR,
+                                        "\"SELECT\" failed",
+                                        e);
                             }
-                            return Mono.just(entries);
                         })
                 .subscribeOn(Schedulers.boundedElastic());
     }
 
+    public Mono<List<DatabaseEntry>> readAllAsync(String collectionName) {
+        return streamAllAsync(collectionName, 0).collectList();
+    }
+
+    public Flux<DatabaseEntry> streamAllAsync(String collectionName, int fetchSize) {
+        return streamAllAsync(collectionName, fetchSize, EntryProjection.FULL);
+    }
+
+    @Override
+    public Flux<DatabaseEntry> streamAllAsync(
+            String collectionName, int fetchSize, EntryProjection projection) {
+        String query =
+                "SELECT "
+                        + selectColumns(projection)
+                        + " FROM "
+                        + memoryTable(collectionName)
+                        + whereCollection(null);
+        return streamQueryAsync(
+                query, fetchSize, projection, collectionName, Collections.emptyList());
+    }
+
+    /**
+     * Streams the entries of a collection whose timestamp is at or after an instant, in ascending
+     * order of their timestamps. If timestamps are stored as {@link
+     * TimestampStorageFormat#EPOCH_MILLIS}, the entries are found with the index on collection and
+     * timestamp; otherwise the collection is scanned.
+     *
+     * @param collectionName The name of the collection.
+     * @param since The earliest modification time of the entries to read.
+     * @param projection The columns to read.
+     * @return A Flux of the entries modified since the instant.
+     */
+    @Override
+    public Flux<DatabaseEntry> readModifiedSinceAsync(
+            String collectionName, Instant since, EntryProjection projection) {
+        if (timestampFormat != TimestampStorageFormat.EPOCH_MILLIS) {
+            return SQLConnector.super.readModifiedSinceAsync(collectionName, since, projection);
+        }
+        String query =
+                "SELECT "
+                        + selectColumns(projection)
+                        + " FROM "
+                        + memoryTable(collectionName)
+                        + whereCollection("timestamp >= ?")
+                        + " ORDER BY timestamp";
+        return streamQueryAsync(
+                query,
+                0,
+                projection,
+                collectionName,
+                Collections.singletonList(since.toEpochMilli()));
+    }
+
+    /**
+     * Streams the entries of a collection that are assigned to any of the given clusters, along
+     * with the entries assigned to no cluster, through the index on the cluster column that is
+     * created when centroids are first stored.
+     *
+     * @param collectionName The name of the collection.
+     * @param clusterIds The clusters to read.
+     * @param fetchSize The number of rows the driver should fetch per round trip; a non-positive
+     *     value leaves the driver default.
+     * @param projection The columns to read.
+     * @return A Flux of the entries of the clusters.
+     */
+    @Override
+    public Flux<DatabaseEntry> streamClustersAsync(
+            String collectionName,
+            Collection<Integer> clusterIds,
+            int fetchSize,
+            EntryProjection projection) {
+        String condition =
+                clusterIds.isEmpty()
+                        ? "cluster_id IS NULL"
+                        : "(cluster_id IN ("
+                                + String.join(", ", Collections.nCopies(clusterIds.size(), "?"))
+                                + ") OR cluster_id IS NULL)";
+        String query =
+                "SELECT "
+                        + selectColumns(projection)
+                        + " FROM "
+                        + memoryTable(collectionName)
+                        + whereCollection(condition);
+        return streamQueryAsync(
+                query, fetchSize, projection, collectionName, new ArrayList<>(clusterIds));
+    }
+
+    // Streams the rows of a query on a collection, binding the epoch timestamps or cluster ids
+    // that follow the collection
+    private Flux<DatabaseEntry> streamQueryAsync(
+            String query,
+            int fetchSize,
+            EntryProjection projection,
+            String collectionName,
+            List<?> parameters) {
+        // The connection is held until the last row is read or the subscription is cancelled
+        return Flux.using(
+                        this::getStreamingConnection,
+                        connection ->
+                                Flux.using(
+                                        () ->
+                                                prepareStreamStatement(
+                                                        connection,
+                                                        query,
+                                                        fetchSize,
+                                                        collectionName,
+                                                        parameters),
+                                        statement ->
+                                                Flux.using(
+                                                        statement::executeQuery,
+                                                        resultSet ->
+                                                                streamEntries(
+                                                                        resultSet, projection),
+                                                        JDBCConnector::closeQuietly),
+                                        JDBCConnector::closeQuietly),
+                        JDBCConnector::closeQuietly)
+                .onErrorMap(
+                        SQLException.class,
+                        e ->
+                                new SQLConnectorException(
+                                        SQLConnectorException.ErrorCodes.SQL_ERROR,
+                                        "\"SELECT * FROM\" failed",
+                                        e))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private PreparedStatement prepareStreamStatement(
+            Connection connection,
+            String query,
+            int fetchSize,
+            String collectionName,
+            List<?> parameters)
+            throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(query);
+        try {
+            if (fetchSize > 0) {
+                statement.setFetchSize(fetchSize);
+            }
+            int index = bindCollection(statement, collectionName);
+            for (Object parameter : parameters) {
+                if (parameter instanceof Long) {
+                    statement.setLong(index++, (Long) parameter);
+                } else {
+                    statement.setInt(index++, (Integer) parameter);
+                }
+            }
+            return statement;
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            throw e;
+        }
+    }
+
+    // Emits one row per request, so the cursor only advances on demand
+    private Flux<DatabaseEntry> streamEntries(ResultSet resultSet, EntryProjection projection) {
+        return Flux.generate(
+                sink -> {
+                    try {
+                        if (resultSet.next()) {
+                            sink.next(readEntry(resultSet, resultSet.getString("key"), projection));
+                        } else {
+                            sink.complete();
+                        }
+                    } catch (SQLException e) {
+                        sink.error(e);
+                    }
+                });
+    }
+
+    // Closes a connection, statement or result set released by a stream, which has no caller to
+    // report to
+    static void closeQuietly(AutoCloseable resource) {
+        try {
+            resource.close();
+        } catch (Exception e) {
+            // The rows were already delivered or the stream already failed
+        }
+    }
+
     public Mono<DatabaseEntry> readAsync(String collectionName, String key) {
+        return readAsync(collectionName, key, EntryProjection.FULL);
+    }
+
+    @Override
+    public Mono<DatabaseEntry> readAsync(
+            String collectionName, String key, EntryProjection projection) {
         return Mono.defer(
                         () -> {
                             String query =
-                                    "SELECT * FROM "
-                                            + TABLE_NAME
-                                            + " WHERE collection = ?"
-                                            + " AND key = ?";
-                            try (PreparedStatement statement =
-                                    this.connection.prepareStatement(query)) {
-                                statement.setString(1, collectionName);
-                                statement.setString(2, key != null && !key.isEmpty() ? key : null);
+                                    "SELECT "
+                                            + selectColumns(projection)
+                                            + " FROM "
+                                            + memoryTable(collectionName)
+                                            + whereCollection("key = ?");
+                            try (Connection connection = getConnection();
+                                    PreparedStatement statement =
+                                            connection.prepareStatement(query)) {
+                                int index = bindCollection(statement, collectionName);
+                                statement.setString(
+                                        index, key != null && !key.isEmpty() ? key : null);
                                 ResultSet resultSet = statement.executeQuery();
                                 if (resultSet.next()) {
-                                    String metadata = resultSet.getString("metadata");
-                                    String embedding = resultSet.getString("embedding");
-                                    String timestamp = resultSet.getString("timestamp");
-                                    ZonedDateTime zonedDateTime = parseDatetime(timestamp);
-                                    return Mono.just(
-                                            new DatabaseEntry(
-                                                    key, metadata, embedding, zonedDateTime));
+                                    return Mono.just(readEntry(resultSet, key, projection));
                                 }
                             } catch (SQLException e) {
                                 return Mono.error(
@@ -318,19 +1055,41 @@ public class JDBCConnector implements SQLConnector, Closeable {
     }
 
     protected String batchQuery(BatchOperation operation, Collection<String> keys) {
+        return batchQuery(operation, EntryProjection.FULL, keys);
+    }
+
+    protected String batchQuery(
+            BatchOperation operation, EntryProjection projection, Collection<String> keys) {
+        return batchQuery(operation, projection, TABLE_NAME, keys);
+    }
+
+    /**
+     * Builds a statement that reads or deletes the entries of a batch of keys in a memory table.
+     *
+     * @param operation The operation of the statement.
+     * @param projection The columns read by a SELECT.
+     * @param table The memory table of the collection.
+     * @param keys The keys, one parameter each.
+     * @return The statement.
+     */
+    protected String batchQuery(
+            BatchOperation operation,
+            EntryProjection projection,
+            String table,
+            Collection<String> keys) {
         String queryPrefix;
         switch (operation) {
             case SELECT:
-                queryPrefix = "SELECT * FROM " + TABLE_NAME + " WHERE collection = ?";
+                queryPrefix = "SELECT " + selectColumns(projection) + " FROM " + table;
                 break;
             case DELETE:
-                queryPrefix = "DELETE FROM " + TABLE_NAME + " WHERE collection = ?";
+                queryPrefix = "DELETE FROM " + table;
                 break;
             default:
                 throw new IllegalArgumentException("Invalid batch operation");
         }
         StringBuilder queryBuilder = new StringBuilder(queryPrefix);
-        queryBuilder.append(" AND key IN (");
+        queryBuilder.append(whereCollection("key IN ("));
 
         // Add placeholders for each key
         for (int i = 0; i < keys.size(); i++) {
@@ -347,29 +1106,52 @@ public class JDBCConnector implements SQLConnector, Closeable {
     @Override
     public Mono<Collection<DatabaseEntry>> readBatchAsync(
             String collectionName, Collection<String> keys) {
+        return readBatchAsync(collectionName, keys, EntryProjection.FULL);
+    }
+
+    @Override
+    public Mono<Collection<DatabaseEntry>> readBatchAsync(
+            String collectionName, Collection<String> keys, EntryProjection projection) {
+        return Flux.defer(() -> Flux.fromIterable(chunkKeys(keys)))
+                .flatMap(
+                        chunk -> readChunkAsync(collectionName, chunk, projection),
+                        batchConcurrency)
+                .<Collection<DatabaseEntry>>reduceWith(
+                        ArrayList::new,
+                        (entries, chunk) -> {
+                            entries.addAll(chunk);
+                            return entries;
+                        })
+                .defaultIfEmpty(Collections.emptyList());
+    }
+
+    private Mono<List<DatabaseEntry>> readChunkAsync(
+            String collectionName, List<String> keys, EntryProjection projection) {
         return Mono.defer(
                         () -> {
-                            Collection<DatabaseEntry> entries = new ArrayList<>();
-                            String query = batchQuery(BatchOperation.SELECT, keys);
+                            List<DatabaseEntry> entries = new ArrayList<>(keys.size());
+                            String query =
+                                    batchQuery(
+                                            BatchOperation.SELECT,
+                                            projection,
+                                            memoryTable(collectionName),
+                                            keys);
 
-                            try (PreparedStatement statement =
-                                    this.connection.prepareStatement(query)) {
-                                statement.setString(1, collectionName);
-                                int index = 2;
+                            try (Connection connection = getConnection();
+                                    PreparedStatement statement =
+                                            connection.prepareStatement(query)) {
+                                int index = bindCollection(statement, collectionName);
                                 for (String key : keys) {
                                     statement.setString(index++, key);
                                 }
                                 ResultSet resultSet = statement.executeQuery();
 
                                 while (resultSet.next()) {
-                                    String key = resultSet.getString("key");
-                                    String metadata = resultSet.getString("metadata");
-                                    String embedding = resultSet.getString("embedding");
-                                    String timestamp = resultSet.getString("timestamp");
-                                    ZonedDateTime zonedDateTime = parseDatetime(timestamp);
                                     entries.add(
-                                            new DatabaseEntry(
-                                                    key, metadata, embedding, zonedDateTime));
+                                            readEntry(
+                                                    resultSet,
+                                                    resultSet.getString("key"),
+                                                    projection));
                                 }
                             } catch (SQLException e) {
                                 return Mono.error(
@@ -383,23 +1165,78 @@ public class JDBCConnector implements SQLConnector, Closeable {
                 .subscribeOn(Schedulers.boundedElastic());
     }
 
+    /**
+     * Splits the distinct keys of a batch into chunks of at most {@value #MAX_BATCH_KEYS} keys, in
+     * the order of their first occurrence. A key repeated in the batch would otherwise land in
+     * several chunks, whose reads would return its row once per chunk. The last chunk is padded
+     * with repetitions of its last key up to a power of two, which matches the same rows, so that
+     * batches of any size are run with a few cacheable statements.
+     *
+     * @param keys The keys of the batch.
+     * @return The chunks, each of a power of two keys.
+     */
+    protected static List<List<String>> chunkKeys(Collection<String> keys) {
+        Set<String> distinct = new LinkedHashSet<>(keys);
+        List<List<String>> chunks = new ArrayList<>(distinct.size() / MAX_BATCH_KEYS + 1);
+        List<String> chunk = new ArrayList<>(Math.min(distinct.size(), MAX_BATCH_KEYS));
+        for (String key : distinct) {
+            chunk.add(key);
+            if (chunk.size() == MAX_BATCH_KEYS) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(MAX_BATCH_KEYS);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            int size = Integer.highestOneBit(chunk.size());
+            if (size < chunk.size()) {
+                size <<= 1;
+            }
+            String last = chunk.get(chunk.size() - 1);
+            while (chunk.size() < size) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
     public Mono<Void> deleteCollectionAsync(String collectionName) {
         return Mono.fromRunnable(
                         () -> {
-                            String query1 = "DELETE FROM " + TABLE_NAME + " WHERE collection = ?";
+                            // A table of its own is dropped at once rather than row by row
+                            String query1 =
+                                    tableLayout == TableLayout.SHARED_TABLE
+                                            ? "DELETE FROM " + TABLE_NAME + " WHERE collection = ?"
+                                            : "DROP TABLE IF EXISTS " + memoryTable(collectionName);
                             String query2 =
                                     "DELETE FROM " + COLLECTIONS_TABLE_NAME + " WHERE id = ?";
-                            try (PreparedStatement statement =
-                                            this.connection.prepareStatement(query1);
+                            String query3 =
+                                    "DELETE FROM "
+                                            + VECTOR_INDEX_TABLE_NAME
+                                            + " WHERE collection = ?";
+                            String query4 =
+                                    "DELETE FROM " + CENTROIDS_TABLE_NAME + " WHERE collection = ?";
+                            try (Connection connection = getConnection();
+                                    PreparedStatement statement =
+                                            connection.prepareStatement(query1);
                                     PreparedStatement statement2 =
-                                            this.connection.prepareStatement(query2)) {
-                                statement.setString(1, collectionName);
+                                            connection.prepareStatement(query2);
+                                    PreparedStatement statement3 =
+                                            connection.prepareStatement(query3);
+                                    PreparedStatement statement4 =
+                                            connection.prepareStatement(query4)) {
+                                bindCollection(statement, collectionName);
                                 statement.executeUpdate();
+                                statement3.setString(1, collectionName);
+                                statement3.executeUpdate();
+                                statement4.setString(1, collectionName);
+                                statement4.executeUpdate();
                                 statement2.setString(1, collectionName);
                                 if (statement2.executeUpdate() == 0) {
                                     throw new MemoryException(
                                             ErrorCodes.ATTEMPTED_TO_ACCESS_NONEXISTENT_COLLECTION);
                                 }
+                                incrementCollectionsVersion(connection);
                             } catch (SQLException e) {
                                 throw new SQLConnectorException(
                                         SQLConnectorException.ErrorCodes.SQL_ERROR,
@@ -416,13 +1253,14 @@ public class JDBCConnector implements SQLConnector, Closeable {
                         () -> {
                             String query =
                                     "DELETE FROM "
-                                            + TABLE_NAME
-                                            + " WHERE collection = ?"
-                                            + " AND key = ?";
-                            try (PreparedStatement statement =
-                                    this.connection.prepareStatement(query)) {
-                                statement.setString(1, collectionName);
-                                statement.setString(2, key != null && !key.isEmpty() ? key : null);
+                                            + memoryTable(collectionName)
+                                            + whereCollection("key = ?");
+                            try (Connection connection = getConnection();
+                                    PreparedStatement statement =
+                                            connection.prepareStatement(query)) {
+                                int index = bindCollection(statement, collectionName);
+                                statement.setString(
+                                        index, key != null && !key.isEmpty() ? key : null);
                                 statement.executeUpdate();
                             } catch (SQLException e) {
                                 throw new SQLConnectorException(
@@ -435,14 +1273,34 @@ public class JDBCConnector implements SQLConnector, Closeable {
                 .then();
     }
 
+    /**
+     * Deletes the entries of a batch of keys. The keys are deleted in chunks, concurrently when the
+     * connector borrows connections from a data source, so the deletion of a large batch is not
+     * atomic: if a chunk fails, other chunks may already have been deleted.
+     *
+     * @param collectionName The name of the collection.
+     * @param keys The keys of the entries to delete.
+     * @return A Mono that completes when all chunks are deleted.
+     */
     public Mono<Void> deleteBatchAsync(String collectionName, Collection<String> keys) {
+        return Flux.defer(() -> Flux.fromIterable(chunkKeys(keys)))
+                .flatMap(chunk -> deleteChunkAsync(collectionName, chunk), batchConcurrency)
+                .then();
+    }
+
+    private Mono<Void> deleteChunkAsync(String collectionName, List<String> keys) {
         return Mono.fromRunnable(
                         () -> {
-                            String query = batchQuery(BatchOperation.DELETE, keys);
-                            try (PreparedStatement statement =
-                                    this.connection.prepareStatement(query)) {
-                                statement.setString(1, collectionName);
-                                int index = 2;
+                            String query =
+                                    batchQuery(
+                                            BatchOperation.DELETE,
+                                            EntryProjection.FULL,
+                                            memoryTable(collectionName),
+                                            keys);
+                            try (Connection connection = getConnection();
+                                    PreparedStatement statement =
+                                            connection.prepareStatement(query)) {
+                                int index = bindCollection(statement, collectionName);
                                 for (String key : keys) {
                                     statement.setString(index++, key);
                                 }
@@ -458,17 +1316,373 @@ public class JDBCConnector implements SQLConnector, Closeable {
                 .then();
     }
 
-    public Mono<Void> deleteEmptyAsync(String collectionName) {
-        return Mono.fromRunnable(
+    @Override
+    public Mono<Map<String, byte[]>> readVectorIndexAsync(String collectionName) {
+        return Mono.defer(
                         () -> {
+                            Map<String, byte[]> records = new HashMap<>();
                             String query =
+                                    "SELECT key, record FROM "
+                                            + VECTOR_INDEX_TABLE_NAME
+                                            + " WHERE collection = ?";
+                            try (Connection connection = getConnection();
+                                    PreparedStatement statement =
+                                            connection.prepareStatement(query)) {
+                                statement.setString(1, collectionName);
+                                ResultSet resultSet = statement.executeQuery();
+                                while (resultSet.next()) {
+                                    records.put(
+                                            resultSet.getString("key"),
+                                            resultSet.getBytes("record"));
+                                }
+                            } catch (SQLException e) {
+                                return Mono.error(
+                                        new SQLConnectorException(
+                                                SQLConnectorException.ErrorCodes.SQL_ERROR,
+                                                "\"SELECT\" failed",
+                                                e));
+                            }
+                            return Mono.just(records);
+                        })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Void> upsertVectorIndexBatchAsync(
+            String collectionName, Map<String, byte[]> records) {
+        return Mono.fromRunnable(
+                        () -> {
+                            String upsertQuery =
+                                    "INSERT OR REPLACE INTO "
+                                            + VECTOR_INDEX_TABLE_NAME
+                                            + " (collection, key, record)"
+                                            + " VALUES (?, ?, ?)";
+                            String deleteQuery =
                                     "DELETE FROM "
-                                            + TABLE_NAME
+                                            + VECTOR_INDEX_TABLE_NAME
                                             + " WHERE collection = ?"
-                                            + " AND key is NULL";
-                            try (PreparedStatement statement =
-                                    this.connection.prepareStatement(query)) {
+                                            + " AND key = ?";
+                            try (Connection connection = getConnection();
+                                    PreparedStatement upsert =
+                                            connection.prepareStatement(upsertQuery);
+                                    PreparedStatement delete =
+                                            connection.prepareStatement(deleteQuery)) {
+                                for (Map.Entry<String, byte[]> record : records.entrySet()) {
+                                    if (record.getValue() == null) {
+                                        delete.setString(1, collectionName);
+                                        delete.setString(2, record.getKey());
+                                        delete.addBatch();
+                                    } else {
+                                        upsert.setString(1, collectionName);
+                                        upsert.setString(2, record.getKey());
+                                        upsert.setBytes(3, record.getValue());
+                                        upsert.addBatch();
+                                    }
+                                }
+                                upsert.executeBatch();
+                                delete.executeBatch();
+                            } catch (SQLException e) {
+                                throw new SQLConnectorException(
+                                        SQLConnectorException.ErrorCodes.SQL_ERROR,
+                                        "\"INSERT OR REPLACE INTO\" failed",
+                                        e);
+                            }
+                        })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    @Override
+    public Mono<Map<Integer, float[]>> readCentroidsAsync(String collectionName) {
+        return Mono.fromCallable(
+                        () -> {
+                            Map<Integer, float[]> centroids = new HashMap<>();
+                            String query =
+                                    "SELECT cluster_id, centroid FROM "
+                                            + CENTROIDS_TABLE_NAME
+                                            + " WHERE collection = ?";
+                            try (Connection connection = getConnection();
+                                    PreparedStatement statement =
+                                            connection.prepareStatement(query)) {
                                 statement.setString(1, collectionName);
+                                try (ResultSet resultSet = statement.executeQuery()) {
+                                    while (resultSet.next()) {
+                                        centroids.put(
+                                                resultSet.getInt("cluster_id"),
+                                                EmbeddingCodec.decode(
+                                                        resultSet.getBytes("centroid")));
+                                    }
+                                }
+                            } catch (SQLException e) {
+                                throw new SQLConnectorException(
+                                        SQLConnectorException.ErrorCodes.SQL_ERROR,
+                                        "\"SELECT\" failed",
+                                        e);
+                            }
+                            return centroids;
+                        })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Replaces the centroids of the IVF index of a collection in one transaction. The first
+     * centroids stored for a memory table also create the index on its cluster column, so that
+     * tables of collections without an IVF index do not maintain it.
+     *
+     * @param collectionName The name of the collection whose centroids to replace.
+     * @param centroids The new centroids by cluster.
+     * @return A Mono representing the completion of the operation.
+     */
+    @Override
+    public Mono<Void> replaceCentroidsAsync(
+            String collectionName, Map<Integer, float[]> centroids) {
+        return Mono.fromRunnable(
+                        () -> {
+                            String table = memoryTable(collectionName);
+                            String createIndex =
+                                    tableLayout == TableLayout.SHARED_TABLE
+                                            ? "CREATE INDEX IF NOT EXISTS "
+                                                    + CLUSTER_INDEX_NAME
+                                                    + " ON "
+                                                    + TABLE_NAME
+                                                    + "(collection, cluster_id)"
+                                            : "CREATE INDEX IF NOT EXISTS "
+                                                    + table
+                                                    + "_cluster ON "
+                                                    + table
+                                                    + "(cluster_id)";
+                            String deleteQuery =
+                                    "DELETE FROM " + CENTROIDS_TABLE_NAME + " WHERE collection = ?";
+                            String insertQuery =
+                                    "INSERT INTO "
+                                            + CENTROIDS_TABLE_NAME
+                                            + " (collection, cluster_id, centroid)"
+                                            + " VALUES (?, ?, ?)";
+                            try (Connection connection = getConnection()) {
+                                try (Statement statement = connection.createStatement()) {
+                                    statement.execute(createIndex);
+                                }
+                                inTransaction(
+                                        connection,
+                                        () -> {
+                                            try (PreparedStatement delete =
+                                                            connection.prepareStatement(
+                                                                    deleteQuery);
+                                                    PreparedStatement insert =
+                                                            connection.prepareStatement(
+                                                                    insertQuery)) {
+                                                delete.setString(1, collectionName);
+                                                delete.executeUpdate();
+                                                for (Map.Entry<Integer, float[]> centroid :
+                                                        centroids.entrySet()) {
+                                                    insert.setString(1, collectionName);
+                                                    insert.setInt(2, centroid.getKey());
+                                                    insert.setBytes(
+                                                            3,
+                                                            EmbeddingCodec.encode(
+                                                                    centroid.getValue()));
+                                                    insert.addBatch();
+                                                }
+                                                insert.executeBatch();
+                                            }
+                                        });
+                            } catch (SQLException e) {
+                                throw new SQLConnectorException(
+                                        SQLConnectorException.ErrorCodes.SQL_ERROR,
+                                        "\"INSERT INTO\" failed",
+                                        e);
+                            }
+                        })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    @Override
+    public Mono<Void> assignClustersAsync(String collectionName, Map<String, Integer> clusterIds) {
+        return Mono.fromRunnable(
+                        () -> {
+                            // The cluster is bound first, ahead of the collection and key
+                            String query =
+                                    "UPDATE "
+                                            + memoryTable(collectionName)
+                                            + " SET cluster_id = ?"
+                                            + whereCollection("key = ?");
+                            boolean shared = tableLayout == TableLayout.SHARED_TABLE;
+                            try (Connection connection = getConnection()) {
+                                inTransaction(
+                                        connection,
+                                        () -> {
+                                            try (PreparedStatement statement =
+                                                    connection.prepareStatement(query)) {
+                                                for (Map.Entry<String, Integer> clusterId :
+                                                        clusterIds.entrySet()) {
+                                                    statement.setInt(1, clusterId.getValue());
+                                                    if (shared) {
+                                                        statement.setString(2, collectionName);
+                                                    }
+                                                    statement.setString(
+                                                            shared ? 3 : 2, clusterId.getKey());
+                                                    statement.addBatch();
+                                                }
+                                                statement.executeBatch();
+                                            }
+                                        });
+                            } catch (SQLException e) {
+                                throw new SQLConnectorException(
+                                        SQLConnectorException.ErrorCodes.SQL_ERROR,
+                                        "\"UPDATE\" failed",
+                                        e);
+                            }
+                        })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    @Override
+    public Mono<Map<Integer, Long>> countClustersAsync(String collectionName) {
+        return Mono.fromCallable(
+                        () -> {
+                            Map<Integer, Long> counts = new HashMap<>();
+                            String query =
+                                    "SELECT COALESCE(cluster_id, -1) AS cluster, COUNT(*) AS"
+                                            + " entries FROM "
+                                            + memoryTable(collectionName)
+                                            + whereCollection(null)
+                                            + " GROUP BY cluster_id";
+                            try (Connection connection = getConnection();
+                                    PreparedStatement statement =
+                                            connection.prepareStatement(query)) {
+                                bindCollection(statement, collectionName);
+                                try (ResultSet resultSet = statement.executeQuery()) {
+                                    while (resultSet.next()) {
+                                        counts.put(
+                                                resultSet.getInt("cluster"),
+                                                resultSet.getLong("entries"));
+                                    }
+                                }
+                            } catch (SQLException e) {
+                                throw new SQLConnectorException(
+                                        SQLConnectorException.ErrorCodes.SQL_ERROR,
+                                        "\"SELECT\" failed",
+                                        e);
+                            }
+                            return counts;
+                        })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Map<String, Long>> readSegmentOffsetsAsync(String collectionName) {
+        return Mono.fromCallable(
+                        () -> {
+                            Map<String, Long> offsets = new HashMap<>();
+                            String query =
+                                    "SELECT key, segment_offset FROM "
+                                            + memoryTable(collectionName)
+                                            + whereCollection(null);
+                            try (Connection connection = getConnection();
+                                    PreparedStatement statement =
+                                            connection.prepareStatement(query)) {
+                                bindCollection(statement, collectionName);
+                                try (ResultSet resultSet = statement.executeQuery()) {
+                                    while (resultSet.next()) {
+                                        long offset = resultSet.getLong("segment_offset");
+                                        offsets.put(
+                                                resultSet.getString("key"),
+                                                resultSet.wasNull() ? -1 : offset);
+                                    }
+                                }
+                            } catch (SQLException e) {
+                                throw new SQLConnectorException(
+                                        SQLConnectorException.ErrorCodes.SQL_ERROR,
+                                        "\"SELECT\" failed",
+                                        e);
+                            }
+                            return offsets;
+                        })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Void> assignSegmentOffsetsAsync(String collectionName, Map<String, Long> offsets) {
+        return Mono.fromRunnable(
+                        () -> {
+                            // The offset is bound first, ahead of the collection and key
+                            String query =
+                                    "UPDATE "
+                                            + memoryTable(collectionName)
+                                            + " SET segment_offset = ?"
+                                            + whereCollection("key = ?");
+                            boolean shared = tableLayout == TableLayout.SHARED_TABLE;
+                            try (Connection connection = getConnection()) {
+                                inTransaction(
+                                        connection,
+                                        () -> {
+                                            try (PreparedStatement statement =
+                                                    connection.prepareStatement(query)) {
+                                                for (Map.Entry<String, Long> offset :
+                                                        offsets.entrySet()) {
+                                                    statement.setLong(1, offset.getValue());
+                                                    if (shared) {
+                                                        statement.setString(2, collectionName);
+                                                    }
+                                                    statement.setString(
+                                                            shared ? 3 : 2, offset.getKey());
+                                                    statement.addBatch();
+                                                }
+                                                statement.executeBatch();
+                                            }
+                                        });
+                            } catch (SQLException e) {
+                                throw new SQLConnectorException(
+                                        SQLConnectorException.ErrorCodes.SQL_ERROR,
+                                        "\"UPDATE\" failed",
+                                        e);
+                            }
+                        })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    // Runs statements in one transaction if the connection is in auto-commit mode; otherwise they
+    // join the transaction of the caller
+    // A single connection is held by the calling thread until it is closed, so no other statement
+    // can join the transaction while its connection is out of auto-commit mode
+    private static void inTransaction(Connection connection, SQLRunnable statements)
+            throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        if (!autoCommit) {
+            statements.run();
+            return;
+        }
+        connection.setAutoCommit(false);
+        try {
+            statements.run();
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            rollbackQuietly(connection, e);
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    // Statements run by inTransaction
+    private interface SQLRunnable {
+        void run() throws SQLException;
+    }
+
+    public Mono<Void> deleteEmptyAsync(String collectionName) {
+        return Mono.fromRunnable(
+                        () -> {
+                            String query =
+                                    "DELETE FROM "
+                                            + memoryTable(collectionName)
+                                            + whereCollection("key is NULL");
+                            try (Connection connection = getConnection();
+                                    PreparedStatement statement =
+                                            connection.prepareStatement(query)) {
+                                bindCollection(statement, collectionName);
                                 statement.executeUpdate();
                             } catch (SQLException e) {
                                 throw new SQLConnectorException(
@@ -483,8 +1697,12 @@ public class JDBCConnector implements SQLConnector, Closeable {
 
     @Override
     public void close() {
+        if (ownedConnection == null) {
+            return;
+        }
+        ((SingleConnectionDataSource) dataSource).close();
         try {
-            this.connection.close();
+            ownedConnection.close();
         } catch (SQLException e) {
             throw new SQLConnectorException(
                     SQLConnectorException.ErrorCodes.SQL_ERROR,
@@ -492,4 +1710,128 @@ public class JDBCConnector implements SQLConnector, Closeable {
                     e);
         }
     }
+
+    /** Builds a JDBCConnector over a single connection or a data source. */
+    public static class Builder {
+        @Nullable private Connection connection;
+        @Nullable private DataSource dataSource;
+        private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+        private int batchConcurrency = DEFAULT_BATCH_CONCURRENCY;
+        private EmbeddingStorageFormat embeddingFormat = EmbeddingStorageFormat.JSON;
+        private TimestampStorageFormat timestampFormat = TimestampStorageFormat.ISO_8601;
+        private TableLayout tableLayout = TableLayout.SHARED_TABLE;
+
+        /**
+         * Builds a connector with the settings of this builder. No statement is run until the
+         * connector is used.
+         *
+         * @return A JDBCConnector instance.
+         */
+        public JDBCConnector build() {
+            return new JDBCConnector(this);
+        }
+
+        /**
+         * Sets the connection shared by every operation of the connector, which closes it when it
+         * is closed.
+         *
+         * @param connection The database connection.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCConnector.
+         */
+        public Builder withConnection(Connection connection) {
+            this.connection = connection;
+            return this;
+        }
+
+        /**
+         * Sets a data source to borrow a connection from for the duration of each operation, so
+         * that concurrent operations can run on separate connections. Takes precedence over {@link
+         * #withConnection(Connection)}. The data source, typically a {@link ConnectionPool}, is not
+         * closed with the connector. Prepared statements are cached only if the data source caches
+         * them, as a {@link ConnectionPool} does.
+         *
+         * @param dataSource The source of database connections.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCConnector.
+         */
+        public Builder withDataSource(DataSource dataSource) {
+            this.dataSource = Objects.requireNonNull(dataSource);
+            return this;
+        }
+
+        /**
+         * Sets how many prepared statements of the connection set with {@link
+         * #withConnection(Connection)} are kept for reuse. Defaults to {@value
+         * #DEFAULT_STATEMENT_CACHE_SIZE}; 0 disables the cache.
+         *
+         * @param statementCacheSize The maximum number of cached statements.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCConnector.
+         */
+        public Builder withStatementCacheSize(int statementCacheSize) {
+            if (statementCacheSize < 0) {
+                throw new IllegalArgumentException("statementCacheSize must not be negative");
+            }
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        /**
+         * Sets how many key chunks of a large batch read or delete run at once on connections of
+         * the data source set with {@link #withDataSource(DataSource)}. Defaults to {@value
+         * #DEFAULT_BATCH_CONCURRENCY}. The chunks of a batch run one after another on a connection
+         * set with {@link #withConnection(Connection)}.
+         *
+         * @param batchConcurrency The maximum number of chunks of one batch running at once.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCConnector.
+         */
+        public Builder withBatchConcurrency(int batchConcurrency) {
+            if (batchConcurrency <= 0) {
+                throw new IllegalArgumentException("batchConcurrency must be positive");
+            }
+            this.batchConcurrency = batchConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets how embeddings are stored in the memory table. Defaults to {@link
+         * EmbeddingStorageFormat#JSON}.
+         *
+         * @param embeddingFormat The physical representation of the embedding column.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCConnector.
+         */
+        public Builder withEmbeddingStorageFormat(EmbeddingStorageFormat embeddingFormat) {
+            this.embeddingFormat = Objects.requireNonNull(embeddingFormat);
+            return this;
+        }
+
+        /**
+         * Sets how timestamps are stored in the memory table. Defaults to {@link
+         * TimestampStorageFormat#ISO_8601}.
+         *
+         * @param timestampFormat The physical representation of the timestamp column.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCConnector.
+         */
+        public Builder withTimestampStorageFormat(TimestampStorageFormat timestampFormat) {
+            this.timestampFormat = Objects.requireNonNull(timestampFormat);
+            return this;
+        }
+
+        /**
+         * Sets how the entries of the collections are laid out in tables. Defaults to {@link
+         * TableLayout#SHARED_TABLE}.
+         *
+         * @param tableLayout How the entries of the collections are laid out in tables.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCConnector.
+         */
+        public Builder withTableLayout(TableLayout tableLayout) {
+            this.tableLayout = Objects.requireNonNull(tableLayout);
+            return this;
+        }
+    }
 }
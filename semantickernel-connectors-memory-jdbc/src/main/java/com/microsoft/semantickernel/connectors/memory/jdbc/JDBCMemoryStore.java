@@ -2,31 +2,140 @@
 package com.microsoft.semantickernel.connectors.memory.jdbc;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.semantickernel.ai.embeddings.Embedding;
+import com.microsoft.semantickernel.connectors.memory.jdbc.MemoryStoreMetrics.SearchStage;
 import com.microsoft.semantickernel.memory.MemoryException;
 import com.microsoft.semantickernel.memory.MemoryException.ErrorCodes;
 import com.microsoft.semantickernel.memory.MemoryRecord;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
 import reactor.util.function.Tuple2;
 import reactor.util.function.Tuples;
+import reactor.util.retry.Retry;
+
+public class JDBCMemoryStore implements SQLMemoryStore, Closeable {
+    /** The default number of rows fetched per round trip when a collection is scanned. */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /** A number of rows scored by one task of a parallel scan that suits most collections. */
+    public static final int DEFAULT_PARALLEL_SCAN_CHUNK_SIZE = 16384;
+
+    /**
+     * The number of candidates per requested match that a search of quantized embeddings rescores
+     * unless configured otherwise.
+     */
+    public static final int DEFAULT_RESCORE_OVERSAMPLE = 4;
+
+    /**
+     * The number of candidates per requested match that a search of binary signatures rescores
+     * unless configured otherwise; signatures rank candidates more coarsely than quantized
+     * embeddings, so more of them are rescored.
+     */
+    public static final int DEFAULT_SIGNATURE_RESCORE_OVERSAMPLE = 16;
 
-public class JDBCMemoryStore implements SQLMemoryStore {
     protected final SQLConnector dbConnector;
+    protected final EmbeddingStorageFormat embeddingFormat;
+    protected final boolean vectorCacheEnabled;
+    protected final Map<String, Supplier<? extends VectorIndex>> vectorIndexFactories;
+    protected final Map<String, IvfIndexOptions> ivfIndexOptions;
+    @Nullable protected final Path vectorSegmentDirectory;
+    protected final int fetchSize;
+    @Nullable protected final ForkJoinPool parallelScanPool;
+    protected final int parallelScanChunkSize;
+    protected final int rescoreOversample;
+    @Nullable private final Scheduler parallelScanScheduler;
+    protected final MemoryStoreMetrics metrics;
+    private final CollectionRegistry collections;
+    @Nullable private final WriteBehindBuffer writeBehind;
+    @Nullable private final VectorArena vectorArena;
+
+    // Caches are registered before they are loaded so that writes racing with the load reach them
+    private final ConcurrentMap<String, CollectionVectorCache> vectorCaches =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Mono<CollectionVectorCache>> vectorCacheLoads =
+            new ConcurrentHashMap<>();
+    // Collections whose embeddings did not fit in the off-heap budget, which are scanned instead
+    private final Set<String> overBudgetCollections = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, Mono<PersistedVectorIndex>> vectorIndexes =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Mono<IvfIndex>> ivfIndexes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Mono<VectorSegment>> vectorSegments =
+            new ConcurrentHashMap<>();
 
     protected JDBCMemoryStore(SQLConnector connector) {
+        this(connector, new Builder());
+    }
+
+    /**
+     * Creates a memory store over a connector, configured by the settings of a builder.
+     *
+     * @param connector The connector to the database.
+     * @param builder The builder holding the settings of the store.
+     */
+    protected JDBCMemoryStore(SQLConnector connector, Builder builder) {
         this.dbConnector = connector;
+        this.embeddingFormat = builder.embeddingFormat;
+        this.vectorCacheEnabled = builder.vectorCacheEnabled;
+        this.vectorIndexFactories = new HashMap<>(builder.vectorIndexFactories);
+        this.ivfIndexOptions = new HashMap<>(builder.ivfIndexOptions);
+        this.vectorSegmentDirectory = builder.vectorSegmentDirectory;
+        this.fetchSize = builder.fetchSize;
+        this.parallelScanPool = builder.parallelScanPool;
+        this.parallelScanChunkSize = builder.parallelScanChunkSize;
+        if (builder.rescoreOversample != null) {
+            this.rescoreOversample = builder.rescoreOversample;
+        } else {
+            this.rescoreOversample =
+                    embeddingFormat == EmbeddingStorageFormat.BINARY_SIGNATURE
+                            ? DEFAULT_SIGNATURE_RESCORE_OVERSAMPLE
+                            : DEFAULT_RESCORE_OVERSAMPLE;
+        }
+        this.parallelScanScheduler =
+                parallelScanPool != null ? Schedulers.fromExecutor(parallelScanPool) : null;
+        this.metrics = builder.metrics;
+        this.collections =
+                new CollectionRegistry(
+                        connector,
+                        builder.collectionRefreshInterval != null
+                                ? builder.collectionRefreshInterval.toNanos()
+                                : 0);
+        this.writeBehind =
+                builder.writeBehindOptions != null
+                        ? new WriteBehindBuffer(builder.writeBehindOptions, this::writeBatchAsync)
+                        : null;
+        this.vectorArena =
+                builder.offHeapBudgetBytes > 0
+                        ? new VectorArena(builder.offHeapBudgetBytes, metrics)
+                        : null;
     }
 
     @Override
     public Mono<Void> createCollectionAsync(@Nonnull String collectionName) {
         Objects.requireNonNull(collectionName);
-        return this.dbConnector.createCollectionAsync(collectionName);
+        return this.dbConnector
+                .createCollectionAsync(collectionName)
+                .doOnSuccess(v -> collections.add(collectionName));
     }
 
     @Override
@@ -37,13 +146,33 @@ public class JDBCMemoryStore implements SQLMemoryStore {
     @Override
     public Mono<Boolean> doesCollectionExistAsync(@Nonnull String collectionName) {
         Objects.requireNonNull(collectionName);
-        return this.dbConnector.doesCollectionExistsAsync(collectionName);
+        return collections.containsAsync(collectionName);
     }
 
     @Override
     public Mono<Void> deleteCollectionAsync(@Nonnull String collectionName) {
         Objects.requireNonNull(collectionName);
-        return this.dbConnector.deleteCollectionAsync(collectionName);
+        return discardBufferedAsync(collectionName, null)
+                .then(this.dbConnector.deleteCollectionAsync(collectionName))
+                .doOnSuccess(
+                        v -> {
+                            collections.remove(collectionName);
+                            evictVectorCache(collectionName);
+                            // The memory it frees may let the other collections fit
+                            overBudgetCollections.clear();
+                            vectorIndexes.remove(collectionName);
+                            Mono<IvfIndex> ivfIndex = ivfIndexes.remove(collectionName);
+                            if (ivfIndex != null) {
+                                ivfIndex.subscribe(IvfIndex::close, e -> {});
+                            }
+                            if (vectorSegmentDirectory != null) {
+                                Mono<VectorSegment> segment = vectorSegments.remove(collectionName);
+                                if (segment != null) {
+                                    segment.subscribe(VectorSegment::close, e -> {});
+                                }
+                                VectorSegment.deleteFiles(vectorSegmentDirectory, collectionName);
+                            }
+                        });
     }
 
     @Override
@@ -63,15 +192,89 @@ public class JDBCMemoryStore implements SQLMemoryStore {
                             }
                             sink.next(exists);
                         })
-                .then(internalUpsertAsync(collectionName, record));
+                .then(
+                        writeBehind != null
+                                ? writeBehind.putAsync(collectionName, record)
+                                : internalUpsertAsync(collectionName, record)
+                                        .doOnNext(key -> cacheVector(collectionName, record))
+                                        .flatMap(
+                                                key ->
+                                                        indexVectorsAsync(
+                                                                        collectionName,
+                                                                        Collections.singletonList(
+                                                                                record))
+                                                                .thenReturn(key)));
+    }
+
+    /**
+     * Writes the upserts buffered in write-behind mode to the database. Upserts buffered before the
+     * call are then visible to nearest-match searches, which do not read the buffer.
+     *
+     * @return A Mono that completes when the buffered records are written, or fails if any of them
+     *     could not be written; it completes at once if the store is not in write-behind mode.
+     */
+    public Mono<Void> flushAsync() {
+        return writeBehind != null ? writeBehind.flushAsync() : Mono.empty();
+    }
+
+    /**
+     * Releases the vector caches, frees the direct memory of the off-heap vector cache, unmaps the
+     * vector segments and closes the connector, which closes the connection the store was built
+     * with. In write-behind mode, the buffered upserts are written first, waiting at most for the
+     * {@link WriteBehindOptions#getCloseTimeout() close timeout}; if they cannot be written in
+     * time, they are dropped and the upserts waiting for them fail. A running training or
+     * assignment of an IVF index is cancelled, and resumed when the index is next loaded. The store
+     * must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        // Indexes and segments still loading are released once loaded
+        ivfIndexes.values().forEach(index -> index.subscribe(IvfIndex::close, e -> {}));
+        ivfIndexes.clear();
+        vectorSegments
+                .values()
+                .forEach(segment -> segment.subscribe(VectorSegment::close, e -> {}));
+        vectorSegments.clear();
+        for (String collectionName : new ArrayList<>(vectorCaches.keySet())) {
+            evictVectorCache(collectionName);
+        }
+        if (vectorArena != null) {
+            vectorArena.close();
+        }
+        if (this.dbConnector instanceof Closeable) {
+            try {
+                ((Closeable) this.dbConnector).close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Keeps buffered upserts from overwriting a later write or removal of the same keys
+    private Mono<Void> discardBufferedAsync(
+            String collectionName, @Nullable Collection<String> keys) {
+        return writeBehind != null ? writeBehind.discardAsync(collectionName, keys) : Mono.empty();
     }
 
     protected DatabaseEntry memoryRecordToDatabaseEntry(MemoryRecord record) {
         try {
+            if (embeddingFormat != EmbeddingStorageFormat.JSON) {
+                return new DatabaseEntry(
+                        record.getMetadata().getId(),
+                        JsonCodec.writeMetadata(record.getMetadata()),
+                        EmbeddingCodec.toArray(record.getEmbedding().getVector()),
+                        record.getTimestamp());
+            }
+            // The vector saves the connector from parsing the JSON back to compute the norm
             return new DatabaseEntry(
                     record.getMetadata().getId(),
-                    record.getSerializedMetadata(),
-                    record.getSerializedEmbedding(),
+                    JsonCodec.writeMetadata(record.getMetadata()),
+                    JsonCodec.writeEmbedding(record.getEmbedding()),
+                    EmbeddingCodec.toArray(record.getEmbedding().getVector()),
+                    null,
                     record.getTimestamp());
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
@@ -80,12 +283,12 @@ public class JDBCMemoryStore implements SQLMemoryStore {
 
     protected MemoryRecord databaseEntryToMemoryRecord(DatabaseEntry entry, boolean withEmbedding) {
         try {
-            Embedding embedding =
-                    withEmbedding
-                            ? new ObjectMapper().readValue(entry.getEmbedding(), Embedding.class)
-                            : Embedding.empty();
-            return MemoryRecord.fromJsonMetadata(
-                    entry.getMetadata(), embedding, entry.getKey(), entry.getTimestamp());
+            float[] vector = withEmbedding ? entryToVector(entry) : null;
+            return JsonCodec.readMemoryRecord(
+                    entry.getMetadata(),
+                    vector != null ? new Embedding(EmbeddingCodec.toList(vector)) : null,
+                    entry.getKey(),
+                    entry.getTimestamp());
         } catch (JsonProcessingException e) {
             throw new SQLConnectorException(
                     SQLConnectorException.ErrorCodes.SQL_ERROR,
@@ -96,11 +299,19 @@ public class JDBCMemoryStore implements SQLMemoryStore {
 
     private Mono<String> internalUpsertAsync(String collectionName, MemoryRecord record) {
         try {
+            if (embeddingFormat != EmbeddingStorageFormat.JSON) {
+                return this.dbConnector.upsertAsync(
+                        collectionName,
+                        record.getMetadata().getId(),
+                        JsonCodec.writeMetadata(record.getMetadata()),
+                        EmbeddingCodec.toArray(record.getEmbedding().getVector()),
+                        record.getTimestamp());
+            }
             return this.dbConnector.upsertAsync(
                     collectionName,
                     record.getMetadata().getId(),
-                    record.getSerializedMetadata(),
-                    record.getSerializedEmbedding(),
+                    JsonCodec.writeMetadata(record.getMetadata()),
+                    JsonCodec.writeEmbedding(record.getEmbedding()),
                     record.getTimestamp());
         } catch (JsonProcessingException e) {
             throw new SQLConnectorException(
@@ -129,11 +340,148 @@ public class JDBCMemoryStore implements SQLMemoryStore {
                             sink.next(exists);
                         })
                 .then(
-                        dbConnector.upsertBatchAsync(
+                        discardBufferedAsync(
                                 collectionName,
                                 records.stream()
-                                        .map(this::memoryRecordToDatabaseEntry)
-                                        .collect(Collectors.toList())));
+                                        .map(record -> record.getMetadata().getId())
+                                        .collect(Collectors.toList())))
+                .then(writeBatchAsync(collectionName, records));
+    }
+
+    private Mono<Collection<String>> writeBatchAsync(
+            String collectionName, Collection<MemoryRecord> records) {
+        return dbConnector
+                .upsertBatchAsync(
+                        collectionName,
+                        records.stream()
+                                .map(this::memoryRecordToDatabaseEntry)
+                                .collect(Collectors.toList()))
+                .doOnNext(keys -> records.forEach(record -> cacheVector(collectionName, record)))
+                .flatMap(keys -> indexVectorsAsync(collectionName, records).thenReturn(keys));
+    }
+
+    /**
+     * Upserts a stream of records in chunks, each written with one batch statement and committed in
+     * its own transaction. A chunk is committed when it reaches the row or byte limit of the
+     * options, and then reported to subscribers of the returned Flux. A chunk that fails with a
+     * database error is rolled back and retried on its own, so records of committed chunks are
+     * never written twice; if its retries are exhausted, the Flux fails and the committed chunks
+     * stay in the collection.
+     *
+     * @param collectionName The name of the collection.
+     * @param records The records to upsert, which are read as the chunks are committed.
+     * @param options The chunk limits and retry policy.
+     * @return A Flux that reports each committed chunk and completes when all records are
+     *     committed.
+     */
+    public Flux<BulkUpsertProgress> upsertBulkAsync(
+            @Nonnull String collectionName,
+            @Nonnull Flux<MemoryRecord> records,
+            @Nonnull BulkUpsertOptions options) {
+        Objects.requireNonNull(collectionName);
+        Objects.requireNonNull(records);
+        Objects.requireNonNull(options);
+        return doesCollectionExistAsync(collectionName)
+                .flatMapMany(
+                        exists -> {
+                            if (!exists) {
+                                return Flux.error(
+                                        new MemoryException(
+                                                ErrorCodes
+                                                        .ATTEMPTED_TO_ACCESS_NONEXISTENT_COLLECTION,
+                                                collectionName));
+                            }
+                            // The chunk being filled and the totals of the committed chunks
+                            long[] chunkRowsAndBytes = new long[2];
+                            long[] totalRowsAndBytes = new long[2];
+                            int[] chunks = new int[1];
+                            return records.map(
+                                            record ->
+                                                    Tuples.of(
+                                                            record,
+                                                            memoryRecordToDatabaseEntry(record)))
+                                    .bufferUntil(
+                                            pair -> {
+                                                chunkRowsAndBytes[0]++;
+                                                chunkRowsAndBytes[1] +=
+                                                        InstrumentedSQLConnector.encodedSize(
+                                                                pair.getT2());
+                                                if (chunkRowsAndBytes[0] < options.getCommitRows()
+                                                        && chunkRowsAndBytes[1]
+                                                                < options.getCommitBytes()) {
+                                                    return false;
+                                                }
+                                                chunkRowsAndBytes[0] = 0;
+                                                chunkRowsAndBytes[1] = 0;
+                                                return true;
+                                            })
+                                    // One chunk at a time, so that at most one is held in memory
+                                    // while another is written
+                                    .concatMap(
+                                            chunk ->
+                                                    upsertChunkAsync(
+                                                            collectionName,
+                                                            chunks[0]++,
+                                                            chunk,
+                                                            totalRowsAndBytes,
+                                                            options),
+                                            1);
+                        });
+    }
+
+    private Mono<BulkUpsertProgress> upsertChunkAsync(
+            String collectionName,
+            int chunk,
+            List<Tuple2<MemoryRecord, DatabaseEntry>> records,
+            long[] totalRowsAndBytes,
+            BulkUpsertOptions options) {
+        List<MemoryRecord> memoryRecords = new ArrayList<>(records.size());
+        List<DatabaseEntry> entries = new ArrayList<>(records.size());
+        long bytes = 0;
+        for (Tuple2<MemoryRecord, DatabaseEntry> record : records) {
+            memoryRecords.add(record.getT1());
+            entries.add(record.getT2());
+            bytes += InstrumentedSQLConnector.encodedSize(record.getT2());
+        }
+        long chunkBytes = bytes;
+        int[] attempts = new int[1];
+        return discardBufferedAsync(
+                        collectionName,
+                        entries.stream().map(DatabaseEntry::getKey).collect(Collectors.toList()))
+                .then(
+                        Mono.defer(
+                                        () -> {
+                                            attempts[0]++;
+                                            return dbConnector.upsertBatchAsync(
+                                                    collectionName, entries);
+                                        })
+                                .retryWhen(
+                                        Retry.backoff(
+                                                        options.getMaxRetries(),
+                                                        options.getRetryBackoff())
+                                                .filter(e -> e instanceof SQLConnectorException)
+                                                .onRetryExhaustedThrow(
+                                                        (spec, signal) -> signal.failure())))
+                .doOnNext(
+                        keys ->
+                                memoryRecords.forEach(
+                                        record -> cacheVector(collectionName, record)))
+                .flatMap(
+                        keys ->
+                                indexVectorsAsync(collectionName, memoryRecords)
+                                        .then(
+                                                Mono.fromCallable(
+                                                        () -> {
+                                                            totalRowsAndBytes[0] += keys.size();
+                                                            totalRowsAndBytes[1] += chunkBytes;
+                                                            return new BulkUpsertProgress(
+                                                                    chunk,
+                                                                    new ArrayList<>(keys),
+                                                                    chunkBytes,
+                                                                    attempts[0],
+                                                                    totalRowsAndBytes[0],
+                                                                    totalRowsAndBytes[1]);
+                                                        })));
     }
 
     @Override
@@ -141,27 +489,53 @@ public class JDBCMemoryStore implements SQLMemoryStore {
             @Nonnull String collectionName, @Nonnull String key, boolean withEmbedding) {
         Objects.requireNonNull(collectionName);
         Objects.requireNonNull(key);
+        if (writeBehind != null) {
+            return Mono.defer(
+                    () -> {
+                        MemoryRecord buffered = writeBehind.get(collectionName, key);
+                        return buffered != null
+                                ? Mono.fromCallable(() -> bufferedRecord(buffered, withEmbedding))
+                                : internalGetAsync(collectionName, key, withEmbedding);
+                    });
+        }
         return this.internalGetAsync(collectionName, key, withEmbedding);
     }
 
+    // A buffered record as it will read once written
+    private MemoryRecord bufferedRecord(MemoryRecord record, boolean withEmbedding) {
+        return withEmbedding
+                ? record
+                : databaseEntryToMemoryRecord(memoryRecordToDatabaseEntry(record), false);
+    }
+
+    /**
+     * Gets the records of a collection whose timestamp is at or after an instant, in ascending
+     * order of their timestamps, so that a replica can synchronize incrementally from the last
+     * timestamp it has seen. Records without a timestamp are not read, and records still buffered
+     * in write-behind mode are read only once flushed. The query uses an index if the store was
+     * built with {@link TimestampStorageFormat#EPOCH_MILLIS}.
+     *
+     * @param collectionName The name of the collection.
+     * @param since The earliest modification time of the records to get.
+     * @param withEmbeddings Whether to include the embeddings of the records.
+     * @return A Flux of the records modified since the instant.
+     */
+    public Flux<MemoryRecord> getModifiedSinceAsync(
+            @Nonnull String collectionName, @Nonnull Instant since, boolean withEmbeddings) {
+        Objects.requireNonNull(collectionName);
+        Objects.requireNonNull(since);
+        return this.dbConnector
+                .readModifiedSinceAsync(collectionName, since, projection(withEmbeddings))
+                .map(databaseEntry -> databaseEntryToMemoryRecord(databaseEntry, withEmbeddings));
+    }
+
     private Mono<MemoryRecord> internalGetAsync(
             String collectionName, String key, boolean withEmbedding) {
         Objects.requireNonNull(collectionName);
         Objects.requireNonNull(key);
-        Mono<DatabaseEntry> entry = this.dbConnector.readAsync(collectionName, key);
-
-        return entry.hasElement()
-                .flatMap(
-                        hasElement -> {
-                            if (!hasElement) {
-                                return Mono.empty();
-                            }
-
-                            return entry.map(
-                                    databaseEntry ->
-                                            databaseEntryToMemoryRecord(
-                                                    databaseEntry, withEmbedding));
-                        });
+        return this.dbConnector
+                .readAsync(collectionName, key, projection(withEmbedding))
+                .map(databaseEntry -> databaseEntryToMemoryRecord(databaseEntry, withEmbedding));
     }
 
     @Override
@@ -171,11 +545,36 @@ public class JDBCMemoryStore implements SQLMemoryStore {
             boolean withEmbeddings) {
         Objects.requireNonNull(collectionName);
         Objects.requireNonNull(keys);
+        if (writeBehind != null) {
+            return Mono.defer(
+                    () -> {
+                        List<MemoryRecord> buffered = new ArrayList<>();
+                        List<String> unbuffered = new ArrayList<>(keys.size());
+                        for (String key : keys) {
+                            MemoryRecord record = writeBehind.get(collectionName, key);
+                            if (record != null) {
+                                buffered.add(bufferedRecord(record, withEmbeddings));
+                            } else {
+                                unbuffered.add(key);
+                            }
+                        }
+                        return internalGetBatchAsync(
+                                collectionName, unbuffered, buffered, withEmbeddings);
+                    });
+        }
+        return internalGetBatchAsync(collectionName, keys, Collections.emptyList(), withEmbeddings);
+    }
+
+    private Mono<Collection<MemoryRecord>> internalGetBatchAsync(
+            String collectionName,
+            Collection<String> keys,
+            List<MemoryRecord> buffered,
+            boolean withEmbeddings) {
         return this.dbConnector
-                .readBatchAsync(collectionName, keys)
+                .readBatchAsync(collectionName, keys, projection(withEmbeddings))
                 .flatMap(
                         databaseEntries -> {
-                            List<MemoryRecord> records = new ArrayList<>();
+                            List<MemoryRecord> records = new ArrayList<>(buffered);
                             for (DatabaseEntry entry : databaseEntries) {
                                 records.add(databaseEntryToMemoryRecord(entry, withEmbeddings));
                             }
@@ -187,7 +586,10 @@ public class JDBCMemoryStore implements SQLMemoryStore {
     public Mono<Void> removeAsync(@Nonnull String collectionName, @Nonnull String key) {
         Objects.requireNonNull(collectionName);
         Objects.requireNonNull(key);
-        return this.dbConnector.deleteAsync(collectionName, key);
+        return discardBufferedAsync(collectionName, Collections.singletonList(key))
+                .then(this.dbConnector.deleteAsync(collectionName, key))
+                .doOnSuccess(v -> evictVector(collectionName, key))
+                .then(unindexAsync(collectionName, Collections.singletonList(key)));
     }
 
     @Override
@@ -195,7 +597,10 @@ public class JDBCMemoryStore implements SQLMemoryStore {
             @Nonnull String collectionName, @Nonnull Collection<String> keys) {
         Objects.requireNonNull(collectionName);
         Objects.requireNonNull(keys);
-        return this.dbConnector.deleteBatchAsync(collectionName, keys);
+        return discardBufferedAsync(collectionName, keys)
+                .then(this.dbConnector.deleteBatchAsync(collectionName, keys))
+                .doOnSuccess(v -> keys.forEach(key -> evictVector(collectionName, key)))
+                .then(unindexAsync(collectionName, keys));
     }
 
     @Override
@@ -205,50 +610,579 @@ public class JDBCMemoryStore implements SQLMemoryStore {
             int limit,
             float minRelevanceScore,
             boolean withEmbeddings) {
+        return getNearestMatchesAsync(
+                collectionName, embedding, limit, minRelevanceScore, withEmbeddings, 0);
+    }
+
+    /**
+     * Gets the nearest matches to an embedding, with the size of the candidate list explored by the
+     * vector index of the collection, or the number of clusters read through its IVF index.
+     * Collections with neither ignore {@code efSearch} and are searched exhaustively.
+     *
+     * @param collectionName The name of the collection to search.
+     * @param embedding The embedding to compare the collection's embeddings with.
+     * @param limit The maximum number of similarity results to return.
+     * @param minRelevanceScore The minimum relevance threshold for returned results.
+     * @param withEmbeddings Whether to include the embeddings in the returned records.
+     * @param efSearch The size of the candidate list explored by the vector index, or the nprobe of
+     *     the IVF index; a non-positive value uses the default of the index.
+     * @return A collection of tuples where each tuple contains a MemoryRecord and its similarity
+     *     score.
+     */
+    public Mono<Collection<Tuple2<MemoryRecord, Float>>> getNearestMatchesAsync(
+            @Nonnull String collectionName,
+            @Nonnull Embedding embedding,
+            int limit,
+            float minRelevanceScore,
+            boolean withEmbeddings,
+            int efSearch) {
         Objects.requireNonNull(collectionName);
         Objects.requireNonNull(embedding);
-        Mono<List<DatabaseEntry>> entries = this.dbConnector.readAllAsync(collectionName);
-
-        return entries.flatMap(
-                databaseEntries -> {
-                    List<Tuple2<MemoryRecord, Float>> nearestMatches = new ArrayList<>();
-                    for (DatabaseEntry entry : databaseEntries) {
-                        if (entry.getEmbedding() == null || entry.getEmbedding().isEmpty()) {
-                            continue;
-                        }
-                        try {
-                            Embedding recordEmbedding =
-                                    new ObjectMapper()
-                                            .readValue(entry.getEmbedding(), Embedding.class);
-                            float similarity = embedding.cosineSimilarity(recordEmbedding);
-                            if (similarity >= (float) minRelevanceScore) {
-                                MemoryRecord record =
-                                        MemoryRecord.fromJsonMetadata(
-                                                entry.getMetadata(),
-                                                withEmbeddings ? recordEmbedding : null,
-                                                entry.getKey(),
-                                                entry.getTimestamp());
-                                nearestMatches.add(Tuples.of(record, similarity));
-                            }
-                        } catch (JsonProcessingException e) {
-                            throw new SQLConnectorException(
-                                    SQLConnectorException.ErrorCodes.SQL_ERROR,
-                                    "Error deserializing database entry",
-                                    e);
-                        }
+        float[] queryVector = EmbeddingCodec.toArray(embedding.getVector());
+        return Mono.defer(
+                () -> {
+                    SearchTiming timing = new SearchTiming(metrics);
+                    Mono<Collection<Tuple2<MemoryRecord, Float>>> nearestMatches;
+                    if (vectorIndexFactories.containsKey(collectionName)) {
+                        nearestMatches =
+                                getVectorIndexAsync(collectionName)
+                                        .flatMap(
+                                                index -> {
+                                                    timing.lap(SearchStage.FETCH);
+                                                    List<Tuple2<String, Float>> matches =
+                                                            index.search(
+                                                                    queryVector,
+                                                                    limit,
+                                                                    minRelevanceScore,
+                                                                    efSearch);
+                                                    timing.lap(SearchStage.SCORE);
+                                                    return readScoredRecordsAsync(
+                                                            collectionName,
+                                                            matches,
+                                                            withEmbeddings,
+                                                            timing);
+                                                });
+                    } else if (ivfIndexOptions.containsKey(collectionName)) {
+                        nearestMatches =
+                                getIvfIndexAsync(collectionName)
+                                        .flatMap(
+                                                index ->
+                                                        scanNearestMatchesAsync(
+                                                                collectionName,
+                                                                queryVector,
+                                                                limit,
+                                                                minRelevanceScore,
+                                                                withEmbeddings,
+                                                                timing,
+                                                                projection ->
+                                                                        index.streamCandidatesAsync(
+                                                                                queryVector,
+                                                                                efSearch,
+                                                                                projection)));
+                    } else if (isSegmented(collectionName)) {
+                        nearestMatches =
+                                getSegmentedNearestMatchesAsync(
+                                        collectionName,
+                                        queryVector,
+                                        limit,
+                                        minRelevanceScore,
+                                        withEmbeddings,
+                                        timing);
+                    } else if (vectorCacheEnabled
+                            && !overBudgetCollections.contains(collectionName)) {
+                        nearestMatches =
+                                getCachedNearestMatchesAsync(
+                                        collectionName,
+                                        queryVector,
+                                        limit,
+                                        minRelevanceScore,
+                                        withEmbeddings,
+                                        timing);
+                    } else {
+                        nearestMatches =
+                                scanAllNearestMatchesAsync(
+                                        collectionName,
+                                        queryVector,
+                                        limit,
+                                        minRelevanceScore,
+                                        withEmbeddings,
+                                        timing);
+                    }
+                    return nearestMatches
+                            .doOnSuccess(matches -> timing.record(null))
+                            .doOnError(timing::record);
+                });
+    }
+
+    private Mono<Collection<Tuple2<MemoryRecord, Float>>> scanAllNearestMatchesAsync(
+            String collectionName,
+            float[] queryVector,
+            int limit,
+            float minRelevanceScore,
+            boolean withEmbeddings,
+            SearchTiming timing) {
+        return scanNearestMatchesAsync(
+                collectionName,
+                queryVector,
+                limit,
+                minRelevanceScore,
+                withEmbeddings,
+                timing,
+                projection ->
+                        this.dbConnector.streamAllAsync(collectionName, fetchSize, projection));
+    }
+
+    // Streams the rows to score, the whole collection unless an IVF index narrows them, and keeps
+    // the best entries as the rows arrive
+    private Mono<Collection<Tuple2<MemoryRecord, Float>>> scanNearestMatchesAsync(
+            String collectionName,
+            float[] queryVector,
+            int limit,
+            float minRelevanceScore,
+            boolean withEmbeddings,
+            SearchTiming timing,
+            Function<EntryProjection, Flux<DatabaseEntry>> rows) {
+        // Only the embeddings are read for scoring; the metadata of the best matches is read last
+        boolean quantized =
+                embeddingFormat == EmbeddingStorageFormat.INT8_QUANTIZED
+                        || embeddingFormat == EmbeddingStorageFormat.BINARY_SIGNATURE;
+        Flux<DatabaseEntry> entries =
+                rows.apply(quantized ? EntryProjection.QUANTIZED : EntryProjection.EMBEDDING);
+        // Approximate scores only select the candidates, so the threshold applies after rescoring.
+        // The heap of candidates grows with the rows offered, so it never holds more than the rows
+        // of the collection however large the oversampled limit.
+        int candidates =
+                quantized
+                        ? (int) Math.min(Integer.MAX_VALUE, (long) limit * rescoreOversample)
+                        : limit;
+        float candidateMinScore = quantized ? Float.NEGATIVE_INFINITY : minRelevanceScore;
+        Supplier<NearestEntries> nearestEntriesSupplier =
+                () ->
+                        new NearestEntries(
+                                queryVector,
+                                candidates,
+                                candidateMinScore,
+                                embeddingFormat == EmbeddingStorageFormat.BINARY_SIGNATURE,
+                                timing.enabled);
+        Mono<NearestEntries> nearestEntries;
+        if (parallelScanPool == null) {
+            nearestEntries =
+                    entries
+                            // Score on another thread while the connector fetches the next rows
+                            .publishOn(
+                                    Schedulers.parallel(),
+                                    fetchSize > 0 ? fetchSize : Queues.SMALL_BUFFER_SIZE)
+                            .collect(nearestEntriesSupplier, NearestEntries::offer);
+        } else {
+            // Each rail keeps the best entries of the chunks it scores; the rails are merged last
+            nearestEntries =
+                    entries.buffer(parallelScanChunkSize)
+                            .index()
+                            .parallel(parallelScanPool.getParallelism())
+                            .runOn(parallelScanScheduler)
+                            .collect(
+                                    nearestEntriesSupplier,
+                                    (nearest, chunk) ->
+                                            nearest.offerChunk(
+                                                    (int) (chunk.getT1() * parallelScanChunkSize),
+                                                    chunk.getT2()))
+                            .reduce(NearestEntries::merge)
+                            .defaultIfEmpty(nearestEntriesSupplier.get());
+        }
+        return nearestEntries.flatMap(
+                nearest -> {
+                    timing.lapScan(nearest.decodeNanos, nearest.scoreNanos);
+                    if (quantized) {
+                        return rescoreAsync(
+                                collectionName,
+                                queryVector,
+                                nearest.toMatches(),
+                                limit,
+                                minRelevanceScore,
+                                withEmbeddings,
+                                timing);
                     }
-                    List<Tuple2<MemoryRecord, Float>> results =
-                            nearestMatches.stream()
-                                    .sorted(
-                                            Comparator.comparing(
-                                                    Tuple2::getT2, (a, b) -> Float.compare(b, a)))
-                                    .limit(limit)
-                                    .collect(Collectors.toList());
-
-                    return Mono.just(results);
+                    return readScoredRecordsAsync(
+                            collectionName,
+                            nearest.toMatches(),
+                            withEmbeddings ? nearest.entriesByKey() : null,
+                            withEmbeddings,
+                            timing);
+                });
+    }
+
+    // Reads the full-precision embeddings of the candidates of a quantized scan and keeps the best
+    // by their exact similarity
+    private Mono<Collection<Tuple2<MemoryRecord, Float>>> rescoreAsync(
+            String collectionName,
+            float[] queryVector,
+            List<Tuple2<String, Float>> candidates,
+            int limit,
+            float minRelevanceScore,
+            boolean withEmbeddings,
+            SearchTiming timing) {
+        if (candidates.isEmpty()) {
+            return Mono.just(new ArrayList<>());
+        }
+        List<String> keys = candidates.stream().map(Tuple2::getT1).collect(Collectors.toList());
+        return this.dbConnector
+                .readBatchAsync(collectionName, keys, EntryProjection.EMBEDDING)
+                .flatMap(
+                        entries -> {
+                            timing.lap(SearchStage.FETCH);
+                            NearestEntries nearest =
+                                    new NearestEntries(
+                                            queryVector,
+                                            Math.min(limit, entries.size()),
+                                            minRelevanceScore,
+                                            false,
+                                            false);
+                            Map<String, DatabaseEntry> embeddings = new HashMap<>();
+                            for (DatabaseEntry entry : entries) {
+                                nearest.offer(entry);
+                                embeddings.put(entry.getKey(), entry);
+                            }
+                            List<Tuple2<String, Float>> matches = nearest.toMatches();
+                            timing.lap(SearchStage.SCORE);
+                            return readScoredRecordsAsync(
+                                    collectionName,
+                                    matches,
+                                    withEmbeddings ? embeddings : null,
+                                    withEmbeddings,
+                                    timing);
+                        });
+    }
+
+    private Mono<Collection<Tuple2<MemoryRecord, Float>>> getCachedNearestMatchesAsync(
+            String collectionName,
+            float[] queryVector,
+            int limit,
+            float minRelevanceScore,
+            boolean withEmbeddings,
+            SearchTiming timing) {
+        return getVectorCacheAsync(collectionName)
+                .flatMap(
+                        cache -> {
+                            timing.lap(SearchStage.FETCH);
+                            List<Tuple2<String, Float>> matches =
+                                    cache.search(
+                                            queryVector,
+                                            limit,
+                                            minRelevanceScore,
+                                            parallelScanPool,
+                                            parallelScanChunkSize);
+                            timing.lap(SearchStage.SCORE);
+                            if (matches == null) {
+                                // Evicted since it was loaded
+                                return scanAllNearestMatchesAsync(
+                                        collectionName,
+                                        queryVector,
+                                        limit,
+                                        minRelevanceScore,
+                                        withEmbeddings,
+                                        timing);
+                            }
+                            return readScoredRecordsAsync(
+                                    collectionName, matches, withEmbeddings, timing);
+                        })
+                .onErrorResume(
+                        VectorArena.ExhaustedException.class,
+                        e ->
+                                scanAllNearestMatchesAsync(
+                                        collectionName,
+                                        queryVector,
+                                        limit,
+                                        minRelevanceScore,
+                                        withEmbeddings,
+                                        timing));
+    }
+
+    // Scans the memory-mapped segment of a collection, whose slots also provide the embeddings of
+    // the matches
+    private Mono<Collection<Tuple2<MemoryRecord, Float>>> getSegmentedNearestMatchesAsync(
+            String collectionName,
+            float[] queryVector,
+            int limit,
+            float minRelevanceScore,
+            boolean withEmbeddings,
+            SearchTiming timing) {
+        return getVectorSegmentAsync(collectionName)
+                .flatMap(
+                        segment -> {
+                            timing.lap(SearchStage.FETCH);
+                            List<Tuple2<String, Float>> matches =
+                                    segment.search(
+                                            queryVector,
+                                            limit,
+                                            minRelevanceScore,
+                                            parallelScanPool,
+                                            parallelScanChunkSize);
+                            timing.lap(SearchStage.SCORE);
+                            Map<String, DatabaseEntry> embeddings = null;
+                            if (withEmbeddings) {
+                                embeddings = new HashMap<>();
+                                Map<String, float[]> vectors =
+                                        segment.vectors(
+                                                matches.stream()
+                                                        .map(Tuple2::getT1)
+                                                        .collect(Collectors.toList()));
+                                for (Map.Entry<String, float[]> vector : vectors.entrySet()) {
+                                    embeddings.put(
+                                            vector.getKey(),
+                                            new DatabaseEntry(
+                                                    vector.getKey(),
+                                                    null,
+                                                    vector.getValue(),
+                                                    null));
+                                }
+                            }
+                            return readScoredRecordsAsync(
+                                    collectionName, matches, embeddings, withEmbeddings, timing);
+                        });
+    }
+
+    // Reads the entries of the scored keys of a search and pairs them with their scores
+    private Mono<Collection<Tuple2<MemoryRecord, Float>>> readScoredRecordsAsync(
+            String collectionName,
+            List<Tuple2<String, Float>> matches,
+            boolean withEmbeddings,
+            SearchTiming timing) {
+        return readScoredRecordsAsync(collectionName, matches, null, withEmbeddings, timing);
+    }
+
+    // Reads the entries of the scored keys of a search, without their embeddings if the search
+    // already read them, and pairs them with their scores
+    private Mono<Collection<Tuple2<MemoryRecord, Float>>> readScoredRecordsAsync(
+            String collectionName,
+            List<Tuple2<String, Float>> matches,
+            @Nullable Map<String, DatabaseEntry> embeddings,
+            boolean withEmbeddings,
+            SearchTiming timing) {
+        if (matches.isEmpty()) {
+            return Mono.just(new ArrayList<>());
+        }
+        List<String> keys = matches.stream().map(Tuple2::getT1).collect(Collectors.toList());
+        return this.dbConnector
+                .readBatchAsync(
+                        collectionName, keys, projection(withEmbeddings && embeddings == null))
+                .map(
+                        entries -> {
+                            timing.lap(SearchStage.FETCH);
+                            Collection<Tuple2<MemoryRecord, Float>> results =
+                                    toScoredRecords(matches, entries, embeddings, withEmbeddings);
+                            timing.lap(SearchStage.MATERIALIZE);
+                            return results;
+                        });
+    }
+
+    // Joins the scored keys of a search with their entries, preserving the order of the scores
+    private Collection<Tuple2<MemoryRecord, Float>> toScoredRecords(
+            List<Tuple2<String, Float>> matches,
+            Collection<DatabaseEntry> entries,
+            @Nullable Map<String, DatabaseEntry> embeddings,
+            boolean withEmbeddings) {
+        Map<String, DatabaseEntry> entriesByKey = new HashMap<>();
+        for (DatabaseEntry entry : entries) {
+            entriesByKey.put(entry.getKey(), entry);
+        }
+        List<Tuple2<MemoryRecord, Float>> results = new ArrayList<>(matches.size());
+        for (Tuple2<String, Float> match : matches) {
+            DatabaseEntry entry = entriesByKey.get(match.getT1());
+            if (entry == null) {
+                // Removed between the scan and the read
+                continue;
+            }
+            DatabaseEntry embedding = embeddings != null ? embeddings.get(match.getT1()) : entry;
+            if (embedding == null) {
+                // Removed from the vector segment between the search and the read of its vectors
+                continue;
+            }
+            results.add(toScoredRecord(entry, embedding, match.getT2(), withEmbeddings));
+        }
+        return results;
+    }
+
+    private static EntryProjection projection(boolean withEmbeddings) {
+        return withEmbeddings ? EntryProjection.FULL : EntryProjection.METADATA;
+    }
+
+    private static Tuple2<MemoryRecord, Float> toScoredRecord(
+            DatabaseEntry entry, DatabaseEntry embedding, float score, boolean withEmbeddings) {
+        try {
+            float[] vector = withEmbeddings ? entryToVector(embedding) : null;
+            MemoryRecord record =
+                    JsonCodec.readMemoryRecord(
+                            entry.getMetadata(),
+                            vector != null ? new Embedding(EmbeddingCodec.toList(vector)) : null,
+                            entry.getKey(),
+                            entry.getTimestamp());
+            return Tuples.of(record, score);
+        } catch (JsonProcessingException e) {
+            throw new SQLConnectorException(
+                    SQLConnectorException.ErrorCodes.SQL_ERROR,
+                    "Error deserializing database entry",
+                    e);
+        }
+    }
+
+    // Returns the vector cache of a collection, reading the collection on first use
+    private Mono<CollectionVectorCache> getVectorCacheAsync(String collectionName) {
+        return vectorCacheLoads.computeIfAbsent(
+                collectionName,
+                name -> {
+                    CollectionVectorCache cache = new CollectionVectorCache(vectorArena);
+                    vectorCaches.put(name, cache);
+                    return this.dbConnector
+                            .streamAllAsync(name, fetchSize, EntryProjection.EMBEDDING)
+                            .doOnNext(
+                                    entry -> {
+                                        float[] vector = entryToVector(entry);
+                                        if (vector != null) {
+                                            cache.load(entry.getKey(), vector);
+                                        }
+                                    })
+                            .then(
+                                    Mono.fromCallable(
+                                            () -> {
+                                                cache.finishLoading();
+                                                return cache;
+                                            }))
+                            .doOnError(
+                                    e -> {
+                                        evictVectorCache(name);
+                                        if (e instanceof VectorArena.ExhaustedException) {
+                                            overBudgetCollections.add(name);
+                                        }
+                                    })
+                            .cache();
                 });
     }
 
+    private void cacheVector(String collectionName, MemoryRecord record) {
+        CollectionVectorCache cache = vectorCaches.get(collectionName);
+        if (cache == null) {
+            return;
+        }
+        float[] vector = EmbeddingCodec.toArray(record.getEmbedding().getVector());
+        try {
+            if (vector.length == 0) {
+                cache.remove(record.getMetadata().getId());
+            } else {
+                cache.put(record.getMetadata().getId(), vector);
+            }
+        } catch (IllegalArgumentException e) {
+            // Mixed dimensions cannot share a matrix; fall back to reloading on the next search
+            evictVectorCache(collectionName);
+        } catch (VectorArena.ExhaustedException e) {
+            evictVectorCache(collectionName);
+            overBudgetCollections.add(collectionName);
+        }
+    }
+
+    private void evictVector(String collectionName, String key) {
+        CollectionVectorCache cache = vectorCaches.get(collectionName);
+        if (cache != null) {
+            cache.remove(key);
+        }
+    }
+
+    // The cache is unregistered before its load, so that a load started meanwhile keeps its cache
+    private void evictVectorCache(String collectionName) {
+        CollectionVectorCache cache = vectorCaches.remove(collectionName);
+        vectorCacheLoads.remove(collectionName);
+        if (cache != null) {
+            cache.release();
+        }
+    }
+
+    // Returns the vector index of a collection, restoring it on first use
+    private Mono<PersistedVectorIndex> getVectorIndexAsync(String collectionName) {
+        return vectorIndexes.computeIfAbsent(
+                collectionName,
+                name ->
+                        new PersistedVectorIndex(
+                                        name,
+                                        vectorIndexFactories.get(name).get(),
+                                        this.dbConnector)
+                                .loadAsync()
+                                .doOnError(e -> vectorIndexes.remove(name))
+                                .cache());
+    }
+
+    // Returns the IVF index of a collection, loading its centroids on first use
+    private Mono<IvfIndex> getIvfIndexAsync(String collectionName) {
+        return ivfIndexes.computeIfAbsent(
+                collectionName,
+                name ->
+                        new IvfIndex(name, ivfIndexOptions.get(name), this.dbConnector, fetchSize)
+                                .loadAsync()
+                                .doOnError(e -> ivfIndexes.remove(name))
+                                .cache());
+    }
+
+    // Returns the vector segment of a collection, mapping its file on first use
+    private Mono<VectorSegment> getVectorSegmentAsync(String collectionName) {
+        return vectorSegments.computeIfAbsent(
+                collectionName,
+                name ->
+                        new VectorSegment(name, vectorSegmentDirectory, this.dbConnector)
+                                .loadAsync()
+                                .doOnError(e -> vectorSegments.remove(name))
+                                .cache());
+    }
+
+    // Whether a collection is searched through its vector segment
+    private boolean isSegmented(String collectionName) {
+        return vectorSegmentDirectory != null
+                && !vectorIndexFactories.containsKey(collectionName)
+                && !ivfIndexOptions.containsKey(collectionName);
+    }
+
+    private Mono<Void> indexVectorsAsync(String collectionName, Collection<MemoryRecord> records) {
+        boolean indexed = vectorIndexFactories.containsKey(collectionName);
+        boolean clustered = ivfIndexOptions.containsKey(collectionName);
+        boolean segmented = isSegmented(collectionName);
+        if (!indexed && !clustered && !segmented) {
+            return Mono.empty();
+        }
+        Map<String, float[]> vectors = new LinkedHashMap<>();
+        for (MemoryRecord record : records) {
+            vectors.put(
+                    record.getMetadata().getId(),
+                    EmbeddingCodec.toArray(record.getEmbedding().getVector()));
+        }
+        if (segmented) {
+            return getVectorSegmentAsync(collectionName)
+                    .flatMap(segment -> segment.appendAsync(vectors));
+        }
+        if (!indexed) {
+            return getIvfIndexAsync(collectionName).flatMap(index -> index.assignAsync(vectors));
+        }
+        return getVectorIndexAsync(collectionName).flatMap(index -> index.addAsync(vectors));
+    }
+
+    private Mono<Void> unindexAsync(String collectionName, Collection<String> keys) {
+        if (isSegmented(collectionName)) {
+            // A segment loaded later finds that no row points to the slots of the keys
+            Mono<VectorSegment> segment = vectorSegments.get(collectionName);
+            return segment != null
+                    ? segment.doOnNext(loaded -> loaded.remove(keys)).then()
+                    : Mono.empty();
+        }
+        if (!vectorIndexFactories.containsKey(collectionName)) {
+            return Mono.empty();
+        }
+        return getVectorIndexAsync(collectionName).flatMap(index -> index.removeAsync(keys));
+    }
+
+    // Decodes the embedding of an entry, whichever representation it was read in
+    @Nullable
+    protected static float[] entryToVector(DatabaseEntry entry) {
+        return entry.getVector() != null
+                ? entry.getVector()
+                : EmbeddingCodec.fromJson(entry.getEmbedding());
+    }
+
     @Override
     public Mono<Tuple2<MemoryRecord, Float>> getNearestMatchAsync(
             @Nonnull String collectionName,
@@ -268,9 +1202,200 @@ public class JDBCMemoryStore implements SQLMemoryStore {
                         });
     }
 
+    // Keeps the best scoring entries of a streamed scan without holding on to the other rows
+    private static final class NearestEntries {
+        private final float[] query;
+        private final int limit;
+        private final float minRelevanceScore;
+        private final TopKHeap best;
+        private final Map<Integer, DatabaseEntry> entries = new HashMap<>();
+        // Whether quantized rows hold binary signatures rather than int8 codes
+        private final boolean signatures;
+        private final boolean timed;
+        private int rows;
+        private long decodeNanos;
+        private long scoreNanos;
+
+        // Normalized on the first row so that scanning an empty collection never fails
+        @Nullable private float[] unitQuery;
+        // Quantized on the first quantized row
+        @Nullable private ScalarQuantizer.Query quantizedQuery;
+        @Nullable private BinarySignature.Query signatureQuery;
+
+        private NearestEntries(
+                float[] query,
+                int limit,
+                float minRelevanceScore,
+                boolean signatures,
+                boolean timed) {
+            this.query = query;
+            this.limit = limit;
+            this.minRelevanceScore = minRelevanceScore;
+            this.best = new TopKHeap(limit);
+            this.signatures = signatures;
+            this.timed = timed;
+        }
+
+        private void offer(DatabaseEntry entry) {
+            offer(rows++, entry);
+        }
+
+        // Offers a chunk of consecutive rows, the first of which has the given row number
+        private void offerChunk(int firstRow, List<DatabaseEntry> chunk) {
+            for (int i = 0; i < chunk.size(); i++) {
+                offer(firstRow + i, chunk.get(i));
+            }
+        }
+
+        private void offer(int row, DatabaseEntry entry) {
+            if (entry.getQuantizedEmbedding() != null) {
+                offerQuantized(row, entry);
+                return;
+            }
+            long start = timed ? System.nanoTime() : 0;
+            float[] vector = entryToVector(entry);
+            long decoded = timed ? System.nanoTime() : 0;
+            decodeNanos += decoded - start;
+            if (vector == null) {
+                return;
+            }
+            if (unitQuery == null) {
+                unitQuery = SimilarityKernels.normalize(query);
+            }
+            float norm = entry.getNorm() != null ? entry.getNorm() : SimilarityKernels.norm(vector);
+            float similarity = SimilarityKernels.unitCosine(unitQuery, vector, norm);
+            if (similarity >= minRelevanceScore) {
+                retain(similarity, row, entry);
+            }
+            scoreNanos += timed ? System.nanoTime() - decoded : 0;
+        }
+
+        // Scores a row by the int8 dot product of the quantized query and embedding, or by the
+        // Hamming distance of their signatures
+        private void offerQuantized(int row, DatabaseEntry entry) {
+            long start = timed ? System.nanoTime() : 0;
+            float similarity;
+            if (signatures) {
+                if (signatureQuery == null) {
+                    signatureQuery = BinarySignature.signQuery(query);
+                }
+                similarity = signatureQuery.similarity(entry.getQuantizedEmbedding());
+            } else {
+                if (unitQuery == null) {
+                    unitQuery = SimilarityKernels.normalize(query);
+                }
+                if (quantizedQuery == null) {
+                    quantizedQuery = ScalarQuantizer.quantizeQuery(unitQuery);
+                }
+                similarity = quantizedQuery.unitCosine(entry.getQuantizedEmbedding());
+            }
+            if (similarity >= minRelevanceScore) {
+                retain(similarity, row, entry);
+            }
+            scoreNanos += timed ? System.nanoTime() - start : 0;
+        }
+
+        private void retain(float similarity, int row, DatabaseEntry entry) {
+            int evicted = best.size() == limit ? best.lowestIndex() : -1;
+            if (best.offer(similarity, row)) {
+                entries.remove(evicted);
+                entries.put(row, entry);
+            }
+        }
+
+        private NearestEntries merge(NearestEntries other) {
+            for (int i = 0; i < other.best.size(); i++) {
+                int row = other.best.index(i);
+                retain(other.best.score(i), row, other.entries.get(row));
+            }
+            decodeNanos += other.decodeNanos;
+            scoreNanos += other.scoreNanos;
+            return this;
+        }
+
+        // Sorts the retained entries from best to worst and returns their keys and scores
+        private List<Tuple2<String, Float>> toMatches() {
+            best.sortDescending();
+            List<Tuple2<String, Float>> matches = new ArrayList<>(best.size());
+            for (int i = 0; i < best.size(); i++) {
+                matches.add(Tuples.of(entries.get(best.index(i)).getKey(), best.score(i)));
+            }
+            return matches;
+        }
+
+        private Map<String, DatabaseEntry> entriesByKey() {
+            Map<String, DatabaseEntry> entriesByKey = new HashMap<>();
+            for (DatabaseEntry entry : entries.values()) {
+                entriesByKey.put(entry.getKey(), entry);
+            }
+            return entriesByKey;
+        }
+    }
+
+    // Accumulates the time one search spends in each stage and records it when the search ends
+    private static final class SearchTiming {
+        private final MemoryStoreMetrics metrics;
+        // Whether per-row work is worth timing, which costs two clock reads per row
+        private final boolean enabled;
+        private final long start = System.nanoTime();
+        private final long[] stageNanos = new long[SearchStage.values().length];
+        private long lapStart = start;
+
+        private SearchTiming(MemoryStoreMetrics metrics) {
+            this.metrics = metrics;
+            this.enabled = metrics != MemoryStoreMetrics.NOOP;
+        }
+
+        // Attributes the time since the previous lap to a stage
+        private void lap(SearchStage stage) {
+            long now = System.nanoTime();
+            stageNanos[stage.ordinal()] += now - lapStart;
+            lapStart = now;
+        }
+
+        // Attributes the time of a streamed scan, of which rows were decoded and scored for the
+        // given times, possibly on several threads, and fetched for the rest
+        private void lapScan(long decodeNanos, long scoreNanos) {
+            long now = System.nanoTime();
+            stageNanos[SearchStage.DECODE.ordinal()] += decodeNanos;
+            stageNanos[SearchStage.SCORE.ordinal()] += scoreNanos;
+            stageNanos[SearchStage.FETCH.ordinal()] +=
+                    Math.max(0, now - lapStart - decodeNanos - scoreNanos);
+            lapStart = now;
+        }
+
+        private void record(@Nullable Throwable error) {
+            metrics.recordOperation("getNearestMatchesAsync", System.nanoTime() - start, error);
+            if (error == null) {
+                for (SearchStage stage : SearchStage.values()) {
+                    metrics.recordSearchStage(stage, stageNanos[stage.ordinal()]);
+                }
+            }
+        }
+    }
+
     /** Builds a JDBCMemoryStore. */
     public static class Builder implements SQLMemoryStore.Builder<JDBCMemoryStore> {
         private Connection connection;
+        @Nullable private DataSource dataSource;
+        private int statementCacheSize = JDBCConnector.DEFAULT_STATEMENT_CACHE_SIZE;
+        private int batchConcurrency = JDBCConnector.DEFAULT_BATCH_CONCURRENCY;
+        private EmbeddingStorageFormat embeddingFormat = EmbeddingStorageFormat.JSON;
+        private TimestampStorageFormat timestampFormat = TimestampStorageFormat.ISO_8601;
+        private TableLayout tableLayout = TableLayout.SHARED_TABLE;
+        private boolean vectorCacheEnabled;
+        private int fetchSize = DEFAULT_FETCH_SIZE;
+        @Nullable private ForkJoinPool parallelScanPool;
+        private int parallelScanChunkSize = DEFAULT_PARALLEL_SCAN_CHUNK_SIZE;
+        @Nullable private Integer rescoreOversample;
+        private MemoryStoreMetrics metrics = MemoryStoreMetrics.NOOP;
+        @Nullable private Duration collectionRefreshInterval;
+        @Nullable private WriteBehindOptions writeBehindOptions;
+        private final Map<String, Supplier<? extends VectorIndex>> vectorIndexFactories =
+                new HashMap<>();
+        private final Map<String, IvfIndexOptions> ivfIndexOptions = new HashMap<>();
+        @Nullable private Path vectorSegmentDirectory;
+        private long offHeapBudgetBytes;
 
         /**
          * Builds and returns a JDBCMemoryStore instance with the specified database connection. The
@@ -295,9 +1420,27 @@ public class JDBCMemoryStore implements SQLMemoryStore {
         @Override
         @CheckReturnValue
         public Mono<JDBCMemoryStore> buildAsync() {
-            JDBCConnector connector = new JDBCConnector(connection);
-            JDBCMemoryStore memoryStore = new JDBCMemoryStore(connector);
-            return connector.createTableAsync().thenReturn(memoryStore);
+            JDBCConnector.Builder connectorBuilder =
+                    new JDBCConnector.Builder()
+                            .withConnection(connection)
+                            .withStatementCacheSize(statementCacheSize)
+                            .withBatchConcurrency(batchConcurrency)
+                            .withEmbeddingStorageFormat(embeddingFormat)
+                            .withTimestampStorageFormat(timestampFormat)
+                            .withTableLayout(tableLayout);
+            if (dataSource != null) {
+                connectorBuilder.withDataSource(dataSource);
+            }
+            JDBCConnector connector = connectorBuilder.build();
+            SQLConnector instrumented =
+                    metrics != MemoryStoreMetrics.NOOP
+                            ? new InstrumentedSQLConnector(connector, metrics)
+                            : connector;
+            JDBCMemoryStore memoryStore = new JDBCMemoryStore(instrumented, this);
+            return instrumented
+                    .createTableAsync()
+                    .then(memoryStore.collections.loadAsync())
+                    .thenReturn(memoryStore);
         }
 
         /**
@@ -312,5 +1455,305 @@ public class JDBCMemoryStore implements SQLMemoryStore {
             this.connection = connection;
             return this;
         }
+
+        /**
+         * Records the latency, errors, rows and bytes read and batch sizes of every connector
+         * operation, and the time each nearest-match search spends per stage, in the given metrics.
+         * Pass a {@link MicrometerMemoryStoreMetrics} to publish them to a Micrometer registry. The
+         * wait for pooled connections is recorded by configuring the {@link ConnectionPool} with
+         * the same metrics.
+         *
+         * @param metrics The metrics of the store.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withMetrics(MemoryStoreMetrics metrics) {
+            this.metrics = Objects.requireNonNull(metrics);
+            return this;
+        }
+
+        /**
+         * Sets a data source to borrow a connection from for each operation instead of sharing a
+         * single connection, so that concurrent reads and searches run on separate connections.
+         * Takes precedence over {@link #withConnection(Connection)}. The data source is not closed
+         * with the memory store.
+         *
+         * @param dataSource The source of database connections, for example a {@link
+         *     ConnectionPool}.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withDataSource(DataSource dataSource) {
+            this.dataSource = Objects.requireNonNull(dataSource);
+            return this;
+        }
+
+        /**
+         * Sets how many prepared statements of the connection set with {@link
+         * #withConnection(Connection)} are kept for reuse. Defaults to {@value
+         * JDBCConnector#DEFAULT_STATEMENT_CACHE_SIZE}; 0 disables the cache. A {@link
+         * ConnectionPool} is configured with its own statement cache size.
+         *
+         * @param statementCacheSize The maximum number of cached statements.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withStatementCacheSize(int statementCacheSize) {
+            if (statementCacheSize < 0) {
+                throw new IllegalArgumentException("statementCacheSize must not be negative");
+            }
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        /**
+         * Sets how many key chunks of a large batch get or remove run at once on connections of the
+         * data source set with {@link #withDataSource(DataSource)}. Defaults to {@value
+         * JDBCConnector#DEFAULT_BATCH_CONCURRENCY}. The chunks of a batch run one after another on
+         * a connection set with {@link #withConnection(Connection)}.
+         *
+         * @param batchConcurrency The maximum number of chunks of one batch running at once.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withBatchConcurrency(int batchConcurrency) {
+            if (batchConcurrency <= 0) {
+                throw new IllegalArgumentException("batchConcurrency must be positive");
+            }
+            this.batchConcurrency = batchConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets how embeddings are stored in the memory table. Defaults to {@link
+         * EmbeddingStorageFormat#JSON}. The format applies to tables created by this store, so it
+         * must match the format of an existing memory table.
+         *
+         * @param embeddingFormat The physical representation of the embedding column.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withEmbeddingStorageFormat(EmbeddingStorageFormat embeddingFormat) {
+            this.embeddingFormat = Objects.requireNonNull(embeddingFormat);
+            return this;
+        }
+
+        /**
+         * Sets how timestamps are stored in the memory table. Defaults to {@link
+         * TimestampStorageFormat#ISO_8601}; {@link TimestampStorageFormat#EPOCH_MILLIS} indexes the
+         * timestamps for {@link JDBCMemoryStore#getModifiedSinceAsync}. The format applies to
+         * tables created by this store, so it must match the format of an existing memory table.
+         *
+         * @param timestampFormat The physical representation of the timestamp column.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withTimestampStorageFormat(TimestampStorageFormat timestampFormat) {
+            this.timestampFormat = Objects.requireNonNull(timestampFormat);
+            return this;
+        }
+
+        /**
+         * Sets how the entries of the collections are laid out in tables. Defaults to {@link
+         * TableLayout#SHARED_TABLE}. With {@link TableLayout#TABLE_PER_COLLECTION}, each collection
+         * is stored in a table of its own, so every collection adds its own statements to the
+         * statement cache. The layout must match the layout of an existing database.
+         *
+         * @param tableLayout How the entries of the collections are laid out in tables.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withTableLayout(TableLayout tableLayout) {
+            this.tableLayout = Objects.requireNonNull(tableLayout);
+            return this;
+        }
+
+        /**
+         * Enables a resident per-collection cache of embeddings. The cache of a collection is
+         * loaded on its first nearest-match search and kept up to date by the writes made through
+         * this store, so searches scan memory instead of reading the whole collection. Writes made
+         * to the database by other processes are not observed.
+         *
+         * @param vectorCacheEnabled Whether to cache embeddings in memory.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withVectorCache(boolean vectorCacheEnabled) {
+            this.vectorCacheEnabled = vectorCacheEnabled;
+            return this;
+        }
+
+        /**
+         * Enables the vector cache and holds its embeddings in direct memory outside the Java heap,
+         * of which the caches of all collections allocate at most the given budget; only the keys
+         * and norms of the rows stay on the heap. Memory is allocated in slabs of 4 MiB and kept
+         * for reuse when caches shrink. A collection whose embeddings do not fit in what remains of
+         * the budget is searched by reading it from the database until a collection is deleted. The
+         * memory is freed by {@link JDBCMemoryStore#close()}. The budget must also fit within the
+         * direct memory limit of the JVM, {@code -XX:MaxDirectMemorySize}.
+         *
+         * @param budgetBytes The maximum number of bytes of direct memory to allocate.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withOffHeapVectorCache(long budgetBytes) {
+            if (budgetBytes <= 0) {
+                throw new IllegalArgumentException("budgetBytes must be positive");
+            }
+            this.offHeapBudgetBytes = budgetBytes;
+            this.vectorCacheEnabled = true;
+            return this;
+        }
+
+        /**
+         * Searches a collection through an approximate nearest-neighbour index instead of comparing
+         * the query with every embedding. The index is restored from its persisted records on first
+         * use, indexing any entries it does not hold yet, and is updated and persisted by every
+         * write made through this store.
+         *
+         * @param collectionName The name of the collection to index.
+         * @param indexFactory Creates the empty index of the collection, for example {@code
+         *     HnswVectorIndex::new}.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withVectorIndex(
+                String collectionName, Supplier<? extends VectorIndex> indexFactory) {
+            this.vectorIndexFactories.put(
+                    Objects.requireNonNull(collectionName), Objects.requireNonNull(indexFactory));
+            return this;
+        }
+
+        /**
+         * Searches a collection through an inverted file (IVF) index, which reads only the rows of
+         * the clusters nearest to the query instead of the whole collection. The centroids of the
+         * clusters are stored in the database and loaded on first use; entries written through this
+         * store are assigned to their cluster as they are written. Until the collection holds
+         * enough entries to be trained, it is searched exhaustively. A collection with a vector
+         * index is searched through that instead.
+         *
+         * @param collectionName The name of the collection to index.
+         * @param options The number of clusters, the default nprobe and the retraining settings.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withIvfIndex(String collectionName, IvfIndexOptions options) {
+            this.ivfIndexOptions.put(
+                    Objects.requireNonNull(collectionName), Objects.requireNonNull(options));
+            return this;
+        }
+
+        /**
+         * Keeps a copy of the embeddings of each collection in a memory-mapped segment file in a
+         * directory, which nearest-match searches scan in place instead of reading the embeddings
+         * from the database. The memory table stores the offset of each entry in the file of its
+         * collection. The file of a collection is mapped on first use; entries written since by
+         * other processes or by stores without segments are then read from the database and
+         * appended. Removed entries are tombstoned and the file is compacted once they outnumber
+         * the live entries. Writes made to the database by other processes while the file is mapped
+         * are not observed. Collections with a vector index or an IVF index are searched through
+         * that instead. The directory must not be shared with other stores.
+         *
+         * @param directory The directory of the segment files, which is created if needed.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withVectorSegments(Path directory) {
+            this.vectorSegmentDirectory = Objects.requireNonNull(directory);
+            return this;
+        }
+
+        /**
+         * Sets the number of rows fetched per round trip when a collection is scanned, which bounds
+         * the rows held in memory by a nearest-match search that reads the whole collection.
+         * Defaults to {@value JDBCMemoryStore#DEFAULT_FETCH_SIZE}.
+         *
+         * @param fetchSize The number of rows to fetch per round trip; a non-positive value leaves
+         *     the driver default.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withFetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+            return this;
+        }
+
+        /**
+         * Spreads exhaustive nearest-match searches over the threads of a fork/join pool. The rows
+         * of a collection are scored in chunks of {@code chunkSize}, each keeping its own best
+         * matches, and the matches of all chunks are merged at the end. Collections of at most one
+         * chunk are scored by a single thread. Searches through a vector index are not affected.
+         * Disabled by default: the speedup over a sequential scan has not been measured on a
+         * multi-core host, and on a single core the parallel scan was about 5% slower. Compare both
+         * with {@code ParallelScanBenchmark} on the target hardware before enabling it.
+         *
+         * @param pool The pool to score on, for example {@link ForkJoinPool#commonPool()}.
+         * @param chunkSize The number of rows scored by one task, for example {@value
+         *     JDBCMemoryStore#DEFAULT_PARALLEL_SCAN_CHUNK_SIZE}.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withParallelScan(ForkJoinPool pool, int chunkSize) {
+            if (chunkSize <= 0) {
+                throw new IllegalArgumentException("chunkSize must be positive");
+            }
+            this.parallelScanPool = Objects.requireNonNull(pool);
+            this.parallelScanChunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Sets how many candidates per requested match a search of quantized embeddings or
+         * signatures rescores with their full-precision embeddings. More candidates raise the
+         * recall of the search at the cost of reading more embeddings. Defaults to {@value
+         * JDBCMemoryStore#DEFAULT_RESCORE_OVERSAMPLE} with {@link
+         * EmbeddingStorageFormat#INT8_QUANTIZED} and to {@value
+         * JDBCMemoryStore#DEFAULT_SIGNATURE_RESCORE_OVERSAMPLE} with {@link
+         * EmbeddingStorageFormat#BINARY_SIGNATURE}; not used with other formats.
+         *
+         * @param rescoreOversample The number of candidates rescored per requested match.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withRescoreOversample(int rescoreOversample) {
+            if (rescoreOversample <= 0) {
+                throw new IllegalArgumentException("rescoreOversample must be positive");
+            }
+            this.rescoreOversample = rescoreOversample;
+            return this;
+        }
+
+        /**
+         * Sets how often the store checks whether the collections in the database were changed by
+         * another process. The store keeps the names of the collections in memory to check writes
+         * against them; collections created by other processes are found anyway, but collections
+         * they delete are noticed only by this check. Disabled by default, which suits a database
+         * used by a single store.
+         *
+         * @param refreshInterval The time after which a check of a collection reads the version of
+         *     the collections in the database again.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withCollectionRefreshInterval(Duration refreshInterval) {
+            this.collectionRefreshInterval = Objects.requireNonNull(refreshInterval);
+            return this;
+        }
+
+        /**
+         * Buffers single upserts and writes them in batches, keeping only the latest version of a
+         * record upserted again before it is written. Gets of buffered records return the buffered
+         * version, and batch upserts and removals supersede buffered versions of their keys, but
+         * nearest-match searches see a record only once it is written; see {@link
+         * JDBCMemoryStore#flushAsync()}. Disabled by default.
+         *
+         * @param options The flush thresholds and the durability of upserts.
+         * @return The updated Builder instance to continue the building process for a
+         *     JDBCMemoryStore.
+         */
+        public Builder withWriteBehind(WriteBehindOptions options) {
+            this.writeBehindOptions = Objects.requireNonNull(options);
+            return this;
+        }
     }
 }
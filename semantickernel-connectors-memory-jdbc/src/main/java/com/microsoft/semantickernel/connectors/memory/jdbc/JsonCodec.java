@@ -0,0 +1,88 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.microsoft.semantickernel.ai.embeddings.Embedding;
+import com.microsoft.semantickernel.memory.MemoryException;
+import com.microsoft.semantickernel.memory.MemoryRecord;
+import com.microsoft.semantickernel.memory.MemoryRecordMetadata;
+import java.time.ZonedDateTime;
+import javax.annotation.Nullable;
+
+/**
+ * Shared Jackson readers and writers for the JSON stored with memory records. Creating an {@code
+ * ObjectMapper} per row discards its serializer caches every time, so the store reads and writes
+ * through these instances instead; they are immutable and safe for concurrent use.
+ */
+public final class JsonCodec {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectReader METADATA_READER =
+            MAPPER.readerFor(MemoryRecordMetadata.class);
+    private static final ObjectWriter WRITER = MAPPER.writer();
+
+    private JsonCodec() {}
+
+    /**
+     * Gets the factory of the shared mapper, for decoders that stream over the JSON themselves.
+     *
+     * @return The shared JSON factory.
+     */
+    public static JsonFactory factory() {
+        return MAPPER.getFactory();
+    }
+
+    /**
+     * Serializes the metadata of a record in the same format as {@code
+     * MemoryRecord.getSerializedMetadata()}.
+     *
+     * @param metadata The metadata to serialize.
+     * @return The JSON serialization of the metadata.
+     * @throws JsonProcessingException if the metadata cannot be serialized.
+     */
+    public static String writeMetadata(MemoryRecordMetadata metadata)
+            throws JsonProcessingException {
+        return WRITER.writeValueAsString(metadata);
+    }
+
+    /**
+     * Serializes an embedding in the same format as {@code MemoryRecord.getSerializedEmbedding()}.
+     *
+     * @param embedding The embedding to serialize.
+     * @return The JSON serialization of the embedding.
+     * @throws JsonProcessingException if the embedding cannot be serialized.
+     */
+    public static String writeEmbedding(Embedding embedding) throws JsonProcessingException {
+        return WRITER.writeValueAsString(embedding);
+    }
+
+    /**
+     * Creates a memory record from its serialized metadata with the same semantics as {@code
+     * MemoryRecord.fromJsonMetadata}.
+     *
+     * @param json The JSON serialization of the metadata.
+     * @param embedding The embedding of the record, or null for an empty embedding.
+     * @param key The key of the record.
+     * @param timestamp The timestamp of the record.
+     * @return The memory record.
+     * @throws JsonProcessingException if the metadata cannot be deserialized.
+     */
+    public static MemoryRecord readMemoryRecord(
+            String json,
+            @Nullable Embedding embedding,
+            String key,
+            @Nullable ZonedDateTime timestamp)
+            throws JsonProcessingException {
+        MemoryRecordMetadata metadata = METADATA_READER.readValue(json);
+        if (metadata == null) {
+            throw new MemoryException(
+                    MemoryException.ErrorCodes.UNABLE_TO_DESERIALIZE_MEMORY,
+                    "Unable to create memory record from serialized metadata");
+        }
+        return new MemoryRecord(
+                metadata, embedding != null ? embedding : Embedding.empty(), key, timestamp);
+    }
+}
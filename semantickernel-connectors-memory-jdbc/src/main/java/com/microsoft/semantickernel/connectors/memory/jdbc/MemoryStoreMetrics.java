@@ -0,0 +1,90 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import javax.annotation.Nullable;
+
+/**
+ * Receives measurements of the operations of a {@link JDBCMemoryStore}, its {@link SQLConnector}
+ * and its {@link ConnectionPool}, and of the memory of its off-heap vector cache. Every method does
+ * nothing by default, so an implementation only overrides what it records; {@link
+ * MicrometerMemoryStoreMetrics} records all of them in a Micrometer registry.
+ *
+ * <p>Methods are called on the threads that run the operations, concurrently, and should return
+ * quickly.
+ */
+public interface MemoryStoreMetrics {
+    /** Metrics that record nothing, used unless metrics are configured. */
+    MemoryStoreMetrics NOOP = new MemoryStoreMetrics() {};
+
+    /** The stages a nearest-match search spends its time in. */
+    enum SearchStage {
+        /**
+         * Reading rows from the database, including loading a vector cache or index. For a streamed
+         * scan this is the time not spent decoding or scoring, which is mostly waiting for rows.
+         */
+        FETCH,
+        /** Decoding stored embeddings into vectors. */
+        DECODE,
+        /** Comparing embeddings with the query and selecting the best matches. */
+        SCORE,
+        /** Building the returned records from the selected entries. */
+        MATERIALIZE
+    }
+
+    /**
+     * Records the completion of an operation.
+     *
+     * @param operation The name of the operation, such as {@code readBatchAsync}.
+     * @param durationNanos The time from the subscription to the completion, in nanoseconds.
+     * @param error The error the operation failed with, or null if it succeeded.
+     */
+    default void recordOperation(String operation, long durationNanos, @Nullable Throwable error) {}
+
+    /**
+     * Records the number of rows an operation read from the database.
+     *
+     * @param operation The name of the operation.
+     * @param rows The number of rows read.
+     */
+    default void recordRowsFetched(String operation, long rows) {}
+
+    /**
+     * Records the size of the stored metadata and embeddings an operation read for decoding.
+     *
+     * @param operation The name of the operation.
+     * @param bytes The number of bytes, counting one per character of text columns.
+     */
+    default void recordBytesDecoded(String operation, long bytes) {}
+
+    /**
+     * Records the number of keys or records passed to a batch operation.
+     *
+     * @param operation The name of the operation.
+     * @param size The size of the batch.
+     */
+    default void recordBatchSize(String operation, int size) {}
+
+    /**
+     * Records how long a caller waited to borrow a pooled connection.
+     *
+     * @param waitNanos The wait, in nanoseconds.
+     */
+    default void recordPoolWait(long waitNanos) {}
+
+    /**
+     * Records the time one nearest-match search spent in a stage.
+     *
+     * @param stage The stage.
+     * @param durationNanos The time spent in the stage, in nanoseconds.
+     */
+    default void recordSearchStage(SearchStage stage, long durationNanos) {}
+
+    /**
+     * Records the direct memory of the off-heap vector cache after it changed.
+     *
+     * @param reservedBytes The bytes allocated outside the Java heap, including free slabs kept for
+     *     reuse.
+     * @param usedBytes The bytes of the slabs that hold cached embeddings.
+     */
+    default void recordOffHeapMemory(long reservedBytes, long usedBytes) {}
+}
@@ -0,0 +1,161 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Records the measurements of a memory store in a Micrometer registry. Micrometer is an optional
+ * dependency of this module and must be on the class path to use this class.
+ *
+ * <p>Meters, tagged by {@code operation} unless noted:
+ *
+ * <ul>
+ *   <li>{@code sk.memory.jdbc.operation}: a timer with a percentile histogram, also tagged by
+ *       {@code outcome} ({@code success} or {@code error})
+ *   <li>{@code sk.memory.jdbc.errors}: a counter, also tagged by {@code exception}
+ *   <li>{@code sk.memory.jdbc.rows.fetched}, {@code sk.memory.jdbc.bytes.decoded} and {@code
+ *       sk.memory.jdbc.batch.size}: distribution summaries
+ *   <li>{@code sk.memory.jdbc.pool.wait}: a timer, not tagged
+ *   <li>{@code sk.memory.jdbc.search.stage}: a timer tagged by {@code stage} instead
+ *   <li>{@code sk.memory.jdbc.offheap.reserved} and {@code sk.memory.jdbc.offheap.used}: gauges of
+ *       the direct memory of the off-heap vector cache, not tagged
+ * </ul>
+ */
+public final class MicrometerMemoryStoreMetrics implements MemoryStoreMetrics {
+    private static final String PREFIX = "sk.memory.jdbc.";
+
+    private final MeterRegistry registry;
+    // Meters are looked up once per tag combination rather than on every measurement
+    private final ConcurrentMap<String, Timer> successTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> errorTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DistributionSummary> rowsFetched =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DistributionSummary> bytesDecoded =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DistributionSummary> batchSizes = new ConcurrentHashMap<>();
+    private final Timer poolWait;
+    private final Map<SearchStage, Timer> searchStages = new EnumMap<>(SearchStage.class);
+    private final AtomicLong offHeapReserved = new AtomicLong();
+    private final AtomicLong offHeapUsed = new AtomicLong();
+
+    /**
+     * Creates metrics that register their meters in a registry.
+     *
+     * @param registry The registry of the meters.
+     */
+    public MicrometerMemoryStoreMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.poolWait =
+                Timer.builder(PREFIX + "pool.wait")
+                        .description("Time spent waiting to borrow a pooled connection")
+                        .publishPercentileHistogram()
+                        .register(registry);
+        for (SearchStage stage : SearchStage.values()) {
+            searchStages.put(
+                    stage,
+                    Timer.builder(PREFIX + "search.stage")
+                            .description("Time a nearest-match search spent in a stage")
+                            .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                            .publishPercentileHistogram()
+                            .register(registry));
+        }
+        Gauge.builder(PREFIX + "offheap.reserved", offHeapReserved, AtomicLong::get)
+                .description("Direct memory allocated by the off-heap vector cache")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder(PREFIX + "offheap.used", offHeapUsed, AtomicLong::get)
+                .description("Direct memory holding embeddings in the off-heap vector cache")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    public void recordOperation(String operation, long durationNanos, @Nullable Throwable error) {
+        ConcurrentMap<String, Timer> timers = error == null ? successTimers : errorTimers;
+        timers.computeIfAbsent(
+                        operation,
+                        key ->
+                                Timer.builder(PREFIX + "operation")
+                                        .description("Latency of memory store operations")
+                                        .tag("operation", key)
+                                        .tag("outcome", error == null ? "success" : "error")
+                                        .publishPercentileHistogram()
+                                        .register(registry))
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        if (error != null) {
+            Counter.builder(PREFIX + "errors")
+                    .description("Failed memory store operations")
+                    .tag("operation", operation)
+                    .tag("exception", error.getClass().getSimpleName())
+                    .register(registry)
+                    .increment();
+        }
+    }
+
+    @Override
+    public void recordRowsFetched(String operation, long rows) {
+        summary(rowsFetched, "rows.fetched", "Rows read by an operation", null, operation)
+                .record(rows);
+    }
+
+    @Override
+    public void recordBytesDecoded(String operation, long bytes) {
+        summary(
+                        bytesDecoded,
+                        "bytes.decoded",
+                        "Size of the metadata and embeddings read by an operation",
+                        "bytes",
+                        operation)
+                .record(bytes);
+    }
+
+    @Override
+    public void recordBatchSize(String operation, int size) {
+        summary(batchSizes, "batch.size", "Keys or records passed to a batch", null, operation)
+                .record(size);
+    }
+
+    @Override
+    public void recordPoolWait(long waitNanos) {
+        poolWait.record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordSearchStage(SearchStage stage, long durationNanos) {
+        searchStages.get(stage).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordOffHeapMemory(long reservedBytes, long usedBytes) {
+        offHeapReserved.set(reservedBytes);
+        offHeapUsed.set(usedBytes);
+    }
+
+    private DistributionSummary summary(
+            ConcurrentMap<String, DistributionSummary> summaries,
+            String name,
+            String description,
+            @Nullable String baseUnit,
+            String operation) {
+        return summaries.computeIfAbsent(
+                operation,
+                key ->
+                        DistributionSummary.builder(PREFIX + name)
+                                .description(description)
+                                .baseUnit(baseUnit)
+                                .tag("operation", key)
+                                .register(registry));
+    }
+}
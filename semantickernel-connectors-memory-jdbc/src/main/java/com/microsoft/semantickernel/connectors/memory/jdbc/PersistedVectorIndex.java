@@ -0,0 +1,104 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+
+/**
+ * Binds a {@link VectorIndex} to a collection and keeps its persisted records in step with it.
+ * Mutations and the write of the records they change are serialized, so records of the same key can
+ * never be stored out of order.
+ */
+class PersistedVectorIndex {
+    private final String collectionName;
+    private final VectorIndex index;
+    private final SQLConnector connector;
+
+    PersistedVectorIndex(String collectionName, VectorIndex index, SQLConnector connector) {
+        this.collectionName = collectionName;
+        this.index = index;
+        this.connector = connector;
+    }
+
+    /**
+     * Restores the index from the memory table and its persisted records, then stores the records
+     * of any entries that were not indexed yet.
+     *
+     * @return A Mono emitting this index once it is ready.
+     */
+    Mono<PersistedVectorIndex> loadAsync() {
+        return Mono.zip(
+                        connector
+                                .streamAllAsync(collectionName, 0, EntryProjection.EMBEDDING)
+                                .collectList(),
+                        connector.readVectorIndexAsync(collectionName))
+                .flatMap(
+                        loaded -> {
+                            Map<String, float[]> vectors = new HashMap<>();
+                            for (DatabaseEntry entry : loaded.getT1()) {
+                                float[] vector = JDBCMemoryStore.entryToVector(entry);
+                                if (vector != null && vector.length > 0) {
+                                    vectors.put(entry.getKey(), vector);
+                                }
+                            }
+                            return update(() -> index.restore(vectors, loaded.getT2()));
+                        })
+                .thenReturn(this);
+    }
+
+    /**
+     * Indexes the given embeddings. Empty embeddings remove their key from the index.
+     *
+     * @param vectors The embeddings by key.
+     * @return A Mono representing the completion of the update and of its persistence.
+     */
+    Mono<Void> addAsync(Map<String, float[]> vectors) {
+        return update(
+                () -> {
+                    for (Map.Entry<String, float[]> vector : vectors.entrySet()) {
+                        if (vector.getValue().length == 0) {
+                            index.remove(Collections.singleton(vector.getKey()));
+                        } else {
+                            index.add(vector.getKey(), vector.getValue());
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Removes the given keys from the index.
+     *
+     * @param keys The keys to remove.
+     * @return A Mono representing the completion of the update and of its persistence.
+     */
+    Mono<Void> removeAsync(Collection<String> keys) {
+        return update(() -> index.remove(keys));
+    }
+
+    List<Tuple2<String, Float>> search(
+            float[] query, int limit, float minRelevanceScore, int efSearch) {
+        return index.search(query, limit, minRelevanceScore, efSearch);
+    }
+
+    private Mono<Void> update(Runnable mutation) {
+        return Mono.<Void>fromRunnable(
+                        () -> {
+                            synchronized (this) {
+                                mutation.run();
+                                Map<String, byte[]> changes = index.drainChanges();
+                                if (!changes.isEmpty()) {
+                                    connector
+                                            .upsertVectorIndexBatchAsync(collectionName, changes)
+                                            .block();
+                                }
+                            }
+                        })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -1,9 +1,13 @@
 // Copyright (c) Microsoft. All rights reserved.
 package com.microsoft.semantickernel.connectors.memory.jdbc;
 
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface SQLConnector {
@@ -40,6 +44,23 @@ public interface SQLConnector {
             String embedding,
             ZonedDateTime timestamp);
 
+    /**
+     * Asynchronously inserts or updates an entry whose embedding is given as a primitive vector.
+     *
+     * @param collection The name of the collection to insert the entry into.
+     * @param key The key identifying the entry.
+     * @param metadata The metadata associated with the entry.
+     * @param vector The embedding vector associated with the entry.
+     * @param timestamp The timestamp of the insertion.
+     * @return A Mono representing the completion of the insertion operation.
+     */
+    Mono<String> upsertAsync(
+            String collection,
+            String key,
+            String metadata,
+            float[] vector,
+            ZonedDateTime timestamp);
+
     /**
      * Asynchronously inserts or updates a batch of entries.
      *
@@ -63,6 +84,17 @@ public interface SQLConnector {
      */
     Mono<List<String>> getCollectionsAsync();
 
+    /**
+     * Reads a version of the set of collections that changes whenever a collection is created or
+     * deleted, so that a cached list of collections can be checked for staleness without reading it
+     * again.
+     *
+     * @return A Mono emitting the version, or empty if the connector does not track versions.
+     */
+    default Mono<Long> getCollectionsVersionAsync() {
+        return Mono.empty();
+    }
+
     /**
      * Asynchronously reads all entries within a collection.
      *
@@ -71,6 +103,56 @@ public interface SQLConnector {
      */
     Mono<List<DatabaseEntry>> readAllAsync(String collectionName);
 
+    /**
+     * Streams all entries within a collection as they are read. Rows are fetched from the database
+     * only as fast as they are requested, and cancelling the subscription releases the underlying
+     * cursor.
+     *
+     * @param collectionName The name of the collection to read from.
+     * @param fetchSize The number of rows the driver should fetch per round trip; a non-positive
+     *     value leaves the driver default.
+     * @return A Flux emitting the entries of the collection.
+     */
+    Flux<DatabaseEntry> streamAllAsync(String collectionName, int fetchSize);
+
+    /**
+     * Streams the given columns of all entries within a collection as they are read. Connectors
+     * that cannot project columns read all of them.
+     *
+     * @param collectionName The name of the collection to read from.
+     * @param fetchSize The number of rows the driver should fetch per round trip; a non-positive
+     *     value leaves the driver default.
+     * @param projection The columns to read.
+     * @return A Flux emitting the entries of the collection.
+     */
+    default Flux<DatabaseEntry> streamAllAsync(
+            String collectionName, int fetchSize, EntryProjection projection) {
+        return streamAllAsync(collectionName, fetchSize);
+    }
+
+    /**
+     * Streams the entries of a collection whose timestamp is at or after an instant, in ascending
+     * order of their timestamps, so that a replica can synchronize incrementally from the last
+     * timestamp it has seen. Entries without a timestamp are not read. Connectors that cannot query
+     * by timestamp read the whole collection and filter it.
+     *
+     * @param collectionName The name of the collection to read from.
+     * @param since The earliest modification time of the entries to read.
+     * @param projection The columns to read, which must include the timestamp.
+     * @return A Flux emitting the entries modified since the instant.
+     */
+    default Flux<DatabaseEntry> readModifiedSinceAsync(
+            String collectionName, Instant since, EntryProjection projection) {
+        return streamAllAsync(collectionName, 0, projection)
+                .filter(
+                        entry ->
+                                entry.getTimestamp() != null
+                                        && !entry.getTimestamp().toInstant().isBefore(since))
+                .sort(
+                        Comparator.comparing(
+                                (DatabaseEntry entry) -> entry.getTimestamp().toInstant()));
+    }
+
     /**
      * Asynchronously reads a specific entry within a collection.
      *
@@ -80,6 +162,20 @@ public interface SQLConnector {
      */
     Mono<DatabaseEntry> readAsync(String collectionName, String key);
 
+    /**
+     * Asynchronously reads the given columns of a specific entry within a collection. Connectors
+     * that cannot project columns read all of them.
+     *
+     * @param collectionName The name of the collection to read from.
+     * @param key The key identifying the entry to read.
+     * @param projection The columns to read.
+     * @return A Mono emitting a DatabaseEntry object representing the entry.
+     */
+    default Mono<DatabaseEntry> readAsync(
+            String collectionName, String key, EntryProjection projection) {
+        return readAsync(collectionName, key);
+    }
+
     /**
      * Asynchronously reads a batch of entries within a collection.
      *
@@ -89,6 +185,20 @@ public interface SQLConnector {
      */
     Mono<Collection<DatabaseEntry>> readBatchAsync(String collectionName, Collection<String> keys);
 
+    /**
+     * Asynchronously reads the given columns of a batch of entries within a collection. Connectors
+     * that cannot project columns read all of them.
+     *
+     * @param collectionName The name of the collection to read from.
+     * @param keys The keys identifying the entries to read.
+     * @param projection The columns to read.
+     * @return A Mono emitting a list of DatabaseEntry objects representing the entries.
+     */
+    default Mono<Collection<DatabaseEntry>> readBatchAsync(
+            String collectionName, Collection<String> keys, EntryProjection projection) {
+        return readBatchAsync(collectionName, keys);
+    }
+
     /**
      * Asynchronously deletes a collection.
      *
@@ -115,6 +225,100 @@ public interface SQLConnector {
      */
     Mono<Void> deleteBatchAsync(String collectionName, Collection<String> keys);
 
+    /**
+     * Asynchronously reads the persisted vector index records of a collection.
+     *
+     * @param collectionName The name of the collection whose index records to read.
+     * @return A Mono emitting the index records by key.
+     */
+    Mono<Map<String, byte[]>> readVectorIndexAsync(String collectionName);
+
+    /**
+     * Asynchronously inserts, updates or deletes a batch of vector index records of a collection.
+     *
+     * @param collectionName The name of the collection the index records belong to.
+     * @param records The index records by key; a null record deletes the key's record.
+     * @return A Mono representing the completion of the operation.
+     */
+    Mono<Void> upsertVectorIndexBatchAsync(String collectionName, Map<String, byte[]> records);
+
+    /**
+     * Streams the given columns of the entries of a collection that are assigned to any of the
+     * given clusters of its IVF index, along with the entries assigned to no cluster. Connectors
+     * that cannot query by cluster read the whole collection, which a search ranks all the same.
+     *
+     * @param collectionName The name of the collection to read from.
+     * @param clusterIds The clusters to read.
+     * @param fetchSize The number of rows the driver should fetch per round trip; a non-positive
+     *     value leaves the driver default.
+     * @param projection The columns to read.
+     * @return A Flux emitting the entries of the clusters.
+     */
+    default Flux<DatabaseEntry> streamClustersAsync(
+            String collectionName,
+            Collection<Integer> clusterIds,
+            int fetchSize,
+            EntryProjection projection) {
+        return streamAllAsync(collectionName, fetchSize, projection);
+    }
+
+    /**
+     * Asynchronously reads the centroids of the IVF index of a collection.
+     *
+     * @param collectionName The name of the collection whose centroids to read.
+     * @return A Mono emitting the centroids by cluster, which is empty if the index is not trained.
+     */
+    Mono<Map<Integer, float[]>> readCentroidsAsync(String collectionName);
+
+    /**
+     * Asynchronously replaces the centroids of the IVF index of a collection. The entries keep
+     * their clusters until they are assigned again.
+     *
+     * @param collectionName The name of the collection whose centroids to replace.
+     * @param centroids The new centroids by cluster.
+     * @return A Mono representing the completion of the operation.
+     */
+    Mono<Void> replaceCentroidsAsync(String collectionName, Map<Integer, float[]> centroids);
+
+    /**
+     * Asynchronously assigns a batch of entries of a collection to clusters of its IVF index.
+     * Entries that do not exist are ignored, and an entry that is upserted again loses its cluster.
+     *
+     * @param collectionName The name of the collection the entries belong to.
+     * @param clusterIds The clusters by key.
+     * @return A Mono representing the completion of the operation.
+     */
+    Mono<Void> assignClustersAsync(String collectionName, Map<String, Integer> clusterIds);
+
+    /**
+     * Asynchronously counts the entries of a collection per cluster of its IVF index.
+     *
+     * @param collectionName The name of the collection whose entries to count.
+     * @return A Mono emitting the number of entries by cluster; entries assigned to no cluster are
+     *     counted under -1.
+     */
+    Mono<Map<Integer, Long>> countClustersAsync(String collectionName);
+
+    /**
+     * Asynchronously reads the offsets of the slots of the entries of a collection in its vector
+     * segment file.
+     *
+     * @param collectionName The name of the collection whose offsets to read.
+     * @return A Mono emitting the offsets by key, -1 for entries that have no slot.
+     */
+    Mono<Map<String, Long>> readSegmentOffsetsAsync(String collectionName);
+
+    /**
+     * Asynchronously stores the offsets of the slots of a batch of entries of a collection in its
+     * vector segment file. Entries that do not exist are ignored, and an entry that is upserted
+     * again loses its offset.
+     *
+     * @param collectionName The name of the collection the entries belong to.
+     * @param offsets The offsets by key.
+     * @return A Mono representing the completion of the operation.
+     */
+    Mono<Void> assignSegmentOffsetsAsync(String collectionName, Map<String, Long> offsets);
+
     /**
      * Asynchronously deletes all empty entries within a collection.
      *
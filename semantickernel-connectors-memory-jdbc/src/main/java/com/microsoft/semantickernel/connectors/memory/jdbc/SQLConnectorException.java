@@ -46,7 +46,8 @@ public class SQLConnectorException extends SKException {
     }
 
     public enum ErrorCodes {
-        SQL_ERROR("SQL error");
+        SQL_ERROR("SQL error"),
+        INVALID_EMBEDDING("Invalid embedding");
 
         final String message;
 
@@ -0,0 +1,132 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Kernels over float vectors in plain Java, unrolled by four with independent accumulators so that
+ * the additions of consecutive components do not wait on each other.
+ */
+final class ScalarFloatKernels implements FloatVectorKernels {
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int bound = length & ~3;
+        int i = 0;
+        for (; i < bound; i += 4) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+            sum1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            sum2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            sum3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            sum0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    @Override
+    public float dot(float[] a, FloatBuffer b, int bOffset, int length) {
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int bound = length & ~3;
+        int i = 0;
+        for (; i < bound; i += 4) {
+            sum0 += a[i] * b.get(bOffset + i);
+            sum1 += a[i + 1] * b.get(bOffset + i + 1);
+            sum2 += a[i + 2] * b.get(bOffset + i + 2);
+            sum3 += a[i + 3] * b.get(bOffset + i + 3);
+        }
+        for (; i < length; i++) {
+            sum0 += a[i] * b.get(bOffset + i);
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    @Override
+    public float cosine(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float dot0 = 0;
+        float dot1 = 0;
+        float normA0 = 0;
+        float normA1 = 0;
+        float normB0 = 0;
+        float normB1 = 0;
+        int bound = length & ~1;
+        int i = 0;
+        for (; i < bound; i += 2) {
+            float a0 = a[aOffset + i];
+            float b0 = b[bOffset + i];
+            float a1 = a[aOffset + i + 1];
+            float b1 = b[bOffset + i + 1];
+            dot0 += a0 * b0;
+            dot1 += a1 * b1;
+            normA0 += a0 * a0;
+            normA1 += a1 * a1;
+            normB0 += b0 * b0;
+            normB1 += b1 * b1;
+        }
+        if (i < length) {
+            float a0 = a[aOffset + i];
+            float b0 = b[bOffset + i];
+            dot0 += a0 * b0;
+            normA0 += a0 * a0;
+            normB0 += b0 * b0;
+        }
+        return SimilarityKernels.cosineFromSums(dot0 + dot1, normA0 + normA1, normB0 + normB1);
+    }
+
+    @Override
+    public float squaredDistance(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int bound = length & ~3;
+        int i = 0;
+        for (; i < bound; i += 4) {
+            float d0 = a[aOffset + i] - b[bOffset + i];
+            float d1 = a[aOffset + i + 1] - b[bOffset + i + 1];
+            float d2 = a[aOffset + i + 2] - b[bOffset + i + 2];
+            float d3 = a[aOffset + i + 3] - b[bOffset + i + 3];
+            sum0 += d0 * d0;
+            sum1 += d1 * d1;
+            sum2 += d2 * d2;
+            sum3 += d3 * d3;
+        }
+        for (; i < length; i++) {
+            float d = a[aOffset + i] - b[bOffset + i];
+            sum0 += d * d;
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    @Override
+    public float squaredDistance(float[] a, FloatBuffer b, int bOffset, int length) {
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int bound = length & ~3;
+        int i = 0;
+        for (; i < bound; i += 4) {
+            float d0 = a[i] - b.get(bOffset + i);
+            float d1 = a[i + 1] - b.get(bOffset + i + 1);
+            float d2 = a[i + 2] - b.get(bOffset + i + 2);
+            float d3 = a[i + 3] - b.get(bOffset + i + 3);
+            sum0 += d0 * d0;
+            sum1 += d1 * d1;
+            sum2 += d2 * d2;
+            sum3 += d3 * d3;
+        }
+        for (; i < length; i++) {
+            float d = a[i] - b.get(bOffset + i);
+            sum0 += d * d;
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+}
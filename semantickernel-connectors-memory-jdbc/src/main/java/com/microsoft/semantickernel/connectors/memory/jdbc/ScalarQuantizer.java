@@ -0,0 +1,164 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import javax.annotation.Nullable;
+
+/**
+ * Quantizes embeddings to one signed byte per component, which a search scans in a quarter of the
+ * bytes of float32 components at the cost of an approximate similarity.
+ *
+ * <p>Each vector is quantized with its own affine mapping: the range from its smallest to its
+ * largest component is split into 256 steps, and a component {@code x} is stored as the code {@code
+ * c} nearest to {@code (x - offset) / scale - 128}. The encoded form is a little-endian int32
+ * dimension header, the float32 scale, offset and L2 norm of the vector, and the codes. Carrying
+ * the norm lets a search compute cosine similarities from the encoded form alone.
+ */
+public final class ScalarQuantizer {
+
+    /** Size in bytes of the dimension, scale, offset and norm that prefix the codes of a vector. */
+    public static final int HEADER_BYTES = Integer.BYTES + 3 * Float.BYTES;
+
+    private static final int LEVELS = 255;
+    private static final int CODE_SHIFT = 128;
+
+    private ScalarQuantizer() {}
+
+    /**
+     * Quantizes a vector.
+     *
+     * @param vector The vector to quantize.
+     * @return The encoded codes of the vector with their scale, offset and norm.
+     */
+    public static byte[] encode(float[] vector) {
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (float value : vector) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        // A constant vector is encoded exactly by its offset
+        float scale = vector.length > 0 && max > min ? (max - min) / LEVELS : 1f;
+        float offset = vector.length > 0 ? min : 0f;
+        ByteBuffer buffer =
+                ByteBuffer.allocate(HEADER_BYTES + vector.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(vector.length);
+        buffer.putFloat(scale);
+        buffer.putFloat(offset);
+        buffer.putFloat(SimilarityKernels.norm(vector));
+        for (float value : vector) {
+            int level = Math.round((value - offset) / scale);
+            buffer.put((byte) (Math.max(0, Math.min(LEVELS, level)) - CODE_SHIFT));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Reconstructs the approximate vector of codes produced by {@link #encode(float[])}.
+     *
+     * @param bytes The encoded codes.
+     * @return The approximate vector, or null if there are no bytes to decode.
+     */
+    @Nullable
+    public static float[] decode(@Nullable byte[] bytes) {
+        if (bytes == null || bytes.length == 0) return null;
+        ByteBuffer buffer = header(bytes);
+        int dimension = buffer.getInt();
+        float scale = buffer.getFloat();
+        float offset = buffer.getFloat();
+        buffer.getFloat();
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = offset + scale * (buffer.get() + CODE_SHIFT);
+        }
+        return vector;
+    }
+
+    /**
+     * Quantizes a query symmetrically, so that its similarities with quantized vectors are computed
+     * on the codes alone.
+     *
+     * @param query The query vector.
+     * @return The quantized query.
+     */
+    public static Query quantizeQuery(float[] query) {
+        float maxAbs = 0;
+        for (float value : query) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+        float scale = maxAbs > 0 ? maxAbs / 127 : 1f;
+        byte[] codes = new byte[query.length];
+        int codeSum = 0;
+        for (int i = 0; i < query.length; i++) {
+            codes[i] = (byte) Math.round(query[i] / scale);
+            codeSum += codes[i];
+        }
+        return new Query(codes, scale, codeSum);
+    }
+
+    private static ByteBuffer header(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int dimension = bytes.length >= HEADER_BYTES ? buffer.getInt(0) : -1;
+        if (dimension < 0 || bytes.length != HEADER_BYTES + dimension) {
+            throw new SQLConnectorException(
+                    SQLConnectorException.ErrorCodes.INVALID_EMBEDDING,
+                    "Quantized embedding of " + bytes.length + " bytes does not match its header");
+        }
+        return buffer;
+    }
+
+    /** A query quantized to one signed byte per component with a single scale. */
+    public static final class Query {
+        private final byte[] codes;
+        private final float scale;
+        private final int codeSum;
+
+        private Query(byte[] codes, float scale, int codeSum) {
+            this.codes = codes;
+            this.scale = scale;
+            this.codeSum = codeSum;
+        }
+
+        /**
+         * Approximates the dot product of the query with a quantized vector from an int8 dot
+         * product of their codes.
+         *
+         * @param quantized The encoded codes of the vector.
+         * @return The approximate dot product.
+         * @throws IllegalArgumentException if the dimensions differ.
+         */
+        public float dot(byte[] quantized) {
+            return dot(header(quantized), quantized);
+        }
+
+        /**
+         * Approximates the cosine similarity of the query with a quantized vector, which is exact
+         * up to the quantization error if the query has unit length.
+         *
+         * @param quantized The encoded codes of the vector.
+         * @return The approximate dot product divided by the norm of the vector.
+         * @throws IllegalArgumentException if the dimensions differ or the vector has a zero norm.
+         */
+        public float unitCosine(byte[] quantized) {
+            ByteBuffer buffer = header(quantized);
+            float norm = buffer.getFloat(Integer.BYTES + 2 * Float.BYTES);
+            if (norm == 0) {
+                throw new IllegalArgumentException("Vectors cannot have zero norm");
+            }
+            return dot(buffer, quantized) / norm;
+        }
+
+        private float dot(ByteBuffer buffer, byte[] quantized) {
+            if (buffer.getInt() != codes.length) {
+                throw new IllegalArgumentException("Vectors lengths must be equal");
+            }
+            float vectorScale = buffer.getFloat();
+            float offset = buffer.getFloat();
+            int codeDot = SimilarityKernels.dot(codes, 0, quantized, HEADER_BYTES, codes.length);
+            // x = offset + vectorScale * (c + 128) for each component x of code c
+            return scale
+                    * (offset * codeSum + vectorScale * (codeDot + (float) CODE_SHIFT * codeSum));
+        }
+    }
+}
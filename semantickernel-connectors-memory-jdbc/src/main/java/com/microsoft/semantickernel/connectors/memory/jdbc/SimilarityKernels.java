@@ -0,0 +1,245 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.nio.FloatBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Similarity functions over primitive float vectors used by the search path.
+ *
+ * <p>The float kernels run on the incubating Vector API when the running JDK provides it, which
+ * takes JDK 17 or later started with {@code --add-modules jdk.incubator.vector}, and on unrolled
+ * scalar loops otherwise. The two may round differently in the last bits of a result.
+ */
+public final class SimilarityKernels {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimilarityKernels.class);
+    private static final String VECTOR_API_KERNELS =
+            SimilarityKernels.class.getPackage().getName() + ".VectorApiFloatKernels";
+
+    static final FloatVectorKernels KERNELS = loadKernels();
+
+    private SimilarityKernels() {}
+
+    /**
+     * Gets whether the float kernels run on the Vector API.
+     *
+     * @return True if the Vector API is used, false if the scalar loops are.
+     */
+    public static boolean isVectorized() {
+        return !(KERNELS instanceof ScalarFloatKernels);
+    }
+
+    /**
+     * Computes the dot product of two vectors of the same length.
+     *
+     * @param a The first vector.
+     * @param b The second vector.
+     * @return The dot product.
+     */
+    public static float dot(float[] a, float[] b) {
+        checkLengths(a, b);
+        return KERNELS.dot(a, 0, b, 0, a.length);
+    }
+
+    /**
+     * Computes the dot product of a vector and a vector of the same length stored in a float
+     * buffer, such as a view of direct or memory-mapped memory.
+     *
+     * @param a The first vector.
+     * @param buffer The buffer holding the second vector.
+     * @param offset The index in the buffer of the first component of the second vector.
+     * @return The dot product.
+     */
+    public static float dot(float[] a, FloatBuffer buffer, int offset) {
+        return KERNELS.dot(a, buffer, offset, a.length);
+    }
+
+    /**
+     * Computes the cosine similarity of two vectors with the same semantics as {@code
+     * Embedding.cosineSimilarity}.
+     *
+     * @param a The first vector.
+     * @param b The second vector.
+     * @return The cosine similarity.
+     * @throws IllegalArgumentException if the lengths differ or either vector has a zero norm.
+     */
+    public static float cosine(float[] a, float[] b) {
+        checkLengths(a, b);
+        return cosine(a, b, 0);
+    }
+
+    /**
+     * Computes the cosine similarity of a vector and a row of a row-major matrix, where the row has
+     * the same length as the vector.
+     *
+     * @param a The vector.
+     * @param matrix The matrix holding the second vector.
+     * @param offset The index in the matrix of the first component of the second vector.
+     * @return The cosine similarity.
+     * @throws IllegalArgumentException if either vector has a zero norm.
+     */
+    public static float cosine(float[] a, float[] matrix, int offset) {
+        return KERNELS.cosine(a, 0, matrix, offset, a.length);
+    }
+
+    /**
+     * Computes the Euclidean distance of two vectors of the same length.
+     *
+     * @param a The first vector.
+     * @param b The second vector.
+     * @return The Euclidean distance.
+     * @throws IllegalArgumentException if the lengths differ.
+     */
+    public static float l2Distance(float[] a, float[] b) {
+        checkLengths(a, b);
+        return (float) Math.sqrt(KERNELS.squaredDistance(a, 0, b, 0, a.length));
+    }
+
+    /**
+     * Computes the Euclidean distance of a vector and a vector of the same length stored in a float
+     * buffer.
+     *
+     * @param a The first vector.
+     * @param buffer The buffer holding the second vector.
+     * @param offset The index in the buffer of the first component of the second vector.
+     * @return The Euclidean distance.
+     */
+    public static float l2Distance(float[] a, FloatBuffer buffer, int offset) {
+        return (float) Math.sqrt(KERNELS.squaredDistance(a, buffer, offset, a.length));
+    }
+
+    /**
+     * Computes the L2 norm of a vector.
+     *
+     * @param vector The vector.
+     * @return The L2 norm.
+     */
+    public static float norm(float[] vector) {
+        return (float) Math.sqrt(KERNELS.dot(vector, 0, vector, 0, vector.length));
+    }
+
+    /**
+     * Scales a vector to unit length.
+     *
+     * @param vector The vector.
+     * @return A new vector with the direction of the given one and a norm of 1.
+     * @throws IllegalArgumentException if the vector has a zero norm.
+     */
+    public static float[] normalize(float[] vector) {
+        float norm = norm(vector);
+        if (norm == 0) {
+            throw new IllegalArgumentException("Vectors cannot have zero norm");
+        }
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] / norm;
+        }
+        return unit;
+    }
+
+    /**
+     * Computes the cosine similarity of a unit-length query and a vector whose norm is already
+     * known, with a single dot product.
+     *
+     * @param unitQuery The query, scaled to unit length.
+     * @param vector The second vector.
+     * @param norm The L2 norm of the second vector.
+     * @return The cosine similarity.
+     * @throws IllegalArgumentException if the lengths differ or the second vector has a zero norm.
+     */
+    public static float unitCosine(float[] unitQuery, float[] vector, float norm) {
+        checkLengths(unitQuery, vector);
+        return unitCosine(unitQuery, vector, 0, norm);
+    }
+
+    /**
+     * Computes the cosine similarity of a unit-length query and a row of a row-major matrix whose
+     * norm is already known, with a single dot product.
+     *
+     * @param unitQuery The query, scaled to unit length.
+     * @param matrix The matrix holding the second vector.
+     * @param offset The index in the matrix of the first component of the second vector.
+     * @param norm The L2 norm of the second vector.
+     * @return The cosine similarity.
+     * @throws IllegalArgumentException if the second vector has a zero norm.
+     */
+    public static float unitCosine(float[] unitQuery, float[] matrix, int offset, float norm) {
+        if (norm == 0) {
+            throw new IllegalArgumentException("Vectors cannot have zero norm");
+        }
+        return KERNELS.dot(unitQuery, 0, matrix, offset, unitQuery.length) / norm;
+    }
+
+    /**
+     * Computes the cosine similarity of a unit-length query and a vector stored in a float buffer,
+     * such as a view of a memory-mapped file, whose norm is already known.
+     *
+     * @param unitQuery The query, scaled to unit length.
+     * @param buffer The buffer holding the second vector.
+     * @param offset The index in the buffer of the first component of the second vector.
+     * @param norm The L2 norm of the second vector.
+     * @return The cosine similarity.
+     * @throws IllegalArgumentException if the second vector has a zero norm.
+     */
+    public static float unitCosine(float[] unitQuery, FloatBuffer buffer, int offset, float norm) {
+        if (norm == 0) {
+            throw new IllegalArgumentException("Vectors cannot have zero norm");
+        }
+        return KERNELS.dot(unitQuery, buffer, offset, unitQuery.length) / norm;
+    }
+
+    /**
+     * Computes the dot product of two int8 vectors stored in byte arrays, accumulated exactly in an
+     * int. Vectors of up to 131072 components cannot overflow.
+     *
+     * @param a The array holding the first vector.
+     * @param aOffset The index in {@code a} of the first component of the first vector.
+     * @param b The array holding the second vector.
+     * @param bOffset The index in {@code b} of the first component of the second vector.
+     * @param length The number of components of the vectors.
+     * @return The dot product.
+     */
+    public static int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    // Completes a cosine similarity from the dot product and squared norms summed by a kernel
+    static float cosineFromSums(float dot, float squaredNormA, float squaredNormB) {
+        if (squaredNormA == 0 || squaredNormB == 0) {
+            throw new IllegalArgumentException("Vectors cannot have zero norm");
+        }
+        return (float) (dot / (Math.sqrt(squaredNormA) * Math.sqrt(squaredNormB)));
+    }
+
+    // Probes for the Vector API before loading the kernels compiled against it, which are absent
+    // from builds on JDKs before 17
+    private static FloatVectorKernels loadKernels() {
+        try {
+            Class.forName("jdk.incubator.vector.FloatVector");
+            FloatVectorKernels kernels =
+                    (FloatVectorKernels)
+                            Class.forName(VECTOR_API_KERNELS)
+                                    .getDeclaredConstructor()
+                                    .newInstance();
+            // Fails here rather than in a search if the API differs from the one compiled against
+            float[] probe = new float[64];
+            kernels.dot(probe, 0, probe, 0, probe.length);
+            LOGGER.debug("Similarity kernels use the Vector API");
+            return kernels;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            LOGGER.debug("Similarity kernels use scalar loops; the Vector API is unavailable", e);
+            return new ScalarFloatKernels();
+        }
+    }
+
+    private static void checkLengths(float[] a, float[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Vectors lengths must be equal");
+        }
+    }
+}
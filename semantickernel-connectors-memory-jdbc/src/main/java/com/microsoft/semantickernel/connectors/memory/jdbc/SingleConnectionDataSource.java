@@ -0,0 +1,117 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nullable;
+
+/**
+ * Hands out the same connection to every caller, wrapped so that closing it has no effect and its
+ * prepared statements are cached. This keeps connectors built over a single connection working like
+ * connectors built over a pool, while the connection itself stays open until its owner closes it.
+ *
+ * <p>Callers also share the auto-commit mode of the connection, so a statement run while a
+ * transaction has switched it out of auto-commit mode would be committed or rolled back with that
+ * transaction. {@link #getConnection()} therefore hands the connection to one thread at a time,
+ * until it closes its wrapper. Streamed reads use {@link #getSharedConnection()} instead, because
+ * they hold the connection until their last row is read, possibly on another thread.
+ */
+final class SingleConnectionDataSource extends AbstractDataSource {
+    private final StatementCacheStatistics statistics = new StatementCacheStatistics();
+    @Nullable private final StatementCache statements;
+    private final ReentrantLock lock = new ReentrantLock();
+    @Nullable private final Connection exclusive;
+    @Nullable private final Connection shared;
+
+    SingleConnectionDataSource(@Nullable Connection connection, int statementCacheSize) {
+        if (connection != null) {
+            this.statements = new StatementCache(connection, statementCacheSize, statistics);
+            this.exclusive = unclosable(connection, statements, lock);
+            this.shared = unclosable(connection, statements, null);
+        } else {
+            this.statements = null;
+            this.exclusive = null;
+            this.shared = null;
+        }
+    }
+
+    /**
+     * Gets the connection for the calling thread, waiting until no other thread holds it. The
+     * connection is released when the caller closes it, and may be obtained again by the same
+     * thread before then.
+     *
+     * @return The connection.
+     * @throws SQLException if no connection was configured.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (exclusive == null) {
+            throw new SQLException("No connection was configured");
+        }
+        lock.lock();
+        return exclusive;
+    }
+
+    /**
+     * Gets the connection without waiting for the thread that holds it, for reads that must not
+     * block writes while they stream their rows.
+     *
+     * @return The connection.
+     * @throws SQLException if no connection was configured.
+     */
+    Connection getSharedConnection() throws SQLException {
+        if (shared == null) {
+            throw new SQLException("No connection was configured");
+        }
+        return shared;
+    }
+
+    @Override
+    StatementCacheStatistics getStatementCacheStatistics() {
+        return statistics;
+    }
+
+    /** Closes the cached statements, leaving the connection to its owner. */
+    void close() {
+        if (statements != null) {
+            statements.close();
+        }
+    }
+
+    // Wraps the connection so that closing it only releases the lock, if one is given
+    private static Connection unclosable(
+            Connection connection, StatementCache statements, @Nullable ReentrantLock lock) {
+        return (Connection)
+                Proxy.newProxyInstance(
+                        Connection.class.getClassLoader(),
+                        new Class<?>[] {Connection.class},
+                        (proxy, method, args) -> {
+                            switch (method.getName()) {
+                                case "close":
+                                    if (lock != null && lock.isHeldByCurrentThread()) {
+                                        lock.unlock();
+                                    }
+                                    return null;
+                                case "equals":
+                                    return proxy == args[0];
+                                case "hashCode":
+                                    return System.identityHashCode(proxy);
+                                case "prepareStatement":
+                                    if (args.length == 1) {
+                                        return statements.prepare((String) args[0]);
+                                    }
+                                    break;
+                                default:
+                                    break;
+                            }
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+    }
+}
@@ -0,0 +1,189 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Keeps the prepared statements of one connection for reuse, keyed by their SQL. Batch queries
+ * embed the number of keys in their IN list, so each arity is a separate entry.
+ *
+ * <p>A statement is checked out of the cache while it is in use, so operations running concurrently
+ * on a shared connection never share a statement. Closing the statement returns it to the cache,
+ * evicting the least recently used statement when the cache is full. Closing the cache closes the
+ * statements it holds.
+ */
+final class StatementCache {
+    private final Connection connection;
+    private final int capacity;
+    private final StatementCacheStatistics statistics;
+    // Idle statements in access order, so the eldest entry is the least recently used
+    private final LinkedHashMap<String, PreparedStatement> idle;
+    // Statements currently checked out, closed with the cache if they are never returned
+    private final Set<PreparedStatement> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean closed;
+
+    /**
+     * Creates a cache over a connection.
+     *
+     * @param connection The connection to prepare statements on.
+     * @param capacity The maximum number of idle statements kept.
+     * @param statistics The counters to record hits and misses in.
+     */
+    StatementCache(Connection connection, int capacity, StatementCacheStatistics statistics) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.statistics = statistics;
+        this.idle = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Checks a statement out of the cache, preparing it on a miss.
+     *
+     * @param sql The SQL of the statement.
+     * @return A statement that returns to the cache when closed.
+     * @throws SQLException if the statement cannot be prepared.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement;
+        synchronized (this) {
+            if (closed) {
+                throw new SQLException("The connection is closed");
+            }
+            statement = idle.remove(sql);
+            if (statement != null) {
+                inUse.add(statement);
+            }
+        }
+        if (statement != null) {
+            statistics.recordHit();
+        } else {
+            statistics.recordMiss();
+            statement = connection.prepareStatement(sql);
+            synchronized (this) {
+                inUse.add(statement);
+            }
+        }
+        return (PreparedStatement)
+                Proxy.newProxyInstance(
+                        PreparedStatement.class.getClassLoader(),
+                        new Class<?>[] {PreparedStatement.class},
+                        new Checkout(sql, statement));
+    }
+
+    /** Closes the idle statements and any statement still checked out. */
+    void close() {
+        List<PreparedStatement> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayList<>(idle.values());
+            toClose.addAll(inUse);
+            idle.clear();
+            inUse.clear();
+        }
+        toClose.forEach(JDBCConnector::closeQuietly);
+    }
+
+    private void giveBack(String sql, PreparedStatement statement, boolean reusable) {
+        List<PreparedStatement> toClose = new ArrayList<>(2);
+        synchronized (this) {
+            if (!inUse.remove(statement)) {
+                // Already closed with the cache
+                return;
+            }
+            if (!reusable || closed || capacity <= 0) {
+                toClose.add(statement);
+            } else {
+                PreparedStatement previous = idle.put(sql, statement);
+                if (previous != null) {
+                    // A concurrent checkout of the same SQL returned first
+                    toClose.add(previous);
+                }
+                Iterator<PreparedStatement> eldest = idle.values().iterator();
+                while (idle.size() > capacity) {
+                    toClose.add(eldest.next());
+                    eldest.remove();
+                }
+            }
+        }
+        toClose.forEach(JDBCConnector::closeQuietly);
+    }
+
+    // The view of a cached statement given to one operation, which becomes unusable once closed
+    private final class Checkout implements InvocationHandler {
+        private final String sql;
+        private final PreparedStatement statement;
+        @Nullable private ResultSet resultSet;
+        private boolean returned;
+
+        private Checkout(String sql, PreparedStatement statement) {
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        giveBack(sql, statement, reset());
+                    }
+                    return null;
+                case "isClosed":
+                    if (returned) {
+                        return true;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("The statement is closed");
+            }
+            try {
+                Object result = method.invoke(statement, args);
+                if (result instanceof ResultSet) {
+                    resultSet = (ResultSet) result;
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        // Releases what the operation left on the statement; false if it cannot be reused
+        private boolean reset() {
+            try {
+                // An unread result set would keep the statement, and with some databases a read
+                // transaction, active while the statement sits in the cache
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+/** How the entries of the collections are laid out in tables. */
+public enum TableLayout {
+    /**
+     * The entries of all collections share the Semantic Kernel Memory Table, keyed by collection
+     * and key and indexed by collection.
+     */
+    SHARED_TABLE,
+
+    /**
+     * Each collection has a table of its own, keyed by key and registered with the collection in
+     * the collections table. Scanning a collection reads its table sequentially, and deleting a
+     * collection drops its table rather than deleting its rows one by one.
+     */
+    TABLE_PER_COLLECTION
+}
@@ -0,0 +1,15 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+/** The physical representation of the timestamp column in the Semantic Kernel Memory Table. */
+public enum TimestampStorageFormat {
+    /** The timestamp is stored as ISO-8601 text with its offset, for example in a TEXT column. */
+    ISO_8601,
+
+    /**
+     * The timestamp is stored as milliseconds since the epoch in a BIGINT column, with its offset
+     * from UTC in seconds in a separate timestamp_offset column. The memory table is indexed by
+     * collection and timestamp, so that entries modified since an instant are found without a scan.
+     */
+    EPOCH_MILLIS
+}
@@ -0,0 +1,159 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.util.Arrays;
+
+/**
+ * A bounded min-heap of (score, index) pairs that retains the best scores offered to it without
+ * allocating per offer once it has grown. Its arrays start small and double as pairs are retained,
+ * so a capacity far above the number of offers, such as {@link Integer#MAX_VALUE} to keep
+ * everything, costs only what is offered. Among equal scores the lower index ranks first, so
+ * selecting from rows offered in order matches a stable sort by descending score.
+ */
+public final class TopKHeap {
+    private static final int INITIAL_LENGTH = 16;
+
+    private final int capacity;
+    private float[] scores;
+    private int[] indices;
+    private int size;
+
+    /**
+     * Creates a heap retaining at most {@code capacity} pairs.
+     *
+     * @param capacity The number of best pairs to retain.
+     */
+    public TopKHeap(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+        this.scores = new float[Math.min(this.capacity, INITIAL_LENGTH)];
+        this.indices = new int[scores.length];
+    }
+
+    /**
+     * Offers a pair to the heap. It is retained if the heap is not full or if it ranks above the
+     * worst retained pair, which is then evicted.
+     *
+     * @param score The score of the pair.
+     * @param index The index of the pair.
+     * @return Whether the pair was retained.
+     */
+    public boolean offer(float score, int index) {
+        if (size < capacity) {
+            if (size == scores.length) {
+                int length = (int) Math.min(capacity, 2L * scores.length);
+                scores = Arrays.copyOf(scores, length);
+                indices = Arrays.copyOf(indices, length);
+            }
+            siftUp(size++, score, index);
+            return true;
+        }
+        if (size == 0 || !ranksBefore(score, index, scores[0], indices[0])) {
+            return false;
+        }
+        siftDown(0, size, score, index);
+        return true;
+    }
+
+    /**
+     * Gets the number of retained pairs.
+     *
+     * @return The number of retained pairs.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the lowest retained score, which an offer must beat once the heap is full.
+     *
+     * @return The lowest retained score, or negative infinity if the heap is not full.
+     */
+    public float threshold() {
+        return size < capacity || size == 0 ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /**
+     * Gets the index of the lowest retained pair, which an accepted offer evicts once the heap is
+     * full.
+     *
+     * @return The index of the lowest retained pair, or -1 if the heap is empty.
+     */
+    public int lowestIndex() {
+        return size == 0 ? -1 : indices[0];
+    }
+
+    /**
+     * Sorts the retained pairs from best to worst, after which they can be read with {@link
+     * #score(int)} and {@link #index(int)}. The heap must not be offered to after sorting.
+     */
+    public void sortDescending() {
+        for (int end = size - 1; end > 0; end--) {
+            float score = scores[end];
+            int index = indices[end];
+            scores[end] = scores[0];
+            indices[end] = indices[0];
+            siftDown(0, end, score, index);
+        }
+    }
+
+    /**
+     * Gets the score at a position. Before {@link #sortDescending()} the positions are in heap
+     * order, which is enough to merge one heap into another.
+     *
+     * @param position The position, from 0 to {@link #size()} - 1.
+     * @return The score at the position.
+     */
+    public float score(int position) {
+        return scores[position];
+    }
+
+    /**
+     * Gets the index at a position.
+     *
+     * @param position The position, from 0 to {@link #size()} - 1.
+     * @return The index at the position.
+     */
+    public int index(int position) {
+        return indices[position];
+    }
+
+    private static boolean ranksBefore(float score, int index, float otherScore, int otherIndex) {
+        return score > otherScore || (score == otherScore && index < otherIndex);
+    }
+
+    private void siftUp(int position, float score, int index) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!ranksBefore(scores[parent], indices[parent], score, index)) {
+                break;
+            }
+            scores[position] = scores[parent];
+            indices[position] = indices[parent];
+            position = parent;
+        }
+        scores[position] = score;
+        indices[position] = index;
+    }
+
+    private void siftDown(int position, int end, float score, int index) {
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= end) {
+                break;
+            }
+            if (child + 1 < end
+                    && ranksBefore(
+                            scores[child], indices[child], scores[child + 1], indices[child + 1])) {
+                child++;
+            }
+            if (!ranksBefore(score, index, scores[child], indices[child])) {
+                break;
+            }
+            scores[position] = scores[child];
+            indices[position] = indices[child];
+            position = child;
+        }
+        scores[position] = score;
+        indices[position] = index;
+    }
+}
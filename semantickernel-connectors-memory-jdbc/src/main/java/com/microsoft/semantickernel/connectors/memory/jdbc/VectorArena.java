@@ -0,0 +1,174 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.io.Closeable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A budgeted pool of direct byte buffers of one size, the slabs that hold the rows of off-heap
+ * vector caches outside the Java heap. Slabs released by a cache are kept for the next cache that
+ * needs one, so the direct memory reserved by the arena grows up to its budget and is only given
+ * back when the arena is closed.
+ *
+ * <p>Closing the arena frees the slabs it holds; slabs still held by caches are freed as they are
+ * released. A freed slab returns its memory at once where the running JDK allows it, and otherwise
+ * when the buffer is garbage collected. A slab must not be read once released.
+ */
+final class VectorArena implements Closeable {
+    /** The size of a slab unless configured otherwise, 4 MiB. */
+    static final int DEFAULT_SLAB_BYTES = 1 << 22;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VectorArena.class);
+    private static final Consumer<ByteBuffer> FREE = freeFunction();
+
+    private final long budgetBytes;
+    private final int slabBytes;
+    private final MemoryStoreMetrics metrics;
+    private final Deque<ByteBuffer> freeSlabs = new ArrayDeque<>();
+    private long reservedBytes;
+    private long usedBytes;
+    private boolean closed;
+
+    VectorArena(long budgetBytes, MemoryStoreMetrics metrics) {
+        this(budgetBytes, DEFAULT_SLAB_BYTES, metrics);
+    }
+
+    VectorArena(long budgetBytes, int slabBytes, MemoryStoreMetrics metrics) {
+        this.budgetBytes = budgetBytes;
+        this.slabBytes = slabBytes;
+        this.metrics = metrics;
+    }
+
+    /** Thrown when a cache needs a slab that would take the arena over its budget. */
+    static final class ExhaustedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ExhaustedException(String message) {
+            super(message);
+        }
+    }
+
+    int getSlabBytes() {
+        return slabBytes;
+    }
+
+    synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Takes a free slab, or allocates one if the budget allows it.
+     *
+     * @return A slab in native byte order, whose content is undefined.
+     * @throws ExhaustedException if no slab is free and the budget is allocated.
+     * @throws IllegalStateException if the arena is closed.
+     */
+    synchronized ByteBuffer allocate() {
+        if (closed) {
+            throw new IllegalStateException("The vector arena is closed");
+        }
+        ByteBuffer slab = freeSlabs.poll();
+        if (slab == null) {
+            if (reservedBytes + slabBytes > budgetBytes) {
+                throw new ExhaustedException(
+                        "The off-heap vector cache budget of "
+                                + budgetBytes
+                                + " bytes is exhausted");
+            }
+            slab = ByteBuffer.allocateDirect(slabBytes).order(ByteOrder.nativeOrder());
+            reservedBytes += slabBytes;
+        }
+        usedBytes += slabBytes;
+        metrics.recordOffHeapMemory(reservedBytes, usedBytes);
+        return slab;
+    }
+
+    /**
+     * Gives back a slab taken from this arena, which keeps it for reuse or frees it once closed.
+     *
+     * @param slab The slab, which the caller no longer reads.
+     */
+    synchronized void release(ByteBuffer slab) {
+        usedBytes -= slabBytes;
+        if (closed) {
+            reservedBytes -= slabBytes;
+            FREE.accept(slab);
+        } else {
+            freeSlabs.push(slab);
+        }
+        metrics.recordOffHeapMemory(reservedBytes, usedBytes);
+    }
+
+    /** Frees the free slabs and stops handing out new ones. */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (ByteBuffer slab : freeSlabs) {
+            reservedBytes -= slabBytes;
+            FREE.accept(slab);
+        }
+        freeSlabs.clear();
+        metrics.recordOffHeapMemory(reservedBytes, usedBytes);
+    }
+
+    /**
+     * Frees the memory of a direct or memory-mapped buffer at once where the running JDK allows it,
+     * and otherwise leaves it to the garbage collector.
+     *
+     * @param buffer The buffer, which must not be a view of another buffer and is not read again.
+     */
+    static void free(ByteBuffer buffer) {
+        FREE.accept(buffer);
+    }
+
+    // Frees a direct buffer through the internal API of the running JDK: Unsafe.invokeCleaner from
+    // JDK 9 and the cleaner of the buffer before. Without either, the collector frees it later.
+    private static Consumer<ByteBuffer> freeFunction() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            return buffer -> invokeQuietly(invokeCleaner, unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Before JDK 9
+        }
+        try {
+            Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                Object bufferCleaner = invokeQuietly(cleaner, buffer);
+                if (bufferCleaner != null) {
+                    invokeQuietly(clean, bufferCleaner);
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.debug("Direct buffers cannot be freed explicitly; leaving them to the GC", e);
+            return buffer -> {};
+        }
+    }
+
+    @Nullable
+    private static Object invokeQuietly(Method method, Object target, Object... arguments) {
+        try {
+            return method.invoke(target, arguments);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.debug("Failed to free a direct buffer; leaving it to the GC", e);
+            return null;
+        }
+    }
+}
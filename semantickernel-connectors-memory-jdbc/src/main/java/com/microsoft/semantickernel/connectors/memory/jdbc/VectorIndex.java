@@ -0,0 +1,70 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.util.List;
+import java.util.Map;
+import reactor.util.function.Tuple2;
+
+/**
+ * An in-memory nearest-neighbour index over the embeddings of one collection, ranked by cosine
+ * similarity.
+ *
+ * <p>An index is persisted as one opaque record per key. Every mutation marks the records it
+ * changes, and {@link #drainChanges()} hands them to the caller for storage, so only the part of
+ * the index touched by a write has to be saved. Implementations must be safe for concurrent use.
+ */
+public interface VectorIndex {
+
+    /**
+     * Inserts or replaces the embedding of a key.
+     *
+     * @param key The key of the entry.
+     * @param vector The embedding of the entry.
+     * @throws IllegalArgumentException if the vector has a zero norm or a dimension that differs
+     *     from the indexed vectors.
+     */
+    void add(String key, float[] vector);
+
+    /**
+     * Removes a batch of keys. Keys that are not indexed are ignored.
+     *
+     * @param keys The keys to remove.
+     */
+    void remove(Iterable<String> keys);
+
+    /**
+     * Gets the number of indexed keys.
+     *
+     * @return The number of indexed keys.
+     */
+    int size();
+
+    /**
+     * Finds the keys whose embeddings are most similar to the query.
+     *
+     * @param query The query vector.
+     * @param limit The maximum number of matches to return.
+     * @param minRelevanceScore The minimum similarity a match must have.
+     * @param efSearch The size of the candidate list explored by the search, trading speed for
+     *     recall; a non-positive value uses the default of the index.
+     * @return The matching keys and their similarity, best match first.
+     */
+    List<Tuple2<String, Float>> search(
+            float[] query, int limit, float minRelevanceScore, int efSearch);
+
+    /**
+     * Returns the records changed since the last call and forgets them.
+     *
+     * @return The changed records by key; a null record means the key's record must be deleted.
+     */
+    Map<String, byte[]> drainChanges();
+
+    /**
+     * Restores an empty index from persisted records. Keys with a vector but no record are added,
+     * and records without a vector are reported for deletion by the next {@link #drainChanges()}.
+     *
+     * @param vectors The current embeddings of the collection by key.
+     * @param records The persisted records by key.
+     */
+    void restore(Map<String, float[]> vectors, Map<String, byte[]> records);
+}
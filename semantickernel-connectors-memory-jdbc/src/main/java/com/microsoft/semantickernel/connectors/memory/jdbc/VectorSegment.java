@@ -0,0 +1,776 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+/**
+ * Keeps a copy of the embeddings of one collection in an append-only file of fixed-stride slots,
+ * which is memory-mapped and scanned in place by searches. A slot holds its state, the norm of the
+ * embedding, a hash of the key and the components. An upsert appends a slot and tombstones the slot
+ * of the previous version, a removal tombstones the slot, and once tombstones outnumber the live
+ * slots, the live slots are compacted in the background into a file of the next generation.
+ *
+ * <p>The database remains the source of truth. Each row stores the offset of its slot, and on load
+ * a slot is trusted only if a row points to it and it carries the hash of the row's key. Rows
+ * without such a slot, for example rows written by another process or before the process stopped,
+ * are read from the database and appended again, and slots no row points to are tombstoned. The
+ * file is therefore never forced to disk.
+ *
+ * <p>Closing the segment unmaps its file, which stays on disk for the next load.
+ */
+final class VectorSegment {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VectorSegment.class);
+
+    // "SKVS", written last when a file is created, so that an incomplete file is discarded
+    private static final int MAGIC = 0x534B5653;
+    private static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    private static final int DIMENSION_POSITION = 8;
+    private static final int COUNT_POSITION = 12;
+
+    // A slot is its state, the norm, the key hash and the components
+    private static final int SLOT_HEADER_BYTES = 16;
+    private static final int LIVE = 1;
+    private static final int DEAD = 0;
+
+    // The files are mapped in regions of whole slots of about this size
+    private static final int REGION_BYTES = 1 << 24;
+
+    // Tombstones below this count are never compacted
+    static final int MIN_COMPACTION_TOMBSTONES = 1024;
+
+    // The rows read from the database or updated in it per statement
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String SUFFIX = ".seg";
+
+    private final String collectionName;
+    private final Path directory;
+    private final SQLConnector connector;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    // The lock guards the fields below and the contents of the mapped regions
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> slotsByKey = new HashMap<>();
+    // The key of each live slot, null for dead ones
+    private String[] keys = new String[0];
+    private final List<ByteBuffer> regions = new ArrayList<>();
+    // Float views of the regions, through which the components are scanned
+    private final List<FloatBuffer> floatRegions = new ArrayList<>();
+    @Nullable private ByteBuffer header;
+    private int generation;
+    private int dimension = -1;
+    private int stride;
+    private int slotsPerRegion;
+    private int count;
+    private int live;
+    private boolean closed;
+
+    VectorSegment(String collectionName, Path directory, SQLConnector connector) {
+        this.collectionName = collectionName;
+        this.directory = directory;
+        this.connector = connector;
+    }
+
+    /**
+     * Maps the file of the collection, checks its slots against the offsets stored in the database
+     * and appends the embeddings of the rows that have no valid slot.
+     *
+     * @return A Mono emitting this segment once it can be searched.
+     */
+    Mono<VectorSegment> loadAsync() {
+        return Mono.fromRunnable(this::open)
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(connector.readSegmentOffsetsAsync(collectionName))
+                .flatMapMany(offsets -> Flux.fromIterable(batches(reconcile(offsets))))
+                .concatMap(
+                        keys ->
+                                connector
+                                        .readBatchAsync(
+                                                collectionName, keys, EntryProjection.EMBEDDING)
+                                        .flatMap(
+                                                entries -> {
+                                                    Map<String, float[]> vectors =
+                                                            new LinkedHashMap<>();
+                                                    for (DatabaseEntry entry : entries) {
+                                                        float[] vector =
+                                                                JDBCMemoryStore.entryToVector(
+                                                                        entry);
+                                                        if (vector != null) {
+                                                            vectors.put(entry.getKey(), vector);
+                                                        }
+                                                    }
+                                                    return appendAsync(vectors);
+                                                }))
+                .then(Mono.just(this));
+    }
+
+    /**
+     * Appends the embeddings of written entries, tombstones the slots of their previous versions
+     * and stores the offsets of the new slots in the database. Empty embeddings only tombstone.
+     *
+     * @param vectors The embeddings of the written entries by key.
+     * @return A Mono representing the completion of the operation, which fails with an {@link
+     *     IllegalArgumentException} if an embedding has another dimension than the segment.
+     */
+    Mono<Void> appendAsync(Map<String, float[]> vectors) {
+        return Mono.defer(
+                () -> {
+                    Map<String, Long> offsets = append(vectors);
+                    compactIfNeeded();
+                    return assignAsync(offsets);
+                });
+    }
+
+    /**
+     * Tombstones the slots of removed entries.
+     *
+     * @param removed The keys of the removed entries.
+     */
+    void remove(Collection<String> removed) {
+        lock.writeLock().lock();
+        try {
+            for (String key : removed) {
+                tombstone(key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Unmaps the file, waiting for running searches and writes. A search afterwards finds no slots,
+     * and a write or load fails.
+     */
+    void close() {
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            List<ByteBuffer> mapped = new ArrayList<>(regions);
+            if (header != null) {
+                mapped.add(header);
+            }
+            regions.clear();
+            floatRegions.clear();
+            header = null;
+            slotsByKey.clear();
+            keys = new String[0];
+            count = 0;
+            live = 0;
+            mapped.forEach(VectorArena::free);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of live slots.
+     *
+     * @return The number of live slots.
+     */
+    int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Scans every live slot, in chunks on a fork/join pool if one is given, and returns the keys
+     * with the highest cosine similarity to the query.
+     *
+     * @param query The query vector.
+     * @param limit The maximum number of matches to return.
+     * @param minRelevanceScore The minimum similarity a slot must have to be returned.
+     * @param pool The pool to scan on, or null to scan on the calling thread.
+     * @param chunkSize The number of slots scanned by one task.
+     * @return The matching keys and their similarity, best match first.
+     */
+    List<Tuple2<String, Float>> search(
+            float[] query,
+            int limit,
+            float minRelevanceScore,
+            @Nullable ForkJoinPool pool,
+            int chunkSize) {
+        lock.readLock().lock();
+        try {
+            List<Tuple2<String, Float>> matches = new ArrayList<>();
+            if (live == 0) {
+                return matches;
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException("Vectors lengths must be equal");
+            }
+            // The tasks read the regions while this thread holds the read lock on their behalf
+            ScanTask scan =
+                    new ScanTask(
+                            SimilarityKernels.normalize(query),
+                            limit,
+                            minRelevanceScore,
+                            0,
+                            count,
+                            chunkSize);
+            TopKHeap best = pool == null || count <= chunkSize ? scan.compute() : pool.invoke(scan);
+            best.sortDescending();
+            for (int i = 0; i < best.size(); i++) {
+                matches.add(Tuples.of(keys[best.index(i)], best.score(i)));
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the embeddings of live keys out of the segment.
+     *
+     * @param wanted The keys whose embeddings to copy.
+     * @return The embeddings by key, without the keys that have no live slot.
+     */
+    Map<String, float[]> vectors(Collection<String> wanted) {
+        lock.readLock().lock();
+        try {
+            Map<String, float[]> vectors = new HashMap<>();
+            for (String key : wanted) {
+                Integer slot = slotsByKey.get(key);
+                if (slot != null) {
+                    float[] vector = new float[dimension];
+                    FloatBuffer floats = floatRegions.get(slot / slotsPerRegion).duplicate();
+                    floats.position(componentsIndex(slot));
+                    floats.get(vector);
+                    vectors.put(key, vector);
+                }
+            }
+            return vectors;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the files of a collection. Files that cannot be deleted, for example because they are
+     * still mapped on a platform that forbids it, are left for the next load to replace.
+     *
+     * @param directory The directory of the segment files.
+     * @param collectionName The name of the collection.
+     */
+    static void deleteFiles(Path directory, String collectionName) {
+        for (Path file : listFiles(directory, collectionName)) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to delete the vector segment {}", file, e);
+            }
+        }
+    }
+
+    // Maps the file of the latest generation with a valid header and deletes the others
+    private void open() {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            Files.createDirectories(directory);
+            Path latest = null;
+            int[] latestHeader = null;
+            for (Path file : listFiles(directory, collectionName)) {
+                int[] fileHeader = readHeader(file);
+                if (fileHeader != null
+                        && (latest == null || generation(file) > generation(latest))) {
+                    latest = file;
+                    latestHeader = fileHeader;
+                }
+            }
+            for (Path file : listFiles(directory, collectionName)) {
+                if (!file.equals(latest)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            if (latest == null) {
+                return;
+            }
+            generation = generation(latest);
+            setDimension(latestHeader[0]);
+            count = latestHeader[1];
+            keys = new String[Math.max(16, count)];
+            try (FileChannel channel =
+                    FileChannel.open(latest, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                header = map(channel, 0, HEADER_BYTES);
+                while ((long) regions.size() * slotsPerRegion < count) {
+                    mapRegion(channel);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Reads the dimension and slot count of a file, or returns null if it is not a complete segment
+    @Nullable
+    private static int[] readHeader(Path file) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.read(bytes, 0);
+            if (bytes.hasRemaining()
+                    || bytes.getInt(0) != MAGIC
+                    || bytes.getInt(4) != VERSION
+                    || bytes.getInt(DIMENSION_POSITION) <= 0
+                    || bytes.getInt(COUNT_POSITION) < 0) {
+                return null;
+            }
+            int dimension = bytes.getInt(DIMENSION_POSITION);
+            int count = bytes.getInt(COUNT_POSITION);
+            long stride = SLOT_HEADER_BYTES + (long) dimension * Float.BYTES;
+            return channel.size() >= HEADER_BYTES + count * stride
+                    ? new int[] {dimension, count}
+                    : null;
+        }
+    }
+
+    // Keeps the slots that rows point to and that carry their key; returns the keys of the other
+    // rows and tombstones the slots no row points to
+    private List<String> reconcile(Map<String, Long> offsets) {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            List<String> missing = new ArrayList<>();
+            for (Map.Entry<String, Long> offset : offsets.entrySet()) {
+                int slot = slot(offset.getValue());
+                if (slot >= 0
+                        && keys[slot] == null
+                        && region(slot).getInt(slotPosition(slot)) == LIVE
+                        && region(slot).getLong(slotPosition(slot) + 8)
+                                == keyHash(offset.getKey())) {
+                    keys[slot] = offset.getKey();
+                    slotsByKey.put(offset.getKey(), slot);
+                    live++;
+                } else {
+                    missing.add(offset.getKey());
+                }
+            }
+            for (int slot = 0; slot < count; slot++) {
+                if (keys[slot] == null) {
+                    region(slot).putInt(slotPosition(slot), DEAD);
+                }
+            }
+            return missing;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The slot at an offset read from the database, or -1 if it is not one of the file's slots
+    private int slot(long offset) {
+        if (dimension < 0 || offset < HEADER_BYTES || (offset - HEADER_BYTES) % stride != 0) {
+            return -1;
+        }
+        long slot = (offset - HEADER_BYTES) / stride;
+        return slot < count ? (int) slot : -1;
+    }
+
+    private Map<String, Long> append(Map<String, float[]> vectors) {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            // Checked up front so that a batch is appended entirely or not at all
+            int batchDimension = dimension;
+            for (float[] vector : vectors.values()) {
+                if (vector.length == 0) {
+                    continue;
+                }
+                if (batchDimension < 0) {
+                    batchDimension = vector.length;
+                } else if (vector.length != batchDimension) {
+                    throw new IllegalArgumentException("Vectors lengths must be equal");
+                }
+            }
+            Map<String, Long> offsets = new HashMap<>();
+            for (Map.Entry<String, float[]> vector : vectors.entrySet()) {
+                tombstone(vector.getKey());
+                if (vector.getValue().length > 0) {
+                    int slot = appendSlot(vector.getKey(), vector.getValue());
+                    offsets.put(vector.getKey(), HEADER_BYTES + (long) slot * stride);
+                }
+            }
+            if (header != null) {
+                header.putInt(COUNT_POSITION, count);
+            }
+            return offsets;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Must be called with the write lock held
+    private int appendSlot(String key, float[] vector) throws IOException {
+        if (header == null) {
+            setDimension(vector.length);
+            create(file(generation));
+        }
+        int slot = count;
+        if (slot == (long) regions.size() * slotsPerRegion) {
+            try (FileChannel channel =
+                    FileChannel.open(
+                            file(generation), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                mapRegion(channel);
+            }
+        }
+        FloatBuffer floats = floatRegions.get(slot / slotsPerRegion).duplicate();
+        floats.position(componentsIndex(slot));
+        floats.put(vector);
+        ByteBuffer region = region(slot);
+        int position = slotPosition(slot);
+        region.putFloat(position + 4, SimilarityKernels.norm(vector));
+        region.putLong(position + 8, keyHash(key));
+        region.putInt(position, LIVE);
+        if (slot == keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(16, keys.length * 2));
+        }
+        keys[slot] = key;
+        slotsByKey.put(key, slot);
+        count++;
+        live++;
+        return slot;
+    }
+
+    // Must be called with the write lock held
+    private void tombstone(String key) {
+        Integer slot = slotsByKey.remove(key);
+        if (slot != null) {
+            region(slot).putInt(slotPosition(slot), DEAD);
+            keys[slot] = null;
+            live--;
+        }
+    }
+
+    private Mono<Void> assignAsync(Map<String, Long> offsets) {
+        return Flux.fromIterable(batches(offsets))
+                .concatMap(batch -> connector.assignSegmentOffsetsAsync(collectionName, batch))
+                .then();
+    }
+
+    // Starts a compaction if tombstones outnumber the live slots; one requested while another runs
+    // is dropped, since the running one removes the tombstones it finds
+    private void compactIfNeeded() {
+        lock.readLock().lock();
+        int tombstones;
+        try {
+            tombstones = count - live;
+            if (tombstones < MIN_COMPACTION_TOMBSTONES || tombstones <= live) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!compacting.compareAndSet(false, true)) {
+            return;
+        }
+        Mono.fromCallable(this::compact)
+                .subscribeOn(Schedulers.boundedElastic())
+                // Offsets of rows written meanwhile may be overwritten by a stale offset; the
+                // next load finds that the slot does not carry their key and appends them again
+                .flatMap(this::assignAsync)
+                .doFinally(signal -> compacting.set(false))
+                .subscribe(
+                        null,
+                        error ->
+                                LOGGER.warn(
+                                        "Failed to compact the vector segment of collection {}",
+                                        collectionName,
+                                        error));
+    }
+
+    // Copies the live slots into a file of the next generation, maps it in place of the current
+    // one and returns the new offsets
+    private Map<String, Long> compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            Path previous = file(generation);
+            List<ByteBuffer> previousRegions = new ArrayList<>(regions);
+            String[] previousKeys = keys;
+            int previousCount = count;
+            regions.clear();
+            floatRegions.clear();
+            slotsByKey.clear();
+            keys = new String[Math.max(16, live)];
+            count = 0;
+            live = 0;
+            generation++;
+            Map<String, Long> offsets = new HashMap<>();
+            try (FileChannel channel =
+                    FileChannel.open(
+                            file(generation),
+                            StandardOpenOption.CREATE_NEW,
+                            StandardOpenOption.READ,
+                            StandardOpenOption.WRITE)) {
+                for (int from = 0; from < previousCount; from++) {
+                    if (previousKeys[from] == null) {
+                        continue;
+                    }
+                    int slot = count;
+                    if (slot == regions.size() * slotsPerRegion) {
+                        mapRegion(channel);
+                    }
+                    ByteBuffer source = previousRegions.get(from / slotsPerRegion).duplicate();
+                    int position = (from % slotsPerRegion) * stride;
+                    source.position(position).limit(position + stride);
+                    ByteBuffer target = region(slot).duplicate();
+                    target.position(slotPosition(slot));
+                    target.put(source);
+                    keys[slot] = previousKeys[from];
+                    slotsByKey.put(previousKeys[from], slot);
+                    offsets.put(previousKeys[from], HEADER_BYTES + (long) slot * stride);
+                    count++;
+                    live++;
+                }
+                header = map(channel, 0, HEADER_BYTES);
+                writeHeader();
+            }
+            Files.deleteIfExists(previous);
+            return offsets;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Must be called with the lock held
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The vector segment is closed");
+        }
+    }
+
+    // Must be called with the write lock held
+    private void create(Path file) throws IOException {
+        try (FileChannel channel =
+                FileChannel.open(
+                        file,
+                        StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)) {
+            header = map(channel, 0, HEADER_BYTES);
+            writeHeader();
+        }
+    }
+
+    private void writeHeader() {
+        header.putInt(4, VERSION);
+        header.putInt(DIMENSION_POSITION, dimension);
+        header.putInt(COUNT_POSITION, count);
+        header.putInt(0, MAGIC);
+    }
+
+    private void setDimension(int dimension) {
+        this.dimension = dimension;
+        this.stride = SLOT_HEADER_BYTES + dimension * Float.BYTES;
+        this.slotsPerRegion = Math.max(1, REGION_BYTES / stride);
+    }
+
+    // Maps the next region of a file, which grows the file if needed
+    private void mapRegion(FileChannel channel) throws IOException {
+        ByteBuffer region =
+                map(
+                        channel,
+                        HEADER_BYTES + (long) regions.size() * slotsPerRegion * stride,
+                        slotsPerRegion * stride);
+        regions.add(region);
+        floatRegions.add(region.asFloatBuffer());
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, int size)
+            throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private ByteBuffer region(int slot) {
+        return regions.get(slot / slotsPerRegion);
+    }
+
+    // The position of a slot in its region
+    private int slotPosition(int slot) {
+        return (slot % slotsPerRegion) * stride;
+    }
+
+    // The index of the first component of a slot in the float view of its region
+    private int componentsIndex(int slot) {
+        return (slotPosition(slot) + SLOT_HEADER_BYTES) / Float.BYTES;
+    }
+
+    private Path file(int fileGeneration) {
+        return directory.resolve(
+                JDBCConnector.collectionTableName(collectionName) + "." + fileGeneration + SUFFIX);
+    }
+
+    private static List<Path> listFiles(Path directory, String collectionName) {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        String glob = JDBCConnector.collectionTableName(collectionName) + ".*" + SUFFIX;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : stream) {
+                if (generation(file) >= 0) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return files;
+    }
+
+    // The generation in the name of a segment file, or -1 if the name has none
+    private static int generation(Path file) {
+        String name = file.getFileName().toString();
+        String generation =
+                name.substring(
+                        name.lastIndexOf('.', name.length() - SUFFIX.length() - 1) + 1,
+                        name.length() - SUFFIX.length());
+        try {
+            return Integer.parseInt(generation);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static <V> List<Map<String, V>> batches(Map<String, V> values) {
+        List<Map<String, V>> batches = new ArrayList<>();
+        for (Map.Entry<String, V> value : values.entrySet()) {
+            if (batches.isEmpty() || batches.get(batches.size() - 1).size() >= BATCH_SIZE) {
+                batches.add(new HashMap<>());
+            }
+            batches.get(batches.size() - 1).put(value.getKey(), value.getValue());
+        }
+        return batches;
+    }
+
+    private static List<List<String>> batches(List<String> keys) {
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i += BATCH_SIZE) {
+            batches.add(keys.subList(i, Math.min(keys.size(), i + BATCH_SIZE)));
+        }
+        return batches;
+    }
+
+    /**
+     * Hashes a key with 64-bit FNV-1a over its UTF-16 code units, so that a slot can be matched
+     * with the row that points to it.
+     *
+     * @param key The key.
+     * @return The hash of the key.
+     */
+    static long keyHash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Scans a range of slots, splitting it in halves until it fits in a chunk
+    private final class ScanTask extends RecursiveTask<TopKHeap> {
+        private static final long serialVersionUID = 1L;
+
+        private final float[] unitQuery;
+        private final int limit;
+        private final float minRelevanceScore;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        private ScanTask(
+                float[] unitQuery,
+                int limit,
+                float minRelevanceScore,
+                int from,
+                int to,
+                int chunkSize) {
+            this.unitQuery = unitQuery;
+            this.limit = limit;
+            this.minRelevanceScore = minRelevanceScore;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = Math.max(chunkSize, 1);
+        }
+
+        @Override
+        protected TopKHeap compute() {
+            if (to - from > chunkSize) {
+                int middle = (from + to) >>> 1;
+                ScanTask left =
+                        new ScanTask(unitQuery, limit, minRelevanceScore, from, middle, chunkSize);
+                ScanTask right =
+                        new ScanTask(unitQuery, limit, minRelevanceScore, middle, to, chunkSize);
+                left.fork();
+                TopKHeap rightBest = right.compute();
+                TopKHeap leftBest = left.join();
+                // Each half is bounded by its own range, so the merge needs a heap for both
+                TopKHeap best = new TopKHeap(Math.min(limit, to - from));
+                for (TopKHeap half : new TopKHeap[] {rightBest, leftBest}) {
+                    for (int i = 0; i < half.size(); i++) {
+                        best.offer(half.score(i), half.index(i));
+                    }
+                }
+                return best;
+            }
+            TopKHeap best = new TopKHeap(Math.min(limit, to - from));
+            for (int slot = from; slot < to; slot++) {
+                ByteBuffer region = region(slot);
+                int position = slotPosition(slot);
+                if (region.getInt(position) != LIVE) {
+                    continue;
+                }
+                float similarity =
+                        SimilarityKernels.unitCosine(
+                                unitQuery,
+                                floatRegions.get(slot / slotsPerRegion),
+                                componentsIndex(slot),
+                                region.getFloat(position + 4));
+                if (similarity >= minRelevanceScore) {
+                    best.offer(similarity, slot);
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import com.microsoft.semantickernel.connectors.memory.jdbc.WriteBehindOptions.Durability;
+import com.microsoft.semantickernel.memory.MemoryRecord;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Buffers upserts by collection and key and writes them in batches, so that a burst of single
+ * upserts costs one statement and commit per batch, and a key upserted several times before a flush
+ * is written once.
+ *
+ * <p>Records are collected in a filling generation. It is flushed when it reaches the maximum size,
+ * when the flush interval has elapsed since its first record, or when a flush is requested. One
+ * generation is flushed at a time, which keeps the versions of a key in order; while it is written,
+ * the next generation fills, and upserts wait once that one is full as well.
+ *
+ * <p>Closing the buffer flushes the filling generation and waits for it to be written. Only if that
+ * fails or times out are the records still filling dropped.
+ */
+final class WriteBehindBuffer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindBuffer.class);
+
+    private final int maxRecords;
+    private final long flushIntervalMillis;
+    private final Durability durability;
+    private final Duration closeTimeout;
+    private final BiFunction<String, List<MemoryRecord>, Mono<?>> writer;
+
+    private Generation filling = new Generation();
+    // The generation being written, if any
+    @Nullable private Generation flushing;
+    // The flush scheduled for the filling generation, if any
+    @Nullable private Disposable scheduledFlush;
+    private boolean closed;
+
+    /**
+     * Creates an empty buffer.
+     *
+     * @param options The flush thresholds and durability.
+     * @param writer Writes a batch of records of a collection.
+     */
+    WriteBehindBuffer(
+            WriteBehindOptions options, BiFunction<String, List<MemoryRecord>, Mono<?>> writer) {
+        this.maxRecords = options.getMaxBufferedRecords();
+        this.flushIntervalMillis = options.getFlushInterval().toMillis();
+        this.durability = options.getDurability();
+        this.closeTimeout = options.getCloseTimeout();
+        this.writer = writer;
+    }
+
+    /**
+     * Buffers a record, replacing a buffered record of the same collection and key.
+     *
+     * @param collectionName The name of the collection.
+     * @param record The record.
+     * @return A Mono emitting the key of the record when it is buffered or written, depending on
+     *     the durability.
+     */
+    Mono<String> putAsync(String collectionName, MemoryRecord record) {
+        return Mono.defer(
+                () -> {
+                    String key = record.getMetadata().getId();
+                    Generation generation;
+                    Generation toFlush = null;
+                    boolean schedule = false;
+                    synchronized (this) {
+                        if (closed) {
+                            return Mono.error(
+                                    new IllegalStateException("The write-behind buffer is closed"));
+                        }
+                        if (filling.size >= maxRecords && flushing != null) {
+                            // Both generations are full; wait for the running flush, whose
+                            // completion starts the flush of the filling one
+                            return flushing.completion()
+                                    .onErrorResume(e -> Mono.empty())
+                                    .then(putAsync(collectionName, record));
+                        }
+                        generation = filling;
+                        if (generation.put(collectionName, key, record) && generation.size == 1) {
+                            schedule = true;
+                        }
+                        if (generation.size >= maxRecords && flushing == null) {
+                            toFlush = startFlush();
+                        }
+                    }
+                    if (toFlush != null) {
+                        flush(toFlush);
+                    } else if (schedule) {
+                        Disposable scheduled =
+                                Schedulers.parallel()
+                                        .schedule(
+                                                () -> flushDue(generation),
+                                                flushIntervalMillis,
+                                                TimeUnit.MILLISECONDS);
+                        synchronized (this) {
+                            if (closed) {
+                                scheduled.dispose();
+                            } else {
+                                scheduledFlush = scheduled;
+                            }
+                        }
+                    }
+                    if (durability == Durability.ENQUEUED) {
+                        return Mono.just(key);
+                    }
+                    return generation.flushed.asMono().thenReturn(key);
+                });
+    }
+
+    /**
+     * Gets the latest buffered version of a record.
+     *
+     * @param collectionName The name of the collection.
+     * @param key The key of the record.
+     * @return The buffered record, or null if the key is not buffered.
+     */
+    @Nullable
+    synchronized MemoryRecord get(String collectionName, String key) {
+        MemoryRecord record = filling.get(collectionName, key);
+        if (record == null && flushing != null) {
+            record = flushing.get(collectionName, key);
+        }
+        return record;
+    }
+
+    /**
+     * Drops buffered records that are about to be superseded by a write or a removal, and waits
+     * until a flush that may still write them has completed.
+     *
+     * @param collectionName The name of the collection.
+     * @param keys The keys of the records, or null for all the records of the collection.
+     * @return A Mono that completes when the records can no longer be written by a flush.
+     */
+    Mono<Void> discardAsync(String collectionName, @Nullable Collection<String> keys) {
+        return Mono.defer(
+                () -> {
+                    Generation running;
+                    synchronized (this) {
+                        filling.remove(collectionName, keys);
+                        running = flushing;
+                    }
+                    if (running == null || !running.contains(collectionName, keys)) {
+                        return Mono.empty();
+                    }
+                    // A failed flush did not write them either
+                    return running.completion().onErrorResume(e -> Mono.empty());
+                });
+    }
+
+    /**
+     * Flushes the records buffered so far.
+     *
+     * @return A Mono that completes when the records buffered before the call are written, or fails
+     *     if any of them could not be written.
+     */
+    Mono<Void> flushAsync() {
+        return Mono.defer(
+                () -> {
+                    List<Mono<Void>> completions = new ArrayList<>(2);
+                    Generation toFlush = null;
+                    synchronized (this) {
+                        if (flushing != null) {
+                            completions.add(flushing.completion());
+                        }
+                        if (filling.size > 0) {
+                            completions.add(filling.completion());
+                            if (flushing == null) {
+                                toFlush = startFlush();
+                            } else {
+                                filling.due = true;
+                            }
+                        }
+                    }
+                    if (toFlush != null) {
+                        flush(toFlush);
+                    }
+                    return Mono.when(completions);
+                });
+    }
+
+    /**
+     * Flushes the buffered records and waits until they are written, at most for the close timeout.
+     * If the flush fails or times out, the records that are not being written are dropped and the
+     * upserts waiting for them fail. Later upserts fail.
+     */
+    void close() {
+        Generation last;
+        Generation toFlush = null;
+        Disposable scheduled;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            scheduled = scheduledFlush;
+            scheduledFlush = null;
+            last = filling.size > 0 ? filling : flushing;
+            if (filling.size > 0) {
+                if (flushing == null) {
+                    toFlush = startFlush();
+                } else {
+                    filling.due = true;
+                }
+            }
+        }
+        if (scheduled != null) {
+            scheduled.dispose();
+        }
+        if (toFlush != null) {
+            flush(toFlush);
+        }
+        if (last == null) {
+            return;
+        }
+        try {
+            // Generations are written in order, so the last one completes after the others
+            last.completion().block(closeTimeout);
+        } catch (RuntimeException e) {
+            drop();
+        }
+    }
+
+    // Drops the filling generation when the buffer is closed without flushing it
+    private void drop() {
+        Generation dropped;
+        synchronized (this) {
+            dropped = filling;
+            filling = new Generation();
+        }
+        if (dropped.size > 0) {
+            LOGGER.warn("Dropped {} buffered records that were not flushed", dropped.size);
+        }
+        dropped.flushed.tryEmitError(
+                new IllegalStateException("The store was closed before the records were written"));
+    }
+
+    private void flushDue(Generation generation) {
+        Generation toFlush = null;
+        synchronized (this) {
+            if (closed || generation != filling) {
+                // Flushed already
+                return;
+            }
+            if (flushing == null) {
+                toFlush = startFlush();
+            } else {
+                generation.due = true;
+            }
+        }
+        if (toFlush != null) {
+            flush(toFlush);
+        }
+    }
+
+    // Moves the filling generation to flushing; called with the lock held and no flush running
+    private Generation startFlush() {
+        Generation generation = filling;
+        flushing = generation;
+        filling = new Generation();
+        return generation;
+    }
+
+    private void flush(Generation generation) {
+        Flux.fromIterable(generation.records.entrySet())
+                .filter(collection -> !collection.getValue().isEmpty())
+                .concatMap(
+                        collection ->
+                                writer.apply(
+                                        collection.getKey(),
+                                        new ArrayList<>(collection.getValue().values())))
+                .then()
+                .subscribe(
+                        null,
+                        error -> {
+                            if (durability == Durability.ENQUEUED) {
+                                LOGGER.warn(
+                                        "Failed to flush {} buffered records",
+                                        generation.size,
+                                        error);
+                            }
+                            completed(generation, error);
+                        },
+                        () -> completed(generation, null));
+    }
+
+    private void completed(Generation generation, @Nullable Throwable error) {
+        Generation next = null;
+        synchronized (this) {
+            flushing = null;
+            if (filling.size >= maxRecords || (filling.due && filling.size > 0)) {
+                next = startFlush();
+            }
+        }
+        if (error != null) {
+            generation.flushed.tryEmitError(error);
+        } else {
+            generation.flushed.tryEmitEmpty();
+        }
+        if (next != null) {
+            flush(next);
+        }
+    }
+
+    // The records buffered between two flushes; guarded by the lock of the buffer while filling
+    private static final class Generation {
+        private final Map<String, LinkedHashMap<String, MemoryRecord>> records = new HashMap<>();
+        private final Sinks.Empty<Void> flushed = Sinks.empty();
+        private int size;
+        // Whether the flush interval elapsed or a flush was requested while another was running
+        private boolean due;
+
+        // Returns whether the key was not buffered yet
+        private boolean put(String collectionName, String key, MemoryRecord record) {
+            boolean added =
+                    records.computeIfAbsent(collectionName, name -> new LinkedHashMap<>())
+                                    .put(key, record)
+                            == null;
+            if (added) {
+                size++;
+            }
+            return added;
+        }
+
+        @Nullable
+        private MemoryRecord get(String collectionName, String key) {
+            Map<String, MemoryRecord> collection = records.get(collectionName);
+            return collection != null ? collection.get(key) : null;
+        }
+
+        private boolean contains(String collectionName, @Nullable Collection<String> keys) {
+            Map<String, MemoryRecord> collection = records.get(collectionName);
+            if (collection == null) {
+                return false;
+            }
+            if (keys == null) {
+                return true;
+            }
+            for (String key : keys) {
+                if (collection.containsKey(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void remove(String collectionName, @Nullable Collection<String> keys) {
+            Map<String, MemoryRecord> collection = records.get(collectionName);
+            if (collection == null) {
+                return;
+            }
+            if (keys == null) {
+                size -= collection.size();
+                records.remove(collectionName);
+                return;
+            }
+            for (String key : keys) {
+                if (collection.remove(key) != null) {
+                    size--;
+                }
+            }
+        }
+
+        private Mono<Void> completion() {
+            return flushed.asMono();
+        }
+    }
+}
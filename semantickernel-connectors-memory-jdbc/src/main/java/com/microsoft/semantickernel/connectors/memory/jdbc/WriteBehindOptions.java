@@ -0,0 +1,150 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Configures the write-behind mode of a memory store, in which single upserts are buffered and
+ * written in batches. A buffered record is replaced by a later upsert of the same key, so only its
+ * latest version is written.
+ */
+public final class WriteBehindOptions {
+    /** The number of buffered records that triggers a flush unless configured otherwise. */
+    public static final int DEFAULT_MAX_BUFFERED_RECORDS = 1000;
+
+    /** When an upsert in write-behind mode completes. */
+    public enum Durability {
+        /**
+         * The upsert completes once its record is buffered. A record can be lost if the process
+         * stops before it is flushed, and failures to flush it are only logged.
+         */
+        ENQUEUED,
+
+        /**
+         * The upsert completes once its record is written to the database, and fails if the record
+         * cannot be written. Concurrent upserts still share a batch.
+         */
+        FLUSHED
+    }
+
+    private final int maxBufferedRecords;
+    private final Duration flushInterval;
+    private final Durability durability;
+    private final Duration closeTimeout;
+
+    private WriteBehindOptions(Builder builder) {
+        this.maxBufferedRecords = builder.maxBufferedRecords;
+        this.flushInterval = builder.flushInterval;
+        this.durability = builder.durability;
+        this.closeTimeout = builder.closeTimeout;
+    }
+
+    /**
+     * Gets the number of buffered records that triggers a flush.
+     *
+     * @return The maximum number of records of a flush.
+     */
+    public int getMaxBufferedRecords() {
+        return maxBufferedRecords;
+    }
+
+    /**
+     * Gets the longest time a record stays buffered while no flush is running.
+     *
+     * @return The flush interval.
+     */
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Gets when an upsert completes.
+     *
+     * @return The durability of upserts.
+     */
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Gets how long closing the store waits for the buffered records to be written.
+     *
+     * @return The close timeout.
+     */
+    public Duration getCloseTimeout() {
+        return closeTimeout;
+    }
+
+    /** Builds a WriteBehindOptions. */
+    public static class Builder {
+        private int maxBufferedRecords = DEFAULT_MAX_BUFFERED_RECORDS;
+        private Duration flushInterval = Duration.ofMillis(100);
+        private Durability durability = Durability.FLUSHED;
+        private Duration closeTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Builds the options.
+         *
+         * @return The write-behind options.
+         */
+        public WriteBehindOptions build() {
+            return new WriteBehindOptions(this);
+        }
+
+        /**
+         * Sets the number of buffered records that triggers a flush. While a flush is running, at
+         * most this many further records are buffered; upserts beyond that wait for the flush.
+         * Defaults to {@value WriteBehindOptions#DEFAULT_MAX_BUFFERED_RECORDS}.
+         *
+         * @param maxBufferedRecords The maximum number of records of a flush.
+         * @return The updated Builder instance to continue the building process for a
+         *     WriteBehindOptions.
+         */
+        public Builder withMaxBufferedRecords(int maxBufferedRecords) {
+            if (maxBufferedRecords <= 0) {
+                throw new IllegalArgumentException("maxBufferedRecords must be positive");
+            }
+            this.maxBufferedRecords = maxBufferedRecords;
+            return this;
+        }
+
+        /**
+         * Sets how long the first record buffered after a flush waits for more records before it is
+         * flushed. Defaults to 100 milliseconds.
+         *
+         * @param flushInterval The flush interval.
+         * @return The updated Builder instance to continue the building process for a
+         *     WriteBehindOptions.
+         */
+        public Builder withFlushInterval(Duration flushInterval) {
+            this.flushInterval = Objects.requireNonNull(flushInterval);
+            return this;
+        }
+
+        /**
+         * Sets when an upsert completes. Defaults to {@link Durability#FLUSHED}.
+         *
+         * @param durability The durability of upserts.
+         * @return The updated Builder instance to continue the building process for a
+         *     WriteBehindOptions.
+         */
+        public Builder withDurability(Durability durability) {
+            this.durability = Objects.requireNonNull(durability);
+            return this;
+        }
+
+        /**
+         * Sets how long closing the store waits for the buffered records to be written. Records
+         * that are not being written when it elapses are dropped. Defaults to 10 seconds.
+         *
+         * @param closeTimeout The close timeout.
+         * @return The updated Builder instance to continue the building process for a
+         *     WriteBehindOptions.
+         */
+        public Builder withCloseTimeout(Duration closeTimeout) {
+            this.closeTimeout = Objects.requireNonNull(closeTimeout);
+            return this;
+        }
+    }
+}
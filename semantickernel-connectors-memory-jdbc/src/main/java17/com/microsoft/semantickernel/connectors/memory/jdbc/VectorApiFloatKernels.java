@@ -0,0 +1,104 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import java.nio.FloatBuffer;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels over float vectors on the incubating Vector API, in lanes of the widest species the CPU
+ * supports, with the remaining components added by a scalar loop. Vectors in buffers are first
+ * copied in bulk to a per-thread array, which is cheaper than reading them a component at a time.
+ *
+ * <p>Compiled for JDK 17 and loaded reflectively by {@link SimilarityKernels}, and only used when
+ * the {@code jdk.incubator.vector} module is enabled.
+ */
+final class VectorApiFloatKernels implements FloatVectorKernels {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final ThreadLocal<float[]> BUFFERED =
+            ThreadLocal.withInitial(() -> new float[0]);
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bOffset + i);
+            sum = va.fma(vb, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[aOffset + i] * b[bOffset + i];
+        }
+        return result;
+    }
+
+    @Override
+    public float dot(float[] a, FloatBuffer b, int bOffset, int length) {
+        return dot(a, 0, buffered(b, bOffset, length), 0, length);
+    }
+
+    @Override
+    public float cosine(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector dot = FloatVector.zero(SPECIES);
+        FloatVector normA = FloatVector.zero(SPECIES);
+        FloatVector normB = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bOffset + i);
+            dot = va.fma(vb, dot);
+            normA = va.fma(va, normA);
+            normB = vb.fma(vb, normB);
+        }
+        float dotSum = dot.reduceLanes(VectorOperators.ADD);
+        float normASum = normA.reduceLanes(VectorOperators.ADD);
+        float normBSum = normB.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            float ai = a[aOffset + i];
+            float bi = b[bOffset + i];
+            dotSum += ai * bi;
+            normASum += ai * ai;
+            normBSum += bi * bi;
+        }
+        return SimilarityKernels.cosineFromSums(dotSum, normASum, normBSum);
+    }
+
+    @Override
+    public float squaredDistance(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector difference =
+                    FloatVector.fromArray(SPECIES, a, aOffset + i)
+                            .sub(FloatVector.fromArray(SPECIES, b, bOffset + i));
+            sum = difference.fma(difference, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            float difference = a[aOffset + i] - b[bOffset + i];
+            result += difference * difference;
+        }
+        return result;
+    }
+
+    @Override
+    public float squaredDistance(float[] a, FloatBuffer b, int bOffset, int length) {
+        return squaredDistance(a, 0, buffered(b, bOffset, length), 0, length);
+    }
+
+    private static float[] buffered(FloatBuffer buffer, int offset, int length) {
+        float[] components = BUFFERED.get();
+        if (components.length < length) {
+            components = new float[length];
+            BUFFERED.set(components);
+        }
+        buffer.get(offset, components, 0, length);
+        return components;
+    }
+}
@@ -0,0 +1,58 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class BinarySignatureTest {
+    @Test
+    void testDistanceCountsDifferingSigns() {
+        float[] vector = new float[70];
+        float[] other = new float[70];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = i % 2 == 0 ? 1f : -1f;
+            other[i] = vector[i];
+        }
+        other[3] = 2f;
+        other[64] = -0.5f;
+        other[69] = 0.25f;
+
+        byte[] signature = BinarySignature.encode(other);
+
+        assertEquals(BinarySignature.HEADER_BYTES + 2 * Long.BYTES, signature.length);
+        assertEquals(3, BinarySignature.signQuery(vector).distance(signature));
+        assertEquals(0, BinarySignature.signQuery(other).distance(signature));
+        assertEquals(1f, BinarySignature.signQuery(other).similarity(signature), 1e-6f);
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> BinarySignature.signQuery(new float[] {1f}).distance(signature));
+        assertThrows(
+                SQLConnectorException.class,
+                () -> BinarySignature.signQuery(vector).distance(new byte[] {70, 0, 0, 0, 0}));
+    }
+
+    @Test
+    void testSimilarityRanksCloserVectorsFirst() {
+        Random random = new Random(5);
+        float[] query = new float[1536];
+        float[] near = new float[1536];
+        float[] far = new float[1536];
+        for (int i = 0; i < query.length; i++) {
+            query[i] = (float) random.nextGaussian();
+            near[i] = (float) random.nextGaussian() + 2f * query[i];
+            far[i] = (float) random.nextGaussian();
+        }
+
+        BinarySignature.Query signed = BinarySignature.signQuery(query);
+
+        assertTrue(
+                signed.similarity(BinarySignature.encode(near))
+                        > signed.similarity(BinarySignature.encode(far)));
+        assertEquals(
+                SimilarityKernels.cosine(query, near),
+                signed.similarity(BinarySignature.encode(near)),
+                0.1f);
+    }
+}
@@ -0,0 +1,60 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+public class CollectionRegistryTest {
+    @Test
+    void testLooksUpLoadedCollectionsInMemory() {
+        SQLConnector connector = mock(SQLConnector.class);
+        when(connector.getCollectionsVersionAsync()).thenReturn(Mono.just(1L));
+        when(connector.getCollectionsAsync()).thenReturn(Mono.just(Arrays.asList("a", "b")));
+        when(connector.doesCollectionExistsAsync("c")).thenReturn(Mono.just(true));
+        when(connector.doesCollectionExistsAsync("d")).thenReturn(Mono.just(false));
+
+        CollectionRegistry registry = new CollectionRegistry(connector, 0);
+        registry.loadAsync().block();
+        assertTrue(registry.containsAsync("a").block());
+        verify(connector, never()).doesCollectionExistsAsync(anyString());
+
+        // Created elsewhere, found in the database once and then remembered
+        assertTrue(registry.containsAsync("c").block());
+        assertTrue(registry.containsAsync("c").block());
+        verify(connector, times(1)).doesCollectionExistsAsync("c");
+        assertFalse(registry.containsAsync("d").block());
+
+        registry.remove("a");
+        when(connector.doesCollectionExistsAsync("a")).thenReturn(Mono.just(false));
+        assertFalse(registry.containsAsync("a").block());
+        verify(connector, times(1)).getCollectionsVersionAsync();
+    }
+
+    @Test
+    void testReloadsWhenTheVersionChanges() throws InterruptedException {
+        SQLConnector connector = mock(SQLConnector.class);
+        when(connector.getCollectionsVersionAsync()).thenReturn(Mono.just(1L));
+        when(connector.getCollectionsAsync()).thenReturn(Mono.just(Arrays.asList("a", "b")));
+        when(connector.doesCollectionExistsAsync("b")).thenReturn(Mono.just(false));
+
+        CollectionRegistry registry = new CollectionRegistry(connector, 1);
+        registry.loadAsync().block();
+        Thread.sleep(1);
+        assertTrue(registry.containsAsync("b").block());
+        verify(connector, times(1)).getCollectionsAsync();
+
+        // Deleted by another process
+        when(connector.getCollectionsVersionAsync()).thenReturn(Mono.just(2L));
+        when(connector.getCollectionsAsync()).thenReturn(Mono.just(Collections.singletonList("a")));
+        Thread.sleep(1);
+        assertFalse(registry.containsAsync("b").block());
+        assertTrue(registry.containsAsync("a").block());
+        verify(connector, times(2)).getCollectionsAsync();
+    }
+}
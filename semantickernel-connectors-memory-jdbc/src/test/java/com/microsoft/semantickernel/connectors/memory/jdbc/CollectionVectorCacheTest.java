@@ -0,0 +1,100 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import reactor.util.function.Tuple2;
+
+public class CollectionVectorCacheTest {
+    @Test
+    void testSearchOrdersByScoreAndAppliesLimit() {
+        CollectionVectorCache cache = new CollectionVectorCache();
+        cache.load("x", new float[] {1f, 0f});
+        cache.load("y", new float[] {0f, 1f});
+        cache.load("xy", new float[] {1f, 1f});
+        cache.finishLoading();
+
+        List<Tuple2<String, Float>> matches = cache.search(new float[] {1f, 0.1f}, 2, -1f);
+
+        assertEquals(2, matches.size());
+        assertEquals("x", matches.get(0).getT1());
+        assertEquals("xy", matches.get(1).getT1());
+    }
+
+    @Test
+    void testRemoveKeepsRemainingRowsSearchable() {
+        CollectionVectorCache cache = new CollectionVectorCache();
+        cache.put("a", new float[] {1f, 0f});
+        cache.put("b", new float[] {0f, 1f});
+        cache.put("c", new float[] {-1f, 0f});
+
+        cache.remove("a");
+
+        assertEquals(2, cache.size());
+        assertEquals("c", cache.search(new float[] {-1f, 0f}, 1, 0f).get(0).getT1());
+        assertEquals("b", cache.search(new float[] {0f, 1f}, 1, 0f).get(0).getT1());
+    }
+
+    @Test
+    void testWritesDuringLoadWinOverLoadedRows() {
+        CollectionVectorCache cache = new CollectionVectorCache();
+        cache.put("updated", new float[] {0f, 1f});
+        cache.remove("removed");
+
+        cache.load("updated", new float[] {1f, 0f});
+        cache.load("removed", new float[] {1f, 0f});
+        cache.finishLoading();
+
+        assertEquals(1, cache.size());
+        assertEquals(1f, cache.search(new float[] {0f, 1f}, 1, 0f).get(0).getT2(), 1e-6);
+    }
+
+    @Test
+    void testOffHeapRowsSpanSlabsWithinTheBudget() {
+        // Two rows per slab and two slabs
+        VectorArena arena = new VectorArena(32, 2 * 2 * Float.BYTES, MemoryStoreMetrics.NOOP);
+        CollectionVectorCache cache = new CollectionVectorCache(arena);
+        cache.put("a", new float[] {1f, 0f});
+        cache.put("b", new float[] {0f, 1f});
+        cache.put("c", new float[] {-1f, 0f});
+        cache.put("d", new float[] {0f, -1f});
+
+        assertThrows(
+                VectorArena.ExhaustedException.class, () -> cache.put("e", new float[] {1f, 1f}));
+        assertEquals(4, cache.size());
+        assertEquals(32, arena.getUsedBytes());
+
+        // The last row moves into the first slab, which frees the second
+        cache.remove("a");
+        cache.remove("b");
+        assertEquals(16, arena.getUsedBytes());
+        assertEquals("d", cache.search(new float[] {0f, -1f}, 1, 0f).get(0).getT1());
+        assertEquals("c", cache.search(new float[] {-1f, 0f}, 1, 0f).get(0).getT1());
+
+        cache.release();
+        assertNull(cache.search(new float[] {1f, 0f}, 1, 0f));
+        assertEquals(0, arena.getUsedBytes());
+        assertEquals(32, arena.getReservedBytes());
+        arena.close();
+        assertEquals(0, arena.getReservedBytes());
+    }
+
+    @Test
+    void testParallelSearchWithoutLimitReturnsEveryRow() {
+        CollectionVectorCache cache = new CollectionVectorCache();
+        for (int i = 0; i < 100; i++) {
+            cache.put("k" + i, new float[] {1f, i});
+        }
+
+        List<Tuple2<String, Float>> matches =
+                cache.search(
+                        new float[] {1f, 0f}, Integer.MAX_VALUE, -1f, ForkJoinPool.commonPool(), 7);
+
+        assertEquals(100, matches.size());
+        assertEquals("k0", matches.get(0).getT1());
+        assertEquals("k99", matches.get(99).getT1());
+    }
+}
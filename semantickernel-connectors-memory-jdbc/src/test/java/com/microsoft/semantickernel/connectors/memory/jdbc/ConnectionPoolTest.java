@@ -0,0 +1,108 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+
+public class ConnectionPoolTest {
+    private static DataSource mockDataSource() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection())
+                .thenAnswer(
+                        invocation -> {
+                            Connection connection = mock(Connection.class);
+                            when(connection.getAutoCommit()).thenReturn(true);
+                            when(connection.isValid(anyInt())).thenReturn(true);
+                            return connection;
+                        });
+        return dataSource;
+    }
+
+    @Test
+    void testReusesReturnedConnections() throws SQLException {
+        DataSource dataSource = mockDataSource();
+        try (ConnectionPool pool =
+                new ConnectionPool.Builder().withDataSource(dataSource).withMinSize(1).build()) {
+            assertEquals(1, pool.getIdleConnections());
+
+            Connection first = pool.getConnection();
+            first.createStatement();
+            assertEquals(1, pool.getActiveConnections());
+            first.close();
+            first.close();
+            assertThrows(SQLException.class, first::createStatement);
+            assertTrue(first.isClosed());
+
+            try (Connection second = pool.getConnection()) {
+                second.createStatement();
+            }
+            assertEquals(0, pool.getActiveConnections());
+            assertEquals(1, pool.getIdleConnections());
+            verify(dataSource, times(1)).getConnection();
+        }
+    }
+
+    @Test
+    void testTimesOutWhenExhausted() throws SQLException {
+        try (ConnectionPool pool =
+                new ConnectionPool.Builder()
+                        .withDataSource(mockDataSource())
+                        .withMaxSize(2)
+                        .withAcquireTimeout(Duration.ofMillis(50))
+                        .build()) {
+            Connection first = pool.getConnection();
+            Connection second = pool.getConnection();
+            assertThrows(SQLTransientConnectionException.class, pool::getConnection);
+
+            second.close();
+            pool.getConnection().close();
+            first.close();
+            assertEquals(2, pool.getIdleConnections());
+        }
+    }
+
+    @Test
+    void testDiscardsBrokenConnections() throws SQLException {
+        Connection broken = mock(Connection.class);
+        when(broken.getAutoCommit()).thenReturn(true);
+        when(broken.createStatement()).thenThrow(new SQLException("gone", "08006"));
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(broken);
+
+        try (ConnectionPool pool =
+                new ConnectionPool.Builder().withDataSource(dataSource).build()) {
+            try (Connection connection = pool.getConnection()) {
+                assertThrows(SQLException.class, connection::createStatement);
+            }
+            assertEquals(0, pool.getIdleConnections());
+            verify(broken).close();
+        }
+    }
+
+    @Test
+    void testRollsBackUncommittedWork() throws SQLException {
+        Connection physical = mock(Connection.class);
+        when(physical.getAutoCommit()).thenReturn(false);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(physical);
+
+        try (ConnectionPool pool =
+                new ConnectionPool.Builder().withDataSource(dataSource).build()) {
+            Connection connection = pool.getConnection();
+            connection.setAutoCommit(false);
+            connection.close();
+
+            verify(physical).rollback();
+            verify(physical).setAutoCommit(true);
+            assertEquals(1, pool.getIdleConnections());
+        }
+    }
+}
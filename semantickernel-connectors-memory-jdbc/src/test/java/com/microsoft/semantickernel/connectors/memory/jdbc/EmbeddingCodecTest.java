@@ -0,0 +1,64 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class EmbeddingCodecTest {
+    @Test
+    void testBinaryRoundTrip() {
+        float[] vector = {1.5f, -2.25f, 0f, Float.MIN_VALUE};
+
+        byte[] bytes = EmbeddingCodec.encode(vector);
+
+        assertEquals(EmbeddingCodec.HEADER_BYTES + vector.length * Float.BYTES, bytes.length);
+        // little-endian dimension header
+        assertEquals(4, bytes[0]);
+        assertEquals(0, bytes[3]);
+        assertArrayEquals(vector, EmbeddingCodec.decode(bytes));
+    }
+
+    @Test
+    void testDecodeRejectsTruncatedVector() {
+        byte[] bytes = EmbeddingCodec.encode(new float[] {1f, 2f});
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+        SQLConnectorException e =
+                assertThrows(SQLConnectorException.class, () -> EmbeddingCodec.decode(truncated));
+        assertEquals(SQLConnectorException.ErrorCodes.INVALID_EMBEDDING, e.getErrorCode());
+    }
+
+    @Test
+    void testJsonRoundTrip() {
+        float[] vector = {1f, 2.5f};
+
+        String json = EmbeddingCodec.toJson(vector);
+
+        assertEquals("{\"vector\":[1.0,2.5]}", json);
+        assertArrayEquals(vector, EmbeddingCodec.fromJson(json));
+        assertNull(EmbeddingCodec.fromJson(""));
+    }
+
+    @Test
+    void testStreamingJsonDecoder() {
+        float[] vector = new float[1000];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = i / 7f;
+        }
+
+        assertArrayEquals(vector, EmbeddingCodec.fromJson(EmbeddingCodec.toJson(vector)));
+        assertArrayEquals(
+                new float[] {1f, -2f, 0.5f},
+                EmbeddingCodec.fromJson("{\"other\":{\"a\":[1]},\"vector\":[1,-2,0.5]}"));
+        assertArrayEquals(new float[0], EmbeddingCodec.fromJson("{\"vector\":[]}"));
+
+        SQLConnectorException e =
+                assertThrows(
+                        SQLConnectorException.class,
+                        () -> EmbeddingCodec.fromJson("{\"vector\":[1,\"x\"]}"));
+        assertEquals(SQLConnectorException.ErrorCodes.INVALID_EMBEDDING, e.getErrorCode());
+        assertThrows(SQLConnectorException.class, () -> EmbeddingCodec.fromJson("{\"vector\":[1"));
+    }
+}
@@ -0,0 +1,87 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import reactor.util.function.Tuple2;
+
+public class HnswVectorIndexTest {
+    private static Map<String, float[]> randomVectors(int count, int dimension) {
+        Random random = new Random(7);
+        Map<String, float[]> vectors = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            float[] vector = new float[dimension];
+            for (int j = 0; j < dimension; j++) {
+                vector[j] = (float) random.nextGaussian();
+            }
+            vectors.put("key" + i, vector);
+        }
+        return vectors;
+    }
+
+    @Test
+    void testFindsIndexedVectors() {
+        Map<String, float[]> vectors = randomVectors(1000, 16);
+        HnswVectorIndex index = new HnswVectorIndex();
+        vectors.forEach(index::add);
+
+        int found = 0;
+        for (Map.Entry<String, float[]> vector : vectors.entrySet()) {
+            List<Tuple2<String, Float>> matches = index.search(vector.getValue(), 1, 0f, 0);
+            if (matches.get(0).getT1().equals(vector.getKey())) {
+                found++;
+            }
+        }
+        assertTrue(found >= 990, "found " + found);
+    }
+
+    @Test
+    void testRemovedKeysAreNotReturned() {
+        Map<String, float[]> vectors = randomVectors(500, 8);
+        HnswVectorIndex index = new HnswVectorIndex(8, 100, 50);
+        vectors.forEach(index::add);
+        List<String> removed = new ArrayList<>();
+        for (int i = 0; i < 500; i += 2) {
+            removed.add("key" + i);
+        }
+
+        index.remove(removed);
+
+        assertEquals(250, index.size());
+        for (String key : removed) {
+            List<Tuple2<String, Float>> matches = index.search(vectors.get(key), 10, -1f, 100);
+            assertEquals(10, matches.size());
+            matches.forEach(match -> assertFalse(removed.contains(match.getT1())));
+        }
+        Map<String, byte[]> changes = index.drainChanges();
+        removed.forEach(key -> assertNull(changes.get(key)));
+        assertTrue(index.drainChanges().isEmpty());
+    }
+
+    @Test
+    void testRestoreFromDrainedRecords() {
+        Map<String, float[]> vectors = randomVectors(500, 8);
+        HnswVectorIndex index = new HnswVectorIndex();
+        vectors.forEach(index::add);
+        Map<String, byte[]> records = index.drainChanges();
+        float[] extra = {1f, 2f, 3f, 4f, 5f, 6f, 7f, 8f};
+        vectors.put("extra", extra);
+        records.put("stale", records.get("key0"));
+
+        HnswVectorIndex restored = new HnswVectorIndex();
+        restored.restore(vectors, records);
+
+        assertEquals(501, restored.size());
+        assertEquals("extra", restored.search(extra, 1, 0f, 0).get(0).getT1());
+        Map<String, byte[]> changes = restored.drainChanges();
+        assertTrue(changes.containsKey("stale"));
+        assertNull(changes.get("stale"));
+        assertNotNull(changes.get("extra"));
+    }
+}
@@ -0,0 +1,105 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import com.microsoft.semantickernel.ai.embeddings.Embedding;
+import com.microsoft.semantickernel.connectors.memory.jdbc.MemoryStoreMetrics.SearchStage;
+import com.microsoft.semantickernel.memory.MemoryRecordMetadata;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class InstrumentedSQLConnectorTest {
+    private static DatabaseEntry entry(String key, float[] vector) throws Exception {
+        String metadata =
+                JsonCodec.writeMetadata(new MemoryRecordMetadata(true, key, "text", "", "", key));
+        return new DatabaseEntry(key, metadata, vector, null);
+    }
+
+    @Test
+    void testRecordsReadsAndErrors() throws Exception {
+        SQLConnector connector = mock(SQLConnector.class);
+        DatabaseEntry entry = entry("key", new float[] {1f, 2f});
+        Collection<DatabaseEntry> entries = Arrays.asList(entry, entry);
+        when(connector.readBatchAsync(anyString(), any())).thenReturn(Mono.just(entries));
+        when(connector.deleteAsync(anyString(), anyString()))
+                .thenReturn(
+                        Mono.error(
+                                new SQLConnectorException(
+                                        SQLConnectorException.ErrorCodes.SQL_ERROR,
+                                        "failed",
+                                        new SQLException())));
+        MemoryStoreMetrics metrics = mock(MemoryStoreMetrics.class);
+        InstrumentedSQLConnector instrumented = new InstrumentedSQLConnector(connector, metrics);
+
+        instrumented.readBatchAsync("collection", Arrays.asList("key", "other", "key")).block();
+        assertThrows(
+                SQLConnectorException.class,
+                () -> instrumented.deleteAsync("collection", "key").block());
+
+        long bytes = 2 * (entry.getMetadata().length() + 2 * Float.BYTES);
+        verify(metrics).recordBatchSize("readBatchAsync", 3);
+        verify(metrics).recordOperation(eq("readBatchAsync"), anyLong(), isNull());
+        verify(metrics).recordRowsFetched("readBatchAsync", 2);
+        verify(metrics).recordBytesDecoded("readBatchAsync", bytes);
+        verify(metrics)
+                .recordOperation(eq("deleteAsync"), anyLong(), any(SQLConnectorException.class));
+    }
+
+    @Test
+    void testRecordsSearchStages() throws Exception {
+        SQLConnector connector = mock(SQLConnector.class);
+        DatabaseEntry a = entry("a", new float[] {1f, 0f});
+        when(connector.streamAllAsync(anyString(), anyInt(), eq(EntryProjection.EMBEDDING)))
+                .thenReturn(Flux.just(a, entry("b", new float[] {0f, 1f})));
+        when(connector.readBatchAsync(
+                        anyString(),
+                        eq(Collections.singletonList("a")),
+                        eq(EntryProjection.METADATA)))
+                .thenReturn(Mono.just(Collections.singletonList(a)));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JDBCMemoryStore store =
+                new JDBCMemoryStore(
+                        new InstrumentedSQLConnector(
+                                connector, new MicrometerMemoryStoreMetrics(registry)),
+                        new JDBCMemoryStore.Builder()
+                                .withMetrics(new MicrometerMemoryStoreMetrics(registry)));
+
+        Collection<?> matches =
+                store.getNearestMatchesAsync(
+                                "collection", new Embedding(Arrays.asList(1f, 0.1f)), 1, -1f, false)
+                        .block();
+
+        assertEquals(1, matches.size());
+        assertEquals(
+                1,
+                registry.get("sk.memory.jdbc.operation")
+                        .tags("operation", "getNearestMatchesAsync", "outcome", "success")
+                        .timer()
+                        .count());
+        assertEquals(
+                2,
+                registry.get("sk.memory.jdbc.rows.fetched")
+                        .tag("operation", "streamAllAsync")
+                        .summary()
+                        .totalAmount());
+        for (SearchStage stage : SearchStage.values()) {
+            assertEquals(
+                    1,
+                    registry.get("sk.memory.jdbc.search.stage")
+                            .tag("stage", stage.name().toLowerCase())
+                            .timer()
+                            .count());
+        }
+        assertEquals(Collections.emptyList(), registry.find("sk.memory.jdbc.errors").meters());
+    }
+}
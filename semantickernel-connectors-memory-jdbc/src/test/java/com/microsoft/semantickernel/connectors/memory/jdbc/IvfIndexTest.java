@@ -0,0 +1,232 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+public class IvfIndexTest {
+    private static final float[][] CENTERS = {
+        {1f, 0f, 0f, 0f}, {0f, 1f, 0f, 0f}, {0f, 0f, 1f, 0f}, {0f, 0f, 0f, 1f}
+    };
+
+    private final Random random = new Random(7);
+    // The rows of the collection, their clusters and the stored centroids
+    private final Map<String, float[]> rows = new LinkedHashMap<>();
+    private final Map<String, Integer> clusters = new HashMap<>();
+    private final Map<Integer, float[]> storedCentroids = new HashMap<>();
+    // The first assignment of the key is held until the sink completes
+    private String heldKey = "";
+    private final Sinks.Empty<Void> release = Sinks.empty();
+
+    private SQLConnector connector() {
+        SQLConnector connector = mock(SQLConnector.class);
+        when(connector.readCentroidsAsync("c"))
+                .thenAnswer(invocation -> Mono.fromCallable(() -> new HashMap<>(storedCentroids)));
+        when(connector.replaceCentroidsAsync(eq("c"), anyMap()))
+                .thenAnswer(
+                        invocation ->
+                                Mono.fromRunnable(
+                                        () -> {
+                                            storedCentroids.clear();
+                                            storedCentroids.putAll(invocation.getArgument(1));
+                                        }));
+        when(connector.countClustersAsync("c"))
+                .thenAnswer(
+                        invocation ->
+                                Mono.fromCallable(
+                                        () -> {
+                                            Map<Integer, Long> counts = new HashMap<>();
+                                            for (String key : rows.keySet()) {
+                                                counts.merge(
+                                                        clusters.getOrDefault(key, -1),
+                                                        1L,
+                                                        Long::sum);
+                                            }
+                                            return counts;
+                                        }));
+        when(connector.streamAllAsync(eq("c"), anyInt(), any()))
+                .thenAnswer(invocation -> Flux.defer(() -> Flux.fromIterable(entries(null))));
+        when(connector.streamClustersAsync(eq("c"), any(), anyInt(), any()))
+                .thenAnswer(
+                        invocation ->
+                                Flux.defer(
+                                        () ->
+                                                Flux.fromIterable(
+                                                        entries(invocation.getArgument(1)))));
+        AtomicBoolean held = new AtomicBoolean();
+        when(connector.assignClustersAsync(eq("c"), anyMap()))
+                .thenAnswer(
+                        invocation -> {
+                            Map<String, Integer> clusterIds = invocation.getArgument(1);
+                            Mono<Void> write = Mono.fromRunnable(() -> clusters.putAll(clusterIds));
+                            if (clusterIds.containsKey(heldKey)
+                                    && held.compareAndSet(false, true)) {
+                                return release.asMono().then(write);
+                            }
+                            return write;
+                        });
+        return connector;
+    }
+
+    // The rows of the given clusters and the unassigned rows, or every row
+    private List<DatabaseEntry> entries(Collection<Integer> clusterIds) {
+        List<DatabaseEntry> entries = new ArrayList<>();
+        for (Map.Entry<String, float[]> row : rows.entrySet()) {
+            Integer clusterId = clusters.get(row.getKey());
+            if (clusterIds == null || clusterId == null || clusterIds.contains(clusterId)) {
+                entries.add(new DatabaseEntry(row.getKey(), null, row.getValue(), null));
+            }
+        }
+        return entries;
+    }
+
+    // Writes rows near a center and returns their embeddings by key
+    private Map<String, float[]> write(int center, int count) {
+        Map<String, float[]> written = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            float[] vector = CENTERS[center].clone();
+            for (int j = 0; j < vector.length; j++) {
+                vector[j] += 0.05f * (float) random.nextGaussian();
+            }
+            String key = center + "-" + rows.size();
+            written.put(key, vector);
+            rows.put(key, vector);
+        }
+        return written;
+    }
+
+    // Loads an index of four clusters and trains it on rows around the four centers
+    private IvfIndex trainedIndex(SQLConnector connector) {
+        IvfIndex index =
+                new IvfIndex(
+                                "c",
+                                new IvfIndexOptions.Builder().withClusters(4).withNprobe(1).build(),
+                                connector,
+                                0)
+                        .loadAsync()
+                        .block();
+        Map<String, float[]> written = new LinkedHashMap<>();
+        for (int center = 0; center < CENTERS.length; center++) {
+            written.putAll(write(center, IvfIndex.MIN_ROWS_PER_CLUSTER));
+        }
+        index.assignAsync(written).block();
+        assertEquals(4, storedCentroids.size());
+        return index;
+    }
+
+    private List<String> candidates(IvfIndex index, int center, int nprobe) {
+        return index.streamCandidatesAsync(CENTERS[center], nprobe, EntryProjection.EMBEDDING)
+                .map(DatabaseEntry::getKey)
+                .collectList()
+                .block();
+    }
+
+    @Test
+    void testSearchReadsTheNearestClusters() {
+        SQLConnector connector = connector();
+        IvfIndex index = trainedIndex(connector);
+        clearInvocations(connector);
+
+        List<String> candidates = candidates(index, 1, 1);
+
+        assertEquals(IvfIndex.MIN_ROWS_PER_CLUSTER, candidates.size());
+        assertTrue(candidates.stream().allMatch(key -> key.startsWith("1-")));
+        verify(connector).streamClustersAsync(eq("c"), any(), anyInt(), any());
+        verify(connector, never()).streamAllAsync(eq("c"), anyInt(), any());
+    }
+
+    @Test
+    void testRetrainsWhenTheClustersBecomeUnbalanced() {
+        SQLConnector connector = connector();
+        IvfIndex index = trainedIndex(connector);
+        List<Integer> firstIds = new ArrayList<>(storedCentroids.keySet());
+
+        index.assignAsync(write(0, 100)).block();
+
+        assertEquals(4, storedCentroids.size());
+        assertTrue(storedCentroids.keySet().stream().noneMatch(firstIds::contains));
+        assertTrue(storedCentroids.keySet().containsAll(clusters.values()));
+        assertEquals(rows.size(), candidates(index, 0, 4).size());
+    }
+
+    @Test
+    void testTrainingReassignsStaleRowsFirst() {
+        SQLConnector connector = connector();
+        IvfIndex index = trainedIndex(connector);
+        Map<Integer, float[]> trained = new HashMap<>(storedCentroids);
+        // A row left in a cluster of earlier centroids
+        clusters.put("1-8", 99);
+
+        index.assignAsync(write(0, 100)).block();
+
+        // The training found the stale row and assigned it instead of training again
+        assertEquals(trained.keySet(), storedCentroids.keySet());
+        assertTrue(trained.keySet().containsAll(clusters.values()));
+        clearInvocations(connector);
+        assertTrue(candidates(index, 1, 1).contains("1-8"));
+        verify(connector).streamClustersAsync(eq("c"), any(), anyInt(), any());
+    }
+
+    @Test
+    void testAssignmentRacingARetrainIsMovedToTheNewCentroids() {
+        SQLConnector connector = connector();
+        IvfIndex index = trainedIndex(connector);
+        heldKey = "1-" + rows.size();
+        Mono<Void> racing = index.assignAsync(write(1, 1)).cache();
+        racing.subscribe();
+
+        // The retraining reassigns every row, then the held assignment to an old cluster lands
+        index.assignAsync(write(0, 100)).block();
+        release.tryEmitEmpty();
+        racing.block();
+
+        assertTrue(storedCentroids.containsKey(clusters.get(heldKey)));
+        List<String> candidates = candidates(index, 1, 4);
+        assertEquals(rows.size(), candidates.size());
+        assertTrue(candidates.contains(heldKey));
+    }
+
+    @Test
+    void testKMeansFindsSeparatedClusters() {
+        Random random = new Random(3);
+        float[][] centers = {{1f, 0f, 0f}, {0f, 1f, 0f}, {0f, 0f, 1f}};
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            float[] vector = centers[i % centers.length].clone();
+            for (int j = 0; j < vector.length; j++) {
+                vector[j] += 0.05f * (float) random.nextGaussian();
+            }
+            vectors.add(SimilarityKernels.normalize(vector));
+        }
+
+        float[][] centroids = IvfIndex.kMeans(vectors, 3, new Random(1));
+
+        assertEquals(3, centroids.length);
+        for (float[] center : centers) {
+            float best = Float.NEGATIVE_INFINITY;
+            for (float[] centroid : centroids) {
+                assertEquals(1f, SimilarityKernels.norm(centroid), 1e-5f);
+                best = Math.max(best, SimilarityKernels.dot(center, centroid));
+            }
+            assertTrue(best > 0.99f);
+        }
+        assertEquals(2, IvfIndex.kMeans(vectors.subList(0, 2), 3, new Random(1)).length);
+    }
+}
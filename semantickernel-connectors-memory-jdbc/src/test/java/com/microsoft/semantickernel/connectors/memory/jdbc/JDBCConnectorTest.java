@@ -2,10 +2,31 @@
 package com.microsoft.semantickernel.connectors.memory.jdbc;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
 
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public class JDBCConnectorTest {
     @Test
@@ -15,7 +36,7 @@ public class JDBCConnectorTest {
         keys.add("key2");
         keys.add("key3");
 
-        JDBCConnector connector = new JDBCConnector(null);
+        JDBCConnector connector = new JDBCConnector((Connection) null);
         String read = connector.batchQuery(JDBCConnector.BatchOperation.SELECT, keys);
         String delete = connector.batchQuery(JDBCConnector.BatchOperation.DELETE, keys);
 
@@ -32,4 +53,471 @@ public class JDBCConnectorTest {
                         + " WHERE collection = ? AND key IN (?,?,?)",
                 delete);
     }
+
+    @Test
+    void testStreamAllClosesCursorOnCancel() throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getString("key")).thenReturn("key");
+        when(resultSet.getString("metadata")).thenReturn("{}");
+
+        JDBCConnector connector = new JDBCConnector(connection);
+        List<DatabaseEntry> entries =
+                connector.streamAllAsync("collection", 50).take(3).collectList().block();
+
+        assertEquals(3, entries.size());
+        verify(statement).setFetchSize(50);
+        verify(resultSet, times(3)).next();
+        verify(resultSet, atLeastOnce()).close();
+        // The statement goes back to the statement cache and is closed with the connector
+        verify(statement, never()).close();
+        connector.close();
+        verify(statement).close();
+    }
+
+    @Test
+    void testMetadataProjectionSkipsEmbedding() throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getString("key")).thenReturn("key1");
+        when(resultSet.getString("metadata")).thenReturn("{}");
+
+        JDBCConnector connector = new JDBCConnector(connection);
+        Collection<DatabaseEntry> entries =
+                connector
+                        .readBatchAsync(
+                                "collection",
+                                Collections.singletonList("key1"),
+                                EntryProjection.METADATA)
+                        .block();
+
+        verify(connection)
+                .prepareStatement(
+                        "SELECT key, metadata, timestamp FROM "
+                                + JDBCConnector.TABLE_NAME
+                                + " WHERE collection = ? AND key IN (?)");
+        verify(resultSet, never()).getString("embedding");
+        DatabaseEntry entry = entries.iterator().next();
+        assertEquals("{}", entry.getMetadata());
+        assertNull(entry.getEmbedding());
+        assertNull(entry.getVector());
+    }
+
+    @Test
+    void testBatchesAreReadInPowerOfTwoChunks() throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false, true, false);
+        when(resultSet.getString("key")).thenReturn("key0", "key299");
+
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            keys.add("key" + i);
+        }
+        JDBCConnector connector = new JDBCConnector(connection);
+        Collection<DatabaseEntry> entries =
+                connector.readBatchAsync("collection", keys, EntryProjection.METADATA).block();
+
+        assertEquals(2, entries.size());
+        for (int size : new int[] {256, 64}) {
+            verify(connection)
+                    .prepareStatement(
+                            connector.batchQuery(
+                                    JDBCConnector.BatchOperation.SELECT,
+                                    EntryProjection.METADATA,
+                                    Collections.nCopies(size, "key")));
+        }
+        verify(connection, times(2)).prepareStatement(anyString());
+        // The last chunk of 44 keys is padded with its last key
+        verify(statement, times(21)).setString(anyInt(), eq("key299"));
+
+        assertTrue(
+                connector.readBatchAsync("collection", Collections.emptyList()).block().isEmpty());
+        connector.deleteBatchAsync("collection", Collections.emptyList()).block();
+        verify(connection, times(2)).prepareStatement(anyString());
+    }
+
+    @Test
+    void testRepeatedKeysAreChunkedOnce() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            keys.add("key" + (i % 260));
+        }
+
+        List<List<String>> chunks = JDBCConnector.chunkKeys(keys);
+
+        assertEquals(2, chunks.size());
+        assertEquals(256, chunks.get(0).size());
+        assertEquals(Arrays.asList("key256", "key257", "key258", "key259"), chunks.get(1));
+    }
+
+    @Test
+    void testBatchUpsertCommitsOnce() throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeBatch())
+                .thenReturn(new int[] {1, 1})
+                .thenThrow(new SQLException("constraint"));
+        List<DatabaseEntry> entries =
+                Arrays.asList(
+                        new DatabaseEntry("a", "{}", new float[] {1f}, null),
+                        new DatabaseEntry("b", "{}", new float[] {2f}, null));
+
+        JDBCConnector connector = new JDBCConnector(connection);
+        assertEquals(
+                Arrays.asList("a", "b"), connector.upsertBatchAsync("collection", entries).block());
+        verify(connection).setAutoCommit(false);
+        verify(connection).commit();
+        verify(connection).setAutoCommit(true);
+
+        assertThrows(
+                SQLConnectorException.class,
+                () -> connector.upsertBatchAsync("collection", entries).block());
+        verify(connection).rollback();
+        verify(connection).commit();
+        verify(connection, times(2)).setAutoCommit(true);
+    }
+
+    @Test
+    void testConcurrentBatchUpsertsOnOneConnectionCommitSeparately() throws SQLException {
+        // A connection that keeps the rows of its open transaction apart from the committed rows
+        AtomicBoolean autoCommit = new AtomicBoolean(true);
+        List<String> pending = new ArrayList<>();
+        List<String> committed = new ArrayList<>();
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenAnswer(invocation -> autoCommit.get());
+        doAnswer(
+                        invocation -> {
+                            autoCommit.set(invocation.getArgument(0));
+                            return null;
+                        })
+                .when(connection)
+                .setAutoCommit(anyBoolean());
+        doAnswer(
+                        invocation -> {
+                            synchronized (pending) {
+                                committed.addAll(pending);
+                                pending.clear();
+                            }
+                            return null;
+                        })
+                .when(connection)
+                .commit();
+        doAnswer(
+                        invocation -> {
+                            synchronized (pending) {
+                                pending.clear();
+                            }
+                            return null;
+                        })
+                .when(connection)
+                .rollback();
+        // Unless they are serialized, the batches all write before any of them ends
+        CountDownLatch overlap = new CountDownLatch(4);
+        when(connection.prepareStatement(anyString()))
+                .thenAnswer(
+                        prepare -> {
+                            PreparedStatement statement = mock(PreparedStatement.class);
+                            List<String> keys = new ArrayList<>();
+                            doAnswer(invocation -> keys.add(invocation.getArgument(1)))
+                                    .when(statement)
+                                    .setString(eq(2), anyString());
+                            doAnswer(
+                                            invocation -> {
+                                                keys.clear();
+                                                return null;
+                                            })
+                                    .when(statement)
+                                    .clearBatch();
+                            when(statement.executeBatch())
+                                    .thenAnswer(
+                                            invocation -> {
+                                                synchronized (pending) {
+                                                    pending.addAll(keys);
+                                                }
+                                                overlap.countDown();
+                                                overlap.await(100, TimeUnit.MILLISECONDS);
+                                                if (keys.contains("bad")) {
+                                                    throw new SQLException("constraint");
+                                                }
+                                                return new int[keys.size()];
+                                            });
+                            return statement;
+                        });
+        List<List<DatabaseEntry>> batches = new ArrayList<>();
+        for (String batch : Arrays.asList("a", "b", "bad", "c")) {
+            batches.add(
+                    Arrays.asList(
+                            new DatabaseEntry(batch, "{}", new float[] {1f}, null),
+                            new DatabaseEntry(batch + "2", "{}", new float[] {2f}, null)));
+        }
+
+        JDBCConnector connector = new JDBCConnector(connection);
+        AtomicInteger failures = new AtomicInteger();
+        Flux.fromIterable(batches)
+                .flatMap(
+                        batch ->
+                                connector
+                                        .upsertBatchAsync("collection", batch)
+                                        .onErrorResume(
+                                                SQLConnectorException.class,
+                                                e -> {
+                                                    failures.incrementAndGet();
+                                                    return Mono.empty();
+                                                }))
+                .blockLast();
+
+        assertEquals(1, failures.get());
+        Collections.sort(committed);
+        assertEquals(Arrays.asList("a", "a2", "b", "b2", "c", "c2"), committed);
+        assertTrue(autoCommit.get());
+    }
+
+    @Test
+    void testUpsertDuringAFailedBatchOnOneConnectionIsCommitted() throws SQLException {
+        // A connection that keeps the rows of its open transaction apart from the committed rows
+        AtomicBoolean autoCommit = new AtomicBoolean(true);
+        List<String> pending = new ArrayList<>();
+        List<String> committed = new ArrayList<>();
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenAnswer(invocation -> autoCommit.get());
+        doAnswer(
+                        invocation -> {
+                            autoCommit.set(invocation.getArgument(0));
+                            return null;
+                        })
+                .when(connection)
+                .setAutoCommit(anyBoolean());
+        doAnswer(
+                        invocation -> {
+                            synchronized (pending) {
+                                pending.clear();
+                            }
+                            return null;
+                        })
+                .when(connection)
+                .rollback();
+        // Unless the upsert waits for the batch, it writes while the batch is still open
+        CountDownLatch batchWriting = new CountDownLatch(1);
+        CountDownLatch upsertWritten = new CountDownLatch(1);
+        when(connection.prepareStatement(anyString()))
+                .thenAnswer(
+                        prepare -> {
+                            PreparedStatement statement = mock(PreparedStatement.class);
+                            List<String> keys = new ArrayList<>();
+                            doAnswer(invocation -> keys.add(invocation.getArgument(1)))
+                                    .when(statement)
+                                    .setString(eq(2), anyString());
+                            when(statement.executeUpdate())
+                                    .thenAnswer(
+                                            invocation -> {
+                                                String key = keys.remove(keys.size() - 1);
+                                                synchronized (pending) {
+                                                    (autoCommit.get() ? committed : pending)
+                                                            .add(key);
+                                                }
+                                                upsertWritten.countDown();
+                                                return 1;
+                                            });
+                            when(statement.executeBatch())
+                                    .thenAnswer(
+                                            invocation -> {
+                                                synchronized (pending) {
+                                                    pending.addAll(keys);
+                                                }
+                                                batchWriting.countDown();
+                                                upsertWritten.await(100, TimeUnit.MILLISECONDS);
+                                                throw new SQLException("constraint");
+                                            });
+                            return statement;
+                        });
+
+        JDBCConnector connector = new JDBCConnector(connection);
+        Mono<Collection<String>> batch =
+                connector
+                        .upsertBatchAsync(
+                                "collection",
+                                Collections.singletonList(
+                                        new DatabaseEntry("bad", "{}", new float[] {1f}, null)))
+                        .cache();
+        batch.subscribe(v -> {}, e -> {});
+        assertDoesNotThrow(() -> batchWriting.await(5, TimeUnit.SECONDS));
+        connector
+                .upsertAsync("collection", "single", "{}", "{\"vector\":[1]}", ZonedDateTime.now())
+                .block();
+
+        assertThrows(SQLConnectorException.class, batch::block);
+        assertEquals(Collections.singletonList("single"), committed);
+        assertTrue(autoCommit.get());
+    }
+
+    @Test
+    void testCreateTableAddsTheTimestampOffsetColumn() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        ResultSet existing = mock(ResultSet.class);
+        ResultSet missing = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(existing.next()).thenReturn(true);
+        when(metaData.getColumns(any(), any(), anyString(), anyString())).thenReturn(existing);
+        when(metaData.getColumns(
+                        any(), any(), eq(JDBCConnector.TABLE_NAME), eq("timestamp_offset")))
+                .thenReturn(missing);
+
+        new JDBCConnector.Builder()
+                .withConnection(connection)
+                .withTimestampStorageFormat(TimestampStorageFormat.EPOCH_MILLIS)
+                .build()
+                .createTableAsync()
+                .block();
+
+        verify(statement)
+                .execute(
+                        "ALTER TABLE "
+                                + JDBCConnector.TABLE_NAME
+                                + " ADD COLUMN timestamp_offset INTEGER");
+        verify(statement, times(1)).execute(startsWith("ALTER TABLE"));
+    }
+
+    @Test
+    void testEpochTimestampsAreReadSinceAnInstant() throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getString("key")).thenReturn("key1");
+        when(resultSet.getString("metadata")).thenReturn("{}");
+        ZonedDateTime timestamp = ZonedDateTime.parse("2023-07-01T12:30:00.250+02:00");
+        when(resultSet.getLong("timestamp")).thenReturn(timestamp.toInstant().toEpochMilli());
+        when(resultSet.getInt("timestamp_offset")).thenReturn(7200);
+
+        JDBCConnector connector =
+                new JDBCConnector.Builder()
+                        .withConnection(connection)
+                        .withEmbeddingStorageFormat(EmbeddingStorageFormat.FLOAT32_BLOB)
+                        .withTimestampStorageFormat(TimestampStorageFormat.EPOCH_MILLIS)
+                        .withStatementCacheSize(0)
+                        .build();
+        Instant since = timestamp.toInstant().minusSeconds(60);
+        List<DatabaseEntry> entries =
+                connector
+                        .readModifiedSinceAsync("collection", since, EntryProjection.METADATA)
+                        .collectList()
+                        .block();
+
+        verify(connection)
+                .prepareStatement(
+                        "SELECT key, metadata, timestamp, timestamp_offset FROM "
+                                + JDBCConnector.TABLE_NAME
+                                + " WHERE collection = ? AND timestamp >= ? ORDER BY timestamp");
+        verify(statement).setLong(2, since.toEpochMilli());
+        assertEquals(1, entries.size());
+        assertEquals(timestamp, entries.get(0).getTimestamp());
+
+        connector.upsertAsync("collection", "key1", "{}", new float[] {1f}, timestamp).block();
+        verify(statement).setLong(5, timestamp.toInstant().toEpochMilli());
+        verify(statement).setInt(7, 7200);
+    }
+
+    @Test
+    void testTablePerCollectionRoutesStatements() throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        Statement ddl = mock(Statement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(connection.createStatement()).thenReturn(ddl);
+        when(statement.executeUpdate()).thenReturn(1);
+
+        JDBCConnector connector =
+                new JDBCConnector.Builder()
+                        .withConnection(connection)
+                        .withTableLayout(TableLayout.TABLE_PER_COLLECTION)
+                        .withStatementCacheSize(0)
+                        .build();
+        String table = JDBCConnector.TABLE_NAME + "_c_docs";
+        assertEquals(table, connector.memoryTable("docs"));
+        assertTrue(JDBCConnector.collectionTableName("My Docs").startsWith("SKMemoryTable_h_"));
+        assertNotEquals(
+                JDBCConnector.collectionTableName("Docs"),
+                JDBCConnector.collectionTableName("docs"));
+
+        connector.createCollectionAsync("docs").block();
+        verify(ddl).addBatch(startsWith("CREATE TABLE IF NOT EXISTS " + table + " (key TEXT"));
+        verify(statement).setString(2, table);
+
+        connector.upsertAsync("docs", "key1", "{}", new float[] {1f}, null).block();
+        verify(connection)
+                .prepareStatement(
+                        "INSERT OR REPLACE INTO "
+                                + table
+                                + " (key, metadata, embedding, timestamp, norm)"
+                                + " VALUES (?, ?, ?, ?, ?)");
+        verify(statement).setString(1, "key1");
+
+        connector.deleteAsync("docs", "key1").block();
+        verify(connection).prepareStatement("DELETE FROM " + table + " WHERE key = ?");
+
+        connector.deleteCollectionAsync("docs").block();
+        verify(connection).prepareStatement("DROP TABLE IF EXISTS " + table);
+    }
+
+    @Test
+    void testClusterQueriesBindClustersAfterTheCollection() throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(false);
+
+        JDBCConnector connector =
+                new JDBCConnector.Builder()
+                        .withConnection(connection)
+                        .withEmbeddingStorageFormat(EmbeddingStorageFormat.FLOAT32_BLOB)
+                        .withStatementCacheSize(0)
+                        .build();
+        connector
+                .streamClustersAsync(
+                        "collection", Arrays.asList(3, 7), 0, EntryProjection.EMBEDDING)
+                .collectList()
+                .block();
+
+        verify(connection)
+                .prepareStatement(
+                        "SELECT key, embedding, norm FROM "
+                                + JDBCConnector.TABLE_NAME
+                                + " WHERE collection = ?"
+                                + " AND (cluster_id IN (?, ?) OR cluster_id IS NULL)");
+        verify(statement).setString(1, "collection");
+        verify(statement).setInt(2, 3);
+        verify(statement).setInt(3, 7);
+
+        connector.assignClustersAsync("collection", Collections.singletonMap("key1", 5)).block();
+        verify(connection)
+                .prepareStatement(
+                        "UPDATE "
+                                + JDBCConnector.TABLE_NAME
+                                + " SET cluster_id = ? WHERE collection = ? AND key = ?");
+        verify(statement).setInt(1, 5);
+        verify(statement).setString(3, "key1");
+        verify(connection).commit();
+    }
 }
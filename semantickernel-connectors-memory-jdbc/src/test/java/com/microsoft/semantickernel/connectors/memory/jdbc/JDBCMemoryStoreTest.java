@@ -0,0 +1,240 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import com.microsoft.semantickernel.ai.embeddings.Embedding;
+import com.microsoft.semantickernel.memory.MemoryRecord;
+import com.microsoft.semantickernel.memory.MemoryRecordMetadata;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+public class JDBCMemoryStoreTest {
+    private static MemoryRecord record(String key) {
+        return MemoryRecord.localRecord(
+                key, "text", "", new Embedding(Arrays.asList(1f, 0f)), "", key, null);
+    }
+
+    @Test
+    void testBulkUpsertRetriesOnlyTheFailedChunk() {
+        SQLConnector connector = mock(SQLConnector.class);
+        when(connector.doesCollectionExistsAsync("collection")).thenReturn(Mono.just(true));
+        AtomicInteger calls = new AtomicInteger();
+        List<List<String>> written = new ArrayList<>();
+        when(connector.upsertBatchAsync(anyString(), any()))
+                .thenAnswer(
+                        invocation -> {
+                            Collection<DatabaseEntry> entries = invocation.getArgument(1);
+                            if (calls.incrementAndGet() == 2) {
+                                return Mono.error(
+                                        new SQLConnectorException(
+                                                SQLConnectorException.ErrorCodes.SQL_ERROR,
+                                                "failed",
+                                                new SQLException("busy")));
+                            }
+                            List<String> keys = new ArrayList<>();
+                            entries.forEach(entry -> keys.add(entry.getKey()));
+                            written.add(keys);
+                            return Mono.just(keys);
+                        });
+
+        JDBCMemoryStore store = new JDBCMemoryStore(connector);
+        List<BulkUpsertProgress> progress =
+                store.upsertBulkAsync(
+                                "collection",
+                                Flux.just("a", "b", "c", "d", "e").map(JDBCMemoryStoreTest::record),
+                                new BulkUpsertOptions.Builder()
+                                        .withCommitRows(2)
+                                        .withRetryBackoff(Duration.ofMillis(1))
+                                        .build())
+                        .collectList()
+                        .block();
+
+        assertEquals(3, progress.size());
+        assertEquals(Arrays.asList("a", "b"), progress.get(0).getKeys());
+        assertEquals(Arrays.asList("c", "d"), progress.get(1).getKeys());
+        assertEquals(Arrays.asList("e"), progress.get(2).getKeys());
+        assertEquals(1, progress.get(0).getAttempts());
+        assertEquals(2, progress.get(1).getAttempts());
+        assertEquals(1, progress.get(2).getAttempts());
+        assertEquals(5, progress.get(2).getTotalRows());
+        assertEquals(
+                progress.get(0).getBytes()
+                        + progress.get(1).getBytes()
+                        + progress.get(2).getBytes(),
+                progress.get(2).getTotalBytes());
+        // The committed first chunk is not written again
+        assertEquals(
+                Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d"), Arrays.asList("e")),
+                written);
+    }
+
+    @Test
+    void testBulkUpsertFailsAfterRetries() {
+        SQLConnector connector = mock(SQLConnector.class);
+        when(connector.doesCollectionExistsAsync("collection")).thenReturn(Mono.just(true));
+        SQLConnectorException failure =
+                new SQLConnectorException(
+                        SQLConnectorException.ErrorCodes.SQL_ERROR, "failed", new SQLException());
+        when(connector.upsertBatchAsync(anyString(), any())).thenReturn(Mono.error(failure));
+
+        JDBCMemoryStore store = new JDBCMemoryStore(connector);
+        Flux<BulkUpsertProgress> progress =
+                store.upsertBulkAsync(
+                        "collection",
+                        Flux.just(record("a")),
+                        new BulkUpsertOptions.Builder()
+                                .withMaxRetries(2)
+                                .withRetryBackoff(Duration.ofMillis(1))
+                                .build());
+
+        assertSame(failure, assertThrows(SQLConnectorException.class, progress::blockLast));
+    }
+
+    @Test
+    void testQuantizedSearchWithoutLimitReturnsEveryRow() throws Exception {
+        SQLConnector connector = mock(SQLConnector.class);
+        List<DatabaseEntry> quantized = new ArrayList<>();
+        List<DatabaseEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String key = "key" + i;
+            float[] vector = {1f, i};
+            quantized.add(new DatabaseEntry(key, ScalarQuantizer.encode(vector)));
+            String metadata =
+                    JsonCodec.writeMetadata(
+                            new MemoryRecordMetadata(true, key, "text", "", "", key));
+            entries.add(new DatabaseEntry(key, metadata, vector, null));
+        }
+        when(connector.streamAllAsync(anyString(), anyInt(), eq(EntryProjection.QUANTIZED)))
+                .thenReturn(Flux.fromIterable(quantized));
+        when(connector.readBatchAsync(anyString(), any(), any())).thenReturn(Mono.just(entries));
+
+        JDBCMemoryStore store =
+                new JDBCMemoryStore(
+                        connector,
+                        new JDBCMemoryStore.Builder()
+                                .withEmbeddingStorageFormat(EmbeddingStorageFormat.INT8_QUANTIZED));
+        // The oversampled candidate count overflows any heap allocated up front
+        Collection<Tuple2<MemoryRecord, Float>> matches =
+                store.getNearestMatchesAsync(
+                                "collection",
+                                new Embedding(Arrays.asList(1f, 0f)),
+                                Integer.MAX_VALUE,
+                                -1f,
+                                false)
+                        .block();
+
+        assertEquals(10, matches.size());
+        assertEquals("key0", matches.iterator().next().getT1().getMetadata().getId());
+    }
+
+    @Test
+    void testQuantizedSearchRecallPerOversample() throws Exception {
+        // The fraction of the exact nearest matches found, which rises with the candidates
+        // rescored per match
+        assertRecall(EmbeddingStorageFormat.INT8_QUANTIZED, 1, 0.9);
+        assertRecall(EmbeddingStorageFormat.INT8_QUANTIZED, 4, 0.95);
+        assertRecall(EmbeddingStorageFormat.BINARY_SIGNATURE, 1, 0.1);
+        assertRecall(EmbeddingStorageFormat.BINARY_SIGNATURE, 4, 0.3);
+        assertRecall(EmbeddingStorageFormat.BINARY_SIGNATURE, 16, 0.6);
+    }
+
+    private static void assertRecall(
+            EmbeddingStorageFormat format, int rescoreOversample, double floor) throws Exception {
+        int count = 2000;
+        int dimension = 64;
+        int limit = 10;
+        int queries = 20;
+        Random random = new Random(42);
+        List<float[]> vectors = new ArrayList<>();
+        List<DatabaseEntry> quantized = new ArrayList<>();
+        Map<String, DatabaseEntry> entries = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String key = "key" + i;
+            float[] vector = gaussian(random, dimension);
+            vectors.add(vector);
+            quantized.add(
+                    new DatabaseEntry(
+                            key,
+                            format == EmbeddingStorageFormat.BINARY_SIGNATURE
+                                    ? BinarySignature.encode(vector)
+                                    : ScalarQuantizer.encode(vector)));
+            String metadata =
+                    JsonCodec.writeMetadata(
+                            new MemoryRecordMetadata(true, key, "text", "", "", key));
+            entries.put(key, new DatabaseEntry(key, metadata, vector, null));
+        }
+        SQLConnector connector = mock(SQLConnector.class);
+        when(connector.streamAllAsync(anyString(), anyInt(), eq(EntryProjection.QUANTIZED)))
+                .thenAnswer(invocation -> Flux.fromIterable(quantized));
+        when(connector.readBatchAsync(anyString(), any(), any()))
+                .thenAnswer(
+                        invocation -> {
+                            Collection<String> keys = invocation.getArgument(1);
+                            List<DatabaseEntry> read = new ArrayList<>();
+                            keys.forEach(key -> read.add(entries.get(key)));
+                            return Mono.just(read);
+                        });
+        JDBCMemoryStore store =
+                new JDBCMemoryStore(
+                        connector,
+                        new JDBCMemoryStore.Builder()
+                                .withEmbeddingStorageFormat(format)
+                                .withRescoreOversample(rescoreOversample));
+
+        int found = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = gaussian(random, dimension);
+            TopKHeap exact = new TopKHeap(limit);
+            for (int i = 0; i < count; i++) {
+                exact.offer(SimilarityKernels.cosine(query, vectors.get(i)), i);
+            }
+            Set<String> expected = new HashSet<>();
+            for (int i = 0; i < exact.size(); i++) {
+                expected.add("key" + exact.index(i));
+            }
+            List<Float> components = new ArrayList<>();
+            for (float component : query) {
+                components.add(component);
+            }
+            Collection<Tuple2<MemoryRecord, Float>> matches =
+                    store.getNearestMatchesAsync(
+                                    "collection", new Embedding(components), limit, -1f, false)
+                            .block();
+            for (Tuple2<MemoryRecord, Float> match : matches) {
+                if (expected.contains(match.getT1().getMetadata().getId())) {
+                    found++;
+                }
+            }
+        }
+        double recall = (double) found / (queries * limit);
+        assertTrue(
+                recall >= floor,
+                format + " with an oversample of " + rescoreOversample + ": " + recall);
+    }
+
+    private static float[] gaussian(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,35 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.microsoft.semantickernel.ai.embeddings.Embedding;
+import com.microsoft.semantickernel.memory.MemoryRecord;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+public class JsonCodecTest {
+    @Test
+    void testMatchesMemoryRecordSerialization() throws JsonProcessingException {
+        MemoryRecord record =
+                MemoryRecord.localRecord(
+                        "id",
+                        "text",
+                        "description",
+                        new Embedding(Arrays.asList(1f, 2f)),
+                        "additional",
+                        "key",
+                        ZonedDateTime.now());
+
+        String metadata = JsonCodec.writeMetadata(record.getMetadata());
+
+        assertEquals(record.getSerializedMetadata(), metadata);
+        assertEquals(
+                record.getSerializedEmbedding(), JsonCodec.writeEmbedding(record.getEmbedding()));
+        assertEquals(
+                MemoryRecord.fromJsonMetadata(metadata, null, "key", record.getTimestamp()),
+                JsonCodec.readMemoryRecord(metadata, null, "key", record.getTimestamp()));
+    }
+}
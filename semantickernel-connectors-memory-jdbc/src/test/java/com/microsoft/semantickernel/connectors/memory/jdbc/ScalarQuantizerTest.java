@@ -0,0 +1,52 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class ScalarQuantizerTest {
+    @Test
+    void testRoundTripIsWithinHalfAStep() {
+        float[] vector = {-1f, 0.5f, 2f, 0.123f, -0.75f};
+
+        byte[] bytes = ScalarQuantizer.encode(vector);
+        float[] decoded = ScalarQuantizer.decode(bytes);
+
+        assertEquals(ScalarQuantizer.HEADER_BYTES + vector.length, bytes.length);
+        float step = 3f / 255;
+        for (int i = 0; i < vector.length; i++) {
+            assertEquals(vector[i], decoded[i], step / 2 + 1e-6f);
+        }
+        // The extremes are exact
+        assertEquals(-1f, decoded[0], 1e-6f);
+        assertEquals(2f, decoded[2], 1e-5f);
+        assertArrayEquals(
+                new float[] {3f, 3f},
+                ScalarQuantizer.decode(ScalarQuantizer.encode(new float[] {3f, 3f})));
+    }
+
+    @Test
+    void testQueryApproximatesCosine() {
+        Random random = new Random(5);
+        float[] query = new float[384];
+        float[] vector = new float[384];
+        for (int i = 0; i < query.length; i++) {
+            query[i] = (float) random.nextGaussian();
+            vector[i] = (float) random.nextGaussian() + 0.5f * query[i];
+        }
+
+        ScalarQuantizer.Query quantized =
+                ScalarQuantizer.quantizeQuery(SimilarityKernels.normalize(query));
+
+        assertEquals(
+                SimilarityKernels.cosine(query, vector),
+                quantized.unitCosine(ScalarQuantizer.encode(vector)),
+                0.01f);
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> quantized.dot(ScalarQuantizer.encode(new float[] {1f, 2f})));
+        assertThrows(SQLConnectorException.class, () -> quantized.dot(new byte[] {1, 0, 0, 0, 0}));
+    }
+}
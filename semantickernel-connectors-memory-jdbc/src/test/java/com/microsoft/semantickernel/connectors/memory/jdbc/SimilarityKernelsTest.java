@@ -0,0 +1,110 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class SimilarityKernelsTest {
+    @Test
+    void testUnitCosineMatchesCosine() {
+        Random random = new Random(11);
+        float[] query = new float[64];
+        float[] vector = new float[64];
+        for (int i = 0; i < 64; i++) {
+            query[i] = (float) random.nextGaussian();
+            vector[i] = (float) random.nextGaussian();
+        }
+
+        float similarity =
+                SimilarityKernels.unitCosine(
+                        SimilarityKernels.normalize(query), vector, SimilarityKernels.norm(vector));
+
+        assertEquals(SimilarityKernels.cosine(query, vector), similarity, 1e-5f);
+        assertEquals(1f, SimilarityKernels.norm(SimilarityKernels.normalize(vector)), 1e-5f);
+    }
+
+    @Test
+    void testZeroNormIsRejected() {
+        float[] zero = new float[3];
+        assertThrows(IllegalArgumentException.class, () -> SimilarityKernels.normalize(zero));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> SimilarityKernels.unitCosine(new float[] {1f, 0f, 0f}, zero, 0f));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> SimilarityKernels.unitCosine(new float[] {1f, 0f}, zero, 1f));
+    }
+
+    @Test
+    void testInt8DotProduct() {
+        byte[] a = {-128, 127, 3, 0};
+        byte[] b = {9, -128, 127, 2, -1};
+
+        assertEquals(-128 * -128 + 127 * 127 + 3 * 2, SimilarityKernels.dot(a, 0, b, 1, 3));
+    }
+
+    @Test
+    void testFloatKernelsMatchDoublePrecisionReference() {
+        // Lengths around the vector widths exercise the loops over lanes and the remainders
+        Random random = new Random(5);
+        FloatVectorKernels scalar = new ScalarFloatKernels();
+        for (int length : new int[] {1, 3, 4, 7, 8, 15, 16, 17, 31, 33, 64, 100, 384, 1536}) {
+            float[] a = new float[length];
+            float[] matrix = new float[length + 3];
+            for (int i = 0; i < length; i++) {
+                a[i] = (float) random.nextGaussian();
+            }
+            for (int i = 0; i < matrix.length; i++) {
+                matrix[i] = (float) random.nextGaussian();
+            }
+            FloatBuffer buffer =
+                    ByteBuffer.allocateDirect(matrix.length * Float.BYTES)
+                            .order(ByteOrder.nativeOrder())
+                            .asFloatBuffer();
+            buffer.put(matrix);
+            float[] b = new float[length];
+            System.arraycopy(matrix, 3, b, 0, length);
+
+            double dot = 0;
+            double normA = 0;
+            double normB = 0;
+            double squaredDistance = 0;
+            for (int i = 0; i < length; i++) {
+                dot += (double) a[i] * b[i];
+                normA += (double) a[i] * a[i];
+                normB += (double) b[i] * b[i];
+                squaredDistance += ((double) a[i] - b[i]) * ((double) a[i] - b[i]);
+            }
+            double tolerance = 1e-5 * Math.sqrt(normA * normB);
+            double cosine = dot / Math.sqrt(normA * normB);
+
+            assertEquals(dot, SimilarityKernels.dot(a, b), tolerance);
+            assertEquals(dot, SimilarityKernels.dot(a, buffer, 3), tolerance);
+            assertEquals(dot, scalar.dot(a, 0, matrix, 3, length), tolerance);
+            assertEquals(dot, scalar.dot(a, buffer, 3, length), tolerance);
+            assertEquals(cosine, SimilarityKernels.cosine(a, matrix, 3), 1e-5);
+            assertEquals(cosine, scalar.cosine(a, 0, matrix, 3, length), 1e-5);
+            assertEquals(Math.sqrt(normB), SimilarityKernels.norm(b), 1e-5 * Math.sqrt(normB));
+            assertEquals(
+                    Math.sqrt(squaredDistance),
+                    SimilarityKernels.l2Distance(a, b),
+                    1e-5 * Math.sqrt(squaredDistance));
+            assertEquals(
+                    Math.sqrt(squaredDistance),
+                    SimilarityKernels.l2Distance(a, buffer, 3),
+                    1e-5 * Math.sqrt(squaredDistance));
+            assertEquals(
+                    squaredDistance,
+                    scalar.squaredDistance(a, buffer, 3, length),
+                    1e-5 * squaredDistance);
+        }
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> SimilarityKernels.l2Distance(new float[2], new float[3]));
+    }
+}
@@ -0,0 +1,100 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class StatementCacheTest {
+    private static Connection mockConnection(List<PreparedStatement> prepared) throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString()))
+                .thenAnswer(
+                        invocation -> {
+                            PreparedStatement statement = mock(PreparedStatement.class);
+                            prepared.add(statement);
+                            return statement;
+                        });
+        return connection;
+    }
+
+    @Test
+    void testReusesStatementsByShape() throws SQLException {
+        List<PreparedStatement> prepared = new ArrayList<>();
+        Connection connection = mockConnection(prepared);
+        JDBCConnector connector = new JDBCConnector(connection);
+
+        String twoKeys =
+                connector.batchQuery(JDBCConnector.BatchOperation.SELECT, Arrays.asList("a", "b"));
+        String threeKeys =
+                connector.batchQuery(
+                        JDBCConnector.BatchOperation.SELECT, Arrays.asList("a", "b", "c"));
+        for (int i = 0; i < 3; i++) {
+            connector.getConnection().prepareStatement(twoKeys).close();
+            connector.getConnection().prepareStatement(threeKeys).close();
+        }
+
+        StatementCacheStatistics statistics = connector.getStatementCacheStatistics();
+        assertEquals(2, prepared.size());
+        assertEquals(4, statistics.getHits());
+        assertEquals(2, statistics.getMisses());
+        verify(prepared.get(0), times(3)).clearParameters();
+
+        connector.close();
+        verify(prepared.get(0)).close();
+        verify(prepared.get(1)).close();
+        verify(connection).close();
+    }
+
+    @Test
+    void testConcurrentCheckoutsGetSeparateStatements() throws SQLException {
+        List<PreparedStatement> prepared = new ArrayList<>();
+        StatementCache cache =
+                new StatementCache(mockConnection(prepared), 4, new StatementCacheStatistics());
+
+        PreparedStatement first = cache.prepare("SELECT 1");
+        PreparedStatement second = cache.prepare("SELECT 1");
+        first.setInt(1, 1);
+        second.setInt(1, 2);
+        first.close();
+        second.close();
+
+        assertEquals(2, prepared.size());
+        verify(prepared.get(0)).setInt(1, 1);
+        verify(prepared.get(1)).setInt(1, 2);
+        // Only one idle statement is kept per shape
+        verify(prepared.get(0)).close();
+        assertTrue(first.isClosed());
+        assertThrows(SQLException.class, () -> first.setInt(1, 3));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() throws SQLException {
+        List<PreparedStatement> prepared = new ArrayList<>();
+        StatementCacheStatistics statistics = new StatementCacheStatistics();
+        StatementCache cache = new StatementCache(mockConnection(prepared), 2, statistics);
+
+        cache.prepare("SELECT 1").close();
+        cache.prepare("SELECT 2").close();
+        cache.prepare("SELECT 1").close();
+        cache.prepare("SELECT 3").close();
+
+        verify(prepared.get(1)).close();
+        verify(prepared.get(0), never()).close();
+        cache.prepare("SELECT 1").close();
+        assertEquals(2, statistics.getHits());
+        assertEquals(3, statistics.getMisses());
+
+        cache.close();
+        verify(prepared.get(0)).close();
+        verify(prepared.get(2)).close();
+    }
+}
@@ -0,0 +1,74 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class TopKHeapTest {
+    @Test
+    void testMatchesStableSortOfAllScores() {
+        Random random = new Random(3);
+        List<Integer> rows = new ArrayList<>();
+        float[] scores = new float[2000];
+        TopKHeap heap = new TopKHeap(25);
+        for (int i = 0; i < scores.length; i++) {
+            // Few distinct values so that ties are common
+            scores[i] = random.nextInt(50) / 10f;
+            rows.add(i);
+            heap.offer(scores[i], i);
+        }
+        List<Integer> expected =
+                rows.stream()
+                        .sorted(Comparator.comparing(i -> scores[i], (a, b) -> Float.compare(b, a)))
+                        .limit(25)
+                        .collect(Collectors.toList());
+
+        heap.sortDescending();
+
+        assertEquals(25, heap.size());
+        for (int i = 0; i < heap.size(); i++) {
+            assertEquals(expected.get(i), heap.index(i));
+            assertEquals(scores[expected.get(i)], heap.score(i));
+        }
+    }
+
+    @Test
+    void testThresholdAndCapacity() {
+        TopKHeap heap = new TopKHeap(2);
+        assertTrue(heap.offer(0.5f, 0));
+        assertEquals(Float.NEGATIVE_INFINITY, heap.threshold());
+        assertTrue(heap.offer(0.2f, 1));
+        assertEquals(0.2f, heap.threshold());
+        assertFalse(heap.offer(0.1f, 2));
+        assertTrue(heap.offer(0.9f, 3));
+        assertEquals(0.5f, heap.threshold());
+
+        TopKHeap empty = new TopKHeap(0);
+        assertFalse(empty.offer(1f, 0));
+        assertEquals(0, empty.size());
+    }
+
+    @Test
+    void testUnboundedCapacityGrowsWithOffers() {
+        // The capacity callers pass to keep every match must not be allocated up front
+        TopKHeap heap = new TopKHeap(Integer.MAX_VALUE);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(heap.offer(i % 7, i));
+        }
+        assertEquals(Float.NEGATIVE_INFINITY, heap.threshold());
+
+        heap.sortDescending();
+
+        assertEquals(1000, heap.size());
+        assertEquals(6f, heap.score(0));
+        assertEquals(6, heap.index(0));
+        assertEquals(0f, heap.score(999));
+        assertEquals(994, heap.index(999));
+    }
+}
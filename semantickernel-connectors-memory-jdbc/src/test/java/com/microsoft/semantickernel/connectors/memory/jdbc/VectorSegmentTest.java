@@ -0,0 +1,150 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+public class VectorSegmentTest {
+    @TempDir Path directory;
+
+    @Test
+    void testReloadTrustsOnlySlotsThatRowsPointTo() {
+        SQLConnector connector = mock(SQLConnector.class);
+        Map<String, Long> stored = new HashMap<>();
+        when(connector.readSegmentOffsetsAsync("c")).thenReturn(Mono.just(Collections.emptyMap()));
+        when(connector.assignSegmentOffsetsAsync(eq("c"), anyMap()))
+                .thenAnswer(
+                        invocation -> {
+                            stored.putAll(invocation.getArgument(1));
+                            return Mono.empty();
+                        });
+
+        VectorSegment segment = new VectorSegment("c", directory, connector).loadAsync().block();
+        Map<String, float[]> vectors = new LinkedHashMap<>();
+        vectors.put("a", new float[] {1f, 0f});
+        vectors.put("b", new float[] {0f, 1f});
+        segment.appendAsync(vectors).block();
+        // Moves a to a new slot
+        segment.appendAsync(Collections.singletonMap("a", new float[] {2f, 0.1f})).block();
+        segment.remove(Collections.singletonList("b"));
+
+        assertEquals(1, segment.size());
+        assertEquals("a", segment.search(new float[] {1f, 0f}, 2, -1f, null, 1).get(0).getT1());
+        assertEquals(
+                VectorSegment.HEADER_BYTES + 2L * (16 + 2 * Float.BYTES), (long) stored.get("a"));
+        assertArrayEquals(
+                new float[] {2f, 0.1f}, segment.vectors(Collections.singletonList("a")).get("a"));
+
+        // b points to a tombstone and d to the slot of another key; they are read again with e
+        Map<String, Long> offsets = new HashMap<>(stored);
+        offsets.put("d", stored.get("a"));
+        offsets.put("e", -1L);
+        when(connector.readSegmentOffsetsAsync("c")).thenReturn(Mono.just(offsets));
+        when(connector.readBatchAsync(eq("c"), any(), eq(EntryProjection.EMBEDDING)))
+                .thenAnswer(
+                        invocation -> {
+                            Collection<String> keys = invocation.getArgument(1);
+                            assertEquals(
+                                    Arrays.asList("b", "d", "e"),
+                                    keys.stream().sorted().collect(Collectors.toList()));
+                            List<DatabaseEntry> entries = new ArrayList<>();
+                            for (String key : keys) {
+                                entries.add(
+                                        new DatabaseEntry(key, null, new float[] {0f, 3f}, null));
+                            }
+                            return Mono.just(entries);
+                        });
+
+        VectorSegment reloaded = new VectorSegment("c", directory, connector).loadAsync().block();
+        assertEquals(4, reloaded.size());
+        List<Tuple2<String, Float>> matches =
+                reloaded.search(new float[] {1f, 0f}, 1, -1f, null, 1);
+        assertEquals("a", matches.get(0).getT1());
+        assertEquals(2f / (float) Math.sqrt(4.01), matches.get(0).getT2(), 1e-6f);
+        assertEquals(3, reloaded.search(new float[] {0f, 1f}, 5, 0.5f, null, 1).size());
+    }
+
+    @Test
+    void testCompactsOnceTombstonesOutnumberLiveSlots() throws Exception {
+        SQLConnector connector = mock(SQLConnector.class);
+        when(connector.readSegmentOffsetsAsync("c")).thenReturn(Mono.just(Collections.emptyMap()));
+        when(connector.assignSegmentOffsetsAsync(eq("c"), anyMap())).thenReturn(Mono.empty());
+
+        VectorSegment segment = new VectorSegment("c", directory, connector).loadAsync().block();
+        int count = 2 * VectorSegment.MIN_COMPACTION_TOMBSTONES + 2;
+        Map<String, float[]> vectors = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            vectors.put("k" + i, new float[] {1f, i});
+        }
+        segment.appendAsync(vectors).block();
+        segment.remove(vectors.keySet().stream().limit(count / 2 + 1).collect(Collectors.toList()));
+
+        // The live slots are copied to the start of the next generation, and their offsets stored
+        long lastOffset = VectorSegment.HEADER_BYTES + (count / 2 - 2) * (16L + 2 * Float.BYTES);
+        verify(connector, timeout(5000))
+                .assignSegmentOffsetsAsync(
+                        eq("c"),
+                        argThat(
+                                offsets ->
+                                        Long.valueOf(lastOffset)
+                                                .equals(offsets.get("k" + (count - 1)))));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(
+                    Collections.singletonList(JDBCConnector.collectionTableName("c") + ".1.seg"),
+                    files.map(file -> file.getFileName().toString()).collect(Collectors.toList()));
+        }
+        assertEquals(count / 2 - 1, segment.size());
+        assertEquals(
+                "k" + (count / 2 + 1),
+                segment.search(new float[] {1f, 0f}, 1, -1f, null, 1).get(0).getT1());
+    }
+
+    @Test
+    void testCloseUnmapsTheFileAndKeepsIt() {
+        SQLConnector connector = mock(SQLConnector.class);
+        Map<String, Long> stored = new HashMap<>();
+        when(connector.readSegmentOffsetsAsync("c")).thenAnswer(invocation -> Mono.just(stored));
+        when(connector.assignSegmentOffsetsAsync(eq("c"), anyMap()))
+                .thenAnswer(
+                        invocation -> {
+                            stored.putAll(invocation.getArgument(1));
+                            return Mono.empty();
+                        });
+
+        VectorSegment segment = new VectorSegment("c", directory, connector).loadAsync().block();
+        segment.appendAsync(Collections.singletonMap("a", new float[] {1f, 0f})).block();
+        segment.close();
+
+        assertEquals(0, segment.size());
+        assertTrue(segment.search(new float[] {1f, 0f}, 1, -1f, null, 1).isEmpty());
+        assertThrows(
+                IllegalStateException.class,
+                () ->
+                        segment.appendAsync(Collections.singletonMap("b", new float[] {0f, 1f}))
+                                .block());
+        VectorSegment reloaded = new VectorSegment("c", directory, connector).loadAsync().block();
+        assertEquals(1, reloaded.size());
+        reloaded.close();
+    }
+}
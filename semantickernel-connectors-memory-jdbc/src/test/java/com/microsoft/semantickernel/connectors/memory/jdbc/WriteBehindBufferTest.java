@@ -0,0 +1,145 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.semantickernel.connectors.memory.jdbc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.microsoft.semantickernel.ai.embeddings.Embedding;
+import com.microsoft.semantickernel.connectors.memory.jdbc.WriteBehindOptions.Durability;
+import com.microsoft.semantickernel.memory.MemoryRecord;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+public class WriteBehindBufferTest {
+    private static MemoryRecord record(String key, String text) {
+        return MemoryRecord.localRecord(
+                key, text, "", new Embedding(Arrays.asList(1f, 0f)), "", key, null);
+    }
+
+    private static WriteBehindOptions options(int maxRecords, Durability durability) {
+        return new WriteBehindOptions.Builder()
+                .withMaxBufferedRecords(maxRecords)
+                .withFlushInterval(Duration.ofHours(1))
+                .withDurability(durability)
+                .build();
+    }
+
+    @Test
+    void testCoalescesAndFlushesWhenFull() {
+        List<List<MemoryRecord>> batches = Collections.synchronizedList(new ArrayList<>());
+        WriteBehindBuffer buffer =
+                new WriteBehindBuffer(
+                        options(2, Durability.FLUSHED),
+                        (collection, records) -> {
+                            batches.add(records);
+                            return Mono.just(records.size());
+                        });
+
+        Mono<String> first = buffer.putAsync("collection", record("a", "old")).cache();
+        first.subscribe();
+        buffer.putAsync("collection", record("a", "new")).subscribe();
+        assertEquals("new", buffer.get("collection", "a").getMetadata().getText());
+        assertTrue(batches.isEmpty());
+
+        assertEquals("b", buffer.putAsync("collection", record("b", "b")).block());
+        assertEquals("a", first.block());
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertEquals("new", batches.get(0).get(0).getMetadata().getText());
+        assertNull(buffer.get("collection", "a"));
+    }
+
+    @Test
+    void testDiscardsSupersededRecords() {
+        List<MemoryRecord> written = Collections.synchronizedList(new ArrayList<>());
+        Sinks.Empty<Void> release = Sinks.empty();
+        WriteBehindBuffer buffer =
+                new WriteBehindBuffer(
+                        options(10, Durability.ENQUEUED),
+                        (collection, records) ->
+                                release.asMono().doOnSuccess(v -> written.addAll(records)));
+
+        assertEquals("a", buffer.putAsync("collection", record("a", "a")).block());
+        buffer.flushAsync().subscribe();
+        assertEquals("b", buffer.putAsync("collection", record("b", "b")).block());
+        assertNotNull(buffer.get("collection", "a"));
+
+        // "b" is dropped at once, while "a" is written by the running flush first
+        buffer.discardAsync("collection", Collections.singletonList("b")).block();
+        assertNull(buffer.get("collection", "b"));
+        Mono<Void> discardA = buffer.discardAsync("collection", Collections.singletonList("a"));
+        release.tryEmitEmpty();
+        discardA.block();
+        buffer.flushAsync().block();
+        assertEquals(1, written.size());
+        assertEquals("a", written.get(0).getMetadata().getId());
+    }
+
+    @Test
+    void testFailsFlushedUpsertsWhenTheWriteFails() {
+        WriteBehindBuffer buffer =
+                new WriteBehindBuffer(
+                        options(10, Durability.FLUSHED),
+                        (collection, records) -> Mono.error(new IllegalStateException("down")));
+
+        Mono<String> upsert = buffer.putAsync("collection", record("a", "a")).cache();
+        upsert.subscribe(key -> {}, error -> {});
+        assertThrows(IllegalStateException.class, () -> buffer.flushAsync().block());
+        assertThrows(IllegalStateException.class, upsert::block);
+    }
+
+    @Test
+    void testCloseFlushesTheBufferedRecords() {
+        List<MemoryRecord> written = Collections.synchronizedList(new ArrayList<>());
+        WriteBehindBuffer buffer =
+                new WriteBehindBuffer(
+                        options(10, Durability.ENQUEUED),
+                        (collection, records) ->
+                                Mono.delay(Duration.ofMillis(20))
+                                        .doOnNext(tick -> written.addAll(records)));
+
+        assertEquals("a", buffer.putAsync("collection", record("a", "a")).block());
+        buffer.close();
+
+        assertEquals(1, written.size());
+        assertEquals("a", written.get(0).getMetadata().getId());
+        assertThrows(
+                IllegalStateException.class,
+                () -> buffer.putAsync("collection", record("b", "b")).block());
+    }
+
+    @Test
+    void testCloseDropsTheRecordsWhenTheFlushTimesOut() {
+        List<MemoryRecord> written = Collections.synchronizedList(new ArrayList<>());
+        Sinks.Empty<Void> release = Sinks.empty();
+        WriteBehindBuffer buffer =
+                new WriteBehindBuffer(
+                        new WriteBehindOptions.Builder()
+                                .withMaxBufferedRecords(10)
+                                .withFlushInterval(Duration.ofHours(1))
+                                .withDurability(Durability.FLUSHED)
+                                .withCloseTimeout(Duration.ofMillis(50))
+                                .build(),
+                        (collection, records) ->
+                                release.asMono().doOnSuccess(v -> written.addAll(records)));
+
+        Mono<String> first = buffer.putAsync("collection", record("a", "a")).cache();
+        first.subscribe(key -> {}, error -> {});
+        buffer.flushAsync().subscribe(v -> {}, error -> {});
+        Mono<String> second = buffer.putAsync("collection", record("b", "b")).cache();
+        second.subscribe(key -> {}, error -> {});
+        buffer.close();
+        release.tryEmitEmpty();
+
+        // The running flush completes, while the records still filling are dropped
+        assertEquals("a", first.block());
+        assertThrows(IllegalStateException.class, second::block);
+        assertEquals(1, written.size());
+        assertEquals("a", written.get(0).getMetadata().getId());
+    }
+}